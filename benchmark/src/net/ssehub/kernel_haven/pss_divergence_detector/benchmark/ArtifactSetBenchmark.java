@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.ssehub.kernel_haven.code_model.CodeBlock;
+import net.ssehub.kernel_haven.pss_divergence_detector.CompressedBitmap;
+import net.ssehub.kernel_haven.pss_divergence_detector.MultiMappingDivergenceDetector;
+import net.ssehub.kernel_haven.util.logic.True;
+
+/**
+ * This JMH benchmark compares the set operations on the artifacts (source file paths and code elements) of variables,
+ * which the {@link MultiMappingDivergenceDetector} requires, for two representations: a {@link HashSet} of the
+ * artifacts and a {@link CompressedBitmap} of dense artifact identifiers. It measures creating the sets of all
+ * variables (including the assignment of the identifiers) as well as checking equality, intersection, and containment
+ * of the sets of consecutive variables. A third of these pairs have equal sets, another third subsets, and the
+ * remaining pairs random sets.
+ * 
+ * @author Christian Kröher
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArtifactSetBenchmark {
+
+    /**
+     * The number of variables, whose artifact sets are created and compared.
+     */
+    private static final int VARIABLES = 1000;
+
+    /**
+     * The number of artifacts each variable is mapped to.
+     */
+    @Param({"2", "20", "200"})
+    public int artifactsPerVariable;
+
+    /**
+     * The number of distinct artifacts all variables are mapped to.
+     */
+    @Param({"10000", "200000"})
+    public int distinctArtifacts;
+
+    /**
+     * The artifacts of each variable.
+     */
+    private List<List<Object>> variableArtifacts;
+
+    /**
+     * The artifacts of each variable as {@link HashSet}.
+     */
+    private List<Set<Object>> hashSets;
+
+    /**
+     * The artifacts of each variable as {@link CompressedBitmap}.
+     */
+    private List<CompressedBitmap> bitmaps;
+
+    /**
+     * Creates the artifacts of all variables and their sets.
+     */
+    @Setup(Level.Trial)
+    public void createArtifacts() {
+        Random random = new Random(42);
+        List<Object> artifacts = new ArrayList<>(distinctArtifacts);
+        for (int i = 0; i < distinctArtifacts; i++) {
+            File path = new File("drivers/subsystem" + (i % 100) + "/file" + (i / 2) + ".c");
+            if (i % 2 == 0) {
+                artifacts.add(path);
+            } else {
+                artifacts.add(new CodeBlock(i % 1000, i % 1000 + 5, path, True.INSTANCE, True.INSTANCE));
+            }
+        }
+        variableArtifacts = new ArrayList<>(VARIABLES);
+        for (int i = 0; i < VARIABLES; i++) {
+            List<Object> currentArtifacts = new ArrayList<>(artifactsPerVariable);
+            if (i % 3 == 1) {
+                // Equal to the previous variable
+                currentArtifacts.addAll(variableArtifacts.get(i - 1));
+            } else if (i % 3 == 2) {
+                // Subset of the previous variable
+                currentArtifacts.addAll(variableArtifacts.get(i - 1));
+                currentArtifacts.remove(currentArtifacts.size() - 1);
+            } else {
+                for (int j = 0; j < artifactsPerVariable; j++) {
+                    currentArtifacts.add(artifacts.get(random.nextInt(distinctArtifacts)));
+                }
+            }
+            variableArtifacts.add(currentArtifacts);
+        }
+        hashSets = createHashSets();
+        bitmaps = createBitmaps();
+    }
+
+    /**
+     * Creates the artifact sets of all variables as {@link HashSet}s.
+     * 
+     * @return the artifact sets
+     */
+    @Benchmark
+    public List<Set<Object>> createHashSets() {
+        List<Set<Object>> sets = new ArrayList<>(VARIABLES);
+        for (List<Object> artifacts : variableArtifacts) {
+            sets.add(new HashSet<>(artifacts));
+        }
+        return sets;
+    }
+
+    /**
+     * Creates the artifact sets of all variables as {@link CompressedBitmap}s including the assignment of dense
+     * artifact identifiers as done by the {@link MultiMappingDivergenceDetector}.
+     * 
+     * @return the artifact sets
+     */
+    @Benchmark
+    public List<CompressedBitmap> createBitmaps() {
+        Map<Object, Integer> artifactIds = new HashMap<>();
+        List<CompressedBitmap> sets = new ArrayList<>(VARIABLES);
+        for (List<Object> artifacts : variableArtifacts) {
+            CompressedBitmap bitmap = new CompressedBitmap();
+            for (Object artifact : artifacts) {
+                Integer artifactId = artifactIds.get(artifact);
+                if (artifactId == null) {
+                    artifactId = artifactIds.size();
+                    artifactIds.put(artifact, artifactId);
+                }
+                bitmap.add(artifactId);
+            }
+            sets.add(bitmap);
+        }
+        return sets;
+    }
+
+    /**
+     * Checks the {@link HashSet}s of consecutive variables for equality.
+     * 
+     * @return the number of equal pairs
+     */
+    @Benchmark
+    public int equalsHashSets() {
+        int count = 0;
+        for (int i = 1; i < VARIABLES; i++) {
+            if (hashSets.get(i - 1).equals(hashSets.get(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks the {@link CompressedBitmap}s of consecutive variables for equality.
+     * 
+     * @return the number of equal pairs
+     */
+    @Benchmark
+    public int equalsBitmaps() {
+        int count = 0;
+        for (int i = 1; i < VARIABLES; i++) {
+            if (bitmaps.get(i - 1).equals(bitmaps.get(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks the {@link HashSet}s of consecutive variables for common artifacts.
+     * 
+     * @return the number of intersecting pairs
+     */
+    @Benchmark
+    public int intersectsHashSets() {
+        int count = 0;
+        for (int i = 1; i < VARIABLES; i++) {
+            Set<Object> set = hashSets.get(i);
+            for (Object artifact : hashSets.get(i - 1)) {
+                if (set.contains(artifact)) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks the {@link CompressedBitmap}s of consecutive variables for common artifacts.
+     * 
+     * @return the number of intersecting pairs
+     */
+    @Benchmark
+    public int intersectsBitmaps() {
+        int count = 0;
+        for (int i = 1; i < VARIABLES; i++) {
+            if (bitmaps.get(i - 1).intersects(bitmaps.get(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the {@link HashSet} of each variable is a subset of the set of its predecessor.
+     * 
+     * @return the number of subsets
+     */
+    @Benchmark
+    public int subsetHashSets() {
+        int count = 0;
+        for (int i = 1; i < VARIABLES; i++) {
+            if (hashSets.get(i - 1).containsAll(hashSets.get(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the {@link CompressedBitmap} of each variable is a subset of the bitmap of its predecessor.
+     * 
+     * @return the number of subsets
+     */
+    @Benchmark
+    public int subsetBitmaps() {
+        int count = 0;
+        for (int i = 1; i < VARIABLES; i++) {
+            if (bitmaps.get(i).isSubsetOf(bitmaps.get(i - 1))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.pss_divergence_detector.DetectionMode;
+import net.ssehub.kernel_haven.pss_divergence_detector.ProblemSolutionSpaceDivergenceDetector;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.io.MappingSnapshotReader;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.test_utils.TestConfiguration;
+
+/**
+ * This JMH benchmark measures the execution of the {@link ProblemSolutionSpaceDivergenceDetector} for a
+ * {@link SyntheticMapping} or a recorded mapping snapshot in each {@link DetectionMode}. Each invocation creates a
+ * new detector, drains the mapping, and consumes all detected {@link Divergence}s.
+ * 
+ * @author Christian Kröher
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DetectorBenchmark {
+    
+    /**
+     * The number of variables (mapping elements) of the synthetic mapping.
+     */
+    @Param({"1000", "20000"})
+    public int variableCount;
+    
+    /**
+     * The ratio of unused variables.
+     */
+    @Param({"0.3"})
+    public double unusedRatio;
+    
+    /**
+     * The ratio of undefined variables.
+     */
+    @Param({"0.1"})
+    public double undefinedRatio;
+    
+    /**
+     * The number of source files each used or undefined variable is mapped to.
+     */
+    @Param({"2"})
+    public int buildFanOut;
+    
+    /**
+     * The number of code elements each used or undefined variable is mapped to.
+     */
+    @Param({"5"})
+    public int codeFanOut;
+    
+    /**
+     * The {@link DetectionMode} of the detector.
+     */
+    @Param({"BUFFERED", "STREAMING", "PARALLEL", "PIPELINED"})
+    public DetectionMode detectionMode;
+    
+    /**
+     * The path of a mapping snapshot recorded by the detector (see
+     * {@link ProblemSolutionSpaceDivergenceDetector#SNAPSHOT_RECORD_SETTING}), e.g., of a real product line. If
+     * specified (via <code>-p snapshot=&lt;path&gt;</code>), the recorded mapping replaces the synthetic mapping and
+     * the parameters of the synthetic mapping are ignored.
+     */
+    @Param({""})
+    public String snapshot;
+    
+    /**
+     * The synthetic or recorded mapping created once per trial.
+     */
+    private List<MappingElement> mapping;
+    
+    /**
+     * Creates the synthetic mapping or reads the recorded mapping.
+     * 
+     * @throws IOException if reading the mapping snapshot fails
+     */
+    @Setup(Level.Trial)
+    public void createMapping() throws IOException {
+        if (snapshot.isEmpty()) {
+            mapping = new SyntheticMapping(variableCount, unusedRatio, undefinedRatio, buildFanOut, codeFanOut)
+                    .create();
+        } else {
+            mapping = new ArrayList<>();
+            try (MappingSnapshotReader reader = new MappingSnapshotReader(new File(snapshot))) {
+                MappingElement mappingElement;
+                while ((mappingElement = reader.read()) != null) {
+                    mapping.add(mappingElement);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Executes the detector for the synthetic mapping.
+     * 
+     * @param blackhole the {@link Blackhole} consuming the detected {@link Divergence}s
+     * @throws SetUpException if creating the configuration or the detector fails
+     */
+    @Benchmark
+    public void execute(Blackhole blackhole) throws SetUpException {
+        Properties properties = new Properties();
+        properties.setProperty(ProblemSolutionSpaceDivergenceDetector.DETECTION_MODE_SETTING.getKey(),
+                detectionMode.name());
+        Configuration config = new TestConfiguration(properties);
+        ProblemSolutionSpaceDivergenceDetector detector = new ProblemSolutionSpaceDivergenceDetector(config,
+                new MappingProvider(config, mapping));
+        Divergence divergence;
+        while ((divergence = detector.getNextResult()) != null) {
+            blackhole.consume(divergence);
+        }
+    }
+
+}
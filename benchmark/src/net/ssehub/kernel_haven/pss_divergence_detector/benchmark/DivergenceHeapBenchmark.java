@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.code_model.CodeBlock;
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.InvolvedElementPool;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This benchmark measures the heap retained by a Linux-scale set of {@link Divergence}s. It compares the current
+ * {@link Divergence} storage (shared <i>empty</i> and singleton sets, array-backed small sets, pooled placeholder
+ * variables) with the previous storage, which allocated three {@link HashSet}s and a new placeholder variable for each
+ * divergence.<br>
+ * <br>
+ * Usage: <code>java -cp &lt;classpath&gt; DivergenceHeapBenchmark [divergences] [undefined ratio]</code>, e.g.,
+ * <code>DivergenceHeapBenchmark 40000 0.3</code> for 40,000 divergences of which 30% denote undefined variables. The
+ * results are only meaningful with a fixed heap size (e.g., <code>-Xms2g -Xmx2g</code>).
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class DivergenceHeapBenchmark {
+    
+    /**
+     * The number of distinct undefined variable names. Multiple undefined-variable divergences (e.g., of different
+     * architectures) refer to the same name.
+     */
+    private static final int UNDEFINED_VARIABLE_NAMES = 2000;
+    
+    /**
+     * The number of source files involved in each undefined-variable divergence.
+     */
+    private static final int FILES_PER_UNDEFINED_VARIABLE = 2;
+    
+    /**
+     * The number of code elements involved in each undefined-variable divergence.
+     */
+    private static final int CODE_ELEMENTS_PER_UNDEFINED_VARIABLE = 5;
+    
+    /**
+     * Keeps the measured objects reachable during the measurements. Local variables, which are not used afterwards,
+     * may be collected before the measurement is done.
+     */
+    private static Object retained;
+    
+    /**
+     * Avoids instances of this benchmark class.
+     */
+    private DivergenceHeapBenchmark() {}
+    
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args the optional number of divergences (default 40,000) and ratio of undefined-variable divergences
+     *        (default 0.3)
+     */
+    public static void main(String[] args) {
+        int divergenceCount = args.length > 0 ? Integer.parseInt(args[0]) : 40000;
+        double undefinedRatio = args.length > 1 ? Double.parseDouble(args[1]) : 0.3;
+        
+        List<Object[]> artifacts = createArtifacts(divergenceCount, undefinedRatio);
+        retained = artifacts;
+        
+        long baseline = usedHeap();
+        List<Object> legacyDivergences = new ArrayList<>(divergenceCount);
+        for (Object[] divergenceArtifacts : artifacts) {
+            legacyDivergences.add(new LegacyDivergence(divergenceArtifacts));
+        }
+        retained = new Object[] {artifacts, legacyDivergences};
+        long legacyHeap = usedHeap() - baseline;
+        retained = artifacts;
+        legacyDivergences = null;
+        
+        baseline = usedHeap();
+        InvolvedElementPool elementPool = new InvolvedElementPool();
+        List<Divergence> compactDivergences = new ArrayList<>(divergenceCount);
+        for (Object[] divergenceArtifacts : artifacts) {
+            compactDivergences.add(new CompactDivergence(divergenceArtifacts, elementPool));
+        }
+        retained = new Object[] {artifacts, compactDivergences, elementPool};
+        long compactHeap = usedHeap() - baseline;
+        
+        System.out.println("Divergences:           " + divergenceCount + " (" + (int) (undefinedRatio * 100)
+                + "% undefined)");
+        System.out.println("HashSet storage:       " + legacyHeap / 1024 + " KiB (" + legacyHeap / divergenceCount
+                + " bytes per divergence)");
+        System.out.println("Compact storage:       " + compactHeap / 1024 + " KiB (" + compactHeap / divergenceCount
+                + " bytes per divergence)");
+        System.out.println("Savings:               " + (100 - compactHeap * 100 / Math.max(1, legacyHeap)) + "%");
+        retained = null;
+    }
+    
+    /**
+     * Creates the synthetic artifacts of the divergences. Each entry contains the variable name, a flag whether the
+     * variable is undefined, the list of {@link SourceFile}s, and the list of {@link CodeElement}s. These artifacts
+     * are created before the measurements, as they are part of the mapping and, hence, not owned by the divergences.
+     * 
+     * @param divergenceCount the number of divergences to create artifacts for
+     * @param undefinedRatio the ratio of undefined-variable divergences
+     * @return the list of artifacts for each divergence
+     */
+    private static @NonNull List<Object[]> createArtifacts(int divergenceCount, double undefinedRatio) {
+        List<Object[]> artifacts = new ArrayList<>(divergenceCount);
+        int undefinedCount = (int) (divergenceCount * undefinedRatio);
+        for (int i = 0; i < divergenceCount; i++) {
+            boolean undefined = i < undefinedCount;
+            List<SourceFile<?>> sourceFiles = new ArrayList<>();
+            List<CodeElement<?>> codeElements = new ArrayList<>();
+            String variableName;
+            if (undefined) {
+                variableName = "CONFIG_UNDEFINED_" + (i % UNDEFINED_VARIABLE_NAMES);
+                for (int j = 0; j < FILES_PER_UNDEFINED_VARIABLE; j++) {
+                    sourceFiles.add(new SourceFile<>(new File("drivers/subsystem" + (i % 100) + "/file" + j + ".c")));
+                }
+                for (int j = 0; j < CODE_ELEMENTS_PER_UNDEFINED_VARIABLE; j++) {
+                    codeElements.add(new CodeBlock(j * 10, j * 10 + 5, new File("drivers/file" + i + ".c"),
+                            True.INSTANCE, True.INSTANCE));
+                }
+            } else {
+                variableName = "CONFIG_UNUSED_" + i;
+            }
+            artifacts.add(new Object[] {variableName, undefined, sourceFiles, codeElements});
+        }
+        return artifacts;
+    }
+    
+    /**
+     * Returns the currently used heap after requesting multiple garbage collections.
+     * 
+     * @return the used heap in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    /**
+     * A divergence using the storage of {@link Divergence}.
+     */
+    private static class CompactDivergence extends Divergence {
+        
+        /**
+         * Creates a {@link CompactDivergence} instance.
+         * 
+         * @param artifacts the artifacts as created by {@link DivergenceHeapBenchmark#createArtifacts(int, double)}
+         * @param elementPool the {@link InvolvedElementPool} providing the placeholders of undefined variables
+         */
+        @SuppressWarnings("unchecked")
+        CompactDivergence(@NonNull Object[] artifacts, @NonNull InvolvedElementPool elementPool) {
+            String variableName = (String) artifacts[0];
+            if ((Boolean) artifacts[1]) {
+                addInvolvedVariable(elementPool.getPlaceholderVariable(variableName));
+            } else {
+                addInvolvedVariable(new VariabilityVariable(variableName, "bool"));
+            }
+            addInvolvedSourceFiles((List<SourceFile<?>>) artifacts[2]);
+            addInvolvedCodeElements((List<CodeElement<?>>) artifacts[3]);
+        }
+
+        @Override
+        public @NonNull String getType() {
+            return "CompactDivergence";
+        }
+
+        @Override
+        public void appendProblemSpaceSymptom(@NonNull Appendable out) {
+            // No symptom required
+        }
+
+        @Override
+        public void appendSolutionSpaceSymptom(@NonNull Appendable out) {
+            // No symptom required
+        }
+        
+    }
+    
+    /**
+     * A divergence using the previous storage: three {@link HashSet}s and a new placeholder variable per divergence.
+     */
+    private static class LegacyDivergence {
+        
+        /**
+         * The involved variables.
+         */
+        private @NonNull Set<VariabilityVariable> involvedVariables = new HashSet<>();
+        
+        /**
+         * The involved source files.
+         */
+        private @NonNull Set<SourceFile<?>> involvedSourceFiles = new HashSet<>();
+        
+        /**
+         * The involved code elements.
+         */
+        private @NonNull Set<CodeElement<?>> involvedCodeElements = new HashSet<>();
+        
+        /**
+         * Creates a {@link LegacyDivergence} instance.
+         * 
+         * @param artifacts the artifacts as created by {@link DivergenceHeapBenchmark#createArtifacts(int, double)}
+         */
+        @SuppressWarnings("unchecked")
+        LegacyDivergence(@NonNull Object[] artifacts) {
+            String variableName = (String) artifacts[0];
+            if ((Boolean) artifacts[1]) {
+                involvedVariables.add(new VariabilityVariable(variableName, ""));
+            } else {
+                involvedVariables.add(new VariabilityVariable(variableName, "bool"));
+            }
+            involvedSourceFiles.addAll((List<SourceFile<?>>) artifacts[2]);
+            involvedCodeElements.addAll((List<CodeElement<?>>) artifacts[3]);
+        }
+        
+    }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.ssehub.kernel_haven.code_model.CodeBlock;
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.UndefinedVariableDivergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.io.DivergenceCsvWriter;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.io.csv.CsvWriter;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This JMH benchmark measures the rendering of {@link Divergence}s as result rows via {@link Divergence#getContent()}
+ * (for new and for already rendered divergences) as well as the formatting of involved elements via the
+ * <code>toDescriptionString</code> methods. Further, it compares writing new divergences as CSV rows via the generic
+ * {@link CsvWriter} of KernelHaven and via the streaming {@link DivergenceCsvWriter}; both write to a sink discarding
+ * all data.
+ * 
+ * @author Christian Kröher
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DivergenceRenderingBenchmark {
+    
+    /**
+     * The number of source files and code elements involved in the rendered divergence.
+     */
+    @Param({"1", "5", "50"})
+    public int involvedElements;
+    
+    /**
+     * The {@link MappingElement} of an undefined variable with {@link #involvedElements} artifacts.
+     */
+    private MappingElement mappingElement;
+    
+    /**
+     * A divergence, which is rendered once during setup.
+     */
+    private Divergence renderedDivergence;
+    
+    /**
+     * The divergence providing access to the <code>toDescriptionString</code> methods.
+     */
+    private DescribingDivergence describingDivergence;
+    
+    /**
+     * The involved elements as whitespace-separated string.
+     */
+    private String involvedElementsString;
+    
+    /**
+     * The involved elements as list.
+     */
+    private List<String> involvedElementsList;
+    
+    /**
+     * The generic KernelHaven writer for CSV rows.
+     */
+    private CsvWriter csvWriter;
+    
+    /**
+     * The streaming writer for CSV rows of divergences.
+     */
+    private DivergenceCsvWriter divergenceCsvWriter;
+    
+    /**
+     * Creates the {@link #mappingElement} and the involved elements.
+     */
+    @Setup(Level.Trial)
+    public void createDivergences() {
+        List<SourceFile<?>> sourceFiles = new ArrayList<>(involvedElements);
+        List<CodeElement<?>> codeElements = new ArrayList<>(involvedElements);
+        involvedElementsList = new ArrayList<>(involvedElements);
+        for (int i = 0; i < involvedElements; i++) {
+            File path = new File("drivers/net/ethernet/file" + i + ".c");
+            sourceFiles.add(new SourceFile<>(path));
+            codeElements.add(new CodeBlock(i * 10 + 1, i * 10 + 8, path, True.INSTANCE, True.INSTANCE));
+            involvedElementsList.add(path.getPath());
+        }
+        involvedElementsString = String.join(" ", involvedElementsList);
+        mappingElement = SyntheticMapping.createElement("CONFIG_UNDEFINED", null, sourceFiles, codeElements);
+        renderedDivergence = new UndefinedVariableDivergence(mappingElement);
+        renderedDivergence.getContent();
+        describingDivergence = new DescribingDivergence();
+        csvWriter = new CsvWriter(new OutputStream() {
+            
+            @Override
+            public void write(int b) {
+            }
+            
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+            
+        });
+        try {
+            divergenceCsvWriter = new DivergenceCsvWriter(new Writer() {
+                
+                @Override
+                public void write(char[] cbuf, int off, int len) {
+                }
+                
+                @Override
+                public void flush() {
+                }
+                
+                @Override
+                public void close() {
+                }
+                
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Creates a new divergence and writes it as CSV row via the generic {@link CsvWriter}, which requires the rendered
+     * content of the divergence.
+     * 
+     * @throws IOException if writing fails
+     */
+    @Benchmark
+    public void writeRowGeneric() throws IOException {
+        csvWriter.writeRow(new UndefinedVariableDivergence(mappingElement).getContent());
+    }
+    
+    /**
+     * Creates a new divergence and writes it as CSV row via the {@link DivergenceCsvWriter}, which appends the symptoms
+     * piece by piece.
+     * 
+     * @throws IOException if writing fails
+     */
+    @Benchmark
+    public void writeRowStreaming() throws IOException {
+        divergenceCsvWriter.write(new UndefinedVariableDivergence(mappingElement));
+    }
+    
+    /**
+     * Creates and renders a new divergence.
+     * 
+     * @return the rendered content
+     */
+    @Benchmark
+    public Object[] getContentNew() {
+        return new UndefinedVariableDivergence(mappingElement).getContent();
+    }
+    
+    /**
+     * Renders an already rendered divergence again.
+     * 
+     * @return the rendered content
+     */
+    @Benchmark
+    public Object[] getContentRendered() {
+        return renderedDivergence.getContent();
+    }
+    
+    /**
+     * Formats the whitespace-separated involved elements.
+     * 
+     * @return the formatted elements
+     */
+    @Benchmark
+    public String toDescriptionStringFromString() {
+        return describingDivergence.describe(involvedElementsString);
+    }
+    
+    /**
+     * Formats the list of involved elements.
+     * 
+     * @return the formatted elements
+     */
+    @Benchmark
+    public String toDescriptionStringFromList() {
+        return describingDivergence.describe(involvedElementsList);
+    }
+    
+    /**
+     * A divergence providing public access to the protected <code>toDescriptionString</code> methods.
+     */
+    private static class DescribingDivergence extends Divergence {
+        
+        /**
+         * Calls {@link #toDescriptionString(String)}.
+         * 
+         * @param involvedElements the whitespace-separated involved elements
+         * @return the formatted elements
+         */
+        @NonNull String describe(@NonNull String involvedElements) {
+            return toDescriptionString(involvedElements);
+        }
+        
+        /**
+         * Calls {@link #toDescriptionString(List)}.
+         * 
+         * @param involvedElements the list of involved elements
+         * @return the formatted elements
+         */
+        @NonNull String describe(@NonNull List<String> involvedElements) {
+            return toDescriptionString(involvedElements);
+        }
+
+        @Override
+        public @NonNull String getType() {
+            return "DescribingDivergence";
+        }
+
+        @Override
+        public void appendProblemSpaceSymptom(@NonNull Appendable out) {
+            // No symptom required
+        }
+
+        @Override
+        public void appendSolutionSpaceSymptom(@NonNull Appendable out) {
+            // No symptom required
+        }
+        
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.benchmark;
+
+import java.util.List;
+
+import net.ssehub.kernel_haven.analysis.AnalysisComponent;
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This {@link AnalysisComponent} provides a fixed list of {@link MappingElement}s. It replaces the
+ * {@link net.ssehub.kernel_haven.pss_mapper.ProblemSolutionSpaceMapper} in benchmarks.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class MappingProvider extends AnalysisComponent<MappingElement> {
+    
+    /**
+     * The {@link MappingElement}s to provide.
+     */
+    private @NonNull List<MappingElement> mappingElements;
+
+    /**
+     * Creates a {@link MappingProvider} instance.
+     * 
+     * @param config the global {@link Configuration}
+     * @param mappingElements the {@link MappingElement}s to provide
+     */
+    public MappingProvider(@NonNull Configuration config, @NonNull List<MappingElement> mappingElements) {
+        super(config);
+        this.mappingElements = mappingElements;
+    }
+
+    @Override
+    protected void execute() {
+        for (MappingElement mappingElement : mappingElements) {
+            addResult(mappingElement);
+        }
+    }
+
+    @Override
+    public @NonNull String getResultName() {
+        return "Synthetic Mapping";
+    }
+    
+    @Override
+    public boolean isInternalHelperComponent() {
+        return true;
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.ssehub.kernel_haven.code_model.CodeBlock;
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class creates synthetic, reproducible streams of {@link MappingElement}s for benchmarking the divergence
+ * detection. The variables are distributed to unused, undefined, and regularly used variables according to the given
+ * ratios. Used and undefined variables are mapped to a fixed number of {@link SourceFile}s and {@link CodeElement}s
+ * (fan-out), which are drawn from shared pools. Hence, multiple variables refer to the same artifacts as in real
+ * mappings.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class SyntheticMapping {
+    
+    /**
+     * The seed of the random generator. A fixed seed yields identical mappings for identical parameters.
+     */
+    private static final long SEED = 42;
+    
+    /**
+     * The number of {@link CodeElement}s in each pooled {@link SourceFile}.
+     */
+    private static final int CODE_ELEMENTS_PER_FILE = 20;
+    
+    /**
+     * The number of variables (mapping elements) to create.
+     */
+    private int variableCount;
+    
+    /**
+     * The ratio of variables, which are defined in the variability model, but not used in any artifact.
+     */
+    private double unusedRatio;
+    
+    /**
+     * The ratio of variables, which are used in artifacts, but not defined in the variability model.
+     */
+    private double undefinedRatio;
+    
+    /**
+     * The number of {@link SourceFile}s each used or undefined variable is mapped to.
+     */
+    private int buildFanOut;
+    
+    /**
+     * The number of {@link CodeElement}s each used or undefined variable is mapped to.
+     */
+    private int codeFanOut;
+    
+    /**
+     * Creates a {@link SyntheticMapping} instance.
+     * 
+     * @param variableCount the number of variables (mapping elements) to create
+     * @param unusedRatio the ratio of unused variables
+     * @param undefinedRatio the ratio of undefined variables
+     * @param buildFanOut the number of {@link SourceFile}s each used or undefined variable is mapped to
+     * @param codeFanOut the number of {@link CodeElement}s each used or undefined variable is mapped to
+     */
+    public SyntheticMapping(int variableCount, double unusedRatio, double undefinedRatio, int buildFanOut,
+            int codeFanOut) {
+        this.variableCount = variableCount;
+        this.unusedRatio = unusedRatio;
+        this.undefinedRatio = undefinedRatio;
+        this.buildFanOut = buildFanOut;
+        this.codeFanOut = codeFanOut;
+    }
+    
+    /**
+     * Creates the list of {@link MappingElement}s.
+     * 
+     * @return the list of synthetic {@link MappingElement}s; never <code>null</code>
+     */
+    public @NonNull List<MappingElement> create() {
+        Random random = new Random(SEED);
+        int fileCount = Math.max(1, variableCount / 4);
+        List<SourceFile<?>> sourceFiles = new ArrayList<>(fileCount);
+        List<List<CodeElement<?>>> codeElements = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            File path = new File("drivers/subsystem" + (i % 50) + "/file" + i + ".c");
+            sourceFiles.add(new SourceFile<>(path));
+            List<CodeElement<?>> fileCodeElements = new ArrayList<>(CODE_ELEMENTS_PER_FILE);
+            for (int j = 0; j < CODE_ELEMENTS_PER_FILE; j++) {
+                Formula condition = new Variable("CONFIG_VAR_" + random.nextInt(Math.max(1, variableCount)));
+                fileCodeElements.add(new CodeBlock(j * 10 + 1, j * 10 + 8, path, condition, condition));
+            }
+            codeElements.add(fileCodeElements);
+        }
+        
+        List<MappingElement> mapping = new ArrayList<>(variableCount);
+        for (int i = 0; i < variableCount; i++) {
+            String variableName = "CONFIG_VAR_" + i;
+            double kind = random.nextDouble();
+            if (kind < unusedRatio) {
+                mapping.add(createElement(variableName, new VariabilityVariable(variableName, "bool"),
+                        new ArrayList<>(), new ArrayList<>()));
+            } else {
+                List<SourceFile<?>> buildMapping = new ArrayList<>(buildFanOut);
+                for (int j = 0; j < buildFanOut; j++) {
+                    buildMapping.add(sourceFiles.get(random.nextInt(fileCount)));
+                }
+                List<CodeElement<?>> codeMapping = new ArrayList<>(codeFanOut);
+                for (int j = 0; j < codeFanOut; j++) {
+                    codeMapping.add(codeElements.get(random.nextInt(fileCount))
+                            .get(random.nextInt(CODE_ELEMENTS_PER_FILE)));
+                }
+                VariabilityVariable variable = null;
+                if (kind >= unusedRatio + undefinedRatio) {
+                    variable = new VariabilityVariable(variableName, "bool");
+                }
+                mapping.add(createElement(variableName, variable, buildMapping, codeMapping));
+            }
+        }
+        return mapping;
+    }
+    
+    /**
+     * Creates a single {@link MappingElement}. The state of the element is derived by the element itself from the
+     * given variable and mappings.
+     * 
+     * @param variableName the name of the variable
+     * @param variable the {@link VariabilityVariable} or <code>null</code>, if the variable is undefined
+     * @param buildMapping the {@link SourceFile}s the variable is mapped to
+     * @param codeMapping the {@link CodeElement}s the variable is mapped to
+     * @return the created {@link MappingElement}
+     */
+    public static @NonNull MappingElement createElement(@NonNull String variableName,
+            @Nullable VariabilityVariable variable, @NonNull List<SourceFile<?>> buildMapping,
+            @NonNull List<CodeElement<?>> codeMapping) {
+        return new MappingElement(variableName, variable, buildMapping, codeMapping);
+    }
+
+}
@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class indexes the involved {@link CodeElement}s of {@link Divergence}s by the line ranges
+ * ({@link CodeElement#getLineStart()} to {@link CodeElement#getLineEnd()}) within their {@link SourceFile}. For each
+ * source file, it builds an interval tree, which answers the following queries for a given line range without
+ * scanning all code elements of that file:
+ * <ul>
+ * <li>{@link #getOverlapping(File, int, int)}: divergences with a code element sharing at least one line with the
+ *     range</li>
+ * <li>{@link #getEnclosing(File, int, int)}: divergences with a code element containing the entire range</li>
+ * <li>{@link #getEnclosed(File, int, int)}: divergences with a code element within the range</li>
+ * </ul>
+ * The tree of a file is an implicit, augmented binary search tree: the code elements are sorted by their start line
+ * and each element in the middle of a subrange additionally stores the maximum end line of that subrange. It is built
+ * on the first query after adding further divergences. Each query takes O(log n + k) time for n code elements in the
+ * file and k matching code elements. This index is not thread-safe.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class CodeElementIntervalIndex {
+
+    /**
+     * The indexed {@link Divergence}s. The position of a divergence in this list is its identifier in the
+     * {@link #fileIndexes}.
+     */
+    private @NonNull List<Divergence> divergences;
+
+    /**
+     * The interval tree of the code elements of each {@link SourceFile} by the path of that file.
+     */
+    private @NonNull Map<File, FileIndex> fileIndexes;
+
+    /**
+     * Creates an <i>empty</i> {@link CodeElementIntervalIndex} instance.
+     */
+    public CodeElementIntervalIndex() {
+        divergences = new ArrayList<>();
+        fileIndexes = new HashMap<>();
+    }
+
+    /**
+     * Adds all involved {@link CodeElement}s of the given {@link Divergence} to this index. Divergences without code
+     * elements are not indexed.
+     * 
+     * @param divergence the {@link Divergence} to add
+     */
+    public void add(@NonNull Divergence divergence) {
+        Set<CodeElement> codeElements = divergence.getInvolvedCodeElements();
+        if (!codeElements.isEmpty()) {
+            int divergenceId = divergences.size();
+            divergences.add(divergence);
+            for (CodeElement codeElement : codeElements) {
+                fileIndexes.computeIfAbsent(codeElement.getSourceFile(), key -> new FileIndex())
+                        .add(codeElement.getLineStart(), codeElement.getLineEnd(), divergenceId);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of {@link Divergence}s with at least one indexed code element.
+     * 
+     * @return the number of indexed divergences
+     */
+    public int size() {
+        return divergences.size();
+    }
+
+    /**
+     * Returns the paths of all {@link SourceFile}s with at least one indexed code element.
+     * 
+     * @return the paths of the indexed source files
+     */
+    public @NonNull Set<File> getSourceFiles() {
+        return Collections.unmodifiableSet(fileIndexes.keySet());
+    }
+
+    /**
+     * Returns all {@link Divergence}s with at least one code element in the given file, which shares at least one
+     * line with the given range.
+     * 
+     * @param path the path of the {@link SourceFile}
+     * @param lineStart the first line of the range
+     * @param lineEnd the last line of the range
+     * @return the matching {@link Divergence}s in the order of their addition; never <code>null</code>
+     */
+    public @NonNull List<Divergence> getOverlapping(@NonNull File path, int lineStart, int lineEnd) {
+        return getDivergences(query(path, lineStart, lineEnd, Containment.NONE));
+    }
+
+    /**
+     * Returns all {@link Divergence}s with at least one code element in the given file, which contains the entire
+     * given range, e.g., the blocks a code element with this range is nested in.
+     * 
+     * @param path the path of the {@link SourceFile}
+     * @param lineStart the first line of the range
+     * @param lineEnd the last line of the range
+     * @return the matching {@link Divergence}s in the order of their addition; never <code>null</code>
+     */
+    public @NonNull List<Divergence> getEnclosing(@NonNull File path, int lineStart, int lineEnd) {
+        return getDivergences(query(path, lineStart, lineEnd, Containment.ENCLOSING));
+    }
+
+    /**
+     * Returns all {@link Divergence}s with at least one code element in the given file, which is entirely within the
+     * given range, e.g., the blocks nested in a code element with this range.
+     * 
+     * @param path the path of the {@link SourceFile}
+     * @param lineStart the first line of the range
+     * @param lineEnd the last line of the range
+     * @return the matching {@link Divergence}s in the order of their addition; never <code>null</code>
+     */
+    public @NonNull List<Divergence> getEnclosed(@NonNull File path, int lineStart, int lineEnd) {
+        return getDivergences(query(path, lineStart, lineEnd, Containment.ENCLOSED));
+    }
+
+    /**
+     * Returns the identifiers of all {@link Divergence}s with at least one code element in the given file, which
+     * overlaps the given range and satisfies the given containment.
+     * 
+     * @param path the path of the {@link SourceFile}
+     * @param lineStart the first line of the range
+     * @param lineEnd the last line of the range
+     * @param containment the {@link Containment} the matching code elements must satisfy
+     * @return the identifiers of the matching divergences; never <code>null</code>
+     */
+    @NonNull BitSet query(@NonNull File path, int lineStart, int lineEnd, @NonNull Containment containment) {
+        BitSet divergenceIds = new BitSet();
+        FileIndex fileIndex = fileIndexes.get(path);
+        if (fileIndex != null && lineStart <= lineEnd) {
+            fileIndex.build();
+            fileIndex.query(0, fileIndex.size, lineStart, lineEnd, containment, divergenceIds);
+        }
+        return divergenceIds;
+    }
+
+    /**
+     * Returns the {@link Divergence} with the given identifier.
+     * 
+     * @param divergenceId the identifier of the divergence, i.e., the number of divergences added before it
+     * @return the {@link Divergence} with the given identifier
+     */
+    @NonNull Divergence getDivergence(int divergenceId) {
+        return divergences.get(divergenceId);
+    }
+
+    /**
+     * Returns the {@link Divergence}s with the given identifiers.
+     * 
+     * @param divergenceIds the identifiers of the divergences
+     * @return the {@link Divergence}s in the order of their identifiers
+     */
+    private @NonNull List<Divergence> getDivergences(@NonNull BitSet divergenceIds) {
+        List<Divergence> result = new ArrayList<>(divergenceIds.cardinality());
+        for (int i = divergenceIds.nextSetBit(0); i >= 0; i = divergenceIds.nextSetBit(i + 1)) {
+            result.add(divergences.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * The additional condition, which the code elements matching a query must satisfy besides overlapping the range of
+     * the query.
+     */
+    enum Containment {
+
+        /**
+         * Each overlapping code element matches.
+         */
+        NONE,
+
+        /**
+         * Only code elements containing the entire range match.
+         */
+        ENCLOSING,
+
+        /**
+         * Only code elements within the range match.
+         */
+        ENCLOSED;
+
+    }
+
+    /**
+     * The interval tree of the code elements of a single {@link SourceFile}. The code elements are stored in parallel
+     * arrays, which are sorted by the start lines once all elements are added (see {@link #build()}).
+     */
+    private static final class FileIndex {
+
+        /**
+         * The initial capacity of the arrays.
+         */
+        private static final int INITIAL_CAPACITY = 8;
+
+        /**
+         * The start lines of the code elements.
+         */
+        private int @NonNull [] starts = new int[INITIAL_CAPACITY];
+
+        /**
+         * The end lines of the code elements.
+         */
+        private int @NonNull [] ends = new int[INITIAL_CAPACITY];
+
+        /**
+         * The identifiers of the divergences the code elements are involved in.
+         */
+        private int @NonNull [] divergenceIds = new int[INITIAL_CAPACITY];
+
+        /**
+         * The maximum end line of the subrange, in whose middle each code element is located; only valid, if
+         * {@link #built} is <code>true</code>.
+         */
+        private int @NonNull [] maxEnds = new int[0];
+
+        /**
+         * The number of code elements in the arrays.
+         */
+        private int size;
+
+        /**
+         * Whether the arrays are sorted and the {@link #maxEnds} are computed for all code elements.
+         */
+        private boolean built;
+
+        /**
+         * Adds the code element with the given line range.
+         * 
+         * @param start the start line of the code element
+         * @param end the end line of the code element
+         * @param divergenceId the identifier of the divergence the code element is involved in
+         */
+        private void add(int start, int end, int divergenceId) {
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                divergenceIds = Arrays.copyOf(divergenceIds, capacity);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            divergenceIds[size] = divergenceId;
+            size++;
+            built = false;
+        }
+
+        /**
+         * Sorts the code elements by their start lines and computes the {@link #maxEnds}, if code elements were added
+         * since the last call.
+         */
+        private void build() {
+            if (!built) {
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (first, second) -> Integer.compare(starts[first], starts[second]));
+                int[] sortedStarts = new int[size];
+                int[] sortedEnds = new int[size];
+                int[] sortedDivergenceIds = new int[size];
+                for (int i = 0; i < size; i++) {
+                    sortedStarts[i] = starts[order[i]];
+                    sortedEnds[i] = ends[order[i]];
+                    sortedDivergenceIds[i] = divergenceIds[order[i]];
+                }
+                starts = sortedStarts;
+                ends = sortedEnds;
+                divergenceIds = sortedDivergenceIds;
+                maxEnds = new int[size];
+                computeMaxEnd(0, size);
+                built = true;
+            }
+        }
+
+        /**
+         * Computes the {@link #maxEnds} of the subtree spanning the given subrange of the sorted code elements.
+         * 
+         * @param low the index of the first code element of the subrange
+         * @param high the index after the last code element of the subrange
+         * @return the maximum end line of the subrange; {@link Integer#MIN_VALUE}, if the subrange is <i>empty</i>
+         */
+        private int computeMaxEnd(int low, int high) {
+            int maxEnd = Integer.MIN_VALUE;
+            if (low < high) {
+                int middle = (low + high) >>> 1;
+                maxEnd = Math.max(ends[middle], Math.max(computeMaxEnd(low, middle), computeMaxEnd(middle + 1, high)));
+                maxEnds[middle] = maxEnd;
+            }
+            return maxEnd;
+        }
+
+        /**
+         * Adds the divergence identifiers of all code elements of the given subrange, which overlap the given range
+         * and satisfy the given containment, to the given set. Subtrees, which cannot contain overlapping code
+         * elements, are skipped.
+         * 
+         * @param low the index of the first code element of the subrange
+         * @param high the index after the last code element of the subrange
+         * @param lineStart the first line of the range
+         * @param lineEnd the last line of the range
+         * @param containment the {@link Containment} the matching code elements must satisfy
+         * @param result the set of divergence identifiers to add to
+         */
+        private void query(int low, int high, int lineStart, int lineEnd, @NonNull Containment containment,
+                @NonNull BitSet result) {
+            if (low < high) {
+                int middle = (low + high) >>> 1;
+                // If no element of this subtree ends at or after the start of the range, none of them overlaps it
+                if (maxEnds[middle] >= lineStart) {
+                    query(low, middle, lineStart, lineEnd, containment, result);
+                    // Elements right of the middle start at or after the middle; skip them, if the middle is too late
+                    if (starts[middle] <= lineEnd) {
+                        if (ends[middle] >= lineStart && matches(middle, lineStart, lineEnd, containment)) {
+                            result.set(divergenceIds[middle]);
+                        }
+                        query(middle + 1, high, lineStart, lineEnd, containment, result);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Checks whether the code element at the given index satisfies the given containment for the given range.
+         * 
+         * @param index the index of the (overlapping) code element
+         * @param lineStart the first line of the range
+         * @param lineEnd the last line of the range
+         * @param containment the {@link Containment} to check
+         * @return <code>true</code>, if the code element satisfies the containment; <code>false</code> otherwise
+         */
+        private boolean matches(int index, int lineStart, int lineEnd, @NonNull Containment containment) {
+            boolean matches;
+            switch (containment) {
+            case ENCLOSING:
+                matches = starts[index] <= lineStart && ends[index] >= lineEnd;
+                break;
+            case ENCLOSED:
+                matches = starts[index] >= lineStart && ends[index] <= lineEnd;
+                break;
+            default:
+                matches = true;
+                break;
+            }
+            return matches;
+        }
+
+    }
+
+}
@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * This class represents a set of non-negative integers, like the dense identifiers of the artifacts a variable is
+ * mapped to, as a compressed bitmap. Similar to Roaring bitmaps, the integers are partitioned by their upper 16 bits
+ * into chunks. Each chunk is stored in a container depending on its cardinality:
+ * <ul>
+ * <li>Sparse chunks (up to {@link #ARRAY_CONTAINER_MAX} integers) are stored as a sorted array of their lower 16 bits.
+ *     </li>
+ * <li>Dense chunks are stored as a bitmap of 1024 <code>long</code> words.</li>
+ * </ul>
+ * Hence, small sets only require a few bytes, while {@link #equals(Object)}, {@link #intersects(CompressedBitmap)},
+ * and {@link #isSubsetOf(CompressedBitmap)} compare chunk by chunk using merges of sorted arrays or word-level
+ * operations on bitmaps instead of hashing each element.<br><br>
+ * 
+ * Integers can only be added, but not removed. Instances are not thread-safe; however, multiple threads may read a
+ * bitmap concurrently, if it is not changed anymore.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public final class CompressedBitmap {
+
+    /**
+     * The maximum number of integers in an array container. Larger chunks are converted into bitmap containers, which
+     * always require 8 KiB.
+     */
+    static final int ARRAY_CONTAINER_MAX = 4096;
+
+    /**
+     * The number of <code>long</code> words of a bitmap container.
+     */
+    private static final int BITMAP_WORDS = 1024;
+
+    /**
+     * The shared keys of <i>empty</i> bitmaps.
+     */
+    private static final char @NonNull [] NO_KEYS = new char[0];
+
+    /**
+     * The shared containers of <i>empty</i> bitmaps.
+     */
+    private static final Object @NonNull [] NO_CONTAINERS = new Object[0];
+
+    /**
+     * The shared cardinalities of <i>empty</i> bitmaps.
+     */
+    private static final int @NonNull [] NO_CARDINALITIES = new int[0];
+
+    /**
+     * The sorted upper 16 bits of the integers of each container. Only the first {@link #size} entries are valid.
+     */
+    private char @NonNull [] keys;
+
+    /**
+     * The container for each of the {@link #keys}: either a <code>char[]</code> (array container), whose first
+     * {@link #cardinalities} entries are the sorted lower 16 bits of the integers, or a <code>long[]</code> of
+     * {@link #BITMAP_WORDS} words (bitmap container).
+     */
+    private Object @NonNull [] containers;
+
+    /**
+     * The number of integers in each of the {@link #containers}.
+     */
+    private int @NonNull [] cardinalities;
+
+    /**
+     * The number of containers.
+     */
+    private int size;
+
+    /**
+     * Creates an <i>empty</i> {@link CompressedBitmap}.
+     */
+    public CompressedBitmap() {
+        keys = NO_KEYS;
+        containers = NO_CONTAINERS;
+        cardinalities = NO_CARDINALITIES;
+    }
+
+    /**
+     * Adds the given integer to this bitmap.
+     * 
+     * @param value the non-negative integer to add
+     * @return <code>true</code>, if the integer was added; <code>false</code>, if it was already part of this bitmap
+     */
+    public boolean add(int value) {
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        boolean added = true;
+        if (index < 0) {
+            insertContainer(-index - 1, key, low);
+        } else if (containers[index] instanceof long[]) {
+            long[] words = (long[]) containers[index];
+            long bit = 1L << low;
+            added = (words[low >>> 6] & bit) == 0;
+            if (added) {
+                words[low >>> 6] |= bit;
+                cardinalities[index]++;
+            }
+        } else {
+            char[] values = (char[]) containers[index];
+            int cardinality = cardinalities[index];
+            int position = Arrays.binarySearch(values, 0, cardinality, low);
+            added = position < 0;
+            if (added) {
+                position = -position - 1;
+                if (cardinality == ARRAY_CONTAINER_MAX) {
+                    long[] words = toBitmap(values, cardinality);
+                    words[low >>> 6] |= 1L << low;
+                    containers[index] = words;
+                } else {
+                    if (cardinality == values.length) {
+                        values = Arrays.copyOf(values, Math.min(ARRAY_CONTAINER_MAX, 2 * cardinality));
+                        containers[index] = values;
+                    }
+                    System.arraycopy(values, position, values, position + 1, cardinality - position);
+                    values[position] = low;
+                }
+                cardinalities[index]++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Inserts a new array container with the given key and the single given value at the given index.
+     * 
+     * @param index the index of the new container
+     * @param key the upper 16 bits of the value
+     * @param low the lower 16 bits of the value
+     */
+    private void insertContainer(int index, char key, char low) {
+        if (size == keys.length) {
+            int capacity = Math.max(1, 2 * size);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = new char[] {low};
+        cardinalities[index] = 1;
+        size++;
+    }
+
+    /**
+     * Converts the given array container into a bitmap container.
+     * 
+     * @param values the sorted values of the array container
+     * @param cardinality the number of valid values
+     * @return the bitmap container
+     */
+    private static long @NonNull [] toBitmap(char @NonNull [] values, int cardinality) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < cardinality; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    /**
+     * Checks whether this bitmap contains the given integer.
+     * 
+     * @param value the integer to check
+     * @return <code>true</code>, if this bitmap contains the integer; <code>false</code> otherwise
+     */
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return index >= 0 && containerContains(index, (char) value);
+    }
+
+    /**
+     * Checks whether the container with the given index contains the given lower 16 bits.
+     * 
+     * @param index the index of the container
+     * @param low the lower 16 bits to check
+     * @return <code>true</code>, if the container contains the value; <code>false</code> otherwise
+     */
+    private boolean containerContains(int index, char low) {
+        boolean contains;
+        if (containers[index] instanceof long[]) {
+            contains = (((long[]) containers[index])[low >>> 6] & (1L << low)) != 0;
+        } else {
+            contains = Arrays.binarySearch((char[]) containers[index], 0, cardinalities[index], low) >= 0;
+        }
+        return contains;
+    }
+
+    /**
+     * Returns the number of integers in this bitmap.
+     * 
+     * @return the number of integers
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += cardinalities[i];
+        }
+        return cardinality;
+    }
+
+    /**
+     * Checks whether this bitmap is <i>empty</i>.
+     * 
+     * @return <code>true</code>, if this bitmap does not contain any integer; <code>false</code> otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Passes each integer of this bitmap in ascending order to the given consumer.
+     * 
+     * @param consumer the consumer of the integers
+     */
+    public void forEach(@NonNull IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            if (containers[i] instanceof long[]) {
+                long[] words = (long[]) containers[i];
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long bits = words[word];
+                    while (bits != 0) {
+                        consumer.accept(high | (word << 6) + Long.numberOfTrailingZeros(bits));
+                        bits &= bits - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) containers[i];
+                for (int j = 0; j < cardinalities[i]; j++) {
+                    consumer.accept(high | values[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether this bitmap and the given bitmap have at least one integer in common.
+     * 
+     * @param other the other bitmap
+     * @return <code>true</code>, if both bitmaps intersect; <code>false</code> otherwise
+     */
+    public boolean intersects(@NonNull CompressedBitmap other) {
+        boolean intersects = false;
+        int i = 0;
+        int j = 0;
+        while (!intersects && i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                intersects = containersIntersect(containers[i], cardinalities[i], other.containers[j],
+                        other.cardinalities[j]);
+                i++;
+                j++;
+            }
+        }
+        return intersects;
+    }
+
+    /**
+     * Checks whether the given containers with the same key have at least one value in common.
+     * 
+     * @param container1 the first container
+     * @param cardinality1 the cardinality of the first container
+     * @param container2 the second container
+     * @param cardinality2 the cardinality of the second container
+     * @return <code>true</code>, if both containers intersect; <code>false</code> otherwise
+     */
+    private static boolean containersIntersect(@NonNull Object container1, int cardinality1,
+            @NonNull Object container2, int cardinality2) {
+        boolean intersects = false;
+        if (container1 instanceof long[] && container2 instanceof long[]) {
+            long[] words1 = (long[]) container1;
+            long[] words2 = (long[]) container2;
+            for (int i = 0; !intersects && i < BITMAP_WORDS; i++) {
+                intersects = (words1[i] & words2[i]) != 0;
+            }
+        } else if (container1 instanceof long[]) {
+            intersects = containersIntersect(container2, cardinality2, container1, cardinality1);
+        } else if (container2 instanceof long[]) {
+            char[] values = (char[]) container1;
+            long[] words = (long[]) container2;
+            for (int i = 0; !intersects && i < cardinality1; i++) {
+                intersects = (words[values[i] >>> 6] & (1L << values[i])) != 0;
+            }
+        } else {
+            char[] values1 = (char[]) container1;
+            char[] values2 = (char[]) container2;
+            int i = 0;
+            int j = 0;
+            while (!intersects && i < cardinality1 && j < cardinality2) {
+                if (values1[i] < values2[j]) {
+                    i++;
+                } else if (values1[i] > values2[j]) {
+                    j++;
+                } else {
+                    intersects = true;
+                }
+            }
+        }
+        return intersects;
+    }
+
+    /**
+     * Checks whether all integers of this bitmap are also part of the given bitmap.
+     * 
+     * @param other the other bitmap
+     * @return <code>true</code>, if this bitmap is a (not necessarily proper) subset of the other bitmap;
+     *         <code>false</code> otherwise
+     */
+    public boolean isSubsetOf(@NonNull CompressedBitmap other) {
+        boolean subset = size <= other.size;
+        int j = 0;
+        for (int i = 0; subset && i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            subset = j < other.size && other.keys[j] == keys[i] && cardinalities[i] <= other.cardinalities[j]
+                    && isSubset(containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]);
+        }
+        return subset;
+    }
+
+    /**
+     * Checks whether the first container is a subset of the second container with the same key.
+     * 
+     * @param container1 the first container
+     * @param cardinality1 the cardinality of the first container; must not exceed the second cardinality
+     * @param container2 the second container
+     * @param cardinality2 the cardinality of the second container
+     * @return <code>true</code>, if the first container is a subset of the second one; <code>false</code> otherwise
+     */
+    private static boolean isSubset(@NonNull Object container1, int cardinality1, @NonNull Object container2,
+            int cardinality2) {
+        boolean subset = true;
+        if (container1 instanceof long[]) {
+            // As the cardinality of the second container is not lower, it is a bitmap container as well
+            long[] words1 = (long[]) container1;
+            long[] words2 = (long[]) container2;
+            for (int i = 0; subset && i < BITMAP_WORDS; i++) {
+                subset = (words1[i] & ~words2[i]) == 0;
+            }
+        } else if (container2 instanceof long[]) {
+            char[] values = (char[]) container1;
+            long[] words = (long[]) container2;
+            for (int i = 0; subset && i < cardinality1; i++) {
+                subset = (words[values[i] >>> 6] & (1L << values[i])) != 0;
+            }
+        } else {
+            char[] values1 = (char[]) container1;
+            char[] values2 = (char[]) container2;
+            int j = 0;
+            for (int i = 0; subset && i < cardinality1; i++) {
+                while (j < cardinality2 && values2[j] < values1[i]) {
+                    j++;
+                }
+                subset = j < cardinality2 && values2[j] == values1[i];
+            }
+        }
+        return subset;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        boolean equal = obj == this;
+        if (!equal && obj instanceof CompressedBitmap) {
+            CompressedBitmap other = (CompressedBitmap) obj;
+            equal = size == other.size;
+            for (int i = 0; equal && i < size; i++) {
+                // Containers with the same cardinality are of the same kind, as integers are never removed
+                equal = keys[i] == other.keys[i] && cardinalities[i] == other.cardinalities[i];
+                if (equal && containers[i] instanceof long[]) {
+                    equal = Arrays.equals((long[]) containers[i], (long[]) other.containers[i]);
+                } else if (equal) {
+                    char[] values1 = (char[]) containers[i];
+                    char[] values2 = (char[]) other.containers[i];
+                    for (int j = 0; equal && j < cardinalities[i]; j++) {
+                        equal = values1[j] == values2[j];
+                    }
+                }
+            }
+        }
+        return equal;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (int i = 0; i < size; i++) {
+            hashCode = 31 * hashCode + keys[i];
+            if (containers[i] instanceof long[]) {
+                hashCode = 31 * hashCode + Arrays.hashCode((long[]) containers[i]);
+            } else {
+                char[] values = (char[]) containers[i];
+                for (int j = 0; j < cardinalities[i]; j++) {
+                    hashCode = 31 * hashCode + values[j];
+                }
+            }
+        }
+        return hashCode;
+    }
+
+    @Override
+    public @NonNull String toString() {
+        StringBuilder stringBuilder = new StringBuilder("{");
+        forEach(value -> {
+            if (stringBuilder.length() > 1) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(value);
+        });
+        return stringBuilder.append('}').toString();
+    }
+
+}
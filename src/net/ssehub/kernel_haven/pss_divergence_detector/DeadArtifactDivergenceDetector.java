@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import net.ssehub.kernel_haven.build_model.BuildModel;
+import net.ssehub.kernel_haven.cnf.ConverterException;
+import net.ssehub.kernel_haven.cnf.SolverException;
+import net.ssehub.kernel_haven.cnf.VmToCnfConverter;
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.DeadArtifactDivergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.InvolvedElementPool;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.UndeadArtifactDivergence;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class detects {@link DeadArtifactDivergence}s and {@link UndeadArtifactDivergence}s, i.e., artifacts
+ * controlled by variables, whose presence condition is never or always satisfied under the constraints of the
+ * {@link VariabilityModel}. While receiving the {@link MappingElement}s via {@link #add(MappingElement)}, it only
+ * indexes the variables controlling each {@link SourceFile} and {@link CodeElement} by the path of the source file.
+ * The detection in {@link #detect(VariabilityModel, BuildModel, Consumer)} then checks the artifacts file by file:
+ * <ul>
+ * <li>If the presence condition of a file (as defined by the {@link BuildModel}) is not satisfiable, the file is dead
+ *     and its code elements are not checked individually.</li>
+ * <li>Otherwise, each code element is checked in conjunction with the presence condition of its file. Hence, a code
+ *     element is only reported as undead, if it is present whenever its file is built.</li>
+ * </ul>
+ * All satisfiability queries of a run are passed to a single {@link SatQueryCache}, which reuses the solver holding the
+ * constraints of the variability model and answers queries for already checked presence conditions from its cache.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class DeadArtifactDivergenceDetector {
+
+    private static final @NonNull Logger LOGGER = Logger.get();
+
+    /**
+     * The variables controlling the artifacts of each {@link SourceFile} by the path of that file. The paths are kept
+     * in the order of their first occurrence in the mapping.
+     */
+    private @NonNull Map<File, FileArtifacts> artifactsByFile;
+
+    /**
+     * The {@link SatQueryCache} of the last detection; <code>null</code>, if no detection was performed yet.
+     */
+    private @Nullable SatQueryCache queryCache;
+
+    /**
+     * The {@link InvolvedElementPool} of the current detection run providing the shared elements of the divergences.
+     */
+    private @NonNull InvolvedElementPool elementPool;
+
+    /**
+     * Creates a {@link DeadArtifactDivergenceDetector} instance with an <i>empty</i> index.
+     * 
+     * @param elementPool the {@link InvolvedElementPool} of the current detection run
+     */
+    public DeadArtifactDivergenceDetector(@NonNull InvolvedElementPool elementPool) {
+        this.elementPool = elementPool;
+        artifactsByFile = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds the variable of the given {@link MappingElement} to the index of all artifacts of its build and code
+     * mapping. Undefined variables are represented by placeholders.
+     * 
+     * @param mappingElement the {@link MappingElement} to add
+     */
+    public void add(@NonNull MappingElement mappingElement) {
+        VariabilityVariable variable = mappingElement.getVariable();
+        if (variable == null) {
+            variable = elementPool.getPlaceholderVariable(mappingElement.getVariableName());
+        }
+        for (SourceFile<?> sourceFile : mappingElement.getBuildMapping()) {
+            getArtifacts(sourceFile.getPath()).buildVariables.add(variable);
+        }
+        for (CodeElement<?> codeElement : mappingElement.getCodeMapping()) {
+            getArtifacts(codeElement.getSourceFile()).codeVariables
+                    .computeIfAbsent(codeElement, key -> new LinkedHashSet<>()).add(variable);
+        }
+    }
+
+    /**
+     * Returns the {@link FileArtifacts} of the {@link SourceFile} with the given path. If the path is received for the
+     * first time, <i>empty</i> artifacts are created.
+     * 
+     * @param path the path of the {@link SourceFile}
+     * @return the {@link FileArtifacts} of the source file
+     */
+    private @NonNull FileArtifacts getArtifacts(@NonNull File path) {
+        FileArtifacts artifacts = artifactsByFile.get(path);
+        if (artifacts == null) {
+            artifacts = new FileArtifacts();
+            artifactsByFile.put(path, artifacts);
+        }
+        return artifacts;
+    }
+
+    /**
+     * Returns the number of {@link SourceFile}s, for which this detector indexed at least one controlled artifact.
+     * 
+     * @return the number of indexed source files
+     */
+    public int size() {
+        return artifactsByFile.size();
+    }
+
+    /**
+     * Detects the dead and undead artifacts of all indexed {@link SourceFile}s. Failing to check the presence
+     * conditions of a single file is logged; the detection continues with the next file.
+     * 
+     * @param variabilityModel the {@link VariabilityModel} defining the constraints for the presence conditions
+     * @param buildModel the {@link BuildModel} defining the presence conditions of the source files; may be
+     *        <code>null</code>, if only code elements should be checked (without considering their files)
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}s
+     * @throws FormatException if converting the constraints of the variability model fails
+     */
+    public void detect(@NonNull VariabilityModel variabilityModel, @Nullable BuildModel buildModel,
+            @NonNull Consumer<Divergence> divergenceConsumer) throws FormatException {
+        SatQueryCache currentQueryCache = new SatQueryCache(new VmToCnfConverter().convertVmToCnf(variabilityModel));
+        queryCache = currentQueryCache;
+        for (Map.Entry<File, FileArtifacts> fileEntry : artifactsByFile.entrySet()) {
+            File path = fileEntry.getKey();
+            Formula filePresenceCondition = buildModel != null ? buildModel.getPc(path) : null;
+            try {
+                detect(path, fileEntry.getValue(), filePresenceCondition, currentQueryCache, divergenceConsumer);
+            } catch (ConverterException | SolverException e) {
+                LOGGER.logException("Cannot check presence conditions of artifacts in \"" + path + "\"", e);
+            }
+        }
+    }
+
+    /**
+     * Detects the dead and undead artifacts of a single {@link SourceFile}. The code elements of the file are only
+     * checked, if the file itself is not dead.
+     * 
+     * @param path the path of the {@link SourceFile}
+     * @param artifacts the {@link FileArtifacts} of the source file
+     * @param filePresenceCondition the presence condition of the source file; <code>null</code>, if unknown
+     * @param currentQueryCache the {@link SatQueryCache} to pass all queries to
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}s
+     * @throws ConverterException if converting a presence condition fails
+     * @throws SolverException if the solver fails
+     */
+    private void detect(@NonNull File path, @NonNull FileArtifacts artifacts, @Nullable Formula filePresenceCondition,
+            @NonNull SatQueryCache currentQueryCache, @NonNull Consumer<Divergence> divergenceConsumer)
+            throws ConverterException, SolverException {
+        SourceFile<?> sourceFile = elementPool.getSourceFile(path);
+        boolean fileDead = false;
+        if (filePresenceCondition != null) {
+            fileDead = !currentQueryCache.isSatisfiable(filePresenceCondition);
+            if (fileDead) {
+                // All code elements of a dead file are dead as well; they are only reported by their variables
+                Set<VariabilityVariable> variables = new LinkedHashSet<>(artifacts.buildVariables);
+                for (Set<VariabilityVariable> codeVariables : artifacts.codeVariables.values()) {
+                    variables.addAll(codeVariables);
+                }
+                divergenceConsumer.accept(new DeadArtifactDivergence(variables, sourceFile,
+                        Collections.<CodeElement<?>>emptyList()));
+            } else if (!artifacts.buildVariables.isEmpty() && currentQueryCache.isImplied(filePresenceCondition)) {
+                divergenceConsumer.accept(new UndeadArtifactDivergence(artifacts.buildVariables, sourceFile,
+                        Collections.<CodeElement<?>>emptyList()));
+            }
+        }
+        if (!fileDead) {
+            detectCodeElements(sourceFile, artifacts, filePresenceCondition, currentQueryCache, divergenceConsumer);
+        }
+    }
+
+    /**
+     * Detects the dead and undead {@link CodeElement}s of a single, present {@link SourceFile}. All dead (undead) code
+     * elements of the file are reported as a single divergence.
+     * 
+     * @param sourceFile the {@link SourceFile} containing the code elements
+     * @param artifacts the {@link FileArtifacts} of the source file
+     * @param filePresenceCondition the presence condition of the source file; <code>null</code>, if unknown
+     * @param currentQueryCache the {@link SatQueryCache} to pass all queries to
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}s
+     * @throws ConverterException if converting a presence condition fails
+     * @throws SolverException if the solver fails
+     */
+    private void detectCodeElements(@NonNull SourceFile<?> sourceFile, @NonNull FileArtifacts artifacts,
+            @Nullable Formula filePresenceCondition, @NonNull SatQueryCache currentQueryCache,
+            @NonNull Consumer<Divergence> divergenceConsumer) throws ConverterException, SolverException {
+        Set<VariabilityVariable> deadVariables = new LinkedHashSet<>();
+        List<CodeElement<?>> deadCodeElements = new ArrayList<>();
+        Set<VariabilityVariable> undeadVariables = new LinkedHashSet<>();
+        List<CodeElement<?>> undeadCodeElements = new ArrayList<>();
+        for (Map.Entry<CodeElement<?>, Set<VariabilityVariable>> codeEntry : artifacts.codeVariables.entrySet()) {
+            CodeElement<?> codeElement = codeEntry.getKey();
+            Formula presenceCondition = codeElement.getPresenceCondition();
+            Formula absenceCondition = new Negation(presenceCondition);
+            if (filePresenceCondition != null) {
+                presenceCondition = new Conjunction(filePresenceCondition, presenceCondition);
+                absenceCondition = new Conjunction(filePresenceCondition, absenceCondition);
+            }
+            if (!currentQueryCache.isSatisfiable(presenceCondition)) {
+                deadVariables.addAll(codeEntry.getValue());
+                deadCodeElements.add(codeElement);
+            } else if (!currentQueryCache.isSatisfiable(absenceCondition)) {
+                undeadVariables.addAll(codeEntry.getValue());
+                undeadCodeElements.add(codeElement);
+            }
+        }
+        if (!deadCodeElements.isEmpty()) {
+            divergenceConsumer.accept(new DeadArtifactDivergence(deadVariables, sourceFile, deadCodeElements));
+        }
+        if (!undeadCodeElements.isEmpty()) {
+            divergenceConsumer.accept(new UndeadArtifactDivergence(undeadVariables, sourceFile, undeadCodeElements));
+        }
+    }
+
+    /**
+     * Returns the number of satisfiability queries of the last detection.
+     * 
+     * @return the number of queries; <code>0</code>, if no detection was performed yet
+     */
+    public long getQueriesCount() {
+        SatQueryCache currentQueryCache = queryCache;
+        return currentQueryCache != null ? currentQueryCache.getQueriesCount() : 0;
+    }
+
+    /**
+     * Returns the number of satisfiability queries of the last detection, which were passed to the solver. All other
+     * queries were answered from the cache.
+     * 
+     * @return the number of solver calls; <code>0</code>, if no detection was performed yet
+     */
+    public long getSolverCallsCount() {
+        SatQueryCache currentQueryCache = queryCache;
+        return currentQueryCache != null ? currentQueryCache.getSolverCallsCount() : 0;
+    }
+
+    /**
+     * Returns the time spent in the solver during the last detection.
+     * 
+     * @return the solver time in nanoseconds; <code>0</code>, if no detection was performed yet
+     */
+    public long getSolverTime() {
+        SatQueryCache currentQueryCache = queryCache;
+        return currentQueryCache != null ? currentQueryCache.getSolverTime() : 0;
+    }
+
+    /**
+     * Releases the index of this detector. Afterwards, this detector must not be used anymore.
+     */
+    public void close() {
+        artifactsByFile.clear();
+        queryCache = null;
+    }
+
+    /**
+     * The variables controlling the artifacts of a single {@link SourceFile}.
+     */
+    private static final class FileArtifacts {
+
+        /**
+         * The variables controlling the presence of the source file itself (build mapping).
+         */
+        private final @NonNull Set<VariabilityVariable> buildVariables = new LinkedHashSet<>();
+
+        /**
+         * The variables controlling the presence of each {@link CodeElement} of the source file (code mapping).
+         */
+        private final @NonNull Map<CodeElement<?>, Set<VariabilityVariable>> codeVariables = new LinkedHashMap<>();
+
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+
+/**
+ * This enumeration defines the available modes of the {@link ProblemSolutionSpaceDivergenceDetector}, which determine
+ * when detected {@link Divergence}s are passed to the next analysis component and which {@link MappingElement}s are
+ * kept in memory during detection.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public enum DetectionMode {
+    
+    /**
+     * All received {@link MappingElement}s and all detected {@link Divergence}s are kept in memory. The
+     * {@link Divergence}s are passed to the next analysis component only after the entire mapping is processed.
+     */
+    BUFFERED,
+    
+    /**
+     * Each {@link Divergence} is passed to the next analysis component as soon as it is detected. Only those
+     * {@link MappingElement}s, which are required for detecting multi-mapping divergences, are kept in memory.
+     */
+    STREAMING,
+    
+    /**
+     * All received {@link MappingElement}s are kept in memory. After the entire mapping is received, the single-mapping
+     * and multi-mapping detection is distributed across a {@link java.util.concurrent.ForkJoinPool} (see
+     * {@link ParallelDivergenceDetector}). The {@link Divergence}s are passed to the next analysis component afterwards
+     * in the same order as in {@link #BUFFERED} mode.
+     */
+    PARALLEL,
+    
+    /**
+     * The {@link MappingElement}s are received by a dedicated reader thread and passed in batches to multiple detector
+     * threads via a bounded queue (see {@link PipelinedDivergenceDetector}). Only those {@link MappingElement}s, which
+     * are required for detecting multi-mapping divergences, are kept in memory. The {@link Divergence}s are passed to
+     * the next analysis component after the entire mapping is processed in the same order as in {@link #BUFFERED}
+     * mode.
+     */
+    PIPELINED;
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * This class collects the metrics of a single run of the {@link ProblemSolutionSpaceDivergenceDetector}. All counters
+ * are {@link LongAdder}s or {@link LongAccumulator}s, which multiple detector threads update without contention.
+ * Hence, the metrics are collected in each run and in each {@link DetectionMode}. Times are measured in nanoseconds
+ * and accumulated over all threads; in {@link DetectionMode#PARALLEL} and {@link DetectionMode#PIPELINED}, the
+ * detection times may therefore exceed the total time of the run.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class DetectorMetrics {
+
+    /**
+     * The headers of the metrics table (see {@link #getRows()}).
+     */
+    public static final @Nullable Object @NonNull [] HEADER = {"Metric", "Value"};
+
+    /**
+     * The time the detector waited for the next {@link MappingElement} of the mapper.
+     */
+    private @NonNull LongAdder mapperWaitTime;
+
+    /**
+     * The time spent detecting single-mapping {@link Divergence}s.
+     */
+    private @NonNull LongAdder singleMappingTime;
+
+    /**
+     * The time spent detecting multi-mapping {@link Divergence}s.
+     */
+    private @NonNull LongAdder multiMappingTime;
+
+    /**
+     * The number of received {@link MappingElement}s.
+     */
+    private @NonNull LongAdder receivedElements;
+
+    /**
+     * The number of received {@link MappingElement}s rejected by the {@link MappingElementFilter}.
+     */
+    private @NonNull LongAdder filteredElements;
+
+    /**
+     * The maximum number of {@link MappingElement}s retained by the detector at the same time.
+     */
+    private @NonNull LongAccumulator peakRetainedElements;
+
+    /**
+     * The number of detected {@link Divergence}s by their type (see {@link Divergence#getType()}).
+     */
+    private @NonNull ConcurrentMap<String, LongAdder> divergencesPerType;
+
+    /**
+     * The time in nanoseconds at which the run started; <code>0</code>, if not started yet.
+     */
+    private volatile long startTime;
+
+    /**
+     * The time in nanoseconds at which the run stopped; <code>0</code>, if not stopped yet.
+     */
+    private volatile long stopTime;
+
+    /**
+     * Creates a {@link DetectorMetrics} instance with all metrics being <code>0</code>.
+     */
+    public DetectorMetrics() {
+        mapperWaitTime = new LongAdder();
+        singleMappingTime = new LongAdder();
+        multiMappingTime = new LongAdder();
+        receivedElements = new LongAdder();
+        filteredElements = new LongAdder();
+        peakRetainedElements = new LongAccumulator(Math::max, 0);
+        divergencesPerType = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Marks the start of the run.
+     */
+    public void start() {
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of the run.
+     */
+    public void stop() {
+        stopTime = System.nanoTime();
+    }
+
+    /**
+     * Adds the given time to the time waited for the mapper.
+     * 
+     * @param nanos the time in nanoseconds
+     */
+    public void addMapperWaitTime(long nanos) {
+        mapperWaitTime.add(nanos);
+    }
+
+    /**
+     * Adds the given time to the time spent detecting single-mapping {@link Divergence}s.
+     * 
+     * @param nanos the time in nanoseconds
+     */
+    public void addSingleMappingTime(long nanos) {
+        singleMappingTime.add(nanos);
+    }
+
+    /**
+     * Adds the given time to the time spent detecting multi-mapping {@link Divergence}s.
+     * 
+     * @param nanos the time in nanoseconds
+     */
+    public void addMultiMappingTime(long nanos) {
+        multiMappingTime.add(nanos);
+    }
+
+    /**
+     * Adds the given number to the number of received {@link MappingElement}s.
+     * 
+     * @param count the number of received {@link MappingElement}s
+     */
+    public void addReceivedElements(long count) {
+        receivedElements.add(count);
+    }
+
+    /**
+     * Adds the given number to the number of received {@link MappingElement}s rejected by the
+     * {@link MappingElementFilter}.
+     * 
+     * @param count the number of rejected {@link MappingElement}s
+     */
+    public void addFilteredElements(long count) {
+        filteredElements.add(count);
+    }
+
+    /**
+     * Updates the peak number of retained {@link MappingElement}s, if the given number exceeds it.
+     * 
+     * @param count the number of currently retained {@link MappingElement}s
+     */
+    public void updateRetainedElements(long count) {
+        peakRetainedElements.accumulate(count);
+    }
+
+    /**
+     * Counts the given {@link Divergence} as detected.
+     * 
+     * @param divergence the detected {@link Divergence}
+     */
+    public void divergenceDetected(@NonNull Divergence divergence) {
+        LongAdder counter = divergencesPerType.get(divergence.getType());
+        if (counter == null) {
+            counter = divergencesPerType.computeIfAbsent(divergence.getType(), type -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Returns the time between {@link #start()} and {@link #stop()} or the current time, if not stopped yet.
+     * 
+     * @return the total time of the run in nanoseconds; <code>0</code>, if not started yet
+     */
+    public long getTotalTime() {
+        long totalTime = 0;
+        if (startTime != 0) {
+            totalTime = (stopTime != 0 ? stopTime : System.nanoTime()) - startTime;
+        }
+        return totalTime;
+    }
+
+    /**
+     * Returns the number of received {@link MappingElement}s per second of the {@link #getTotalTime()}.
+     * 
+     * @return the number of received {@link MappingElement}s per second
+     */
+    public double getElementsPerSecond() {
+        long totalTime = getTotalTime();
+        return totalTime > 0 ? receivedElements.sum() * (double) TimeUnit.SECONDS.toNanos(1) / totalTime : 0;
+    }
+
+    /**
+     * Returns the number of detected {@link Divergence}s of all types.
+     * 
+     * @return the number of detected {@link Divergence}s
+     */
+    public long getDivergencesCount() {
+        long divergencesCount = 0;
+        for (LongAdder counter : divergencesPerType.values()) {
+            divergencesCount += counter.sum();
+        }
+        return divergencesCount;
+    }
+
+    /**
+     * Returns all metrics as rows of a table with a metric name and a value each (see {@link #HEADER}). Times are
+     * given in milliseconds. The number of divergences per type is given in separate rows sorted by type.
+     * 
+     * @return the rows of the metrics table; never <code>null</code>
+     */
+    public @NonNull List<@Nullable Object @NonNull []> getRows() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {"Mapping elements received", receivedElements.sum()});
+        rows.add(new Object[] {"Mapping elements filtered", filteredElements.sum()});
+        rows.add(new Object[] {"Mapper wait time [ms]", TimeUnit.NANOSECONDS.toMillis(mapperWaitTime.sum())});
+        rows.add(new Object[] {"Single-mapping detection time [ms]",
+            TimeUnit.NANOSECONDS.toMillis(singleMappingTime.sum())});
+        rows.add(new Object[] {"Multi-mapping detection time [ms]",
+            TimeUnit.NANOSECONDS.toMillis(multiMappingTime.sum())});
+        rows.add(new Object[] {"Total time [ms]", TimeUnit.NANOSECONDS.toMillis(getTotalTime())});
+        rows.add(new Object[] {"Mapping elements per second", Math.round(getElementsPerSecond())});
+        rows.add(new Object[] {"Peak retained mapping elements", peakRetainedElements.get()});
+        rows.add(new Object[] {"Divergences", getDivergencesCount()});
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(divergencesPerType).entrySet()) {
+            rows.add(new Object[] {"Divergences: " + counter.getKey(), counter.getValue().sum()});
+        }
+        return rows;
+    }
+
+    @Override
+    public @NonNull String toString() {
+        return "Received " + receivedElements.sum() + " mapping elements (" + Math.round(getElementsPerSecond())
+                + " per second, " + filteredElements.sum() + " filtered), waited "
+                + TimeUnit.NANOSECONDS.toMillis(mapperWaitTime.sum()) + " ms for mapper, detected single-mapping "
+                + "divergences in " + TimeUnit.NANOSECONDS.toMillis(singleMappingTime.sum())
+                + " ms and multi-mapping divergences in "
+                + TimeUnit.NANOSECONDS.toMillis(multiMappingTime.sum()) + " ms, retained at most "
+                + peakRetainedElements.get() + " mapping elements";
+    }
+
+}
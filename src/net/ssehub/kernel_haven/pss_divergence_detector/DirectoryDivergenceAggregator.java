@@ -0,0 +1,419 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class aggregates {@link Divergence}s by the directories of their involved {@link SourceFile}s and the source
+ * files of their involved {@link CodeElement}s, e.g., to review the divergences per subsystem. The directories are
+ * organized in a trie of path segments up to a fixed depth, in which each node counts and lists the divergences
+ * involving at least one file in its directory or any of its subdirectories. Hence, each divergence is aggregated in a
+ * single pass over the paths of its files; a divergence involving multiple files in the same directory is counted only
+ * once per directory. Each segment is stored once and shared by all nodes with this segment, which keeps the trie small
+ * even for the many files with identical directory names (like <code>include</code>) of large software.<br><br>
+ * 
+ * This class is not thread-safe.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class DirectoryDivergenceAggregator {
+
+    /**
+     * The headers for writing the aggregated divergences as a KernelHaven result (see {@link #getRows()}).
+     */
+    public static final @Nullable Object @NonNull [] HEADER = {"Directory", "Depth", "Divergences",
+        "Divergence List"};
+
+    /**
+     * The maximum number of characters of the divergence list in a row, which is the maximum length of a cell in an
+     * Excel workbook. Longer lists are truncated (see {@link #appendDivergenceList(StringBuilder, Node)}).
+     */
+    private static final int MAX_LIST_LENGTH = 32767;
+
+    /**
+     * The number of characters reserved at the end of a truncated divergence list for the number of omitted
+     * divergences.
+     */
+    private static final int TRUNCATION_RESERVE = 32;
+
+    /**
+     * This class represents a single directory in the trie of path segments.
+     */
+    private static class Node {
+
+        /**
+         * The sub-directories of this directory by their (interned) names.
+         */
+        private @Nullable Map<String, Node> children;
+
+        /**
+         * The identifiers of the divergences aggregated in this directory in ascending order. Only the first
+         * {@link #divergencesCount} entries are valid.
+         */
+        private int @NonNull [] divergenceIds = new int[2];
+
+        /**
+         * The number of divergences aggregated in this directory.
+         */
+        private int divergencesCount;
+
+        /**
+         * Returns the sub-directory with the given name, which is created, if it does not exist yet.
+         * 
+         * @param segment the (interned) name of the sub-directory
+         * @return the node of the sub-directory
+         */
+        private @NonNull Node getChild(@NonNull String segment) {
+            Map<String, Node> currentChildren = children;
+            if (currentChildren == null) {
+                currentChildren = new HashMap<>();
+                children = currentChildren;
+            }
+            Node child = currentChildren.get(segment);
+            if (child == null) {
+                child = new Node();
+                currentChildren.put(segment, child);
+            }
+            return child;
+        }
+
+        /**
+         * Aggregates the divergence with the given identifier in this directory, if it is not aggregated already. As
+         * identifiers are assigned in ascending order, checking the last aggregated identifier is sufficient.
+         * 
+         * @param divergenceId the identifier of the divergence
+         */
+        private void add(int divergenceId) {
+            if (divergencesCount == 0 || divergenceIds[divergencesCount - 1] != divergenceId) {
+                if (divergencesCount == divergenceIds.length) {
+                    divergenceIds = Arrays.copyOf(divergenceIds, divergencesCount * 2);
+                }
+                divergenceIds[divergencesCount++] = divergenceId;
+            }
+        }
+
+    }
+
+    /**
+     * The maximum depth of the aggregated directories; the root directory has depth 0.
+     */
+    private int depth;
+
+    /**
+     * The root directory of the trie.
+     */
+    private @NonNull Node root;
+
+    /**
+     * The pool of path segments, which maps each segment to its single shared instance.
+     */
+    private @NonNull Map<String, String> segments;
+
+    /**
+     * The distinct types of all aggregated divergences; {@link #divergenceTypeIds} refer to their indexes.
+     */
+    private @NonNull List<String> divergenceTypes;
+
+    /**
+     * The indexes of the types in {@link #divergenceTypes} of all aggregated divergences by their identifiers. Only
+     * the first {@link #divergencesCount} entries are valid.
+     */
+    private int @NonNull [] divergenceTypeIds;
+
+    /**
+     * The involved variables of all aggregated divergences by their identifiers. The sets are shared with the
+     * divergences, such that the labels of the divergences (see {@link #appendDivergenceList(StringBuilder, Node)})
+     * are only created for writing the rows.
+     */
+    private @NonNull List<Set<VariabilityVariable>> divergenceVariables;
+
+    /**
+     * The number of divergences aggregated by this instance.
+     */
+    private int divergencesCount;
+
+    /**
+     * Creates a {@link DirectoryDivergenceAggregator} instance.
+     * 
+     * @param depth the maximum depth of the aggregated directories; directories below this depth are aggregated in
+     *        their ancestor at this depth; must be greater than 0
+     */
+    public DirectoryDivergenceAggregator(int depth) {
+        this.depth = depth;
+        root = new Node();
+        segments = new HashMap<>();
+        divergenceTypes = new ArrayList<>();
+        divergenceTypeIds = new int[16];
+        divergenceVariables = new ArrayList<>();
+    }
+
+    /**
+     * Aggregates the given {@link Divergence} in the directories of its involved {@link SourceFile}s and the source
+     * files of its involved {@link CodeElement}s. Divergences without any files are ignored.
+     * 
+     * @param divergence the {@link Divergence} to aggregate
+     */
+    public void add(@NonNull Divergence divergence) {
+        if (!divergence.getInvolvedSourceFiles().isEmpty() || !divergence.getInvolvedCodeElements().isEmpty()) {
+            int divergenceId = divergencesCount++;
+            if (divergenceId == divergenceTypeIds.length) {
+                divergenceTypeIds = Arrays.copyOf(divergenceTypeIds, divergenceId * 2);
+            }
+            divergenceTypeIds[divergenceId] = getTypeId(divergence.getType());
+            divergenceVariables.add(divergence.getInvolvedVariables());
+            for (SourceFile sourceFile : divergence.getInvolvedSourceFiles()) {
+                addPath(sourceFile.getPath(), divergenceId);
+            }
+            for (CodeElement codeElement : divergence.getInvolvedCodeElements()) {
+                addPath(codeElement.getSourceFile(), divergenceId);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the given divergence type in the {@link #divergenceTypes}. The type is added, if it is not
+     * part of the list yet. As there are only a few types, a linear search suffices.
+     * 
+     * @param type the type of a divergence
+     * @return the index of the type
+     */
+    private int getTypeId(@NonNull String type) {
+        int typeId = divergenceTypes.indexOf(type);
+        if (typeId < 0) {
+            typeId = divergenceTypes.size();
+            divergenceTypes.add(type);
+        }
+        return typeId;
+    }
+
+    /**
+     * Aggregates the divergence with the given identifier in each directory of the given file path up to the
+     * {@link #depth}.
+     * 
+     * @param path the path of a file involved in the divergence
+     * @param divergenceId the identifier of the divergence
+     */
+    private void addPath(@NonNull File path, int divergenceId) {
+        String pathString = path.getPath();
+        Node node = root;
+        node.add(divergenceId);
+        int nodeDepth = 0;
+        int segmentStart = 0;
+        // The last segment is the name of the file and, hence, never a directory
+        int segmentEnd = nextSeparator(pathString, segmentStart);
+        while (segmentEnd >= 0 && nodeDepth < depth) {
+            if (segmentEnd > segmentStart && !isCurrentDirectory(pathString, segmentStart, segmentEnd)) {
+                node = node.getChild(intern(pathString.substring(segmentStart, segmentEnd)));
+                node.add(divergenceId);
+                nodeDepth++;
+            }
+            segmentStart = segmentEnd + 1;
+            segmentEnd = nextSeparator(pathString, segmentStart);
+        }
+    }
+
+    /**
+     * Returns the index of the next path separator in the given path. Both <code>/</code> and <code>\</code> are
+     * accepted as separators independent of the current platform.
+     * 
+     * @param path the path to search in
+     * @param fromIndex the index to start the search from
+     * @return the index of the next separator or <code>-1</code>, if there is no further separator
+     */
+    private static int nextSeparator(@NonNull String path, int fromIndex) {
+        int separatorIndex = -1;
+        int index = fromIndex;
+        while (separatorIndex < 0 && index < path.length()) {
+            char character = path.charAt(index);
+            if (character == '/' || character == '\\') {
+                separatorIndex = index;
+            }
+            index++;
+        }
+        return separatorIndex;
+    }
+
+    /**
+     * Checks whether the given segment of the given path denotes the current directory (<code>.</code>).
+     * 
+     * @param path the path containing the segment
+     * @param segmentStart the index of the first character of the segment
+     * @param segmentEnd the index after the last character of the segment
+     * @return <code>true</code>, if the segment denotes the current directory; <code>false</code> otherwise
+     */
+    private static boolean isCurrentDirectory(@NonNull String path, int segmentStart, int segmentEnd) {
+        return segmentEnd - segmentStart == 1 && path.charAt(segmentStart) == '.';
+    }
+
+    /**
+     * Returns the single shared instance of the given path segment.
+     * 
+     * @param segment the path segment
+     * @return the shared instance equal to the given segment
+     */
+    private @NonNull String intern(@NonNull String segment) {
+        String sharedSegment = segments.get(segment);
+        if (sharedSegment == null) {
+            sharedSegment = segment;
+            segments.put(segment, segment);
+        }
+        return sharedSegment;
+    }
+
+    /**
+     * Returns the number of divergences aggregated by this instance.
+     * 
+     * @return the number of aggregated divergences
+     */
+    public int getDivergencesCount() {
+        return divergencesCount;
+    }
+
+    /**
+     * Returns the number of distinct path segments of all aggregated directories.
+     * 
+     * @return the number of distinct path segments
+     */
+    public int getSegmentsCount() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the number of divergences aggregated in the given directory and its sub-directories.
+     * 
+     * @param directory the path of the directory relative to the root directory of the aggregated files; the
+     *        <i>empty</i> path denotes the root directory
+     * @return the number of divergences aggregated in the given directory; <code>0</code>, if no divergence involves
+     *         a file in this directory or if the directory is deeper than the depth of this aggregator
+     */
+    public int getDirectoryDivergencesCount(@NonNull String directory) {
+        Node node = root;
+        int segmentStart = 0;
+        while (node != null && segmentStart <= directory.length()) {
+            int segmentEnd = nextSeparator(directory, segmentStart);
+            if (segmentEnd < 0) {
+                segmentEnd = directory.length();
+            }
+            if (segmentEnd > segmentStart && !isCurrentDirectory(directory, segmentStart, segmentEnd)) {
+                Map<String, Node> children = node.children;
+                node = children != null ? children.get(directory.substring(segmentStart, segmentEnd)) : null;
+            }
+            segmentStart = segmentEnd + 1;
+        }
+        return node != null ? node.divergencesCount : 0;
+    }
+
+    /**
+     * Returns the rows of the aggregated divergences (see {@link #HEADER}). Each row contains the path of a directory,
+     * its depth, the number of divergences aggregated in this directory, and the labels (type and involved variables)
+     * of these divergences separated by <code>;</code> in the order of their aggregation. The rows are sorted by the
+     * paths of the directories, such that each directory directly precedes its sub-directories. The root directory
+     * has no row, as it would list all divergences (see {@link #getDivergencesCount()} instead).
+     * 
+     * @return the rows of the aggregated divergences; never <code>null</code>
+     */
+    public @NonNull List<@Nullable Object @NonNull []> getRows() {
+        List<@Nullable Object @NonNull []> rows = new ArrayList<>();
+        addChildRows(root, "", 0, rows);
+        return rows;
+    }
+
+    /**
+     * Adds the rows of the given directory and all of its sub-directories to the given list.
+     * 
+     * @param node the node of the directory
+     * @param directory the path of the directory
+     * @param nodeDepth the depth of the directory
+     * @param rows the list to add the rows to
+     */
+    private void addRows(@NonNull Node node, @NonNull String directory, int nodeDepth,
+            @NonNull List<@Nullable Object @NonNull []> rows) {
+        StringBuilder listBuilder = new StringBuilder();
+        appendDivergenceList(listBuilder, node);
+        rows.add(new Object[] {directory, nodeDepth, node.divergencesCount, listBuilder.toString()});
+        addChildRows(node, directory, nodeDepth, rows);
+    }
+
+    /**
+     * Adds the rows of all sub-directories of the given directory to the given list in the order of their names.
+     * 
+     * @param node the node of the directory
+     * @param directory the path of the directory; <i>empty</i> for the root directory
+     * @param nodeDepth the depth of the directory
+     * @param rows the list to add the rows to
+     */
+    private void addChildRows(@NonNull Node node, @NonNull String directory, int nodeDepth,
+            @NonNull List<@Nullable Object @NonNull []> rows) {
+        Map<String, Node> children = node.children;
+        if (children != null) {
+            for (Map.Entry<String, Node> child : new TreeMap<>(children).entrySet()) {
+                String childDirectory = nodeDepth == 0 ? child.getKey() : directory + "/" + child.getKey();
+                addRows(child.getValue(), childDirectory, nodeDepth + 1, rows);
+            }
+        }
+    }
+
+    /**
+     * Appends the labels (type and involved variables) of the divergences aggregated in the given directory separated
+     * by <code>;</code> to the given builder. If the list would exceed {@link #MAX_LIST_LENGTH} characters, it is
+     * truncated and ends with the number of omitted divergences.
+     * 
+     * @param listBuilder the builder to append the list to
+     * @param node the node of the directory
+     */
+    private void appendDivergenceList(@NonNull StringBuilder listBuilder, @NonNull Node node) {
+        int i = 0;
+        boolean truncated = false;
+        while (i < node.divergencesCount && !truncated) {
+            int listLength = listBuilder.length();
+            if (i > 0) {
+                listBuilder.append("; ");
+            }
+            int divergenceId = node.divergenceIds[i];
+            listBuilder.append(divergenceTypes.get(divergenceTypeIds[divergenceId])).append('(');
+            boolean first = true;
+            for (VariabilityVariable variable : divergenceVariables.get(divergenceId)) {
+                if (!first) {
+                    listBuilder.append(' ');
+                }
+                listBuilder.append(variable.getName());
+                first = false;
+            }
+            listBuilder.append(')');
+            if (listBuilder.length() > MAX_LIST_LENGTH - TRUNCATION_RESERVE) {
+                listBuilder.setLength(listLength);
+                listBuilder.append("; [").append(node.divergencesCount - i).append(" more]");
+                truncated = true;
+            } else {
+                i++;
+            }
+        }
+    }
+
+}
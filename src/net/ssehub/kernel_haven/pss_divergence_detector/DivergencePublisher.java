@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * This class publishes the detected {@link Divergence}s to any number of in-process {@link IDivergenceSubscriber}s,
+ * e.g., dashboards or triage filters, without a separate analysis component for each of them. It corresponds to the
+ * <code>Flow.Publisher</code> of reactive streams (similar to a <code>SubmissionPublisher</code>), but is available
+ * for Java 8.<br><br>
+ * 
+ * Each subscriber has its own bounded buffer and its own delivery thread, which passes the buffered divergences to
+ * the subscriber as long as the subscriber requested further divergences (see
+ * {@link IDivergenceSubscription#request(long)}). If the buffer of a subscriber is full, {@link #submit(Divergence)}
+ * waits until the subscriber requests and receives further divergences or cancels its subscription. Hence, slow
+ * subscribers apply backpressure to the publishing detector instead of letting unprocessed divergences pile up on
+ * the heap; a subscriber, which never requests further divergences, blocks the detector as soon as its buffer is
+ * full. Subscribers are independent of each other: each receives all divergences submitted after its subscription
+ * at its own pace. The delivery threads are daemon threads, which do not prevent the JVM from exiting; hence, the
+ * publisher must always be closed (see {@link #close()} and {@link #closeExceptionally(Throwable)}) to terminate
+ * the subscriptions, while divergences not yet received when the JVM exits are lost.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class DivergencePublisher {
+
+    /**
+     * The logger of this class.
+     */
+    private static final @NonNull Logger LOGGER = Logger.get();
+
+    /**
+     * The maximum number of divergences buffered for each subscriber.
+     */
+    private int bufferCapacity;
+
+    /**
+     * The subscriptions of all subscribers, which neither cancelled their subscription nor received all divergences.
+     */
+    private @NonNull List<DivergenceSubscription> subscriptions;
+
+    /**
+     * The number of subscribers subscribed to this publisher so far.
+     */
+    private int subscribersCount;
+
+    /**
+     * The definition whether this publisher is closed, i.e., whether all divergences are submitted.
+     */
+    private boolean closed;
+
+    /**
+     * The error, with which this publisher is closed; <code>null</code>, if it is not closed or closed normally.
+     */
+    private @Nullable Throwable closeError;
+
+    /**
+     * The time {@link #submit(Divergence)} waited for free space in the buffers of the subscribers in nanoseconds.
+     */
+    private @NonNull LongAdder submitWaitTime;
+
+    /**
+     * This class represents the subscription of a single {@link IDivergenceSubscriber}, which buffers the submitted
+     * divergences and passes them to the subscriber in its own delivery thread. All fields are guarded by the lock of
+     * the subscription instance, while the subscriber is always called without holding this lock.
+     */
+    private class DivergenceSubscription implements IDivergenceSubscription {
+
+        /**
+         * The subscriber of this subscription.
+         */
+        private @NonNull IDivergenceSubscriber subscriber;
+
+        /**
+         * The submitted divergences not yet passed to the subscriber.
+         */
+        private @NonNull ArrayDeque<Divergence> buffer;
+
+        /**
+         * The number of requested, but not yet passed divergences; {@link Long#MAX_VALUE} denotes an unbounded
+         * demand.
+         */
+        private long demand;
+
+        /**
+         * The definition whether this subscription is cancelled, either by the subscriber or due to a
+         * {@link #failure}.
+         */
+        private boolean cancelled;
+
+        /**
+         * The error passed to the subscriber immediately, e.g., an invalid request or an exception thrown by the
+         * subscriber; <code>null</code>, if no such error occurred.
+         */
+        private @Nullable Throwable failure;
+
+        /**
+         * The definition whether the publisher is closed, such that the subscriber is completed after receiving all
+         * buffered divergences.
+         */
+        private boolean completed;
+
+        /**
+         * The error, with which the publisher is closed; <code>null</code>, if the publisher is not closed or closed
+         * normally.
+         */
+        private @Nullable Throwable completionError;
+
+        /**
+         * Creates a {@link DivergenceSubscription} instance.
+         * 
+         * @param subscriber the subscriber of this subscription
+         */
+        private DivergenceSubscription(@NonNull IDivergenceSubscriber subscriber) {
+            this.subscriber = subscriber;
+            buffer = new ArrayDeque<>(Math.min(bufferCapacity, 1024));
+        }
+
+        @Override
+        public synchronized void request(long count) {
+            if (count < 1) {
+                fail(new IllegalArgumentException("Invalid number of requested divergences: " + count));
+            } else if (!cancelled) {
+                demand = demand + count < 0 ? Long.MAX_VALUE : demand + count;
+                notifyAll();
+            }
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            buffer.clear();
+            notifyAll();
+        }
+
+        /**
+         * Cancels this subscription and passes the given error to the subscriber, if this subscription is not
+         * cancelled already.
+         * 
+         * @param error the error to pass to the subscriber
+         */
+        private synchronized void fail(@NonNull Throwable error) {
+            if (!cancelled) {
+                failure = error;
+                cancel();
+            }
+        }
+
+        /**
+         * Completes this subscription after all buffered divergences are passed to the subscriber.
+         * 
+         * @param error the error, with which the publisher is closed; <code>null</code>, if it is closed normally
+         */
+        private synchronized void complete(@Nullable Throwable error) {
+            completed = true;
+            completionError = error;
+            notifyAll();
+        }
+
+        /**
+         * Adds the given divergence to the buffer of this subscription. If the buffer is full, this method waits until
+         * the subscriber receives a buffered divergence or cancels this subscription.
+         * 
+         * @param divergence the divergence to add
+         * @return the time waited for free space in the buffer in nanoseconds
+         */
+        private synchronized long offer(@NonNull Divergence divergence) {
+            long waitTime = 0;
+            if (!cancelled && buffer.size() >= bufferCapacity) {
+                long waitStart = System.nanoTime();
+                try {
+                    while (!cancelled && buffer.size() >= bufferCapacity) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    LOGGER.logException("Interrupted while waiting for subscriber - divergence not published", e);
+                    Thread.currentThread().interrupt();
+                }
+                waitTime = System.nanoTime() - waitStart;
+            }
+            if (!cancelled && !completed && buffer.size() < bufferCapacity) {
+                buffer.add(divergence);
+                notifyAll();
+            }
+            return waitTime;
+        }
+
+        /**
+         * Passes the buffered divergences to the subscriber as requested until this subscription is cancelled or
+         * completed. This method is executed by the delivery thread of this subscription.
+         */
+        private void deliver() {
+            try {
+                subscriber.onSubscribe(this);
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+            boolean terminated = false;
+            while (!terminated) {
+                Divergence next = null;
+                boolean signalTermination = false;
+                Throwable terminationError = null;
+                synchronized (this) {
+                    try {
+                        while (!cancelled && (demand == 0 || buffer.isEmpty()) && !(completed && buffer.isEmpty())) {
+                            wait();
+                        }
+                    } catch (InterruptedException e) {
+                        LOGGER.logException("Interrupted while delivering divergences - subscription cancelled", e);
+                        cancel();
+                    }
+                    if (failure != null) {
+                        terminated = true;
+                        signalTermination = true;
+                        terminationError = failure;
+                    } else if (cancelled) {
+                        terminated = true;
+                    } else if (demand > 0 && !buffer.isEmpty()) {
+                        next = buffer.poll();
+                        if (demand != Long.MAX_VALUE) {
+                            demand--;
+                        }
+                        notifyAll();
+                    } else {
+                        terminated = true;
+                        signalTermination = true;
+                        terminationError = completionError;
+                    }
+                }
+                if (next != null) {
+                    try {
+                        subscriber.onNext(next);
+                    } catch (RuntimeException e) {
+                        LOGGER.logException("Subscriber failed to receive divergence - subscription cancelled", e);
+                        fail(e);
+                    }
+                } else if (signalTermination) {
+                    signalTermination(terminationError);
+                }
+            }
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Passes the termination of this subscription to the subscriber.
+         * 
+         * @param error the error terminating this subscription; <code>null</code>, if all divergences are received
+         */
+        private void signalTermination(@Nullable Throwable error) {
+            try {
+                if (error != null) {
+                    subscriber.onError(error);
+                } else {
+                    subscriber.onComplete();
+                }
+            } catch (RuntimeException e) {
+                LOGGER.logException("Subscriber failed to receive termination of its subscription", e);
+            }
+        }
+
+    }
+
+    /**
+     * Creates a {@link DivergencePublisher} instance.
+     * 
+     * @param bufferCapacity the maximum number of divergences buffered for each subscriber; values less than
+     *        <code>1</code> are treated as <code>1</code>
+     */
+    public DivergencePublisher(int bufferCapacity) {
+        this.bufferCapacity = Math.max(1, bufferCapacity);
+        subscriptions = new CopyOnWriteArrayList<>();
+        submitWaitTime = new LongAdder();
+    }
+
+    /**
+     * Subscribes the given {@link IDivergenceSubscriber} to this publisher. The subscriber receives all divergences
+     * submitted after this call in its own delivery thread, which is a daemon thread. If this publisher is already
+     * closed, the subscriber is completed immediately after receiving its subscription.
+     * 
+     * @param subscriber the {@link IDivergenceSubscriber} to subscribe
+     */
+    public synchronized void subscribe(@NonNull IDivergenceSubscriber subscriber) {
+        DivergenceSubscription subscription = new DivergenceSubscription(subscriber);
+        if (closed) {
+            subscription.complete(closeError);
+        } else {
+            subscriptions.add(subscription);
+        }
+        Thread deliveryThread = new Thread(subscription::deliver,
+                "PSS-Divergence-Subscriber-" + subscribersCount++);
+        deliveryThread.setDaemon(true);
+        deliveryThread.start();
+    }
+
+    /**
+     * Publishes the given {@link Divergence} to all current subscribers. This method waits while the buffer of any of
+     * these subscribers is full. Divergences submitted after this publisher is closed are ignored. This method is
+     * intended to be called by a single publishing thread, like the thread of the detector.
+     * 
+     * @param divergence the {@link Divergence} to publish
+     */
+    public void submit(@NonNull Divergence divergence) {
+        long waitTime = 0;
+        for (DivergenceSubscription subscription : subscriptions) {
+            waitTime += subscription.offer(divergence);
+        }
+        if (waitTime > 0) {
+            submitWaitTime.add(waitTime);
+        }
+    }
+
+    /**
+     * Closes this publisher. Each current subscriber is completed after receiving all divergences buffered for it.
+     * Closing a publisher more than once has no effect.
+     */
+    public void close() {
+        terminate(null);
+    }
+
+    /**
+     * Closes this publisher due to the given error. Each current subscriber receives the error after receiving all
+     * divergences buffered for it. Closing a publisher more than once has no effect.
+     * 
+     * @param error the error, which prevents publishing further divergences
+     */
+    public void closeExceptionally(@NonNull Throwable error) {
+        terminate(error);
+    }
+
+    /**
+     * Closes this publisher and completes the subscriptions of all current subscribers.
+     * 
+     * @param error the error, with which this publisher is closed; <code>null</code>, if it is closed normally
+     */
+    private synchronized void terminate(@Nullable Throwable error) {
+        if (!closed) {
+            closed = true;
+            closeError = error;
+            for (DivergenceSubscription subscription : subscriptions) {
+                subscription.complete(error);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of subscribers, which neither cancelled their subscription nor received all divergences.
+     * 
+     * @return the number of current subscribers
+     */
+    public int getSubscribersCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Returns the time {@link #submit(Divergence)} waited for free space in the buffers of slow subscribers.
+     * 
+     * @return the waiting time in nanoseconds
+     */
+    public long getSubmitWaitTime() {
+        return submitWaitTime.sum();
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This enumeration defines the built-in {@link IDivergenceScore}s.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public enum DivergenceScore implements IDivergenceScore {
+    
+    /**
+     * Scores a {@link Divergence} by the number of involved {@link SourceFile}s.
+     */
+    SOURCE_FILES {
+        
+        @Override
+        public long score(@NonNull Divergence divergence) {
+            return divergence.getInvolvedSourceFiles().size();
+        }
+        
+    },
+    
+    /**
+     * Scores a {@link Divergence} by the total number of lines of all involved {@link CodeElement}s. Code elements
+     * without line information do not contribute to the score.
+     */
+    CODE_LINES {
+        
+        @Override
+        public long score(@NonNull Divergence divergence) {
+            long lines = 0;
+            for (CodeElement<?> codeElement : divergence.getInvolvedCodeElements()) {
+                if (codeElement.getLineStart() >= 0 && codeElement.getLineEnd() >= codeElement.getLineStart()) {
+                    lines += codeElement.getLineEnd() - codeElement.getLineStart() + 1;
+                }
+            }
+            return lines;
+        }
+        
+    },
+    
+    /**
+     * Scores a {@link Divergence} by the number of involved {@link VariabilityVariable}s.
+     */
+    VARIABLES {
+        
+        @Override
+        public long score(@NonNull Divergence divergence) {
+            return divergence.getInvolvedVariables().size();
+        }
+        
+    };
+    
+}
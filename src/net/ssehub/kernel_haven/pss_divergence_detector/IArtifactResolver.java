@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.io.File;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * This interface defines the resolution of artifacts by their path and line range. It enables an
+ * {@link IMappingElementStore} to retain only these keys instead of the {@link SourceFile}s and {@link CodeElement}s
+ * themselves, which are already retained by the indexes of the {@link MultiMappingDivergenceDetector}. Methods of a
+ * resolver may be called by multiple threads concurrently.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public interface IArtifactResolver {
+
+    /**
+     * Returns the {@link SourceFile} with the given path.
+     * 
+     * @param path the path of the {@link SourceFile}
+     * @return the {@link SourceFile} with the given path; never <code>null</code>
+     */
+    public @NonNull SourceFile<?> getSourceFile(@NonNull File path);
+
+    /**
+     * Returns the {@link CodeElement} with the given line range in the source file with the given path.
+     * 
+     * @param path the path of the source file containing the {@link CodeElement}
+     * @param lineStart the first line of the {@link CodeElement}
+     * @param lineEnd the last line of the {@link CodeElement}
+     * @return the {@link CodeElement} with the given line range or <code>null</code>, if there is no such element
+     */
+    public @Nullable CodeElement<?> getCodeElement(@NonNull File path, int lineStart, int lineEnd);
+
+}
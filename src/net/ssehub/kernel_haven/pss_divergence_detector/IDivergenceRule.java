@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This interface defines a rule for detecting {@link Divergence}s based on a single {@link MappingElement}. Each rule
+ * declares the variable states and the mapping parts it requires. The {@link SingleMappingDivergenceDetector} uses
+ * these declarations to build a dispatch table once, which passes each {@link MappingElement} only to those rules,
+ * which can detect a divergence for it.<br><br>
+ * 
+ * Rules are either defined by their fully qualified class name in the configuration (see
+ * {@link ProblemSolutionSpaceDivergenceDetector#RULES_SETTING}) or provided as a service (see
+ * {@link java.util.ServiceLoader}) in a <code>META-INF/services/</code> file named by the fully qualified name of this
+ * interface. In both cases, the rule must provide a public constructor without parameters. As a single rule instance is
+ * used by multiple threads in {@link DetectionMode#PARALLEL} and {@link DetectionMode#PIPELINED}, rules must be
+ * thread-safe.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public interface IDivergenceRule {
+    
+    /**
+     * The mapping part denoting a variable defined in the variability model
+     * ({@link MappingElement#getVariable()} is not <code>null</code>).
+     */
+    int MAPPING_PART_VARIABLE = 1;
+    
+    /**
+     * The mapping part denoting a non-<i>empty</i> {@link MappingElement#getBuildMapping()}.
+     */
+    int MAPPING_PART_BUILD = 2;
+    
+    /**
+     * The mapping part denoting a non-<i>empty</i> {@link MappingElement#getCodeMapping()}.
+     */
+    int MAPPING_PART_CODE = 4;
+    
+    /**
+     * Returns the names of the variable states (see {@link MappingElement#getVariableState()}), for which this rule
+     * may detect divergences, e.g., "UNUSED".
+     * 
+     * @return the names of the variable states this rule applies to; never <code>null</code>
+     */
+    public @NonNull Collection<String> getVariableStates();
+    
+    /**
+     * Returns the mapping parts, which a {@link MappingElement} must provide for this rule to apply. The returned
+     * value is a combination of {@link #MAPPING_PART_VARIABLE}, {@link #MAPPING_PART_BUILD}, and
+     * {@link #MAPPING_PART_CODE} using the bitwise or-operator, or <code>0</code>, if the rule does not require any
+     * mapping part.
+     * 
+     * @return the mapping parts required by this rule
+     */
+    public int getRequiredMappingParts();
+    
+    /**
+     * Detects {@link Divergence}s based on the given {@link MappingElement} and passes each of them to the given
+     * consumer. This method is only called for elements having one of the variable states of
+     * {@link #getVariableStates()} and all mapping parts of {@link #getRequiredMappingParts()}.
+     * 
+     * @param mappingElement the {@link MappingElement} to be investigated for divergences
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}s
+     */
+    public void detect(@NonNull MappingElement mappingElement, @NonNull Consumer<Divergence> divergenceConsumer);
+
+}
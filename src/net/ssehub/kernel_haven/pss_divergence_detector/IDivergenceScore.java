@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This interface defines a scoring function, which rates the severity of a {@link Divergence}. The
+ * {@link TopKDivergenceSelector} uses such a function to keep only the most severe divergences. The built-in scoring
+ * functions are defined by {@link DivergenceScore}.<br><br>
+ * 
+ * Further scoring functions are defined by their fully qualified class name in the configuration (see
+ * {@link ProblemSolutionSpaceDivergenceDetector#TOP_K_SCORE_SETTING}) and must provide a public constructor without
+ * parameters.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public interface IDivergenceScore {
+    
+    /**
+     * Calculates the score of the given {@link Divergence}. A higher score denotes a more severe divergence.
+     * 
+     * @param divergence the {@link Divergence} to score
+     * @return the score of the given divergence
+     */
+    public long score(@NonNull Divergence divergence);
+    
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This interface defines a consumer of the {@link Divergence}s published by a {@link DivergencePublisher}. It
+ * corresponds to the <code>Flow.Subscriber</code> of reactive streams: after subscribing, the subscriber receives its
+ * {@link IDivergenceSubscription} and requests as many divergences as it is able to process. The publisher never
+ * passes more divergences than requested and, hence, a slow subscriber slows down the publishing detector instead of
+ * letting unprocessed divergences pile up.<br><br>
+ * 
+ * All methods of a single subscriber are called by the same delivery thread of the {@link DivergencePublisher} and
+ * never concurrently.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public interface IDivergenceSubscriber {
+
+    /**
+     * Receives the {@link IDivergenceSubscription} of this subscriber. This method is called exactly once before any
+     * other method of this subscriber. No divergence is passed until divergences are requested via
+     * {@link IDivergenceSubscription#request(long)}.
+     * 
+     * @param subscription the {@link IDivergenceSubscription} of this subscriber
+     */
+    public void onSubscribe(@NonNull IDivergenceSubscription subscription);
+
+    /**
+     * Receives the next published {@link Divergence}. This method is called at most as many times as divergences are
+     * requested.
+     * 
+     * @param divergence the published {@link Divergence}
+     */
+    public void onNext(@NonNull Divergence divergence);
+
+    /**
+     * Receives the error, which terminated the subscription. No further method of this subscriber is called
+     * afterwards.
+     * 
+     * @param error the error terminating the subscription
+     */
+    public void onError(@NonNull Throwable error);
+
+    /**
+     * Signals that all divergences are published and received by this subscriber. No further method of this
+     * subscriber is called afterwards.
+     */
+    public void onComplete();
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+
+/**
+ * This interface defines the link between a {@link DivergencePublisher} and one of its
+ * {@link IDivergenceSubscriber}s. It corresponds to the <code>Flow.Subscription</code> of reactive streams and
+ * enables the subscriber to control the number of {@link Divergence}s it receives.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public interface IDivergenceSubscription {
+
+    /**
+     * Requests the given number of further {@link Divergence}s. The requests of a subscriber accumulate, i.e., the
+     * subscriber receives up to the total number of requested, but not yet received divergences. Requesting
+     * {@link Long#MAX_VALUE} divergences effectively disables the backpressure of this subscriber.
+     * 
+     * @param count the number of further divergences to receive; a value less than <code>1</code> cancels this
+     *        subscription and passes an {@link IllegalArgumentException} to
+     *        {@link IDivergenceSubscriber#onError(Throwable)}
+     */
+    public void request(long count);
+
+    /**
+     * Cancels this subscription. The subscriber may still receive divergences already being passed, but no further
+     * divergences are buffered for it. Cancelling a subscription more than once has no effect.
+     */
+    public void cancel();
+
+}
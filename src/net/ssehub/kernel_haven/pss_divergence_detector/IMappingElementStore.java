@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.io.Closeable;
+import java.util.List;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This interface defines a store retaining the {@link MappingElement}s required for detecting multi-mapping
+ * divergences (see {@link MultiMappingDivergenceDetector}). Each added element is identified by its position in the
+ * store, starting with <code>0</code>. Implementations may keep the elements on the heap or only a summary of them,
+ * while reading their mappings back on demand. Reading methods may be called by multiple threads concurrently, but not
+ * concurrently to {@link #add(MappingElement)}.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public interface IMappingElementStore extends Closeable {
+    
+    /**
+     * Adds the given {@link MappingElement} to this store.
+     * 
+     * @param mappingElement the {@link MappingElement} to add
+     * @return the identifier of the added element
+     */
+    public int add(@NonNull MappingElement mappingElement);
+    
+    /**
+     * Sets the {@link IArtifactResolver} resolving the artifacts of the read mappings. Stores, which do not retain the
+     * {@link SourceFile}s and {@link CodeElement}s of the added elements themselves, resolve them by their path and
+     * line range via this resolver; other stores ignore it. This method must be called before reading any mapping.
+     * 
+     * @param artifactResolver the {@link IArtifactResolver} resolving the artifacts of the added elements
+     */
+    public void setArtifactResolver(@NonNull IArtifactResolver artifactResolver);
+    
+    /**
+     * Returns the number of {@link MappingElement}s added to this store.
+     * 
+     * @return the number of added {@link MappingElement}s
+     */
+    public int size();
+    
+    /**
+     * Returns the variable name of the element with the given identifier (see
+     * {@link MappingElement#getVariableName()}).
+     * 
+     * @param elementId the identifier of the element
+     * @return the variable name of the element
+     */
+    public @NonNull String getVariableName(int elementId);
+    
+    /**
+     * Returns the {@link VariabilityVariable} of the element with the given identifier (see
+     * {@link MappingElement#getVariable()}).
+     * 
+     * @param elementId the identifier of the element
+     * @return the {@link VariabilityVariable} of the element or <code>null</code>, if the variable is undefined
+     */
+    public @Nullable VariabilityVariable getVariable(int elementId);
+    
+    /**
+     * Checks whether the element with the given identifier maps its variable to at least one artifact.
+     * 
+     * @param elementId the identifier of the element
+     * @return <code>true</code>, if the element has at least one source file or code element; <code>false</code>
+     *         otherwise
+     */
+    public boolean hasArtifacts(int elementId);
+    
+    /**
+     * Returns the build mapping of the element with the given identifier
+     * (see {@link MappingElement#getBuildMapping()}).
+     * 
+     * @param elementId the identifier of the element
+     * @return the {@link SourceFile}s of the element; must not be modified
+     */
+    public @NonNull List<SourceFile<?>> getBuildMapping(int elementId);
+    
+    /**
+     * Returns the code mapping of the element with the given identifier (see {@link MappingElement#getCodeMapping()}).
+     * 
+     * @param elementId the identifier of the element
+     * @return the {@link CodeElement}s of the element; must not be modified
+     */
+    public @NonNull List<CodeElement<?>> getCodeMapping(int elementId);
+    
+    /**
+     * Releases all resources of this store. Afterwards, this store must not be used anymore.
+     */
+    @Override
+    public void close();
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This {@link IMappingElementStore} keeps all added {@link MappingElement}s on the heap.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class InMemoryMappingElementStore implements IMappingElementStore {
+    
+    /**
+     * The list of added {@link MappingElement}s. The position of an element in this list is its identifier.
+     */
+    private @NonNull List<MappingElement> mappingElements;
+    
+    /**
+     * Creates an <i>empty</i> {@link InMemoryMappingElementStore} instance.
+     */
+    public InMemoryMappingElementStore() {
+        mappingElements = new ArrayList<>();
+    }
+
+    @Override
+    public int add(@NonNull MappingElement mappingElement) {
+        mappingElements.add(mappingElement);
+        return mappingElements.size() - 1;
+    }
+
+    @Override
+    public void setArtifactResolver(@NonNull IArtifactResolver artifactResolver) {
+        // The artifacts are retained by the mapping elements themselves
+    }
+
+    @Override
+    public int size() {
+        return mappingElements.size();
+    }
+
+    @Override
+    public @NonNull String getVariableName(int elementId) {
+        return mappingElements.get(elementId).getVariableName();
+    }
+
+    @Override
+    public @Nullable VariabilityVariable getVariable(int elementId) {
+        return mappingElements.get(elementId).getVariable();
+    }
+
+    @Override
+    public boolean hasArtifacts(int elementId) {
+        MappingElement mappingElement = mappingElements.get(elementId);
+        return !mappingElement.getBuildMapping().isEmpty() || !mappingElement.getCodeMapping().isEmpty();
+    }
+
+    @Override
+    public @NonNull List<SourceFile<?>> getBuildMapping(int elementId) {
+        return mappingElements.get(elementId).getBuildMapping();
+    }
+
+    @Override
+    public @NonNull List<CodeElement<?>> getCodeMapping(int elementId) {
+        return mappingElements.get(elementId).getCodeMapping();
+    }
+
+    @Override
+    public void close() {
+        mappingElements.clear();
+    }
+
+}
@@ -0,0 +1,761 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.DivergenceDiff;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.DivergenceFactory;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.FingerprintSet;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.InvolvedElementPool;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.StableHash;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class detects {@link Divergence}s incrementally based on the results of the previous analysis run. For this
+ * purpose, it persists a fingerprint of each {@link MappingElement} and all detected {@link Divergence}s in a cache
+ * file. In the next run, only those elements are investigated for single-mapping divergences, which are new or whose
+ * fingerprint changed; the divergences of all other elements are restored from the cache as instances of their
+ * original classes (see {@link DivergenceFactory}). Multi-mapping divergences
+ * are only detected again, if at least one element mapping its variable to build or code artifacts (in this or in the
+ * previous run) is new, changed, or removed. The cache file is only reused by a run with the same detector
+ * configuration, e.g., the same rules and filters; otherwise, all divergences are detected again.<br><br>
+ * 
+ * Further, this class compares the detected divergences with those of the previous run and provides the resulting
+ * {@link Delta}s as table rows (see {@link #DELTA_HEADER} and {@link #getDeltaRows()}).
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class IncrementalDivergenceDetector {
+
+    /**
+     * The headers of the delta table (see {@link #getDeltaRows()}).
+     */
+    public static final @Nullable Object @NonNull [] DELTA_HEADER = {"Delta", "Type", "Problem Space Symptom",
+        "Solution Space Symptom"};
+
+    /**
+     * The kinds of differences between the divergences of the current and the previous analysis run.
+     * 
+     * @author Christian Kröher
+     *
+     */
+    public enum Delta {
+
+        /**
+         * The divergence is detected in the current, but not in the previous run.
+         */
+        ADDED,
+
+        /**
+         * The divergence was detected in the previous, but not in the current run.
+         */
+        REMOVED,
+
+        /**
+         * The divergence is detected in both runs.
+         */
+        UNCHANGED
+    }
+
+    /**
+     * The {@link Logger} for reporting problems with the cache file.
+     */
+    private static final @NonNull Logger LOGGER = Logger.get();
+
+    /**
+     * The first four bytes of each cache file ("PSSD").
+     */
+    private static final int CACHE_MAGIC = 0x50535344;
+
+    /**
+     * The version of the cache file format. Cache files of other versions are ignored.
+     */
+    private static final int CACHE_VERSION = 3;
+
+    /**
+     * The file to read the results of the previous run from and to write the results of the current run to.
+     */
+    private @NonNull File cacheFile;
+
+    /**
+     * The hash of the detector configuration of the current run. The cache file of a previous run with a different
+     * configuration hash is ignored, as its results may differ from the results of the current configuration.
+     */
+    private long configurationHash;
+
+    /**
+     * The {@link SingleMappingDivergenceDetector} investigating new and changed {@link MappingElement}s.
+     */
+    private @NonNull SingleMappingDivergenceDetector singleMappingDetector;
+
+    /**
+     * The (initially <i>empty</i>) {@link MultiMappingDivergenceDetector} used, if multi-mapping divergences must be
+     * detected again.
+     */
+    private @NonNull MultiMappingDivergenceDetector multiMappingDetector;
+
+    /**
+     * The {@link DetectorMetrics} to which the detection times are added.
+     */
+    private @NonNull DetectorMetrics metrics;
+
+    /**
+     * The index of all {@link SourceFile}s of the current mapping by their path. This index is created on the first
+     * restore of a cached divergence.
+     */
+    private @Nullable Map<String, SourceFile<?>> sourceFileIndex;
+
+    /**
+     * The index of all {@link CodeElement}s of the current mapping by their description (see
+     * {@link #getCodeElementKey(CodeElement)}). This index is created on the first restore of a cached divergence.
+     */
+    private @Nullable Map<String, CodeElement<?>> codeElementIndex;
+
+    /**
+     * The rows of the delta table as created by the last call of {@link #detect(List)}.
+     */
+    private @NonNull List<@Nullable Object @NonNull []> deltaRows;
+
+    /**
+     * The number of {@link MappingElement}s investigated by the last call of {@link #detect(List)}, because they are
+     * new or changed.
+     */
+    private int reevaluatedElementsCount;
+
+    /**
+     * The {@link InvolvedElementPool} of the current detection run providing the shared elements of restored
+     * divergences, which are not part of the current mapping.
+     */
+    private @NonNull InvolvedElementPool elementPool;
+
+    /**
+     * Creates an {@link IncrementalDivergenceDetector} instance.
+     * 
+     * @param cacheFile the file to read the results of the previous run from and to write the results of the current
+     *        run to; the file does not need to exist
+     * @param configurationHash the hash of the detector configuration of the current run, e.g., of the rules, the
+     *        filters, and the kinds of detected divergences
+     * @param singleMappingDetector the {@link SingleMappingDivergenceDetector} to use for new and changed elements
+     * @param multiMappingDetector the <i>empty</i> {@link MultiMappingDivergenceDetector} to use, if multi-mapping
+     *        divergences must be detected again
+     * @param metrics the {@link DetectorMetrics} to which the detection times are added
+     * @param elementPool the {@link InvolvedElementPool} of the current detection run
+     */
+    public IncrementalDivergenceDetector(@NonNull File cacheFile, long configurationHash,
+            @NonNull SingleMappingDivergenceDetector singleMappingDetector,
+            @NonNull MultiMappingDivergenceDetector multiMappingDetector, @NonNull DetectorMetrics metrics,
+            @NonNull InvolvedElementPool elementPool) {
+        this.cacheFile = cacheFile;
+        this.configurationHash = configurationHash;
+        this.elementPool = elementPool;
+        this.singleMappingDetector = singleMappingDetector;
+        this.multiMappingDetector = multiMappingDetector;
+        this.metrics = metrics;
+        deltaRows = new ArrayList<>();
+    }
+
+    /**
+     * Detects all {@link Divergence}s of the given {@link MappingElement}s reusing the results of the previous run as
+     * far as possible. Afterwards, the cache file is replaced by the results of this run.
+     * 
+     * @param mappingElements the {@link MappingElement}s of the entire mapping
+     * @return the list of detected {@link Divergence}s; first the single-mapping divergences in the order of the given
+     *         elements, followed by the multi-mapping divergences
+     */
+    public @NonNull List<Divergence> detect(@NonNull List<MappingElement> mappingElements) {
+        Cache previousCache = readCache();
+        Cache currentCache = new Cache();
+        List<Divergence> detectedDivergences = new ArrayList<>();
+        List<String> detectedDivergenceOwners = new ArrayList<>();
+        Map<String, MappingElement> mappingElementsByName = new HashMap<>(mappingElements.size() * 4 / 3 + 1);
+        List<MappingElement> relevantElements = new ArrayList<>();
+        boolean multiMappingChanged = previousCache == null;
+        sourceFileIndex = null;
+        codeElementIndex = null;
+        reevaluatedElementsCount = 0;
+
+        long detectionStart = System.nanoTime();
+        for (MappingElement mappingElement : mappingElements) {
+            String variableName = mappingElement.getVariableName();
+            long fingerprint = getFingerprint(mappingElement);
+            boolean relevant = !mappingElement.getBuildMapping().isEmpty()
+                    || !mappingElement.getCodeMapping().isEmpty();
+            mappingElementsByName.put(variableName, mappingElement);
+            currentCache.fingerprints.put(variableName, fingerprint);
+            if (relevant) {
+                relevantElements.add(mappingElement);
+                currentCache.relevantVariables.add(variableName);
+            }
+            Long previousFingerprint = previousCache != null ? previousCache.fingerprints.get(variableName) : null;
+            if (previousFingerprint != null && previousFingerprint == fingerprint) {
+                // Unchanged element: its single-mapping divergences are the same as in the previous run
+                for (CacheEntry cacheEntry : previousCache.getSingleMappingEntries(variableName)) {
+                    detectedDivergences.add(restore(cacheEntry, mappingElements, mappingElementsByName));
+                    detectedDivergenceOwners.add(variableName);
+                }
+            } else {
+                reevaluatedElementsCount++;
+                singleMappingDetector.detect(mappingElement, divergence -> {
+                    detectedDivergences.add(divergence);
+                    detectedDivergenceOwners.add(variableName);
+                });
+                if (relevant || (previousCache != null && previousCache.relevantVariables.contains(variableName))) {
+                    multiMappingChanged = true;
+                }
+            }
+        }
+        if (!multiMappingChanged) {
+            for (String previousRelevantVariable : previousCache.relevantVariables) {
+                if (!mappingElementsByName.containsKey(previousRelevantVariable)) {
+                    multiMappingChanged = true;
+                    break;
+                }
+            }
+        }
+
+        long singleMappingEnd = System.nanoTime();
+        metrics.addSingleMappingTime(singleMappingEnd - detectionStart);
+        if (multiMappingChanged) {
+            for (MappingElement relevantElement : relevantElements) {
+                multiMappingDetector.add(relevantElement);
+            }
+            multiMappingDetector.detect(divergence -> {
+                detectedDivergences.add(divergence);
+                detectedDivergenceOwners.add(null);
+            });
+        } else {
+            for (CacheEntry cacheEntry : previousCache.multiMappingEntries) {
+                detectedDivergences.add(restore(cacheEntry, mappingElements, mappingElementsByName));
+                detectedDivergenceOwners.add(null);
+            }
+        }
+        metrics.addMultiMappingTime(System.nanoTime() - singleMappingEnd);
+
+        for (int i = 0; i < detectedDivergences.size(); i++) {
+            currentCache.add(new CacheEntry(detectedDivergenceOwners.get(i), detectedDivergences.get(i)));
+        }
+        createDeltaRows(previousCache, currentCache);
+        writeCache(currentCache);
+        sourceFileIndex = null;
+        codeElementIndex = null;
+        return detectedDivergences;
+    }
+
+    /**
+     * Returns the rows of the delta table created by the last call of {@link #detect(List)}. Each row contains the
+     * {@link Delta} as well as the type and the symptoms of a divergence (see {@link #DELTA_HEADER}). If no cache file
+     * of a previous run is available, all divergences are {@link Delta#ADDED}.
+     * 
+     * @return the rows of the delta table; never <code>null</code>
+     */
+    public @NonNull List<@Nullable Object @NonNull []> getDeltaRows() {
+        return deltaRows;
+    }
+
+    /**
+     * Returns the number of {@link MappingElement}s investigated by the last call of {@link #detect(List)}, because
+     * they are new or changed compared to the previous run.
+     * 
+     * @return the number of re-evaluated {@link MappingElement}s
+     */
+    public int getReevaluatedElementsCount() {
+        return reevaluatedElementsCount;
+    }
+
+    /**
+     * Calculates the fingerprint of the given {@link MappingElement}. The fingerprint is based on the variable state as
+     * well as the paths of the mapped {@link SourceFile}s and the paths and line ranges of the mapped
+     * {@link CodeElement}s. As the artifact hashes are summed up, the fingerprint is independent of the order of the
+     * artifacts. Further, it only uses hash codes of strings, which are stable across virtual machines.
+     * 
+     * @param mappingElement the {@link MappingElement} to calculate the fingerprint for
+     * @return the fingerprint of the given element
+     */
+    static long getFingerprint(@NonNull MappingElement mappingElement) {
+        long buildSignature = 0;
+        for (SourceFile<?> sourceFile : mappingElement.getBuildMapping()) {
+            buildSignature += StableHash.mix(sourceFile.getPath().getPath().hashCode());
+        }
+        long codeSignature = 0;
+        for (CodeElement<?> codeElement : mappingElement.getCodeMapping()) {
+            long codeElementHash = codeElement.getSourceFile().getPath().hashCode();
+            codeElementHash = 31 * codeElementHash + codeElement.getLineStart();
+            codeElementHash = 31 * codeElementHash + codeElement.getLineEnd();
+            codeSignature += StableHash.mix(codeElementHash);
+        }
+        long fingerprint = StableHash.mix(mappingElement.getVariableState().name().hashCode());
+        fingerprint = 31 * fingerprint + StableHash.mix(buildSignature);
+        fingerprint = 31 * fingerprint + StableHash.mix(codeSignature);
+        return fingerprint;
+    }
+
+    /**
+     * Restores the {@link Divergence} described by the given {@link CacheEntry}. The involved elements are taken from
+     * the current mapping, which contains them as all elements of the cached divergence are unchanged. The divergence
+     * is re-created as an instance of its original class via the {@link DivergenceFactory}.
+     * 
+     * @param cacheEntry the {@link CacheEntry} to restore
+     * @param mappingElements the {@link MappingElement}s of the current mapping
+     * @param mappingElementsByName the {@link MappingElement}s of the current mapping by their variable name
+     * @return the restored {@link Divergence}
+     */
+    private @NonNull Divergence restore(@NonNull CacheEntry cacheEntry, @NonNull List<MappingElement> mappingElements,
+            @NonNull Map<String, MappingElement> mappingElementsByName) {
+        if (sourceFileIndex == null) {
+            createArtifactIndexes(mappingElements);
+        }
+        List<VariabilityVariable> variables = new ArrayList<>(cacheEntry.variableNames.size());
+        for (String variableName : cacheEntry.variableNames) {
+            MappingElement mappingElement = mappingElementsByName.get(variableName);
+            VariabilityVariable variable = mappingElement != null ? mappingElement.getVariable() : null;
+            if (variable == null) {
+                variable = elementPool.getPlaceholderVariable(variableName);
+            }
+            variables.add(variable);
+        }
+        List<SourceFile<?>> sourceFiles = new ArrayList<>(cacheEntry.sourceFilePaths.size());
+        for (String sourceFilePath : cacheEntry.sourceFilePaths) {
+            SourceFile<?> sourceFile = sourceFileIndex.get(sourceFilePath);
+            if (sourceFile == null) {
+                sourceFile = elementPool.getSourceFile(new File(sourceFilePath));
+            }
+            sourceFiles.add(sourceFile);
+        }
+        List<CodeElement<?>> codeElements = new ArrayList<>(cacheEntry.codeElementKeys.size());
+        for (String codeElementKey : cacheEntry.codeElementKeys) {
+            CodeElement<?> codeElement = codeElementIndex.get(codeElementKey);
+            if (codeElement != null) {
+                codeElements.add(codeElement);
+            }
+        }
+        Divergence divergence = DivergenceFactory.create(cacheEntry.type, cacheEntry.problemSpaceSymptom,
+                cacheEntry.solutionSpaceSymptom, variables, sourceFiles, codeElements, elementPool);
+        return divergence;
+    }
+
+    /**
+     * Creates the {@link #sourceFileIndex} and the {@link #codeElementIndex} for the given {@link MappingElement}s.
+     * 
+     * @param mappingElements the {@link MappingElement}s of the current mapping
+     */
+    private void createArtifactIndexes(@NonNull List<MappingElement> mappingElements) {
+        Map<String, SourceFile<?>> sourceFiles = new HashMap<>();
+        Map<String, CodeElement<?>> codeElements = new HashMap<>();
+        for (MappingElement mappingElement : mappingElements) {
+            for (SourceFile<?> sourceFile : mappingElement.getBuildMapping()) {
+                sourceFiles.putIfAbsent(sourceFile.getPath().getPath(), sourceFile);
+            }
+            for (CodeElement<?> codeElement : mappingElement.getCodeMapping()) {
+                codeElements.putIfAbsent(getCodeElementKey(codeElement), codeElement);
+            }
+        }
+        sourceFileIndex = sourceFiles;
+        codeElementIndex = codeElements;
+    }
+
+    /**
+     * Returns the key identifying the given {@link CodeElement} in the cache file, e.g., "path/to/file.c[10-20]".
+     * 
+     * @param codeElement the {@link CodeElement} to return the key for
+     * @return the key of the given {@link CodeElement}
+     */
+    private static @NonNull String getCodeElementKey(@NonNull CodeElement<?> codeElement) {
+        return codeElement.getSourceFile().getPath() + "[" + codeElement.getLineStart() + "-"
+                + codeElement.getLineEnd() + "]";
+    }
+
+    /**
+     * Creates the {@link #deltaRows} by comparing the divergences of the given caches via a {@link DivergenceDiff}.
+     * Divergences are compared by their fingerprints (see {@link Divergence#getFingerprint()}).
+     * 
+     * @param previousCache the {@link Cache} of the previous run; may be <code>null</code>, if not available
+     * @param currentCache the {@link Cache} of the current run
+     */
+    private void createDeltaRows(@Nullable Cache previousCache, @NonNull Cache currentCache) {
+        deltaRows = new ArrayList<>(currentCache.entries.size());
+        List<CacheEntry> previousEntries = previousCache != null ? previousCache.entries : Collections.emptyList();
+        FingerprintSet addedFingerprints = new FingerprintSet();
+        List<CacheEntry> removedEntries = new ArrayList<>();
+        DivergenceDiff<CacheEntry> diff = new DivergenceDiff<>(entry -> entry.fingerprint);
+        diff.compare(previousEntries, currentCache.entries, entry -> addedFingerprints.add(entry.fingerprint),
+                removedEntries::add);
+        for (CacheEntry currentEntry : currentCache.entries) {
+            Delta delta = addedFingerprints.contains(currentEntry.fingerprint) ? Delta.ADDED : Delta.UNCHANGED;
+            deltaRows.add(currentEntry.toDeltaRow(delta));
+        }
+        for (CacheEntry removedEntry : removedEntries) {
+            deltaRows.add(removedEntry.toDeltaRow(Delta.REMOVED));
+        }
+        LOGGER.logInfo2("Divergence deltas to previous run: ", diff.getAddedCount(), " added, ",
+                diff.getResolvedCount(), " removed, ", diff.getUnchangedCount(), " unchanged");
+    }
+
+    /**
+     * Reads the {@link Cache} of the previous run from the {@link #cacheFile}.
+     * 
+     * @return the {@link Cache} of the previous run or <code>null</code>, if the cache file does not exist or cannot
+     *         be read
+     */
+    private @Nullable Cache readCache() {
+        Cache cache = null;
+        if (cacheFile.isFile()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+                if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) {
+                    LOGGER.logWarning2("Ignoring divergence cache \"", cacheFile, "\" of unknown format");
+                } else if (in.readLong() != configurationHash) {
+                    LOGGER.logInfo2("Ignoring divergence cache \"", cacheFile, "\" of a different detector "
+                            + "configuration - detecting all divergences");
+                } else {
+                    cache = new Cache();
+                    int elementsCount = in.readInt();
+                    for (int i = 0; i < elementsCount; i++) {
+                        String variableName = readString(in);
+                        cache.fingerprints.put(variableName, in.readLong());
+                        if (in.readBoolean()) {
+                            cache.relevantVariables.add(variableName);
+                        }
+                    }
+                    int entriesCount = in.readInt();
+                    for (int i = 0; i < entriesCount; i++) {
+                        cache.add(CacheEntry.read(in));
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.logException("Cannot read divergence cache \"" + cacheFile + "\"", e);
+                cache = null;
+            }
+        } else {
+            LOGGER.logInfo2("No divergence cache \"", cacheFile, "\" found - detecting all divergences");
+        }
+        return cache;
+    }
+
+    /**
+     * Writes the given {@link Cache} of the current run to the {@link #cacheFile}. The file is written to a temporary
+     * file first, which replaces the cache file afterwards. Hence, an interrupted run does not corrupt the cache file.
+     * 
+     * @param cache the {@link Cache} of the current run
+     */
+    private void writeCache(@NonNull Cache cache) {
+        File temporaryFile = new File(cacheFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeLong(configurationHash);
+                out.writeInt(cache.fingerprints.size());
+                for (Map.Entry<String, Long> fingerprint : cache.fingerprints.entrySet()) {
+                    writeString(out, fingerprint.getKey());
+                    out.writeLong(fingerprint.getValue());
+                    out.writeBoolean(cache.relevantVariables.contains(fingerprint.getKey()));
+                }
+                out.writeInt(cache.entries.size());
+                for (CacheEntry entry : cache.entries) {
+                    entry.write(out);
+                }
+            }
+            Files.move(temporaryFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.logException("Cannot write divergence cache \"" + cacheFile + "\"", e);
+        }
+    }
+
+    /**
+     * Writes the given string as UTF-8 bytes preceded by their number. In contrast to
+     * {@link DataOutputStream#writeUTF(String)}, this supports strings of any length, like the symptoms of divergences
+     * involving many artifacts.
+     * 
+     * @param out the {@link DataOutputStream} to write to
+     * @param string the string to write
+     * @throws IOException if writing fails
+     */
+    private static void writeString(@NonNull DataOutputStream out, @NonNull String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     * 
+     * @param in the {@link DataInputStream} to read from
+     * @return the read string
+     * @throws IOException if reading fails
+     */
+    private static @NonNull String readString(@NonNull DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the given list of strings preceded by their number.
+     * 
+     * @param out the {@link DataOutputStream} to write to
+     * @param strings the strings to write
+     * @throws IOException if writing fails
+     */
+    private static void writeStrings(@NonNull DataOutputStream out, @NonNull List<String> strings)
+            throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    /**
+     * Reads a list of strings written by {@link #writeStrings(DataOutputStream, List)}.
+     * 
+     * @param in the {@link DataInputStream} to read from
+     * @return the read strings
+     * @throws IOException if reading fails
+     */
+    private static @NonNull List<String> readStrings(@NonNull DataInputStream in) throws IOException {
+        int stringsCount = in.readInt();
+        List<String> strings = new ArrayList<>(stringsCount);
+        for (int i = 0; i < stringsCount; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    /**
+     * The results of a single analysis run as stored in the cache file.
+     */
+    private static class Cache {
+
+        /**
+         * The fingerprints of all {@link MappingElement}s by their variable name.
+         */
+        private @NonNull Map<String, Long> fingerprints = new HashMap<>();
+
+        /**
+         * The names of the variables, which are mapped to build or code artifacts.
+         */
+        private @NonNull Set<String> relevantVariables = new HashSet<>();
+
+        /**
+         * All detected divergences in the order of detection.
+         */
+        private @NonNull List<CacheEntry> entries = new ArrayList<>();
+
+        /**
+         * The single-mapping divergences by the name of the variable they were detected for.
+         */
+        private @NonNull Map<String, List<CacheEntry>> singleMappingEntries = new HashMap<>();
+
+        /**
+         * The multi-mapping divergences in the order of detection.
+         */
+        private @NonNull List<CacheEntry> multiMappingEntries = new ArrayList<>();
+
+        /**
+         * Adds the given {@link CacheEntry} to this cache.
+         * 
+         * @param entry the {@link CacheEntry} to add
+         */
+        private void add(@NonNull CacheEntry entry) {
+            entries.add(entry);
+            if (entry.owner != null) {
+                singleMappingEntries.computeIfAbsent(entry.owner, owner -> new ArrayList<>(1)).add(entry);
+            } else {
+                multiMappingEntries.add(entry);
+            }
+        }
+
+        /**
+         * Returns the single-mapping divergences detected for the variable with the given name.
+         * 
+         * @param variableName the name of the variable
+         * @return the {@link CacheEntry}s of the single-mapping divergences; may be <i>empty</i>
+         */
+        private @NonNull List<CacheEntry> getSingleMappingEntries(@NonNull String variableName) {
+            List<CacheEntry> variableEntries = singleMappingEntries.get(variableName);
+            return variableEntries != null ? variableEntries : Collections.emptyList();
+        }
+
+    }
+
+    /**
+     * A single divergence as stored in the cache file. Involved elements are stored by their names, paths, or keys
+     * (see {@link IncrementalDivergenceDetector#getCodeElementKey(CodeElement)}).
+     */
+    private static class CacheEntry {
+
+        /**
+         * The name of the variable this single-mapping divergence was detected for or <code>null</code>, if this is a
+         * multi-mapping divergence.
+         */
+        private @Nullable String owner;
+
+        /**
+         * The fingerprint of the divergence (see {@link Divergence#getFingerprint()}).
+         */
+        private long fingerprint;
+
+        /**
+         * The type of the divergence.
+         */
+        private @NonNull String type;
+
+        /**
+         * The problem space symptom of the divergence.
+         */
+        private @NonNull String problemSpaceSymptom;
+
+        /**
+         * The solution space symptom of the divergence.
+         */
+        private @NonNull String solutionSpaceSymptom;
+
+        /**
+         * The names of the involved variables.
+         */
+        private @NonNull List<String> variableNames;
+
+        /**
+         * The paths of the involved source files.
+         */
+        private @NonNull List<String> sourceFilePaths;
+
+        /**
+         * The keys of the involved code elements.
+         */
+        private @NonNull List<String> codeElementKeys;
+
+        /**
+         * Creates a {@link CacheEntry} instance from its stored values.
+         * 
+         * @param owner the name of the variable of a single-mapping divergence or <code>null</code>
+         * @param fingerprint the fingerprint of the divergence
+         * @param type the type of the divergence
+         * @param problemSpaceSymptom the problem space symptom of the divergence
+         * @param solutionSpaceSymptom the solution space symptom of the divergence
+         * @param variableNames the names of the involved variables
+         * @param sourceFilePaths the paths of the involved source files
+         * @param codeElementKeys the keys of the involved code elements
+         */
+        private CacheEntry(@Nullable String owner, long fingerprint, @NonNull String type,
+                @NonNull String problemSpaceSymptom, @NonNull String solutionSpaceSymptom,
+                @NonNull List<String> variableNames, @NonNull List<String> sourceFilePaths,
+                @NonNull List<String> codeElementKeys) {
+            this.owner = owner;
+            this.fingerprint = fingerprint;
+            this.type = type;
+            this.problemSpaceSymptom = problemSpaceSymptom;
+            this.solutionSpaceSymptom = solutionSpaceSymptom;
+            this.variableNames = variableNames;
+            this.sourceFilePaths = sourceFilePaths;
+            this.codeElementKeys = codeElementKeys;
+        }
+
+        /**
+         * Creates a {@link CacheEntry} instance for the given {@link Divergence}.
+         * 
+         * @param owner the name of the variable of a single-mapping divergence or <code>null</code>
+         * @param divergence the {@link Divergence} to store
+         */
+        private CacheEntry(@Nullable String owner, @NonNull Divergence divergence) {
+            this.owner = owner;
+            fingerprint = divergence.getFingerprint();
+            Object[] content = divergence.getContent();
+            type = String.valueOf(content[0]);
+            problemSpaceSymptom = String.valueOf(content[1]);
+            solutionSpaceSymptom = String.valueOf(content[2]);
+            variableNames = new ArrayList<>(divergence.getInvolvedVariables().size());
+            for (VariabilityVariable variable : divergence.getInvolvedVariables()) {
+                variableNames.add(variable.getName());
+            }
+            sourceFilePaths = new ArrayList<>(divergence.getInvolvedSourceFiles().size());
+            for (SourceFile<?> sourceFile : divergence.getInvolvedSourceFiles()) {
+                sourceFilePaths.add(sourceFile.getPath().getPath());
+            }
+            codeElementKeys = new ArrayList<>(divergence.getInvolvedCodeElements().size());
+            for (CodeElement<?> codeElement : divergence.getInvolvedCodeElements()) {
+                codeElementKeys.add(getCodeElementKey(codeElement));
+            }
+        }
+
+        /**
+         * Returns this divergence as a row of the delta table (see {@link IncrementalDivergenceDetector#DELTA_HEADER}).
+         * 
+         * @param delta the {@link Delta} of this divergence
+         * @return the row of the delta table
+         */
+        private @Nullable Object @NonNull [] toDeltaRow(@NonNull Delta delta) {
+            return new Object[] {delta.name(), type, problemSpaceSymptom, solutionSpaceSymptom};
+        }
+
+        /**
+         * Writes this entry to the given {@link DataOutputStream}.
+         * 
+         * @param out the {@link DataOutputStream} to write to
+         * @throws IOException if writing fails
+         */
+        private void write(@NonNull DataOutputStream out) throws IOException {
+            out.writeBoolean(owner != null);
+            if (owner != null) {
+                writeString(out, owner);
+            }
+            out.writeLong(fingerprint);
+            writeString(out, type);
+            writeString(out, problemSpaceSymptom);
+            writeString(out, solutionSpaceSymptom);
+            writeStrings(out, variableNames);
+            writeStrings(out, sourceFilePaths);
+            writeStrings(out, codeElementKeys);
+        }
+
+        /**
+         * Reads an entry written by {@link #write(DataOutputStream)}.
+         * 
+         * @param in the {@link DataInputStream} to read from
+         * @return the read {@link CacheEntry}
+         * @throws IOException if reading fails
+         */
+        private static @NonNull CacheEntry read(@NonNull DataInputStream in) throws IOException {
+            String owner = in.readBoolean() ? readString(in) : null;
+            return new CacheEntry(owner, in.readLong(), readString(in), readString(in), readString(in),
+                    readStrings(in), readStrings(in), readStrings(in));
+        }
+
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement.VariableState;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * This class filters the received {@link MappingElement}s before any detection. Elements rejected by this filter are
+ * neither investigated for single-mapping nor for multi-mapping {@link Divergence}s and are released immediately. An
+ * element is accepted, if it passes all of the following checks:
+ * <ol>
+ * <li>It may cause a divergence at all: at least one rule of the {@link SingleMappingDivergenceDetector} applies to
+ *     it or it maps its variable to build or code artifacts, which are required for multi-mapping detection. This check
+ *     does not change the detected divergences.</li>
+ * <li>Its variable name matches the configured regular expression, if any.</li>
+ * <li>Its variable state is one of the configured states, if any.</li>
+ * <li>If it maps its variable to build or code artifacts, the path of at least one artifact matches one of the
+ *     configured include patterns (if any) and none of the configured exclude patterns. This check is element-level
+ *     only: an accepted element keeps all of its artifacts, including excluded ones, which are investigated and
+ *     reported like any other artifact.</li>
+ * <li>Its variable belongs to the shard investigated by this process, if the detection is sharded (see
+ *     {@link #setShard(int, int)}).</li>
+ * </ol>
+ * All patterns are compiled once and their {@link Matcher}s are reused for all elements. Hence, an instance of this
+ * class must only be used by a single thread at a time.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class MappingElementFilter implements Predicate<MappingElement> {
+
+    /**
+     * The {@link SingleMappingDivergenceDetector}, which defines the elements each rule applies to.
+     */
+    private @NonNull SingleMappingDivergenceDetector singleMappingDetector;
+
+    /**
+     * The {@link Matcher} for the variable names or <code>null</code>, if all variable names are accepted.
+     */
+    private @Nullable Matcher variableNameMatcher;
+
+    /**
+     * The accepted variable states or <code>null</code>, if all states are accepted.
+     */
+    private @Nullable Set<VariableState> variableStates;
+
+    /**
+     * The {@link Matcher}s for the paths of artifacts to include; <i>empty</i>, if all paths are included.
+     */
+    private @NonNull List<Matcher> includedPathMatchers;
+
+    /**
+     * The {@link Matcher}s for the paths of artifacts to exclude; <i>empty</i>, if no path is excluded.
+     */
+    private @NonNull List<Matcher> excludedPathMatchers;
+
+    /**
+     * The index of the shard investigated by this process or <code>-1</code>, if all shards are accepted.
+     */
+    private int shard = -1;
+
+    /**
+     * The number of shards of a sharded detection.
+     */
+    private int shardCount;
+
+    /**
+     * The number of elements rejected by this filter.
+     */
+    private int rejectedElementsCount;
+
+    /**
+     * Creates a {@link MappingElementFilter} instance.
+     * 
+     * @param singleMappingDetector the {@link SingleMappingDivergenceDetector} used for detecting single-mapping
+     *        divergences
+     * @param variableNamePattern the pattern each accepted variable name must match or <code>null</code>, if all
+     *        variable names are accepted
+     * @param variableStates the accepted variable states; <code>null</code> or <i>empty</i>, if all states are
+     *        accepted
+     * @param includedPathPatterns the patterns of which at least one must match the path of an artifact to include
+     *        it; <i>empty</i>, if all paths are included
+     * @param excludedPathPatterns the patterns of which none must match the path of an included artifact;
+     *        <i>empty</i>, if no path is excluded
+     */
+    public MappingElementFilter(@NonNull SingleMappingDivergenceDetector singleMappingDetector,
+            @Nullable Pattern variableNamePattern, @Nullable Collection<VariableState> variableStates,
+            @NonNull List<Pattern> includedPathPatterns, @NonNull List<Pattern> excludedPathPatterns) {
+        this.singleMappingDetector = singleMappingDetector;
+        if (variableNamePattern != null) {
+            variableNameMatcher = variableNamePattern.matcher("");
+        }
+        if (variableStates != null && !variableStates.isEmpty()) {
+            this.variableStates = EnumSet.copyOf(variableStates);
+        }
+        includedPathMatchers = createMatchers(includedPathPatterns);
+        excludedPathMatchers = createMatchers(excludedPathPatterns);
+    }
+
+    /**
+     * Creates a reusable {@link Matcher} for each of the given patterns.
+     * 
+     * @param patterns the patterns to create the matchers for
+     * @return the list of {@link Matcher}s
+     */
+    private static @NonNull List<Matcher> createMatchers(@NonNull List<Pattern> patterns) {
+        List<Matcher> matchers = new ArrayList<>(patterns.size());
+        for (Pattern pattern : patterns) {
+            matchers.add(pattern.matcher(""));
+        }
+        return matchers;
+    }
+
+    @Override
+    public boolean test(@NonNull MappingElement mappingElement) {
+        boolean hasArtifacts
+                = ProblemSolutionSpaceDivergenceDetector.isRelevantForMultiMappingDetection(mappingElement);
+        boolean accepted = (hasArtifacts || singleMappingDetector.hasApplicableRules(mappingElement))
+                && (variableNameMatcher == null
+                        || variableNameMatcher.reset(mappingElement.getVariableName()).matches())
+                && (variableStates == null || variableStates.contains(mappingElement.getVariableState()))
+                && (!hasArtifacts || hasIncludedArtifact(mappingElement))
+                && (shard < 0
+                        || ShardedDivergenceMerger.getShard(mappingElement.getVariableName(), shardCount) == shard);
+        if (!accepted) {
+            rejectedElementsCount++;
+        }
+        return accepted;
+    }
+
+    /**
+     * Restricts the accepted elements to those, whose variable belongs to the given shard of a sharded detection (see
+     * {@link ShardedDivergenceMerger#getShard(String, int)}).
+     * 
+     * @param shard the index of the shard investigated by this process or <code>-1</code>, if all shards are accepted
+     * @param shardCount the number of shards
+     */
+    public void setShard(int shard, int shardCount) {
+        this.shard = shard;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Checks whether the path of at least one build or code artifact of the given {@link MappingElement} is included
+     * and not excluded. The artifacts of the element are not changed, i.e., excluded artifacts of an accepted element
+     * remain part of the detection.
+     * 
+     * @param mappingElement the {@link MappingElement} to check
+     * @return <code>true</code>, if at least one artifact is included; <code>false</code> otherwise
+     */
+    private boolean hasIncludedArtifact(@NonNull MappingElement mappingElement) {
+        boolean included = includedPathMatchers.isEmpty() && excludedPathMatchers.isEmpty();
+        List<SourceFile<?>> buildMapping = mappingElement.getBuildMapping();
+        for (int i = 0; !included && i < buildMapping.size(); i++) {
+            included = isIncluded(buildMapping.get(i).getPath().getPath());
+        }
+        List<CodeElement<?>> codeMapping = mappingElement.getCodeMapping();
+        for (int i = 0; !included && i < codeMapping.size(); i++) {
+            included = isIncluded(codeMapping.get(i).getSourceFile().getPath());
+        }
+        return included;
+    }
+
+    /**
+     * Checks whether the given path matches one of the {@link #includedPathMatchers} (if any) and none of the
+     * {@link #excludedPathMatchers}.
+     * 
+     * @param path the path to check
+     * @return <code>true</code>, if the given path is included; <code>false</code> otherwise
+     */
+    private boolean isIncluded(@NonNull String path) {
+        boolean included = includedPathMatchers.isEmpty();
+        for (int i = 0; !included && i < includedPathMatchers.size(); i++) {
+            included = includedPathMatchers.get(i).reset(path).matches();
+        }
+        for (int i = 0; included && i < excludedPathMatchers.size(); i++) {
+            included = !excludedPathMatchers.get(i).reset(path).matches();
+        }
+        return included;
+    }
+
+    /**
+     * Returns the number of elements rejected by this filter.
+     * 
+     * @return the number of rejected elements
+     */
+    public int getRejectedElementsCount() {
+        return rejectedElementsCount;
+    }
+
+}
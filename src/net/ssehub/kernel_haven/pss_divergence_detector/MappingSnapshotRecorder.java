@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.ssehub.kernel_haven.analysis.AnalysisComponent;
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.pss_divergence_detector.io.MappingSnapshotWriter;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * This {@link AnalysisComponent} passes on all {@link MappingElement}s of another component unchanged, while recording
+ * them as a snapshot for the {@link MappingSnapshotReplay} (see {@link MappingSnapshotWriter}). The
+ * {@link ProblemSolutionSpaceDivergenceDetector} inserts this component between the mapper and itself, if
+ * {@link ProblemSolutionSpaceDivergenceDetector#SNAPSHOT_RECORD_SETTING} is enabled. Hence, recording works for all
+ * detection modes. Failing to record the snapshot is only logged; a previous snapshot then remains unchanged.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class MappingSnapshotRecorder extends AnalysisComponent<MappingElement> {
+
+    /**
+     * The {@link AnalysisComponent} providing the {@link MappingElement}s to record.
+     */
+    private @NonNull AnalysisComponent<MappingElement> pssMapper;
+
+    /**
+     * The file to record the snapshot in.
+     */
+    private @NonNull File snapshotFile;
+
+    /**
+     * Creates a {@link MappingSnapshotRecorder} instance.
+     * 
+     * @param config the global {@link Configuration}
+     * @param pssMapper the {@link AnalysisComponent} providing the {@link MappingElement}s to record
+     * @param snapshotFile the file to record the snapshot in; an existing snapshot is replaced after the recording is
+     *        complete
+     */
+    public MappingSnapshotRecorder(@NonNull Configuration config, @NonNull AnalysisComponent<MappingElement> pssMapper,
+            @NonNull File snapshotFile) {
+        super(config);
+        this.pssMapper = pssMapper;
+        this.snapshotFile = snapshotFile;
+    }
+
+    @Override
+    protected void execute() {
+        MappingSnapshotWriter writer = null;
+        try {
+            writer = new MappingSnapshotWriter(snapshotFile);
+        } catch (IOException e) {
+            LOGGER.logException("Cannot record mapping snapshot \"" + snapshotFile + "\"", e);
+        }
+        MappingElement mappingElement;
+        while ((mappingElement = pssMapper.getNextResult()) != null) {
+            writer = record(writer, mappingElement);
+            addResult(mappingElement);
+        }
+        if (writer != null) {
+            try {
+                writer.close();
+                LOGGER.logInfo2("Mapping snapshot with ", writer.getElementCount(), " elements recorded in ",
+                        snapshotFile);
+            } catch (IOException e) {
+                LOGGER.logException("Cannot complete mapping snapshot \"" + snapshotFile + "\"", e);
+            }
+        }
+    }
+
+    /**
+     * Records the given {@link MappingElement} using the given writer. If recording fails, the incomplete snapshot is
+     * discarded.
+     * 
+     * @param writer the {@link MappingSnapshotWriter} to use; <code>null</code>, if recording is not possible
+     * @param mappingElement the {@link MappingElement} to record
+     * @return the given writer or <code>null</code>, if recording failed
+     */
+    private static @Nullable MappingSnapshotWriter record(@Nullable MappingSnapshotWriter writer,
+            @NonNull MappingElement mappingElement) {
+        MappingSnapshotWriter currentWriter = writer;
+        if (currentWriter != null) {
+            try {
+                currentWriter.write(mappingElement);
+            } catch (IOException e) {
+                LOGGER.logException("Cannot record mapping element " + mappingElement.getVariableName()
+                        + " - mapping snapshot discarded", e);
+                currentWriter.discard();
+                currentWriter = null;
+            }
+        }
+        return currentWriter;
+    }
+
+    @Override
+    public @NonNull String getResultName() {
+        return "Mapping Snapshot Recorder";
+    }
+
+    @Override
+    public boolean isInternalHelperComponent() {
+        return true;
+    }
+
+}
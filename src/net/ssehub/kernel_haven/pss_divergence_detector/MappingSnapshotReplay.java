@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.analysis.AnalysisComponent;
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.config.DefaultSettings;
+import net.ssehub.kernel_haven.pss_divergence_detector.io.MappingSnapshotReader;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This {@link AnalysisComponent} replays the {@link MappingElement}s of a snapshot recorded by a previous run of the
+ * {@link ProblemSolutionSpaceDivergenceDetector} (see
+ * {@link ProblemSolutionSpaceDivergenceDetector#SNAPSHOT_RECORD_SETTING}). It replaces the
+ * {@link net.ssehub.kernel_haven.pss_mapper.ProblemSolutionSpaceMapper} in the analysis pipeline, e.g.,
+ * <code>ProblemSolutionSpaceDivergenceDetector(MappingSnapshotReplay())</code>, such that tuning the detector does
+ * not require extracting the code, build, and variability models again. The snapshot is read from a memory-mapped
+ * file (see {@link MappingSnapshotReader}) and its elements are passed on in the order of their recording.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class MappingSnapshotReplay extends AnalysisComponent<MappingElement> {
+
+    /**
+     * The file containing the snapshot to replay.
+     */
+    private @NonNull File snapshotFile;
+
+    /**
+     * Creates a {@link MappingSnapshotReplay} instance for the snapshot defined by the
+     * {@link ProblemSolutionSpaceDivergenceDetector#SNAPSHOT_FILE_SETTING}.
+     * 
+     * @param config the global {@link Configuration}
+     * @throws SetUpException if registering the settings fails or if the snapshot does not exist
+     */
+    public MappingSnapshotReplay(@NonNull Configuration config) throws SetUpException {
+        super(config);
+        snapshotFile = getSnapshotFile(config);
+        if (!snapshotFile.isFile()) {
+            throw new SetUpException("Mapping snapshot \"" + snapshotFile + "\" not found; record it by setting "
+                    + ProblemSolutionSpaceDivergenceDetector.SNAPSHOT_RECORD_SETTING.getKey() + " to true");
+        }
+    }
+
+    /**
+     * Returns the file of the mapping snapshot as defined by the
+     * {@link ProblemSolutionSpaceDivergenceDetector#SNAPSHOT_FILE_SETTING}. If this setting is not specified, the file
+     * is located in the cache directory and its name contains the architecture, if specified, like the cache file of
+     * the incremental detection.
+     * 
+     * @param config the global {@link Configuration}
+     * @return the file of the mapping snapshot; never <code>null</code>
+     * @throws SetUpException if registering the setting fails
+     */
+    static @NonNull File getSnapshotFile(@NonNull Configuration config) throws SetUpException {
+        config.registerSetting(ProblemSolutionSpaceDivergenceDetector.SNAPSHOT_FILE_SETTING);
+        File snapshotFile = config.getValue(ProblemSolutionSpaceDivergenceDetector.SNAPSHOT_FILE_SETTING);
+        if (snapshotFile == null) {
+            String arch = config.getValue(DefaultSettings.ARCH);
+            String snapshotFileName = "pss_mapping" + (arch != null ? "_" + arch : "") + ".snapshot";
+            snapshotFile = new File(config.getValue(DefaultSettings.CACHE_DIR), snapshotFileName);
+        }
+        return snapshotFile;
+    }
+
+    @Override
+    protected void execute() {
+        long replayStart = System.nanoTime();
+        try (MappingSnapshotReader reader = new MappingSnapshotReader(snapshotFile)) {
+            MappingElement mappingElement;
+            while ((mappingElement = reader.read()) != null) {
+                addResult(mappingElement);
+            }
+            LOGGER.logInfo2(reader.getElementCount(), " mapping elements replayed from ", snapshotFile, " in ",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - replayStart), " ms");
+        } catch (IOException e) {
+            LOGGER.logException("Cannot replay mapping snapshot \"" + snapshotFile + "\" - mapping is incomplete", e);
+        }
+    }
+
+    @Override
+    public @NonNull String getResultName() {
+        return "Mapping Snapshot";
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.analysis.AnalysisComponent;
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.AggregatedDivergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.DivergenceKey;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.InvolvedElementPool;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class detects {@link Divergence}s in multiple configurations, like different architectures or variants of the
+ * same software, in a single run. It receives one mapping per configuration, each tagged by the name of its
+ * configuration, and detects the divergences of these mappings one after another. Identical divergences of different
+ * configurations are identified by their {@link DivergenceKey} and passed to the next analysis component only once as
+ * an {@link AggregatedDivergence}, which lists all configurations the divergence occurs in.<br><br>
+ * 
+ * Only the {@link MappingElement}s of the current configuration and the aggregated divergences are kept in memory.
+ * The single-mapping divergences are detected with the same rules as in the
+ * {@link ProblemSolutionSpaceDivergenceDetector} (see {@link ProblemSolutionSpaceDivergenceDetector#RULES_SETTING}).
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class MultiConfigurationDivergenceDetector extends AnalysisComponent<AggregatedDivergence> {
+
+    /**
+     * The {@link AnalysisComponent}s providing the {@link MappingElement}s of each configuration by the name of the
+     * configuration.
+     */
+    private @NonNull Map<String, AnalysisComponent<MappingElement>> pssMappers;
+
+    /**
+     * The {@link SingleMappingDivergenceDetector} investigating each received {@link MappingElement}.
+     */
+    private @NonNull SingleMappingDivergenceDetector singleMappingDetector;
+
+    /**
+     * The aggregated {@link Divergence}s of all configurations by their {@link DivergenceKey} in the order of their
+     * first detection.
+     */
+    private @NonNull Map<DivergenceKey, AggregatedDivergence> aggregatedDivergences;
+
+    /**
+     * The names of all configurations in the order of the {@link #pssMappers}.
+     */
+    private @NonNull List<String> configurationNames;
+
+    /**
+     * The number of detected {@link Divergence}s of all configurations including duplicates.
+     */
+    private int detectedDivergencesCount;
+
+    /**
+     * The minimum number of seconds between two progress lines as defined by the
+     * {@link ProblemSolutionSpaceDivergenceDetector#PROGRESS_INTERVAL_SETTING}.
+     */
+    private int progressInterval;
+
+    /**
+     * The {@link InvolvedElementPool} shared by the divergences of all configurations of the current run.
+     */
+    private @NonNull InvolvedElementPool elementPool;
+
+    /**
+     * Creates a {@link MultiConfigurationDivergenceDetector} instance.
+     * 
+     * @param config the global {@link Configuration}
+     * @param pssMappers the {@link AnalysisComponent}s providing the {@link MappingElement}s of each configuration by
+     *        the name of the configuration, like the architecture; the divergences are detected in the iteration order
+     *        of this map
+     * @throws SetUpException if registering the settings of this detector fails
+     */
+    public MultiConfigurationDivergenceDetector(@NonNull Configuration config,
+            @NonNull Map<String, AnalysisComponent<MappingElement>> pssMappers) throws SetUpException {
+        super(config);
+        this.pssMappers = pssMappers;
+        config.registerSetting(ProblemSolutionSpaceDivergenceDetector.RULES_SETTING);
+        singleMappingDetector = new SingleMappingDivergenceDetector(ProblemSolutionSpaceDivergenceDetector.createRules(
+                config.getValue(ProblemSolutionSpaceDivergenceDetector.RULES_SETTING)));
+        config.registerSetting(ProblemSolutionSpaceDivergenceDetector.PROGRESS_INTERVAL_SETTING);
+        progressInterval = config.getValue(ProblemSolutionSpaceDivergenceDetector.PROGRESS_INTERVAL_SETTING);
+        aggregatedDivergences = new LinkedHashMap<>();
+        elementPool = new InvolvedElementPool();
+        configurationNames = Collections.unmodifiableList(new ArrayList<>(pssMappers.keySet()));
+    }
+
+    @Override
+    protected void execute() {
+        try {
+            int configurationIndex = 0;
+            for (Map.Entry<String, AnalysisComponent<MappingElement>> pssMapper : pssMappers.entrySet()) {
+                if (pssMapper.getValue() != null) {
+                    detectDivergences(pssMapper.getKey(), pssMapper.getValue(), configurationIndex);
+                } else {
+                    LOGGER.logWarning2("No mapping creator specified for configuration ", pssMapper.getKey(),
+                            " - no divergence detection possible");
+                }
+                configurationIndex++;
+            }
+            LOGGER.logInfo2(detectedDivergencesCount, " divergences detected in ", configurationNames.size(),
+                    " configurations, ", aggregatedDivergences.size(), " of them distinct");
+            for (AggregatedDivergence aggregatedDivergence : aggregatedDivergences.values()) {
+                addResult(aggregatedDivergence);
+            }
+        } finally {
+            aggregatedDivergences.clear();
+            elementPool.clear();
+        }
+    }
+
+    /**
+     * Detects the single-mapping and multi-mapping {@link Divergence}s of the configuration with the given name and
+     * index and aggregates them. The received {@link MappingElement}s are released afterwards.
+     * 
+     * @param configurationName the name of the configuration
+     * @param pssMapper the {@link AnalysisComponent} providing the {@link MappingElement}s of the configuration
+     * @param configurationIndex the index of the configuration
+     */
+    private void detectDivergences(@NonNull String configurationName,
+            @NonNull AnalysisComponent<MappingElement> pssMapper, int configurationIndex) {
+        MultiMappingDivergenceDetector multiMappingDetector = new MultiMappingDivergenceDetector(elementPool);
+        int receivedMappingElementsCount = 0;
+        int previousDivergencesCount = detectedDivergencesCount;
+        ProgressLogger progress = new ProgressLogger("mapping elements of configuration " + configurationName
+                + " received", progressInterval);
+        MappingElement receivedMappingElement;
+        while ((receivedMappingElement = pssMapper.getNextResult()) != null) {
+            receivedMappingElementsCount++;
+            progress.increment();
+            singleMappingDetector.detect(receivedMappingElement,
+                    divergence -> aggregateDivergence(divergence, configurationIndex));
+            if (ProblemSolutionSpaceDivergenceDetector.isRelevantForMultiMappingDetection(receivedMappingElement)) {
+                multiMappingDetector.add(receivedMappingElement);
+            }
+        }
+        progress.finish();
+        if (receivedMappingElementsCount > 0) {
+            multiMappingDetector.detect(divergence -> aggregateDivergence(divergence, configurationIndex));
+        } else {
+            LOGGER.logWarning2("Mapping of configuration ", configurationName,
+                    " is empty - no divergence detection possible");
+        }
+        multiMappingDetector.close();
+        LOGGER.logInfo2("Mapping of configuration ", configurationName, " with ", receivedMappingElementsCount,
+                " elements received, ", detectedDivergencesCount - previousDivergencesCount, " divergences detected");
+    }
+
+    /**
+     * Adds the given {@link Divergence} to the {@link #aggregatedDivergences} as occurring in the configuration with
+     * the given index. If an identical divergence was already detected, only the configuration is added to it.
+     * 
+     * @param divergence the detected {@link Divergence}
+     * @param configurationIndex the index of the configuration the divergence was detected in
+     */
+    private void aggregateDivergence(@NonNull Divergence divergence, int configurationIndex) {
+        detectedDivergencesCount++;
+        DivergenceKey key = DivergenceKey.of(divergence);
+        AggregatedDivergence aggregatedDivergence = aggregatedDivergences.get(key);
+        if (aggregatedDivergence == null) {
+            aggregatedDivergence = new AggregatedDivergence(divergence, configurationNames);
+            aggregatedDivergences.put(key, aggregatedDivergence);
+        }
+        aggregatedDivergence.addConfiguration(configurationIndex);
+    }
+
+    /**
+     * Returns the names of all configurations in the order, in which their divergences are detected.
+     * 
+     * @return the names of all configurations; never <code>null</code>
+     */
+    public @NonNull List<String> getConfigurationNames() {
+        return configurationNames;
+    }
+
+    @Override
+    public @NonNull String getResultName() {
+        return "PSS_Aggregated_Divergences";
+    }
+
+}
@@ -0,0 +1,458 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.IdenticalMappingDivergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.InvolvedElementPool;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.UnbuildableCodeDivergence;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class detects {@link Divergence}s, which result from combining the information of multiple
+ * {@link MappingElement}s. Instead of comparing each pair of elements, it builds the following inverted indexes while
+ * receiving the elements via {@link #add(MappingElement)}:
+ * <ul>
+ * <li>Element to its artifacts (source file paths and code elements) as a {@link CompressedBitmap} of dense artifact
+ *     identifiers; elements with equal bitmaps have identical mappings</li>
+ * <li>Source file path to the elements mapping their variable to that file (build mapping)</li>
+ * <li>Code element to the elements mapping their variable to that code element (code mapping)</li>
+ * <li>Element to the dependent elements, which map their variable to code elements in files of that element's build
+ *     mapping (built once in {@link #detect(Consumer)})</li>
+ * </ul>
+ * Each index is built in a single pass over the received elements. Hence, the detection scales (near) linearly with
+ * the size of the mapping.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class MultiMappingDivergenceDetector {
+
+    /**
+     * The {@link IMappingElementStore} retaining the added {@link MappingElement}s. The identifier of an element in
+     * this store is also its identifier in all indexes.
+     */
+    private @NonNull IMappingElementStore mappingElements;
+
+    /**
+     * The identifiers of those {@link #mappingElements}, which denote undefined variables.
+     */
+    private @NonNull BitSet undefinedElements;
+
+    /**
+     * The dense identifiers of all artifacts received so far: the path of each {@link SourceFile} and each
+     * {@link CodeElement} is identified by the number of distinct artifacts received before it.
+     */
+    private @NonNull Map<Object, Integer> artifactIds;
+
+    /**
+     * The identifiers of the artifacts (source files and code elements) of each of the {@link #mappingElements}. As
+     * element identifiers are dense as well, the n-th bitmap belongs to the variable of the n-th element. Elements with
+     * identical artifact sets have equal bitmaps.
+     */
+    private @NonNull List<CompressedBitmap> artifactBitmaps;
+
+    /**
+     * The index mapping the path of each {@link SourceFile} to the identifiers of the {@link #mappingElements}, which
+     * map their variable to that file.
+     */
+    private @NonNull Map<File, List<Integer>> sourceFileIndex;
+
+    /**
+     * The first {@link SourceFile} received for each path in the {@link #sourceFileIndex}.
+     */
+    private @NonNull Map<File, SourceFile<?>> sourceFiles;
+
+    /**
+     * The index mapping each {@link CodeElement} to the identifiers of the {@link #mappingElements}, which map their
+     * variable to that code element.
+     */
+    private @NonNull Map<CodeElement<?>, List<Integer>> codeElementIndex;
+
+    /**
+     * The {@link CodeElement}s of the {@link #codeElementIndex} grouped by the path of their source file.
+     */
+    private @NonNull Map<File, List<CodeElement<?>>> codeElementsByFile;
+
+    /**
+     * The {@link InvolvedElementPool} of the current detection run providing the shared elements of the divergences.
+     */
+    private @NonNull InvolvedElementPool elementPool;
+
+    /**
+     * This {@link IArtifactResolver} resolves the artifacts of the {@link #mappingElements} via the indexes of this
+     * detector. Hence, a store needs to retain only their paths and line ranges.
+     */
+    private class IndexArtifactResolver implements IArtifactResolver {
+
+        @Override
+        public @NonNull SourceFile<?> getSourceFile(@NonNull File path) {
+            SourceFile<?> sourceFile = sourceFiles.get(path);
+            return sourceFile != null ? sourceFile : elementPool.getSourceFile(path);
+        }
+
+        @Override
+        public @Nullable CodeElement<?> getCodeElement(@NonNull File path, int lineStart, int lineEnd) {
+            CodeElement<?> codeElement = null;
+            List<CodeElement<?>> fileCodeElements = codeElementsByFile.get(path);
+            if (fileCodeElements != null) {
+                for (int i = 0; codeElement == null && i < fileCodeElements.size(); i++) {
+                    CodeElement<?> fileCodeElement = fileCodeElements.get(i);
+                    if (fileCodeElement.getLineStart() == lineStart && fileCodeElement.getLineEnd() == lineEnd) {
+                        codeElement = fileCodeElement;
+                    }
+                }
+            }
+            return codeElement;
+        }
+
+    }
+
+    /**
+     * Creates a {@link MultiMappingDivergenceDetector} instance with <i>empty</i> indexes, which retains the added
+     * {@link MappingElement}s on the heap.
+     * 
+     * @param elementPool the {@link InvolvedElementPool} of the current detection run
+     */
+    public MultiMappingDivergenceDetector(@NonNull InvolvedElementPool elementPool) {
+        this(new InMemoryMappingElementStore(), elementPool);
+    }
+
+    /**
+     * Creates a {@link MultiMappingDivergenceDetector} instance with <i>empty</i> indexes, which retains the added
+     * {@link MappingElement}s in the given store.
+     * 
+     * @param mappingElementStore the <i>empty</i> {@link IMappingElementStore} to retain the added elements in
+     * @param elementPool the {@link InvolvedElementPool} of the current detection run
+     */
+    public MultiMappingDivergenceDetector(@NonNull IMappingElementStore mappingElementStore,
+            @NonNull InvolvedElementPool elementPool) {
+        mappingElements = mappingElementStore;
+        mappingElements.setArtifactResolver(new IndexArtifactResolver());
+        this.elementPool = elementPool;
+        undefinedElements = new BitSet();
+        artifactIds = new HashMap<>();
+        artifactBitmaps = new ArrayList<>();
+        sourceFileIndex = new LinkedHashMap<>();
+        sourceFiles = new HashMap<>();
+        codeElementIndex = new LinkedHashMap<>();
+        codeElementsByFile = new HashMap<>();
+    }
+
+    /**
+     * Adds the given {@link MappingElement} to this detector and updates the source file and code element indexes.
+     * 
+     * @param mappingElement the {@link MappingElement} to add
+     */
+    public void add(@NonNull MappingElement mappingElement) {
+        int elementId = mappingElements.add(mappingElement);
+        switch (mappingElement.getVariableState()) {
+        case UNDEFINED:
+            undefinedElements.set(elementId);
+            break;
+        default:
+            // Do nothing
+            break;
+        }
+        CompressedBitmap artifacts = new CompressedBitmap();
+        for (SourceFile<?> sourceFile : mappingElement.getBuildMapping()) {
+            File path = sourceFile.getPath();
+            sourceFiles.putIfAbsent(path, elementPool.intern(sourceFile));
+            sourceFileIndex.computeIfAbsent(path, key -> new ArrayList<>()).add(elementId);
+            artifacts.add(getArtifactId(path));
+        }
+        for (CodeElement<?> codeElement : mappingElement.getCodeMapping()) {
+            List<Integer> codeElementIds = codeElementIndex.get(codeElement);
+            if (codeElementIds == null) {
+                codeElementIds = new ArrayList<>();
+                codeElementIndex.put(codeElement, codeElementIds);
+                codeElementsByFile.computeIfAbsent(codeElement.getSourceFile(), key -> new ArrayList<>())
+                        .add(codeElement);
+            }
+            codeElementIds.add(elementId);
+            artifacts.add(getArtifactId(codeElement));
+        }
+        artifactBitmaps.add(artifacts);
+    }
+
+    /**
+     * Returns the dense identifier of the given artifact. If the artifact is received for the first time, the next
+     * free identifier is assigned to it.
+     * 
+     * @param artifact the path of a {@link SourceFile} or a {@link CodeElement}
+     * @return the identifier of the artifact
+     */
+    private int getArtifactId(@NonNull Object artifact) {
+        Integer artifactId = artifactIds.get(artifact);
+        if (artifactId == null) {
+            artifactId = artifactIds.size();
+            artifactIds.put(artifact, artifactId);
+        }
+        return artifactId;
+    }
+
+    /**
+     * Returns the number of {@link MappingElement}s added to this detector.
+     * 
+     * @return the number of added {@link MappingElement}s
+     */
+    public int size() {
+        return mappingElements.size();
+    }
+
+    /**
+     * Releases the {@link IMappingElementStore} and all indexes of this detector. Afterwards, this detector must not be
+     * used anymore.
+     */
+    public void close() {
+        mappingElements.close();
+        undefinedElements.clear();
+        artifactIds.clear();
+        artifactBitmaps.clear();
+        sourceFileIndex.clear();
+        sourceFiles.clear();
+        codeElementIndex.clear();
+        codeElementsByFile.clear();
+    }
+
+    /**
+     * Detects the multi-mapping {@link Divergence}s based on all {@link MappingElement}s added so far and passes each
+     * of them to the given consumer.
+     * 
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}s
+     */
+    public void detect(@NonNull Consumer<Divergence> divergenceConsumer) {
+        detectIdenticalMappings(divergenceConsumer);
+        detectUnbuildableCode(divergenceConsumer);
+    }
+
+    /**
+     * Detects {@link IdenticalMappingDivergence}s by grouping the elements by their {@link #artifactBitmaps}. Equal
+     * bitmaps denote equal artifact sets; hence, neither the artifacts of the elements need to be read from the
+     * {@link #mappingElements} nor compared individually. This method only reads the indexes of this detector; it may
+     * run concurrently to {@link #detectUnbuildableCode(Consumer)}.
+     * 
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}s
+     */
+    public void detectIdenticalMappings(@NonNull Consumer<Divergence> divergenceConsumer) {
+        Map<CompressedBitmap, List<Integer>> artifactGroups = new LinkedHashMap<>();
+        for (int elementId = 0; elementId < mappingElements.size(); elementId++) {
+            if (hasArtifacts(elementId)) {
+                artifactGroups.computeIfAbsent(artifactBitmaps.get(elementId), key -> new ArrayList<>())
+                        .add(elementId);
+            }
+        }
+        for (List<Integer> artifactGroup : artifactGroups.values()) {
+            if (artifactGroup.size() > 1) {
+                int firstElementId = artifactGroup.get(0);
+                List<VariabilityVariable> variables = new ArrayList<>(artifactGroup.size());
+                for (Integer elementId : artifactGroup) {
+                    variables.add(getVariable(elementId));
+                }
+                divergenceConsumer.accept(new IdenticalMappingDivergence(variables,
+                        mappingElements.getBuildMapping(firstElementId),
+                        mappingElements.getCodeMapping(firstElementId)));
+            }
+        }
+    }
+
+    /**
+     * Returns the identifiers of the artifacts of the element with the given identifier. Artifacts are the paths of
+     * the {@link SourceFile}s and the {@link CodeElement}s of the element; their identifiers are equal for all
+     * elements of this detector. Hence, the bitmaps of different elements can be intersected or compared directly,
+     * e.g., to check whether the artifacts of one element are a subset of the artifacts of another element.
+     * 
+     * @param elementId the identifier of the element
+     * @return the artifact identifiers of the element; must not be modified
+     */
+    public @NonNull CompressedBitmap getArtifactBitmap(int elementId) {
+        return artifactBitmaps.get(elementId);
+    }
+
+    /**
+     * Detects {@link UnbuildableCodeDivergence}s based on the dependency index (see {@link #buildDependencyIndex()}).
+     * This method only reads the indexes of this detector; it may run concurrently to
+     * {@link #detectIdenticalMappings(Consumer)}.
+     * 
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}s
+     */
+    public void detectUnbuildableCode(@NonNull Consumer<Divergence> divergenceConsumer) {
+        detectUnbuildableCode(buildDependencyIndex(), divergenceConsumer);
+    }
+
+    /**
+     * Builds the index mapping each element with a build mapping to its dependent elements. An element is dependent
+     * on another element, if it maps its variable to a {@link CodeElement}, which is part of a {@link SourceFile} in
+     * the build mapping of the other element. The index is built in a single pass over the {@link #codeElementIndex}.
+     * 
+     * @return the dependency index; never <code>null</code>, but may be <i>empty</i>
+     */
+    private @NonNull Map<Integer, Set<Integer>> buildDependencyIndex() {
+        Map<Integer, Set<Integer>> dependencyIndex = new HashMap<>();
+        for (Map.Entry<CodeElement<?>, List<Integer>> codeElementEntry : codeElementIndex.entrySet()) {
+            List<Integer> buildElementIds = sourceFileIndex.get(codeElementEntry.getKey().getSourceFile());
+            if (buildElementIds != null) {
+                for (Integer buildElementId : buildElementIds) {
+                    Set<Integer> dependentElementIds = dependencyIndex.computeIfAbsent(buildElementId,
+                        key -> new LinkedHashSet<>());
+                    for (Integer codeElementId : codeElementEntry.getValue()) {
+                        if (!codeElementId.equals(buildElementId)) {
+                            dependentElementIds.add(codeElementId);
+                        }
+                    }
+                }
+            }
+        }
+        return dependencyIndex;
+    }
+
+    /**
+     * Detects {@link UnbuildableCodeDivergence}s. For each undefined variable with defined dependent variables, all
+     * files of its build mapping are checked whether they are only built by undefined variables. If so, all code
+     * elements of such a file, which are controlled by a defined variable, are reported.
+     * 
+     * @param dependencyIndex the index as built by {@link #buildDependencyIndex()}
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}s
+     */
+    private void detectUnbuildableCode(@NonNull Map<Integer, Set<Integer>> dependencyIndex,
+            @NonNull Consumer<Divergence> divergenceConsumer) {
+        Set<File> checkedFiles = new HashSet<>();
+        for (int elementId = undefinedElements.nextSetBit(0); elementId >= 0;
+                elementId = undefinedElements.nextSetBit(elementId + 1)) {
+            if (hasDefinedElement(dependencyIndex.get(elementId))) {
+                for (SourceFile<?> sourceFile : mappingElements.getBuildMapping(elementId)) {
+                    File path = sourceFile.getPath();
+                    if (checkedFiles.add(path)) {
+                        detectUnbuildableCode(path, divergenceConsumer);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Detects a {@link UnbuildableCodeDivergence} for the {@link SourceFile} with the given path.
+     * 
+     * @param path the path of the {@link SourceFile} to check
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}
+     */
+    private void detectUnbuildableCode(@NonNull File path, @NonNull Consumer<Divergence> divergenceConsumer) {
+        List<Integer> buildElementIds = sourceFileIndex.get(path);
+        List<CodeElement<?>> fileCodeElements = codeElementsByFile.get(path);
+        if (buildElementIds != null && fileCodeElements != null && allUndefined(buildElementIds)) {
+            Set<VariabilityVariable> undefinedBuildVariables = new LinkedHashSet<>();
+            for (Integer buildElementId : buildElementIds) {
+                undefinedBuildVariables.add(getVariable(buildElementId));
+            }
+            Set<VariabilityVariable> codeVariables = new LinkedHashSet<>();
+            List<CodeElement<?>> unbuildableCodeElements = new ArrayList<>();
+            for (CodeElement<?> codeElement : fileCodeElements) {
+                boolean controlledByDefinedVariable = false;
+                for (Integer codeElementId : codeElementIndex.get(codeElement)) {
+                    if (!undefinedElements.get(codeElementId)) {
+                        codeVariables.add(getVariable(codeElementId));
+                        controlledByDefinedVariable = true;
+                    }
+                }
+                if (controlledByDefinedVariable) {
+                    unbuildableCodeElements.add(codeElement);
+                }
+            }
+            if (!unbuildableCodeElements.isEmpty()) {
+                divergenceConsumer.accept(new UnbuildableCodeDivergence(undefinedBuildVariables, codeVariables,
+                        sourceFiles.get(path), unbuildableCodeElements));
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given set of element identifiers contains at least one element denoting a defined variable.
+     * 
+     * @param elementIds the element identifiers to check; may be <code>null</code>
+     * @return <code>true</code>, if at least one element denotes a defined variable; <code>false</code> otherwise
+     */
+    private boolean hasDefinedElement(@Nullable Set<Integer> elementIds) {
+        boolean hasDefinedElement = false;
+        if (elementIds != null) {
+            for (Integer elementId : elementIds) {
+                if (!undefinedElements.get(elementId)) {
+                    hasDefinedElement = true;
+                    break;
+                }
+            }
+        }
+        return hasDefinedElement;
+    }
+
+    /**
+     * Checks whether all of the given element identifiers denote undefined variables.
+     * 
+     * @param elementIds the element identifiers to check
+     * @return <code>true</code>, if all elements denote undefined variables; <code>false</code> otherwise
+     */
+    private boolean allUndefined(@NonNull Collection<Integer> elementIds) {
+        boolean allUndefined = true;
+        for (Integer elementId : elementIds) {
+            if (!undefinedElements.get(elementId)) {
+                allUndefined = false;
+                break;
+            }
+        }
+        return allUndefined;
+    }
+
+    /**
+     * Checks whether the element with the given identifier maps its variable to at least one artifact.
+     * 
+     * @param elementId the identifier of the element to check
+     * @return <code>true</code>, if the element has at least one source file or code element; <code>false</code>
+     *         otherwise
+     */
+    private boolean hasArtifacts(int elementId) {
+        return !artifactBitmaps.get(elementId).isEmpty();
+    }
+
+    /**
+     * Returns the {@link VariabilityVariable} of the element with the given identifier. For undefined variables, the
+     * shared placeholder {@link VariabilityVariable} of the {@link #elementPool} is returned.
+     * 
+     * @param elementId the identifier of the element
+     * @return the {@link VariabilityVariable} of the element
+     */
+    private @NonNull VariabilityVariable getVariable(int elementId) {
+        VariabilityVariable variable = mappingElements.getVariable(elementId);
+        if (variable == null) {
+            variable = elementPool.getPlaceholderVariable(mappingElements.getVariableName(elementId));
+        }
+        return variable;
+    }
+
+}
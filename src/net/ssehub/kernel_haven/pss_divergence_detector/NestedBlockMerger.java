@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.pss_divergence_detector.CodeElementIntervalIndex.Containment;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.IdenticalMappingDivergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.MergedDivergence;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class merges {@link Divergence}s of the same type and the same single variable, whose involved
+ * {@link CodeElement}s are nested in each other or adjacent (the next block starts in the line after the previous block
+ * ends) within the same source file, into a single {@link MergedDivergence}. As most rules report a single divergence
+ * per variable involving all of its code elements, this also applies to the code elements within a single divergence:
+ * a divergence, whose own code elements are nested or adjacent, is replaced by a {@link MergedDivergence}, which
+ * reports each cluster of these code elements as a single line range. Divergences involving multiple variables,
+ * like {@link IdenticalMappingDivergence}s, are never merged, as their blocks are related by their combination of
+ * variables rather than by their nesting. Hence, a block spanning an entire file only absorbs the divergences of its
+ * own variable. The divergences are indexed by a {@link CodeElementIntervalIndex}, such that the
+ * related blocks of each code element are found without comparing all pairs of divergences. Merging is transitive:
+ * if divergence A is related to B and B to C, all three are merged. Code elements without a valid line range
+ * (negative or reversed line numbers) are not related to any other code element.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class NestedBlockMerger {
+
+    /**
+     * The number of divergences replaced by {@link MergedDivergence}s in the last call of {@link #merge(List)}.
+     */
+    private int mergedDivergencesCount;
+
+    /**
+     * The number of code elements merged into the line range of another code element in the last call of
+     * {@link #merge(List)} (see {@link MergedDivergence#getMergedCodeElementsCount()}).
+     */
+    private int mergedCodeElementsCount;
+
+    /**
+     * Merges the related divergences of the given list. The returned list preserves the order of the given list: each
+     * {@link MergedDivergence} replaces the first of its merged divergences, while all other divergences are kept
+     * unchanged. A single divergence of a single variable is replaced by a {@link MergedDivergence}, if at least two of
+     * its own code elements are nested or adjacent.
+     * 
+     * @param divergences the {@link Divergence}s to merge
+     * @return the divergences after merging; never <code>null</code>
+     */
+    public @NonNull List<Divergence> merge(@NonNull List<Divergence> divergences) {
+        CodeElementIntervalIndex index = new CodeElementIntervalIndex();
+        for (Divergence divergence : divergences) {
+            index.add(divergence);
+        }
+        int[] parents = new int[index.size()];
+        for (int divergenceId = 0; divergenceId < parents.length; divergenceId++) {
+            parents[divergenceId] = divergenceId;
+        }
+        for (int divergenceId = 0; divergenceId < parents.length; divergenceId++) {
+            Divergence divergence = index.getDivergence(divergenceId);
+            for (CodeElement codeElement : divergence.getInvolvedCodeElements()) {
+                int lineStart = codeElement.getLineStart();
+                int lineEnd = codeElement.getLineEnd();
+                if (lineStart >= 0 && lineStart <= lineEnd) {
+                    // Extending the range by one line on each side also yields the adjacent blocks
+                    BitSet relatedIds = index.query(codeElement.getSourceFile(), lineStart - 1, lineEnd + 1,
+                            Containment.NONE);
+                    for (int relatedId = relatedIds.nextSetBit(0); relatedId >= 0;
+                            relatedId = relatedIds.nextSetBit(relatedId + 1)) {
+                        if (relatedId != divergenceId && isMergeable(divergence, index.getDivergence(relatedId))) {
+                            union(parents, divergenceId, relatedId);
+                        }
+                    }
+                }
+            }
+        }
+        return collectMerged(divergences, index, parents);
+    }
+
+    /**
+     * Checks whether the given divergences may be merged, i.e., whether they have the same type and involve the same
+     * single variable.
+     * 
+     * @param divergence the first divergence
+     * @param relatedDivergence the second divergence, whose code elements are related to the first one
+     * @return <code>true</code>, if the divergences may be merged; <code>false</code> otherwise
+     */
+    private static boolean isMergeable(@NonNull Divergence divergence, @NonNull Divergence relatedDivergence) {
+        Set<VariabilityVariable> variables = divergence.getInvolvedVariables();
+        Set<VariabilityVariable> relatedVariables = relatedDivergence.getInvolvedVariables();
+        return variables.size() == 1 && relatedVariables.size() == 1 && !(divergence instanceof MergedDivergence)
+                && divergence.getType().equals(relatedDivergence.getType())
+                && variables.iterator().next().getName().equals(relatedVariables.iterator().next().getName());
+    }
+
+    /**
+     * Creates the list of merged divergences based on the given union-find structure.
+     * 
+     * @param divergences the {@link Divergence}s to merge in their original order
+     * @param index the {@link CodeElementIntervalIndex} of the given divergences
+     * @param parents the union-find structure over the identifiers of the indexed divergences
+     * @return the divergences after merging
+     */
+    private @NonNull List<Divergence> collectMerged(@NonNull List<Divergence> divergences,
+            @NonNull CodeElementIntervalIndex index, int @NonNull [] parents) {
+        Map<Integer, List<Divergence>> groups = new HashMap<>();
+        for (int divergenceId = 0; divergenceId < parents.length; divergenceId++) {
+            groups.computeIfAbsent(find(parents, divergenceId), key -> new ArrayList<>())
+                    .add(index.getDivergence(divergenceId));
+        }
+        mergedDivergencesCount = 0;
+        mergedCodeElementsCount = 0;
+        List<Divergence> result = new ArrayList<>(divergences.size());
+        // The index assigns identifiers in the order of the list, but skips divergences without code elements
+        int divergenceId = 0;
+        for (Divergence divergence : divergences) {
+            if (divergence.getInvolvedCodeElements().isEmpty()) {
+                result.add(divergence);
+            } else {
+                List<Divergence> group = groups.get(find(parents, divergenceId));
+                if (group.size() == 1) {
+                    result.add(mergeCodeElements(divergence));
+                } else if (group.get(0) == divergence) {
+                    MergedDivergence mergedDivergence = new MergedDivergence(group);
+                    result.add(mergedDivergence);
+                    mergedDivergencesCount += group.size();
+                    mergedCodeElementsCount += mergedDivergence.getMergedCodeElementsCount();
+                }
+                divergenceId++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges the nested or adjacent code elements of the given divergence, which is not related to other divergences.
+     * 
+     * @param divergence the divergence to merge the code elements of
+     * @return a {@link MergedDivergence} replacing the given divergence, if it involves a single variable and at least
+     *         two of its code elements are nested or adjacent; the given divergence otherwise
+     */
+    private @NonNull Divergence mergeCodeElements(@NonNull Divergence divergence) {
+        Divergence result = divergence;
+        if (divergence.getInvolvedVariables().size() == 1 && divergence.getInvolvedCodeElements().size() > 1
+                && !(divergence instanceof MergedDivergence)) {
+            MergedDivergence mergedDivergence = new MergedDivergence(Collections.singletonList(divergence));
+            if (mergedDivergence.getMergedCodeElementsCount() > 0) {
+                result = mergedDivergence;
+                mergedDivergencesCount++;
+                mergedCodeElementsCount += mergedDivergence.getMergedCodeElementsCount();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the representative of the set containing the given element. The path to the representative is halved on
+     * the way.
+     * 
+     * @param parents the union-find structure
+     * @param element the element to find the representative for
+     * @return the representative of the set of the element
+     */
+    private static int find(int @NonNull [] parents, int element) {
+        int current = element;
+        while (parents[current] != current) {
+            parents[current] = parents[parents[current]];
+            current = parents[current];
+        }
+        return current;
+    }
+
+    /**
+     * Unites the sets containing the given elements. The smaller representative becomes the representative of the
+     * united set.
+     * 
+     * @param parents the union-find structure
+     * @param first the first element
+     * @param second the second element
+     */
+    private static void union(int @NonNull [] parents, int first, int second) {
+        int firstRoot = find(parents, first);
+        int secondRoot = find(parents, second);
+        if (firstRoot < secondRoot) {
+            parents[secondRoot] = firstRoot;
+        } else if (secondRoot < firstRoot) {
+            parents[firstRoot] = secondRoot;
+        }
+    }
+
+    /**
+     * Returns the number of divergences replaced by {@link MergedDivergence}s in the last call of {@link #merge(List)}.
+     * 
+     * @return the number of merged divergences
+     */
+    public int getMergedDivergencesCount() {
+        return mergedDivergencesCount;
+    }
+
+    /**
+     * Returns the number of code elements merged into the line range of another code element in the last call of
+     * {@link #merge(List)}.
+     * 
+     * @return the number of merged code elements
+     */
+    public int getMergedCodeElementsCount() {
+        return mergedCodeElementsCount;
+    }
+
+}
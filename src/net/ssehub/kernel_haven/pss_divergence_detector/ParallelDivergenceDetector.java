@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class distributes the detection of single-mapping and multi-mapping {@link Divergence}s across the threads of
+ * a {@link ForkJoinPool}. Each task collects its {@link Divergence}s in its own list, which are concatenated in the
+ * order of the tasks when joining them. Hence, no locking is necessary, each {@link MappingElement} is investigated by
+ * exactly one task (no divergence is reported twice), and the resulting order is identical to the order of a
+ * sequential detection.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class ParallelDivergenceDetector {
+    
+    /**
+     * The maximum number of {@link MappingElement}s investigated by a single task without further splitting.
+     */
+    private static final int SPLIT_THRESHOLD = 1024;
+    
+    /**
+     * The {@link SingleMappingDivergenceDetector} used by all single-mapping tasks.
+     */
+    private @NonNull SingleMappingDivergenceDetector singleMappingDetector;
+    
+    /**
+     * The {@link MultiMappingDivergenceDetector} holding the indexes for the multi-mapping tasks.
+     */
+    private @NonNull MultiMappingDivergenceDetector multiMappingDetector;
+    
+    /**
+     * The number of threads of the {@link ForkJoinPool}.
+     */
+    private int threads;
+    
+    /**
+     * The {@link DetectorMetrics} to which all tasks add their detection times.
+     */
+    private @NonNull DetectorMetrics metrics;
+    
+    /**
+     * Creates a {@link ParallelDivergenceDetector} instance.
+     * 
+     * @param singleMappingDetector the {@link SingleMappingDivergenceDetector} to use for each element
+     * @param multiMappingDetector the {@link MultiMappingDivergenceDetector}, which already received all elements
+     *        relevant for multi-mapping divergences
+     * @param threads the number of threads to use; must be greater than <code>0</code>
+     * @param metrics the {@link DetectorMetrics} to which all tasks add their detection times
+     */
+    public ParallelDivergenceDetector(@NonNull SingleMappingDivergenceDetector singleMappingDetector,
+            @NonNull MultiMappingDivergenceDetector multiMappingDetector, int threads,
+            @NonNull DetectorMetrics metrics) {
+        this.singleMappingDetector = singleMappingDetector;
+        this.multiMappingDetector = multiMappingDetector;
+        this.threads = threads;
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Detects all single-mapping {@link Divergence}s of the given {@link MappingElement}s as well as all multi-mapping
+     * {@link Divergence}s of the {@link #multiMappingDetector} in parallel.
+     * 
+     * @param mappingElements the {@link MappingElement}s to be investigated for single-mapping divergences
+     * @return the list of detected {@link Divergence}s; first the single-mapping divergences in the order of the given
+     *         elements, followed by the multi-mapping divergences
+     */
+    public @NonNull List<Divergence> detect(@NonNull List<MappingElement> mappingElements) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<Divergence> divergences;
+        try {
+            divergences = pool.invoke(new DetectionTask(mappingElements));
+        } finally {
+            pool.shutdown();
+        }
+        return divergences;
+    }
+    
+    /**
+     * This task forks the single-mapping detection as well as the two independent multi-mapping detections of the
+     * {@link MultiMappingDivergenceDetector} and joins their results in a fixed order.
+     */
+    private class DetectionTask extends RecursiveTask<List<Divergence>> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * The {@link MappingElement}s to be investigated for single-mapping divergences.
+         */
+        private @NonNull List<MappingElement> mappingElements;
+        
+        /**
+         * Creates a {@link DetectionTask} instance.
+         * 
+         * @param mappingElements the {@link MappingElement}s to be investigated for single-mapping divergences
+         */
+        DetectionTask(@NonNull List<MappingElement> mappingElements) {
+            this.mappingElements = mappingElements;
+        }
+
+        @Override
+        protected List<Divergence> compute() {
+            ForkJoinTask<List<Divergence>> singleMappingTask = new SingleMappingTask(mappingElements, 0,
+                    mappingElements.size()).fork();
+            ForkJoinTask<List<Divergence>> unbuildableCodeTask = ForkJoinTask.adapt(() -> {
+                long detectionStart = System.nanoTime();
+                List<Divergence> unbuildableCodeDivergences = new ArrayList<>();
+                multiMappingDetector.detectUnbuildableCode(unbuildableCodeDivergences::add);
+                metrics.addMultiMappingTime(System.nanoTime() - detectionStart);
+                return unbuildableCodeDivergences;
+            }).fork();
+            long detectionStart = System.nanoTime();
+            List<Divergence> identicalMappingDivergences = new ArrayList<>();
+            multiMappingDetector.detectIdenticalMappings(identicalMappingDivergences::add);
+            metrics.addMultiMappingTime(System.nanoTime() - detectionStart);
+            
+            List<Divergence> divergences = singleMappingTask.join();
+            divergences.addAll(identicalMappingDivergences);
+            divergences.addAll(unbuildableCodeTask.join());
+            return divergences;
+        }
+        
+    }
+    
+    /**
+     * This task detects the single-mapping {@link Divergence}s of a range of {@link MappingElement}s. If the range
+     * exceeds the {@link ParallelDivergenceDetector#SPLIT_THRESHOLD}, it is split into two sub-tasks.
+     */
+    private class SingleMappingTask extends RecursiveTask<List<Divergence>> {
+        
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The list of all {@link MappingElement}s.
+         */
+        private @NonNull List<MappingElement> mappingElements;
+        
+        /**
+         * The index of the first element of the range (inclusive).
+         */
+        private int from;
+        
+        /**
+         * The index of the last element of the range (exclusive).
+         */
+        private int to;
+        
+        /**
+         * Creates a {@link SingleMappingTask} instance.
+         * 
+         * @param mappingElements the list of all {@link MappingElement}s
+         * @param from the index of the first element of the range (inclusive)
+         * @param to the index of the last element of the range (exclusive)
+         */
+        SingleMappingTask(@NonNull List<MappingElement> mappingElements, int from, int to) {
+            this.mappingElements = mappingElements;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Divergence> compute() {
+            List<Divergence> divergences;
+            if (to - from <= SPLIT_THRESHOLD) {
+                long detectionStart = System.nanoTime();
+                divergences = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    singleMappingDetector.detect(mappingElements.get(i), divergences::add);
+                }
+                metrics.addSingleMappingTime(System.nanoTime() - detectionStart);
+            } else {
+                int middle = (from + to) >>> 1;
+                SingleMappingTask rightTask = new SingleMappingTask(mappingElements, middle, to);
+                rightTask.fork();
+                divergences = new SingleMappingTask(mappingElements, from, middle).compute();
+                divergences.addAll(rightTask.join());
+            }
+            return divergences;
+        }
+        
+    }
+
+}
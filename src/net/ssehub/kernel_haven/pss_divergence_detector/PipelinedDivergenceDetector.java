@@ -0,0 +1,470 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import net.ssehub.kernel_haven.analysis.AnalysisComponent;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.Logger.Level;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * This class decouples receiving the {@link MappingElement}s from detecting single-mapping {@link Divergence}s. A
+ * dedicated reader thread drains the mapper into batches, which are passed to a pool of detector threads via a bounded
+ * queue. Hence, the mapper is not stalled by the detection (as long as the queue is not full) and vice versa.<br>
+ * <br>
+ * While running, this class measures how long the reader waits for the mapper and for free space in the queue as well
+ * as how long the detector threads wait for new batches. These backpressure metrics show, which stage of the pipeline
+ * is the bottleneck.<br>
+ * <br>
+ * If the reader or a detector thread fails, e.g., due to an exception thrown by a rule, all threads of the pipeline are
+ * interrupted and the failure is rethrown by {@link #detect(AnalysisComponent, Predicate, Consumer, Consumer)}.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class PipelinedDivergenceDetector {
+    
+    private static final @NonNull Logger LOGGER = Logger.get();
+
+    /**
+     * The {@link SingleMappingDivergenceDetector} used by all detector threads.
+     */
+    private @NonNull SingleMappingDivergenceDetector singleMappingDetector;
+
+    /**
+     * The number of detector threads.
+     */
+    private int threads;
+
+    /**
+     * The maximum number of {@link MappingElement}s in a single batch.
+     */
+    private int batchSize;
+
+    /**
+     * The queue passing the batches from the reader thread to the detector threads.
+     */
+    private @NonNull BlockingQueue<Batch> queue;
+
+    /**
+     * The number of {@link MappingElement}s received by the reader thread.
+     */
+    private @NonNull AtomicInteger receivedElementsCount;
+
+    /**
+     * The minimum number of seconds between two progress lines logged by the reader thread (see
+     * {@link ProgressLogger}).
+     */
+    private int progressInterval;
+
+    /**
+     * The first exception or error thrown by the reader or a detector thread; <code>null</code>, if no thread failed.
+     */
+    private @NonNull AtomicReference<Throwable> failure;
+
+    /**
+     * The reader and detector threads of the current {@link #detect(AnalysisComponent, Predicate, Consumer, Consumer)}
+     * call, which are interrupted if one of them fails.
+     */
+    private @NonNull List<Thread> pipelineThreads;
+
+    /**
+     * The time in nanoseconds the reader thread waited for the next {@link MappingElement} of the mapper.
+     */
+    private long readerMapperWaitTime;
+
+    /**
+     * The time in nanoseconds the reader thread waited for free space in the full {@link #queue}.
+     */
+    private long readerQueueWaitTime;
+
+    /**
+     * The maximum number of batches in the {@link #queue} observed by the reader thread.
+     */
+    private int peakQueueSize;
+
+    /**
+     * The accumulated time in nanoseconds all detector threads waited for batches in the <i>empty</i> {@link #queue}.
+     */
+    private @NonNull LongAdder detectorQueueWaitTime;
+
+    /**
+     * The accumulated time in nanoseconds all detector threads spent detecting divergences.
+     */
+    private @NonNull LongAdder detectorBusyTime;
+
+    /**
+     * Creates a {@link PipelinedDivergenceDetector} instance.
+     * 
+     * @param singleMappingDetector the {@link SingleMappingDivergenceDetector} to use for each element
+     * @param threads the number of detector threads; must be greater than <code>0</code>
+     * @param batchSize the maximum number of {@link MappingElement}s in a single batch; must be greater than
+     *        <code>0</code>
+     * @param queueCapacity the maximum number of batches waiting for detection; must be greater than <code>0</code>
+     * @param progressInterval the minimum number of seconds between two progress lines logged while receiving the
+     *        {@link MappingElement}s; <code>0</code> disables these lines
+     */
+    public PipelinedDivergenceDetector(@NonNull SingleMappingDivergenceDetector singleMappingDetector, int threads,
+            int batchSize, int queueCapacity, int progressInterval) {
+        this.singleMappingDetector = singleMappingDetector;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.progressInterval = progressInterval;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        receivedElementsCount = new AtomicInteger();
+        detectorQueueWaitTime = new LongAdder();
+        detectorBusyTime = new LongAdder();
+        failure = new AtomicReference<>();
+        pipelineThreads = new ArrayList<>(threads + 1);
+    }
+
+    /**
+     * Drains the given mapper and detects the single-mapping {@link Divergence}s of all received
+     * {@link MappingElement}s. This method returns after all elements are processed. Before returning, it passes the
+     * retained elements and the detected divergences to the given consumers in the order in which the elements were
+     * received. Hence, the consumers are called by the calling thread only.
+     * 
+     * @param pssMapper the {@link AnalysisComponent} providing the {@link MappingElement}s
+     * @param receiveFilter the filter defining which received {@link MappingElement}s are passed to the detector
+     *        threads at all (see {@link MappingElementFilter}); it is only called by the reader thread and all other
+     *        elements are released immediately
+     * @param retainFilter the filter defining which {@link MappingElement}s are passed to the element consumer (e.g.,
+     *        those, which are relevant for multi-mapping detection); all other elements are released immediately
+     *        after detection
+     * @param elementConsumer the consumer of the retained {@link MappingElement}s
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}s
+     * @throws RuntimeException if the reader or a detector thread fails; the exception thrown by this thread is
+     *         rethrown and no elements or divergences are passed to the consumers
+     * @throws Error if the reader or a detector thread fails with an {@link Error}
+     * @throws IllegalStateException if the calling thread or a thread of the pipeline is interrupted
+     */
+    public void detect(@NonNull AnalysisComponent<MappingElement> pssMapper,
+            @NonNull Predicate<MappingElement> receiveFilter, @NonNull Predicate<MappingElement> retainFilter,
+            @NonNull Consumer<MappingElement> elementConsumer, @NonNull Consumer<Divergence> divergenceConsumer) {
+        List<Batch> processedBatches = new ArrayList<>();
+        synchronized (pipelineThreads) {
+            for (int i = 0; i < threads; i++) {
+                pipelineThreads.add(new Thread(() -> runDetector(retainFilter, processedBatches),
+                        "PSS-Divergence-Detector-" + i));
+            }
+            pipelineThreads.add(new Thread(() -> runReader(pssMapper, receiveFilter),
+                    "PSS-Divergence-Detector-Reader"));
+            for (Thread pipelineThread : pipelineThreads) {
+                pipelineThread.start();
+            }
+        }
+        try {
+            for (Thread pipelineThread : pipelineThreads) {
+                pipelineThread.join();
+            }
+        } catch (InterruptedException e) {
+            // The pipeline threads may still add batches; hence, the processed batches must not be passed on
+            abort(e);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the divergence detection pipeline", e);
+        }
+        Throwable pipelineFailure = failure.get();
+        if (pipelineFailure instanceof RuntimeException) {
+            throw (RuntimeException) pipelineFailure;
+        } else if (pipelineFailure instanceof Error) {
+            throw (Error) pipelineFailure;
+        } else if (pipelineFailure != null) {
+            throw new IllegalStateException("Divergence detection pipeline interrupted", pipelineFailure);
+        }
+
+        // Batches are completed in arbitrary order; restore the order in which the elements were received
+        processedBatches.sort((batch1, batch2) -> Integer.compare(batch1.sequenceNumber, batch2.sequenceNumber));
+        for (Batch batch : processedBatches) {
+            batch.elements.forEach(elementConsumer);
+            batch.divergences.forEach(divergenceConsumer);
+        }
+        logBackpressureMetrics();
+    }
+
+    /**
+     * Returns the number of {@link MappingElement}s received from the mapper.
+     * 
+     * @return the number of received {@link MappingElement}s
+     */
+    public int getReceivedElementsCount() {
+        return receivedElementsCount.get();
+    }
+
+    /**
+     * Returns the time the reader thread waited for the next {@link MappingElement} of the mapper.
+     * 
+     * @return the waiting time in nanoseconds
+     */
+    public long getMapperWaitTime() {
+        return readerMapperWaitTime;
+    }
+
+    /**
+     * Returns the time all detector threads spent detecting single-mapping {@link Divergence}s.
+     * 
+     * @return the accumulated detection time of all detector threads in nanoseconds
+     */
+    public long getDetectionTime() {
+        return detectorBusyTime.sum();
+    }
+
+    /**
+     * Records the given failure, if it is the first one, and interrupts all threads of the pipeline. Threads waiting
+     * for the {@link #queue} terminate immediately, while threads detecting divergences terminate after their current
+     * batch.
+     * 
+     * @param error the exception or error, which caused the pipeline to fail
+     */
+    private void abort(@NonNull Throwable error) {
+        if (failure.compareAndSet(null, error)) {
+            synchronized (pipelineThreads) {
+                for (Thread pipelineThread : pipelineThreads) {
+                    if (pipelineThread != Thread.currentThread()) {
+                        pipelineThread.interrupt();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drains the given mapper into the {@link #queue}. This method is executed by the reader thread. At the end, it
+     * adds one end-of-mapping marker for each detector thread to the queue, unless the pipeline failed (see
+     * {@link #abort(Throwable)}).
+     * 
+     * @param pssMapper the {@link AnalysisComponent} providing the {@link MappingElement}s
+     * @param receiveFilter the filter defining which received {@link MappingElement}s are put into the queue
+     */
+    private void runReader(@NonNull AnalysisComponent<MappingElement> pssMapper,
+            @NonNull Predicate<MappingElement> receiveFilter) {
+        int sequenceNumber = 0;
+        ProgressLogger progress = new ProgressLogger("mapping elements received", progressInterval);
+        try {
+            List<MappingElement> elements = new ArrayList<>(batchSize);
+            MappingElement receivedMappingElement;
+            long waitStart = System.nanoTime();
+            while (failure.get() == null && (receivedMappingElement = pssMapper.getNextResult()) != null) {
+                readerMapperWaitTime += System.nanoTime() - waitStart;
+                receivedElementsCount.incrementAndGet();
+                progress.increment();
+                if (receiveFilter.test(receivedMappingElement)) {
+                    elements.add(receivedMappingElement);
+                    if (elements.size() == batchSize) {
+                        put(new Batch(sequenceNumber++, elements));
+                        elements = new ArrayList<>(batchSize);
+                    }
+                }
+                waitStart = System.nanoTime();
+            }
+            readerMapperWaitTime += System.nanoTime() - waitStart;
+            progress.finish();
+            if (!elements.isEmpty()) {
+                put(new Batch(sequenceNumber++, elements));
+            }
+        } catch (InterruptedException e) {
+            if (failure.get() == null) {
+                LOGGER.logException("Interrupted while receiving mapping elements", e);
+                abort(e);
+            }
+        } catch (RuntimeException | Error e) {
+            LOGGER.logException("Receiving mapping elements failed - divergence detection aborted", e);
+            abort(e);
+        } finally {
+            // After a failure, all detector threads are interrupted and the queue may never have free space again
+            boolean interrupted = false;
+            for (int i = 0; i < threads && failure.get() == null; i++) {
+                // Detector threads must terminate in any case; hence, wait without interruption
+                boolean markerAdded = false;
+                while (!markerAdded && failure.get() == null) {
+                    try {
+                        queue.put(Batch.END_OF_MAPPING);
+                        markerAdded = true;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Puts the given batch into the {@link #queue} and updates the backpressure metrics of the reader thread.
+     * 
+     * @param batch the batch to put into the queue
+     * @throws InterruptedException if the reader thread is interrupted while waiting for free space in the queue
+     */
+    private void put(@NonNull Batch batch) throws InterruptedException {
+        if (!queue.offer(batch)) {
+            long waitStart = System.nanoTime();
+            queue.put(batch);
+            readerQueueWaitTime += System.nanoTime() - waitStart;
+        }
+        peakQueueSize = Math.max(peakQueueSize, queue.size());
+    }
+
+    /**
+     * Takes batches from the {@link #queue} and detects the single-mapping {@link Divergence}s of their elements until
+     * the end-of-mapping marker is received or the pipeline fails. This method is executed by each detector thread.
+     * 
+     * @param retainFilter the filter defining which {@link MappingElement}s are retained in the processed batches
+     * @param processedBatches the list to add each processed batch to
+     */
+    private void runDetector(@NonNull Predicate<MappingElement> retainFilter, @NonNull List<Batch> processedBatches) {
+        // Avoid building the (expensive) string representation of each element, if it is not logged anyway
+        boolean logElements = LOGGER.getLevel().shouldLog(Level.DEBUG);
+        boolean endOfMapping = false;
+        while (!endOfMapping && failure.get() == null) {
+            Batch batch = take();
+            if (batch == null || batch == Batch.END_OF_MAPPING) {
+                endOfMapping = true;
+            } else {
+                try {
+                    detect(batch, retainFilter, logElements);
+                    synchronized (processedBatches) {
+                        processedBatches.add(batch);
+                    }
+                } catch (RuntimeException | Error e) {
+                    LOGGER.logException("Detecting single-mapping divergences failed - divergence detection aborted",
+                            e);
+                    abort(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Detects the single-mapping {@link Divergence}s of the elements of the given batch and keeps only the retained
+     * elements in the batch.
+     * 
+     * @param batch the batch to process
+     * @param retainFilter the filter defining which {@link MappingElement}s are retained in the batch
+     * @param logElements whether each element is logged
+     */
+    private void detect(@NonNull Batch batch, @NonNull Predicate<MappingElement> retainFilter, boolean logElements) {
+        long detectionStart = System.nanoTime();
+        List<MappingElement> retainedElements = new ArrayList<>();
+        for (MappingElement mappingElement : batch.elements) {
+            if (logElements) {
+                LOGGER.logDebug2("Received mapping element: ", mappingElement);
+            }
+            singleMappingDetector.detect(mappingElement, batch.divergences::add);
+            if (retainFilter.test(mappingElement)) {
+                retainedElements.add(mappingElement);
+            }
+        }
+        batch.elements = retainedElements;
+        detectorBusyTime.add(System.nanoTime() - detectionStart);
+    }
+
+    /**
+     * Takes the next batch from the {@link #queue} and updates the backpressure metrics of the detector threads.
+     * 
+     * @return the next batch or <code>null</code>, if the calling detector thread is interrupted
+     */
+    private @Nullable Batch take() {
+        Batch batch = queue.poll();
+        if (batch == null) {
+            long waitStart = System.nanoTime();
+            try {
+                batch = queue.take();
+            } catch (InterruptedException e) {
+                if (failure.get() == null) {
+                    LOGGER.logException("Interrupted while waiting for mapping elements", e);
+                    abort(e);
+                }
+            }
+            detectorQueueWaitTime.add(System.nanoTime() - waitStart);
+        }
+        return batch;
+    }
+
+    /**
+     * Logs the backpressure metrics measured during {@link #detect(AnalysisComponent, Predicate, Consumer, Consumer)}
+     * and the resulting bottleneck of the pipeline.
+     */
+    private void logBackpressureMetrics() {
+        long readerMapperWaitMillis = TimeUnit.NANOSECONDS.toMillis(readerMapperWaitTime);
+        long readerQueueWaitMillis = TimeUnit.NANOSECONDS.toMillis(readerQueueWaitTime);
+        long detectorQueueWaitMillis = TimeUnit.NANOSECONDS.toMillis(detectorQueueWaitTime.sum()) / threads;
+        long detectorBusyMillis = TimeUnit.NANOSECONDS.toMillis(detectorBusyTime.sum()) / threads;
+        String bottleneck;
+        if (readerQueueWaitMillis > readerMapperWaitMillis) {
+            // The reader mostly waits for the detectors to free space in the queue
+            bottleneck = "divergence detection";
+        } else {
+            bottleneck = "mapping creation";
+        }
+        LOGGER.logInfo2("Divergence detection pipeline: reader waited ", readerMapperWaitMillis, " ms for mapper and ",
+                readerQueueWaitMillis, " ms on full queue (peak size ", peakQueueSize, " of ",
+                queue.size() + queue.remainingCapacity(), " batches); detector threads waited ",
+                detectorQueueWaitMillis, " ms on empty queue and were busy for ", detectorBusyMillis,
+                " ms on average; bottleneck: ", bottleneck);
+    }
+
+    /**
+     * A batch of {@link MappingElement}s passed from the reader thread to a detector thread.
+     */
+    private static class Batch {
+
+        /**
+         * The marker denoting the end of the mapping. Each detector thread terminates after receiving this marker.
+         */
+        private static final @NonNull Batch END_OF_MAPPING = new Batch(-1, new ArrayList<>());
+
+        /**
+         * The position of this batch in the sequence of all batches created by the reader thread.
+         */
+        private int sequenceNumber;
+
+        /**
+         * The {@link MappingElement}s of this batch. After detection, this list only contains the retained elements.
+         */
+        private @NonNull List<MappingElement> elements;
+
+        /**
+         * The {@link Divergence}s detected for the {@link #elements} of this batch.
+         */
+        private @NonNull List<Divergence> divergences;
+
+        /**
+         * Creates a {@link Batch} instance.
+         * 
+         * @param sequenceNumber the position of this batch in the sequence of all batches
+         * @param elements the {@link MappingElement}s of this batch
+         */
+        Batch(int sequenceNumber, @NonNull List<MappingElement> elements) {
+            this.sequenceNumber = sequenceNumber;
+            this.elements = elements;
+            divergences = new ArrayList<>();
+        }
+
+    }
+
+}
@@ -12,17 +12,44 @@
  */
 package net.ssehub.kernel_haven.pss_divergence_detector;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
+import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.analysis.AnalysisComponent;
+import net.ssehub.kernel_haven.build_model.BuildModel;
 import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.config.DefaultSettings;
+import net.ssehub.kernel_haven.config.EnumSetting;
+import net.ssehub.kernel_haven.config.Setting;
+import net.ssehub.kernel_haven.config.Setting.Type;
 import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
-import net.ssehub.kernel_haven.pss_divergence_detector.divergences.UndefinedVariableDivergence;
-import net.ssehub.kernel_haven.pss_divergence_detector.divergences.UnusedVariableDivergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.InvolvedElementPool;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.StableHash;
+import net.ssehub.kernel_haven.pss_divergence_detector.io.BinaryDivergenceWriter;
+import net.ssehub.kernel_haven.pss_divergence_detector.io.DivergenceCsvWriter;
 import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement.VariableState;
 import net.ssehub.kernel_haven.pss_mapper.ProblemSolutionSpaceMapping;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.Logger.Level;
+import net.ssehub.kernel_haven.util.io.ITableWriter;
+import net.ssehub.kernel_haven.util.io.csv.CsvWriter;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
 
 /**
  * This class detects unintended {@link Divergence}s between problem and solution space artifacts based on a given (set
@@ -33,6 +60,326 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
  */
 public class ProblemSolutionSpaceDivergenceDetector extends AnalysisComponent<Divergence> {
     
+    /**
+     * The {@link EnumSetting} defining the {@link DetectionMode} of this detector. The default mode is
+     * {@link DetectionMode#BUFFERED}.
+     */
+    public static final @NonNull EnumSetting<@NonNull DetectionMode> DETECTION_MODE_SETTING
+            = new EnumSetting<>("analysis.pss_divergence_detector.mode", DetectionMode.class, true,
+                    DetectionMode.BUFFERED, "Defines whether the detected divergences are passed to the next analysis "
+                    + "component after the entire mapping is processed (BUFFERED) or as soon as they are detected "
+                    + "(STREAMING). The latter mode also keeps only those mapping elements in memory, which are "
+                    + "required for detecting multi-mapping divergences. The PARALLEL mode distributes the detection "
+                    + "across multiple threads (see analysis.pss_divergence_detector.threads). The PIPELINED mode "
+                    + "receives the mapping in a dedicated thread and passes it in batches to multiple detector "
+                    + "threads.");
+    
+    /**
+     * The {@link Setting} defining the number of threads used in {@link DetectionMode#PARALLEL} and
+     * {@link DetectionMode#PIPELINED}. A value less than <code>1</code> uses as many threads as processors are
+     * available.
+     */
+    public static final @NonNull Setting<@NonNull Integer> THREADS_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.threads", Type.INTEGER, true, "0", "Defines the number "
+                    + "of threads used for detecting divergences in PARALLEL and PIPELINED mode. A value less than 1 "
+                    + "uses as many threads as processors are available.");
+    
+    /**
+     * The {@link Setting} defining the maximum number of {@link MappingElement}s passed as a single batch to a
+     * detector thread in {@link DetectionMode#PIPELINED}.
+     */
+    public static final @NonNull Setting<@NonNull Integer> PIPELINE_BATCH_SIZE_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.pipeline.batch_size", Type.INTEGER, true, "256",
+                    "Defines the maximum number of mapping elements passed as a single batch to a detector thread in "
+                    + "PIPELINED mode.");
+    
+    /**
+     * The {@link Setting} defining the maximum number of batches waiting for detection in
+     * {@link DetectionMode#PIPELINED}. If this number is reached, receiving further {@link MappingElement}s blocks.
+     */
+    public static final @NonNull Setting<@NonNull Integer> PIPELINE_QUEUE_CAPACITY_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.pipeline.queue_capacity", Type.INTEGER, true, "16",
+                    "Defines the maximum number of batches waiting for detection in PIPELINED mode. If this number is "
+                    + "reached, receiving further mapping elements blocks.");
+    
+    /**
+     * The {@link Setting} defining whether the divergences are detected incrementally based on the results of the
+     * previous analysis run (see {@link IncrementalDivergenceDetector}). The default value is <code>false</code>.
+     */
+    public static final @NonNull Setting<@NonNull Boolean> INCREMENTAL_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.incremental", Type.BOOLEAN, true, "false", "Defines "
+                    + "whether the divergences are detected incrementally. If enabled, the mapping and the detected "
+                    + "divergences are cached in the cache_dir and only new or changed mapping elements are "
+                    + "investigated in the next run. Further, the differences to the divergences of the previous run "
+                    + "are written as a separate table to the output_dir. The divergences are passed to the next "
+                    + "analysis component as in BUFFERED mode.");
+    
+    /**
+     * The {@link Setting} defining whether the {@link DetectorMetrics} of each run are written as a separate table to
+     * the output directory. The default value is <code>false</code>.
+     */
+    public static final @NonNull Setting<@NonNull Boolean> METRICS_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.metrics", Type.BOOLEAN, true, "false", "Defines "
+                    + "whether the metrics of the divergence detection, like the time waited for the mapper, the "
+                    + "detection times, and the number of divergences per type, are written as a separate table to "
+                    + "the output_dir. A summary of these metrics is always logged.");
+    
+    /**
+     * The {@link Setting} defining the fully qualified class names of the {@link IDivergenceRule}s for detecting
+     * single-mapping divergences. If not specified, the built-in rules are used (see
+     * {@link SingleMappingDivergenceDetector#getBuiltInRules()}). Rules provided as a service are always used in
+     * addition.
+     */
+    public static final @NonNull Setting<@NonNull List<String>> RULES_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.rules", Type.STRING_LIST, false, null, "Defines the "
+                    + "fully qualified class names of the rules for detecting single-mapping divergences. If not "
+                    + "specified, the built-in rules for unused and undefined variables are used. Rules provided as "
+                    + "a service (META-INF/services/net.ssehub.kernel_haven.pss_divergence_detector.IDivergenceRule) "
+                    + "are always used in addition.");
+    
+    /**
+     * The {@link Setting} defining whether the build and code mapping lists of the {@link MappingElement}s retained for
+     * the multi-mapping detection are spilled to a file in the cache directory instead of keeping them on the heap (see
+     * {@link SpillingMappingElementStore}). The artifacts themselves remain on the heap in the indexes of the
+     * {@link MultiMappingDivergenceDetector}; hence, this reduces, but does not bound the memory usage. The default
+     * value is <code>false</code>.
+     */
+    public static final @NonNull Setting<@NonNull Boolean> SPILL_MAPPING_LISTS_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.spill_mapping_lists", Type.BOOLEAN, true, "false",
+                    "Defines whether the build and code mapping lists of the mapping elements retained for "
+                    + "detecting multi-mapping divergences are spilled to a temporary file in the cache_dir instead "
+                    + "of keeping them in memory. The source files and code elements themselves remain in memory in "
+                    + "the indexes of the multi-mapping detection. Hence, this only saves the per-element lists for "
+                    + "large mappings (at the cost of reading them back from the memory-mapped file during "
+                    + "detection); it does not bound the memory usage.");
+    
+    /**
+     * The {@link Setting} defining whether the detected {@link Divergence}s are additionally written to the output
+     * directory in the compact binary format of the {@link BinaryDivergenceWriter}. The default value is
+     * <code>false</code>.
+     */
+    public static final @NonNull Setting<@NonNull Boolean> BINARY_OUTPUT_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.binary_output", Type.BOOLEAN, true, "false", "Defines "
+                    + "whether the detected divergences are additionally written as a compact binary file to the "
+                    + "output_dir. Other components can read this file via the BinaryDivergenceReader without "
+                    + "parsing the result tables.");
+    
+    /**
+     * The {@link Setting} defining whether the detected {@link Divergence}s are additionally streamed to a CSV table in
+     * the output directory by the {@link DivergenceCsvWriter}. The divergences are still passed on via
+     * {@link #addResult(Object)}, i.e., this table does not replace the generic result output. The default value is
+     * <code>false</code>.
+     */
+    public static final @NonNull Setting<@NonNull Boolean> CSV_OUTPUT_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.csv_output", Type.BOOLEAN, true, "false", "Defines "
+                    + "whether the detected divergences are additionally written as a CSV table to the output_dir as "
+                    + "soon as they are detected. In contrast to the result tables written by KernelHaven, this table "
+                    + "is written with constant memory independent of the number of divergences and the length of "
+                    + "their symptoms. It is written in addition to the regular result, i.e., the divergences are "
+                    + "still passed on to the next component or the KernelHaven result writers.");
+    
+    /**
+     * The {@link Setting} defining the maximum number of the most severe {@link Divergence}s passed to the next
+     * analysis component (see {@link TopKDivergenceSelector}). The default value <code>0</code> passes all divergences.
+     */
+    public static final @NonNull Setting<@NonNull Integer> TOP_K_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.top_k", Type.INTEGER, true, "0", "Defines the maximum "
+                    + "number of divergences passed to the next analysis component. If greater than 0, only the most "
+                    + "severe divergences as rated by analysis.pss_divergence_detector.top_k.score are kept and passed "
+                    + "on in descending order of their severity after the entire mapping is processed. The default "
+                    + "value 0 passes all divergences.");
+    
+    /**
+     * The {@link Setting} defining the {@link IDivergenceScore} rating the severity of divergences, if only the most
+     * severe divergences are passed on (see {@link #TOP_K_SETTING}). The value is either the name of a built-in
+     * {@link DivergenceScore} or the fully qualified class name of an {@link IDivergenceScore}.
+     */
+    public static final @NonNull Setting<@NonNull String> TOP_K_SCORE_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.top_k.score", Type.STRING, true, "SOURCE_FILES",
+                    "Defines the scoring function rating the severity of divergences, if only the most severe "
+                    + "divergences are passed on: SOURCE_FILES (number of involved files), CODE_LINES (total lines "
+                    + "of involved code elements), VARIABLES (number of involved variables), or the fully qualified "
+                    + "class name of an implementation of "
+                    + "net.ssehub.kernel_haven.pss_divergence_detector.IDivergenceScore.");
+    
+    /**
+     * The {@link Setting} defining whether divergences of the same type and variable with nested or adjacent code
+     * elements are merged into a single divergence (see {@link NestedBlockMerger}) before they are passed on. Merging
+     * only affects the <code>PSS_Divergences</code> result, as all other outputs receive each divergence as soon as it
+     * is detected. The default value is <code>false</code>.
+     */
+    public static final @NonNull Setting<@NonNull Boolean> MERGE_NESTED_BLOCKS_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.merge_nested_blocks", Type.BOOLEAN, true, "false",
+                    "Defines whether divergences of the same type and the same single variable, whose code elements "
+                    + "are nested in each other or adjacent within the same source file, are merged into a single "
+                    + "divergence before they are passed to the next analysis component. This also merges the "
+                    + "nested or adjacent code elements within a single divergence into a single line range. This is "
+                    + "not supported in STREAMING mode. Merging only applies to the passed divergences (after "
+                    + "selecting the top_k divergences, if enabled): the binary and CSV outputs, the divergence "
+                    + "publisher, the directory aggregation, and the metrics contain the divergences before merging.");
+    
+    /**
+     * The {@link Setting} defining the maximum depth of the directories, by which the detected {@link Divergence}s are
+     * aggregated (see {@link DirectoryDivergenceAggregator}). The default value <code>0</code> disables the
+     * aggregation.
+     */
+    public static final @NonNull Setting<@NonNull Integer> DIRECTORY_DEPTH_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.directory_depth", Type.INTEGER, true, "0", "Defines the "
+                    + "maximum depth of the directories, by which the detected divergences are aggregated. If greater "
+                    + "than 0, the number and the list of divergences involving files in each directory up to this "
+                    + "depth (including their subdirectories) are written as a separate table to the output_dir. The "
+                    + "default value 0 disables the aggregation.");
+    
+    /**
+     * The {@link Setting} defining the maximum number of {@link Divergence}s buffered for each subscriber of the
+     * {@link DivergencePublisher} of this detector. The default value is <code>256</code>.
+     */
+    public static final @NonNull Setting<@NonNull Integer> PUBLISHER_BUFFER_CAPACITY_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.publisher.buffer_capacity", Type.INTEGER, true, "256",
+                    "Defines the maximum number of detected divergences buffered for each in-process subscriber of "
+                    + "the divergence publisher of this detector. If the buffer of a subscriber is full, the detection "
+                    + "waits until the subscriber requests and receives further divergences.");
+    
+    /**
+     * The {@link Setting} defining the regular expression, which the variable names of the investigated
+     * {@link MappingElement}s must match (see {@link MappingElementFilter}). If not specified, all variable names are
+     * accepted.
+     */
+    public static final @NonNull Setting<@Nullable String> FILTER_VARIABLE_REGEX_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.filter.variable_regex", Type.STRING, false, null,
+                    "Defines the regular expression, which the variable names of the investigated mapping elements "
+                    + "must match. All other mapping elements are ignored. If not specified, all variable names are "
+                    + "accepted.");
+    
+    /**
+     * The {@link Setting} defining the variable states of the investigated {@link MappingElement}s (see
+     * {@link MappingElementFilter}). If not specified, all variable states are accepted.
+     */
+    public static final @NonNull Setting<@Nullable List<String>> FILTER_VARIABLE_STATES_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.filter.variable_states", Type.STRING_LIST, false, null,
+                    "Defines the comma-separated variable states (like UNUSED or UNDEFINED; case-insensitive) of the "
+                    + "investigated mapping elements. All other mapping elements are ignored. If not specified, all "
+                    + "variable states are accepted. Unknown states are rejected during setup.");
+    
+    /**
+     * The {@link Setting} defining the regular expressions of which at least one must match the path of a build or
+     * code artifact to include it (see {@link MappingElementFilter}). If not specified, all paths are included.
+     */
+    public static final @NonNull Setting<@Nullable List<String>> FILTER_PATH_INCLUDE_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.filter.path_include", Type.STRING_LIST, false, null,
+                    "Defines the comma-separated regular expressions of which at least one must match the path of a "
+                    + "build or code artifact to include it. Mapping elements, which map their variable to artifacts, "
+                    + "are ignored, if none of their artifacts is included. The filter applies to entire mapping "
+                    + "elements: accepted elements keep all of their artifacts, including those not included. If not "
+                    + "specified, all paths are included.");
+    
+    /**
+     * The {@link Setting} defining the regular expressions of which none must match the path of an included build or
+     * code artifact (see {@link MappingElementFilter}). If not specified, no path is excluded.
+     */
+    public static final @NonNull Setting<@Nullable List<String>> FILTER_PATH_EXCLUDE_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.filter.path_exclude", Type.STRING_LIST, false, null,
+                    "Defines the comma-separated regular expressions of which none must match the path of an included "
+                    + "build or code artifact. If not specified, no path is excluded.");
+    
+    /**
+     * The {@link Setting} defining the minimum number of seconds between two progress lines logged while receiving
+     * the {@link MappingElement}s (see {@link ProgressLogger}). The default value is <code>10</code>.
+     */
+    public static final @NonNull Setting<@NonNull Integer> PROGRESS_INTERVAL_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.progress_interval", Type.INTEGER, true, "10",
+                    "Defines the minimum number of seconds between two log lines summarizing the number of received "
+                    + "mapping elements and the receiving rate. Individual mapping elements are only logged at debug "
+                    + "level. A value of 0 disables these progress lines.");
+    
+    /**
+     * The {@link Setting} defining the number of shards of a sharded detection, in which multiple processes
+     * investigate disjoint partitions of the mapping (see {@link ShardedDivergenceMerger}). The default value
+     * <code>1</code> disables the sharding.
+     */
+    public static final @NonNull Setting<@NonNull Integer> SHARD_COUNT_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.shard.count", Type.INTEGER, true, "1", "Defines the "
+                    + "number of shards, into which the mapping is partitioned by the hashes of the variable names. "
+                    + "Each shard is investigated by a separate process as defined by "
+                    + "analysis.pss_divergence_detector.shard.index. The default value 1 disables the sharding.");
+    
+    /**
+     * The {@link Setting} defining the shard investigated by this process, if the detection is sharded (see
+     * {@link #SHARD_COUNT_SETTING}). The default value <code>-1</code> merges the divergences of all shards.
+     */
+    public static final @NonNull Setting<@NonNull Integer> SHARD_INDEX_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.shard.index", Type.INTEGER, true, "-1", "Defines the "
+                    + "shard (between 0 and shard.count - 1) investigated by this process, if the detection is "
+                    + "sharded. The process publishes its divergences in the shard.exchange_dir. The default value -1 "
+                    + "waits for the divergences of all shards and passes them on as a single, duplicate-free "
+                    + "result.");
+    
+    /**
+     * The {@link Setting} defining the directory, in which the shards of a sharded detection publish their
+     * divergences. If not specified, the cache directory is used.
+     */
+    public static final @NonNull Setting<@Nullable File> SHARD_EXCHANGE_DIR_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.shard.exchange_dir", Type.DIRECTORY, false, null,
+                    "Defines the directory, in which the shards of a sharded detection publish their divergences and "
+                    + "from which the merge process reads them. All processes must use the same directory, e.g., on a "
+                    + "shared file system. If not specified, the cache_dir is used.");
+    
+    /**
+     * The {@link Setting} defining the identifier of the current run of a sharded detection. The shards write it into
+     * their files and the merge process ignores files with a different identifier. If not specified, files of previous
+     * runs cannot be distinguished from the files of the current run.
+     */
+    public static final @NonNull Setting<@Nullable String> SHARD_RUN_ID_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.shard.run_id", Type.STRING, false, null, "Defines the "
+                    + "identifier of the current run of a sharded detection, e.g., a timestamp or a build number. All "
+                    + "processes of a run must use the same identifier, which must differ from the identifiers of "
+                    + "previous runs. The merge process only merges shard files of the current run. If not "
+                    + "specified, outdated shard files of previous runs in the shard.exchange_dir may be merged.");
+    
+    /**
+     * The {@link Setting} defining the maximum number of seconds the merge process of a sharded detection waits for
+     * the divergences of all shards. The default value is <code>3600</code>.
+     */
+    public static final @NonNull Setting<@NonNull Integer> SHARD_TIMEOUT_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.shard.timeout", Type.INTEGER, true, "3600", "Defines "
+                    + "the maximum number of seconds the merge process of a sharded detection waits for the "
+                    + "divergences of all shards. Shards not available afterwards are missing in the merged result.");
+    
+    /**
+     * The {@link Setting} defining whether the merge process of a sharded detection detects the multi-mapping
+     * divergences based on the entire mapping instead of each shard based on its own partition. The default value is
+     * <code>true</code>.
+     */
+    public static final @NonNull Setting<@NonNull Boolean> SHARD_MERGE_MULTI_MAPPING_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.shard.merge_multi_mapping", Type.BOOLEAN, true, "true",
+                    "Defines whether the merge process of a sharded detection detects the multi-mapping divergences "
+                    + "based on the entire mapping, while the shards only detect single-mapping divergences. "
+                    + "Otherwise, each shard detects multi-mapping divergences between the mapping elements of its own "
+                    + "partition, which misses divergences involving variables of different shards.");
+    
+    /**
+     * The {@link Setting} defining whether the received {@link MappingElement}s are recorded as a snapshot, which the
+     * {@link MappingSnapshotReplay} replays in later runs (see {@link #SNAPSHOT_FILE_SETTING}). The default value is
+     * <code>false</code>.
+     */
+    public static final @NonNull Setting<@NonNull Boolean> SNAPSHOT_RECORD_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.snapshot.record", Type.BOOLEAN, true, "false",
+                    "Defines whether the received mapping is recorded as a binary snapshot in the "
+                    + "analysis.pss_divergence_detector.snapshot.file. Later runs replay this snapshot by using the "
+                    + "MappingSnapshotReplay instead of the ProblemSolutionSpaceMapper in the analysis.pipeline, "
+                    + "which skips the extraction of all models.");
+    
+    /**
+     * The {@link Setting} defining the file of the mapping snapshot recorded by this detector and replayed by the
+     * {@link MappingSnapshotReplay}. If not specified, the file <code>pss_mapping[_&lt;arch&gt;].snapshot</code> in the
+     * cache directory is used.
+     */
+    public static final @NonNull Setting<@Nullable File> SNAPSHOT_FILE_SETTING
+            = new Setting<>("analysis.pss_divergence_detector.snapshot.file", Type.PATH, false, null, "Defines the "
+                    + "file of the mapping snapshot recorded if analysis.pss_divergence_detector.snapshot.record is "
+                    + "true and replayed by the MappingSnapshotReplay. If not specified, the file "
+                    + "pss_mapping[_<arch>].snapshot in the cache_dir is used.");
+    
     /**
      * The {@link AnalysisComponent} providing the set of {@link MappingElement}s, which represent the
      * {@link ProblemSolutionSpaceMapping}.
@@ -40,57 +387,834 @@ public class ProblemSolutionSpaceDivergenceDetector extends AnalysisComponent<Di
     private @NonNull AnalysisComponent<MappingElement> pssMapper;
     
     /**
-     * The list of {@link MappingElement}s received from the {@link #pssMapper}.
+     * The {@link AnalysisComponent} providing the {@link VariabilityModel} for detecting dead and undead artifacts;
+     * <code>null</code>, if these divergences are not detected.
+     */
+    private @Nullable AnalysisComponent<VariabilityModel> vmComponent;
+    
+    /**
+     * The {@link AnalysisComponent} providing the {@link BuildModel} for detecting dead and undead artifacts;
+     * <code>null</code>, if only code elements are checked.
+     */
+    private @Nullable AnalysisComponent<BuildModel> bmComponent;
+    
+    /**
+     * The {@link DetectionMode} as defined by the {@link #DETECTION_MODE_SETTING}.
+     */
+    private @NonNull DetectionMode detectionMode;
+    
+    /**
+     * The number of threads as defined by the {@link #THREADS_SETTING}.
+     */
+    private int threads;
+    
+    /**
+     * The batch size as defined by the {@link #PIPELINE_BATCH_SIZE_SETTING}.
+     */
+    private int pipelineBatchSize;
+    
+    /**
+     * The queue capacity as defined by the {@link #PIPELINE_QUEUE_CAPACITY_SETTING}.
+     */
+    private int pipelineQueueCapacity;
+    
+    /**
+     * The file caching the results of the previous run for the incremental detection or <code>null</code>, if the
+     * incremental detection is disabled (see {@link #INCREMENTAL_SETTING}).
+     */
+    private @Nullable File incrementalCacheFile;
+    
+    /**
+     * The hash of the detector configuration, which determines the divergences detected for a given mapping (see
+     * {@link #getConfigurationHash(Configuration, List)}).
+     */
+    private long configurationHash;
+    
+    /**
+     * The directory to write additional result tables to.
+     */
+    private @NonNull File outputDir;
+    
+    /**
+     * The definition of whether the {@link #metrics} are written as a separate table as defined by the
+     * {@link #METRICS_SETTING}.
+     */
+    private boolean writeMetrics;
+    
+    /**
+     * The definition of whether the detected {@link Divergence}s are additionally written in the binary format as
+     * defined by the {@link #BINARY_OUTPUT_SETTING}.
+     */
+    private boolean writeBinary;
+    
+    /**
+     * The {@link BinaryDivergenceWriter} writing each detected {@link Divergence} or <code>null</code>, if the binary
+     * output is disabled or failed.
+     */
+    private @Nullable BinaryDivergenceWriter binaryWriter;
+    
+    /**
+     * The definition of whether the detected {@link Divergence}s are additionally streamed to a CSV table as defined by
+     * the {@link #CSV_OUTPUT_SETTING}.
+     */
+    private boolean writeCsv;
+    
+    /**
+     * The {@link DivergenceCsvWriter} writing each detected {@link Divergence} or <code>null</code>, if the CSV output
+     * is disabled or failed.
+     */
+    private @Nullable DivergenceCsvWriter csvWriter;
+    
+    /**
+     * The {@link MappingElementFilter} rejecting those received {@link MappingElement}s, which are not investigated.
+     */
+    private @NonNull MappingElementFilter mappingElementFilter;
+    
+    /**
+     * The minimum number of seconds between two progress lines as defined by the {@link #PROGRESS_INTERVAL_SETTING}.
+     */
+    private int progressInterval;
+    
+    /**
+     * The number of shards as defined by the {@link #SHARD_COUNT_SETTING}.
+     */
+    private int shardCount;
+    
+    /**
+     * The {@link ShardedDivergenceMerger} merging the divergences of all shards or <code>null</code>, if this process
+     * is not the merge process of a sharded detection.
+     */
+    private @Nullable ShardedDivergenceMerger shardMerger;
+    
+    /**
+     * The file, in which this process publishes the divergences of its shard, or <code>null</code>, if this process
+     * does not investigate a shard of a sharded detection.
+     */
+    private @Nullable File shardFile;
+    
+    /**
+     * The token identifying the current run of a sharded detection as defined by the {@link #SHARD_RUN_ID_SETTING}
+     * (see {@link ShardedDivergenceMerger#getRunToken(String)}).
+     */
+    private long shardRunToken;
+    
+    /**
+     * The {@link BinaryDivergenceWriter} writing each detected {@link Divergence} of the shard of this process or
+     * <code>null</code>, if this process does not investigate a shard or writing failed.
+     */
+    private @Nullable BinaryDivergenceWriter shardWriter;
+    
+    /**
+     * The definition of whether this process detects multi-mapping divergences. This is only not the case for the
+     * shards of a sharded detection, if the merge process detects them (see
+     * {@link #SHARD_MERGE_MULTI_MAPPING_SETTING}), and for the merge process otherwise.
+     */
+    private boolean detectMultiMapping;
+    
+    /**
+     * The {@link TopKDivergenceSelector} keeping the most severe {@link Divergence}s or <code>null</code>, if all
+     * divergences are passed on (see {@link #TOP_K_SETTING}).
+     */
+    private @Nullable TopKDivergenceSelector topKSelector;
+    
+    /**
+     * Whether divergences with nested or adjacent code elements are merged as defined by the
+     * {@link #MERGE_NESTED_BLOCKS_SETTING}.
+     */
+    private boolean mergeNestedBlocks;
+    
+    /**
+     * The {@link DirectoryDivergenceAggregator} aggregating all detected divergences by their directories; may be
+     * <code>null</code>, if the aggregation is disabled.
+     */
+    private @Nullable DirectoryDivergenceAggregator directoryAggregator;
+    
+    /**
+     * The {@link DivergencePublisher} publishing all detected divergences to in-process subscribers.
+     */
+    private @NonNull DivergencePublisher publisher;
+    
+    /**
+     * The consumer passing each detected {@link Divergence} to {@link #reportDivergence(Divergence)}. It is created
+     * once, such that the detection of each {@link MappingElement} does not allocate a new consumer.
+     */
+    private final @NonNull Consumer<Divergence> divergenceReporter = this::reportDivergence;
+    
+    /**
+     * The {@link InvolvedElementPool} of this detector providing the elements shared by the divergences of its run.
+     * It is cleared at the end of {@link #execute()}.
+     */
+    private @NonNull InvolvedElementPool elementPool;
+    
+    /**
+     * The {@link DetectorMetrics} of this run.
+     */
+    private @NonNull DetectorMetrics metrics;
+    
+    /**
+     * The {@link SingleMappingDivergenceDetector} investigating each received {@link MappingElement}.
+     */
+    private @NonNull SingleMappingDivergenceDetector singleMappingDetector;
+    
+    /**
+     * The list of all {@link MappingElement}s received from the {@link #pssMapper}. This list is only filled in
+     * {@link DetectionMode#PARALLEL} and for the incremental detection as the single-mapping detection starts after the
+     * entire mapping is received.
      */
     private @NonNull List<MappingElement> mappingElements;
     
     /**
-     * The list of detected {@link Divergence}s between problem and solution space artifacts.
+     * The {@link MultiMappingDivergenceDetector} retaining and indexing the {@link MappingElement}s received from the
+     * {@link #pssMapper}. In {@link DetectionMode#STREAMING} and {@link DetectionMode#PIPELINED}, this detector only
+     * receives those elements, which are relevant for detecting multi-mapping divergences (see
+     * {@link #isRelevantForMultiMappingDetection(MappingElement)}).
+     */
+    private @NonNull MultiMappingDivergenceDetector multiMappingDetector;
+    
+    /**
+     * The {@link DeadArtifactDivergenceDetector} indexing the artifacts of the received {@link MappingElement}s, if a
+     * {@link #vmComponent} is given; <code>null</code> otherwise. It receives the same elements as the
+     * {@link #multiMappingDetector}.
+     */
+    private @Nullable DeadArtifactDivergenceDetector deadArtifactDetector;
+    
+    /**
+     * The number of {@link MappingElement}s received from the {@link #pssMapper}.
+     */
+    private int receivedMappingElementsCount;
+    
+    /**
+     * The list of detected {@link Divergence}s between problem and solution space artifacts. This list remains
+     * <i>empty</i> in {@link DetectionMode#STREAMING} as the divergences are passed to the next analysis component
+     * immediately. It also remains <i>empty</i> during detection, if only the most severe divergences are passed on
+     * (see {@link #topKSelector}).
      */
     private @NonNull List<Divergence> divergences;
+    
+    /**
+     * The number of detected {@link Divergence}s independent of the {@link #detectionMode}.
+     */
+    private int detectedDivergencesCount;
 
     /**
      * Creates a {@link ProblemSolutionSpaceDivergenceDetector} instance.
      * 
      * @param config the global {@link Configuration} 
      * @param pssMapper the {@link AnalysisComponent} providing the {@link MappingElement}s
+     * @throws SetUpException if registering the settings of this detector fails
      */
     public ProblemSolutionSpaceDivergenceDetector(@NonNull Configuration config,
-            @NonNull AnalysisComponent<MappingElement> pssMapper) {
+            @NonNull AnalysisComponent<MappingElement> pssMapper) throws SetUpException {
+        this(config, pssMapper, null, null);
+    }
+
+    /**
+     * Creates a {@link ProblemSolutionSpaceDivergenceDetector} instance, which additionally detects code elements
+     * never or always present under the constraints of the given {@link VariabilityModel} (see
+     * {@link DeadArtifactDivergenceDetector}).
+     * 
+     * @param config the global {@link Configuration} 
+     * @param pssMapper the {@link AnalysisComponent} providing the {@link MappingElement}s
+     * @param vmComponent the {@link AnalysisComponent} providing the {@link VariabilityModel}
+     * @throws SetUpException if registering the settings of this detector fails
+     */
+    public ProblemSolutionSpaceDivergenceDetector(@NonNull Configuration config,
+            @NonNull AnalysisComponent<MappingElement> pssMapper,
+            @NonNull AnalysisComponent<VariabilityModel> vmComponent) throws SetUpException {
+        this(config, pssMapper, vmComponent, null);
+    }
+
+    /**
+     * Creates a {@link ProblemSolutionSpaceDivergenceDetector} instance, which additionally detects source files and
+     * code elements never or always present under the constraints of the given {@link VariabilityModel} (see
+     * {@link DeadArtifactDivergenceDetector}). The presence conditions of the source files are defined by the given
+     * {@link BuildModel}.
+     * 
+     * @param config the global {@link Configuration} 
+     * @param pssMapper the {@link AnalysisComponent} providing the {@link MappingElement}s
+     * @param vmComponent the {@link AnalysisComponent} providing the {@link VariabilityModel}; may be
+     *        <code>null</code> to skip detecting dead and undead artifacts
+     * @param bmComponent the {@link AnalysisComponent} providing the {@link BuildModel}; may be <code>null</code> to
+     *        check code elements only
+     * @throws SetUpException if registering the settings of this detector fails
+     */
+    public ProblemSolutionSpaceDivergenceDetector(@NonNull Configuration config,
+            @NonNull AnalysisComponent<MappingElement> pssMapper,
+            @Nullable AnalysisComponent<VariabilityModel> vmComponent,
+            @Nullable AnalysisComponent<BuildModel> bmComponent) throws SetUpException {
         super(config);
         this.pssMapper = pssMapper;
+        this.vmComponent = vmComponent;
+        this.bmComponent = bmComponent;
+        config.registerSetting(DETECTION_MODE_SETTING);
+        detectionMode = config.getValue(DETECTION_MODE_SETTING);
+        config.registerSetting(THREADS_SETTING);
+        threads = config.getValue(THREADS_SETTING);
+        if (threads < 1) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        config.registerSetting(PIPELINE_BATCH_SIZE_SETTING);
+        pipelineBatchSize = Math.max(1, config.getValue(PIPELINE_BATCH_SIZE_SETTING));
+        config.registerSetting(PIPELINE_QUEUE_CAPACITY_SETTING);
+        pipelineQueueCapacity = Math.max(1, config.getValue(PIPELINE_QUEUE_CAPACITY_SETTING));
+        config.registerSetting(INCREMENTAL_SETTING);
+        if (config.getValue(INCREMENTAL_SETTING)) {
+            String arch = config.getValue(DefaultSettings.ARCH);
+            String cacheFileName = "pss_divergence_detector" + (arch != null ? "_" + arch : "") + ".cache";
+            incrementalCacheFile = new File(config.getValue(DefaultSettings.CACHE_DIR), cacheFileName);
+            if (detectionMode != DetectionMode.BUFFERED) {
+                LOGGER.logWarning2("Incremental detection ignores detection mode ", detectionMode, " - using ",
+                        DetectionMode.BUFFERED);
+                detectionMode = DetectionMode.BUFFERED;
+            }
+        }
+        outputDir = config.getValue(DefaultSettings.OUTPUT_DIR);
+        elementPool = new InvolvedElementPool();
+        config.registerSetting(METRICS_SETTING);
+        writeMetrics = config.getValue(METRICS_SETTING);
+        metrics = new DetectorMetrics();
+        config.registerSetting(PROGRESS_INTERVAL_SETTING);
+        progressInterval = config.getValue(PROGRESS_INTERVAL_SETTING);
+        config.registerSetting(BINARY_OUTPUT_SETTING);
+        writeBinary = config.getValue(BINARY_OUTPUT_SETTING);
+        config.registerSetting(CSV_OUTPUT_SETTING);
+        writeCsv = config.getValue(CSV_OUTPUT_SETTING);
+        config.registerSetting(TOP_K_SETTING);
+        config.registerSetting(TOP_K_SCORE_SETTING);
+        int topK = config.getValue(TOP_K_SETTING);
+        if (topK > 0) {
+            topKSelector = new TopKDivergenceSelector(topK, createScore(config.getValue(TOP_K_SCORE_SETTING)));
+        }
+        config.registerSetting(MERGE_NESTED_BLOCKS_SETTING);
+        mergeNestedBlocks = config.getValue(MERGE_NESTED_BLOCKS_SETTING);
+        if (mergeNestedBlocks && detectionMode == DetectionMode.STREAMING) {
+            LOGGER.logWarning2("Merging nested blocks is not supported in ", detectionMode, " mode - divergences are "
+                    + "passed on unmerged");
+            mergeNestedBlocks = false;
+        }
+        config.registerSetting(DIRECTORY_DEPTH_SETTING);
+        int directoryDepth = config.getValue(DIRECTORY_DEPTH_SETTING);
+        if (directoryDepth > 0) {
+            directoryAggregator = new DirectoryDivergenceAggregator(directoryDepth);
+        }
+        config.registerSetting(PUBLISHER_BUFFER_CAPACITY_SETTING);
+        publisher = new DivergencePublisher(config.getValue(PUBLISHER_BUFFER_CAPACITY_SETTING));
+        config.registerSetting(RULES_SETTING);
+        List<IDivergenceRule> rules = createRules(config.getValue(RULES_SETTING));
+        singleMappingDetector = new SingleMappingDivergenceDetector(rules);
+        mappingElementFilter = createMappingElementFilter(config, singleMappingDetector);
+        setUpSharding(config);
+        config.registerSetting(SNAPSHOT_RECORD_SETTING);
+        if (config.getValue(SNAPSHOT_RECORD_SETTING)) {
+            if (pssMapper instanceof MappingSnapshotReplay) {
+                LOGGER.logWarning2("Mapping is replayed from a snapshot - not recording it again");
+            } else if (pssMapper != null) {
+                this.pssMapper = new MappingSnapshotRecorder(config, pssMapper,
+                        MappingSnapshotReplay.getSnapshotFile(config));
+            }
+        }
+        config.registerSetting(SPILL_MAPPING_LISTS_SETTING);
+        if (config.getValue(SPILL_MAPPING_LISTS_SETTING)) {
+            try {
+                multiMappingDetector = new MultiMappingDivergenceDetector(
+                        new SpillingMappingElementStore(config.getValue(DefaultSettings.CACHE_DIR)), elementPool);
+            } catch (IOException e) {
+                throw new SetUpException("Cannot create file for spilling mapping elements", e);
+            }
+        } else {
+            multiMappingDetector = new MultiMappingDivergenceDetector(elementPool);
+        }
+        if (vmComponent != null) {
+            deadArtifactDetector = new DeadArtifactDivergenceDetector(elementPool);
+        }
+        configurationHash = getConfigurationHash(config, rules);
         mappingElements = new ArrayList<MappingElement>();
         divergences = new ArrayList<Divergence>();
     }
 
-    @Override
-    protected void execute() {
-        if (pssMapper != null) {
-            MappingElement receivedMappingElement;
-            while ((receivedMappingElement = pssMapper.getNextResult()) != null) {
-                LOGGER.logDebug2("Received mapping element: " + receivedMappingElement);
-                mappingElements.add(receivedMappingElement);
-                // Detect single-mapping-divergences, e.g., unused of undefined variables, immediately
-                detectSingleMappingDivergences(receivedMappingElement);
-            }
-            LOGGER.logInfo2("Mapping with " + mappingElements.size() + " elements received");
-            if (!mappingElements.isEmpty()) {
-                detectMultiMappingDivergences();
+    /**
+     * Sets up the role of this process in a sharded detection as defined by the <code>SHARD_*</code> settings. A shard
+     * only accepts the elements of its partition of the mapping and publishes its divergences, while the merge process
+     * prepares the {@link #shardMerger}. The incremental detection is not supported in a sharded detection.
+     * 
+     * @param config the global {@link Configuration}
+     * @throws SetUpException if registering the settings fails or if the shard index is invalid
+     */
+    private void setUpSharding(@NonNull Configuration config) throws SetUpException {
+        config.registerSetting(SHARD_COUNT_SETTING);
+        config.registerSetting(SHARD_INDEX_SETTING);
+        config.registerSetting(SHARD_EXCHANGE_DIR_SETTING);
+        config.registerSetting(SHARD_TIMEOUT_SETTING);
+        config.registerSetting(SHARD_RUN_ID_SETTING);
+        config.registerSetting(SHARD_MERGE_MULTI_MAPPING_SETTING);
+        shardCount = config.getValue(SHARD_COUNT_SETTING);
+        detectMultiMapping = true;
+        if (shardCount > 1) {
+            int shard = config.getValue(SHARD_INDEX_SETTING);
+            if (shard >= shardCount || shard < -1) {
+                throw new SetUpException("Invalid shard index " + shard + " for " + shardCount + " shards");
+            }
+            File exchangeDir = config.getValue(SHARD_EXCHANGE_DIR_SETTING);
+            if (exchangeDir == null) {
+                exchangeDir = config.getValue(DefaultSettings.CACHE_DIR);
+            }
+            boolean mergeMultiMapping = config.getValue(SHARD_MERGE_MULTI_MAPPING_SETTING);
+            String runId = config.getValue(SHARD_RUN_ID_SETTING);
+            shardRunToken = ShardedDivergenceMerger.getRunToken(runId);
+            if (runId == null || runId.isEmpty()) {
+                LOGGER.logWarning2("No shard run identifier defined - shard files of previous runs in ", exchangeDir,
+                        " cannot be distinguished from the current run");
+            }
+            if (shard < 0) {
+                shardMerger = new ShardedDivergenceMerger(exchangeDir, shardCount,
+                        config.getValue(SHARD_TIMEOUT_SETTING), shardRunToken, elementPool);
+                detectMultiMapping = mergeMultiMapping;
+                LOGGER.logInfo2("Merging divergences of ", shardCount, " shards");
             } else {
-                LOGGER.logWarning2("Mapping is empty - no divergence detection possible");
+                mappingElementFilter.setShard(shard, shardCount);
+                shardFile = ShardedDivergenceMerger.getShardFile(exchangeDir, shard, shardCount);
+                detectMultiMapping = !mergeMultiMapping;
+                LOGGER.logInfo2("Detecting divergences of shard ", shard, " of ", shardCount);
             }
+            if (incrementalCacheFile != null) {
+                LOGGER.logWarning2("Sharded detection does not support incremental detection - using ",
+                        detectionMode);
+                incrementalCacheFile = null;
+            }
+        }
+    }
+
+    /**
+     * Creates the {@link IDivergenceRule}s for detecting single-mapping divergences. These are the rules with the given
+     * class names (or the built-in rules, if no class names are given) followed by the rules provided as a service.
+     * 
+     * @param ruleClassNames the fully qualified class names of the rules as defined by the {@link #RULES_SETTING}; may
+     *        be <code>null</code> or <i>empty</i> to use the built-in rules
+     * @return the list of {@link IDivergenceRule}s
+     * @throws SetUpException if a rule class cannot be found or instantiated
+     */
+    static @NonNull List<IDivergenceRule> createRules(@Nullable List<String> ruleClassNames) throws SetUpException {
+        List<IDivergenceRule> rules = new ArrayList<>();
+        if (ruleClassNames == null || ruleClassNames.isEmpty()) {
+            rules.addAll(SingleMappingDivergenceDetector.getBuiltInRules());
         } else {
-            LOGGER.logWarning2("No mapping creator specified - no divergence detection possible");
+            for (String ruleClassName : ruleClassNames) {
+                try {
+                    Class<?> ruleClass = Class.forName(ruleClassName);
+                    rules.add(ruleClass.asSubclass(IDivergenceRule.class).newInstance());
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new SetUpException("Cannot create divergence rule \"" + ruleClassName + "\"", e);
+                }
+            }
+        }
+        for (IDivergenceRule serviceRule : ServiceLoader.load(IDivergenceRule.class,
+                ProblemSolutionSpaceDivergenceDetector.class.getClassLoader())) {
+            boolean alreadyDefined = false;
+            for (IDivergenceRule rule : rules) {
+                alreadyDefined |= rule.getClass() == serviceRule.getClass();
+            }
+            if (!alreadyDefined) {
+                rules.add(serviceRule);
+            }
+        }
+        for (IDivergenceRule rule : rules) {
+            LOGGER.logDebug2("Using divergence rule ", rule.getClass().getName());
+        }
+        return rules;
+    }
+
+    /**
+     * Calculates the hash of the detector configuration, which determines the divergences detected for a given
+     * mapping: the classes of the given rules, the values of the <code>FILTER_*</code> settings, and whether
+     * multi-mapping and dead artifact divergences are detected. The incremental detection discards the results of a
+     * previous run with a different configuration hash. Hence, this method must be called after all of these are set
+     * up.
+     * 
+     * @param config the global {@link Configuration} with registered <code>FILTER_*</code> settings
+     * @param rules the {@link IDivergenceRule}s for detecting single-mapping divergences
+     * @return the hash of the detector configuration
+     */
+    private long getConfigurationHash(@NonNull Configuration config, @NonNull List<IDivergenceRule> rules) {
+        List<String> configurationValues = new ArrayList<>();
+        for (IDivergenceRule rule : rules) {
+            configurationValues.add(rule.getClass().getName());
+        }
+        configurationValues.add(String.valueOf(config.getValue(FILTER_VARIABLE_REGEX_SETTING)));
+        configurationValues.add(String.valueOf(config.getValue(FILTER_VARIABLE_STATES_SETTING)));
+        configurationValues.add(String.valueOf(config.getValue(FILTER_PATH_INCLUDE_SETTING)));
+        configurationValues.add(String.valueOf(config.getValue(FILTER_PATH_EXCLUDE_SETTING)));
+        configurationValues.add(String.valueOf(detectMultiMapping));
+        configurationValues.add(String.valueOf(deadArtifactDetector != null));
+        long hash = 0;
+        for (String configurationValue : configurationValues) {
+            hash = 31 * hash + StableHash.mix(configurationValue.hashCode());
+        }
+        return hash;
+    }
+
+    /**
+     * Creates the {@link MappingElementFilter} as defined by the <code>FILTER_*</code> settings.
+     * 
+     * @param config the global {@link Configuration}
+     * @param singleMappingDetector the {@link SingleMappingDivergenceDetector} used for detecting single-mapping
+     *        divergences
+     * @return the {@link MappingElementFilter}
+     * @throws SetUpException if registering the settings fails, if one of the regular expressions is invalid, or if
+     *         one of the variable states is unknown
+     */
+    private static @NonNull MappingElementFilter createMappingElementFilter(@NonNull Configuration config,
+            @NonNull SingleMappingDivergenceDetector singleMappingDetector) throws SetUpException {
+        config.registerSetting(FILTER_VARIABLE_REGEX_SETTING);
+        config.registerSetting(FILTER_VARIABLE_STATES_SETTING);
+        config.registerSetting(FILTER_PATH_INCLUDE_SETTING);
+        config.registerSetting(FILTER_PATH_EXCLUDE_SETTING);
+        String variableRegex = config.getValue(FILTER_VARIABLE_REGEX_SETTING);
+        Pattern variableNamePattern = null;
+        if (variableRegex != null && !variableRegex.isEmpty()) {
+            variableNamePattern = compilePattern(variableRegex);
+        }
+        return new MappingElementFilter(singleMappingDetector, variableNamePattern,
+                parseVariableStates(config.getValue(FILTER_VARIABLE_STATES_SETTING)),
+                compilePatterns(config.getValue(FILTER_PATH_INCLUDE_SETTING)),
+                compilePatterns(config.getValue(FILTER_PATH_EXCLUDE_SETTING)));
+    }
+    
+    /**
+     * Parses the given names of variable states (case-insensitive).
+     * 
+     * @param stateNames the names of the variable states to parse; may be <code>null</code>
+     * @return the list of parsed {@link VariableState}s; <i>empty</i>, if the given list is <code>null</code>
+     * @throws SetUpException if one of the names denotes no {@link VariableState}
+     */
+    private static @NonNull List<VariableState> parseVariableStates(@Nullable List<String> stateNames)
+            throws SetUpException {
+        List<VariableState> variableStates = new ArrayList<>();
+        if (stateNames != null) {
+            for (String stateName : stateNames) {
+                try {
+                    variableStates.add(VariableState.valueOf(stateName.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    throw new SetUpException("Unknown variable state \"" + stateName + "\" in mapping element "
+                            + "filter; supported states: " + Arrays.toString(VariableState.values()), e);
+                }
+            }
+        }
+        return variableStates;
+    }
+    
+    /**
+     * Compiles each of the given regular expressions.
+     * 
+     * @param regexes the regular expressions to compile; may be <code>null</code>
+     * @return the list of compiled {@link Pattern}s; <i>empty</i>, if the given list is <code>null</code>
+     * @throws SetUpException if one of the regular expressions is invalid
+     */
+    private static @NonNull List<Pattern> compilePatterns(@Nullable List<String> regexes) throws SetUpException {
+        List<Pattern> patterns = new ArrayList<>();
+        if (regexes != null) {
+            for (String regex : regexes) {
+                patterns.add(compilePattern(regex.trim()));
+            }
+        }
+        return patterns;
+    }
+    
+    /**
+     * Compiles the given regular expression.
+     * 
+     * @param regex the regular expression to compile
+     * @return the compiled {@link Pattern}
+     * @throws SetUpException if the regular expression is invalid
+     */
+    private static @NonNull Pattern compilePattern(@NonNull String regex) throws SetUpException {
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new SetUpException("Invalid regular expression \"" + regex + "\" in mapping element filter", e);
+        }
+    }
+    
+    /**
+     * Creates the {@link IDivergenceScore} with the given name.
+     * 
+     * @param scoreName the name of a built-in {@link DivergenceScore} (case-insensitive) or the fully qualified class
+     *        name of an {@link IDivergenceScore} as defined by the {@link #TOP_K_SCORE_SETTING}
+     * @return the {@link IDivergenceScore} with the given name
+     * @throws SetUpException if the name denotes neither a built-in score nor a class, which can be instantiated
+     */
+    static @NonNull IDivergenceScore createScore(@NonNull String scoreName) throws SetUpException {
+        IDivergenceScore score = null;
+        for (DivergenceScore builtInScore : DivergenceScore.values()) {
+            if (builtInScore.name().equalsIgnoreCase(scoreName.trim())) {
+                score = builtInScore;
+            }
+        }
+        if (score == null) {
+            try {
+                Class<?> scoreClass = Class.forName(scoreName.trim());
+                score = scoreClass.asSubclass(IDivergenceScore.class).newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new SetUpException("Cannot create divergence score \"" + scoreName + "\"", e);
+            }
         }
+        return score;
+    }
+
+    @Override
+    protected void execute() {
+        metrics.start();
+        Throwable error = null;
+        File currentShardFile = shardFile;
+        try {
+            if (writeBinary) {
+                openBinaryWriter();
+            }
+            if (writeCsv) {
+                openCsvWriter();
+            }
+            if (currentShardFile != null) {
+                openShardWriter(currentShardFile);
+            }
+            ShardedDivergenceMerger merger = shardMerger;
+            if (pssMapper != null) {
+                // The merge process neither detects single-mapping divergences nor requires additional threads
+                if (detectionMode == DetectionMode.PIPELINED && merger == null) {
+                    receiveMappingPipelined();
+                } else {
+                    receiveMapping();
+                }
+                metrics.addReceivedElements(receivedMappingElementsCount);
+                metrics.addFilteredElements(mappingElementFilter.getRejectedElementsCount());
+                // Both collections retain (subsets of) the same elements, while all other elements are already released
+                metrics.updateRetainedElements(Math.max(multiMappingDetector.size(), mappingElements.size()));
+                LOGGER.logInfo2("Mapping with ", receivedMappingElementsCount, " elements received");
+                if (merger != null) {
+                    mergeShards(merger);
+                } else if (receivedMappingElementsCount > 0) {
+                    if (incrementalCacheFile != null) {
+                        detectDivergencesIncrementally(incrementalCacheFile);
+                    } else if (detectionMode == DetectionMode.PARALLEL) {
+                        detectDivergencesInParallel();
+                    } else {
+                        detectMultiMappingDivergences();
+                    }
+                    detectDeadArtifactDivergences(divergenceReporter);
+                } else {
+                    LOGGER.logWarning2("Mapping is empty - no divergence detection possible");
+                }
+            } else {
+                LOGGER.logWarning2("No mapping creator specified - no divergence detection possible");
+            }
         
-        /*
-         * As divergences may be detected by checking mapping elements both in isolate and in combination, we can add
-         * the final results only after all mapping elements are processed.
-         */
-        for (Divergence divergence : divergences) {
+            /*
+             * As divergences may be detected by checking mapping elements both in isolate and in combination, we can
+             * add the final results only after all mapping elements are processed. In streaming mode, the divergences
+             * are already added by reportDivergence().
+             */
+            TopKDivergenceSelector selector = topKSelector;
+            if (selector != null) {
+                divergences = selector.drain();
+                LOGGER.logInfo2("Passing on the ", divergences.size(), " most severe of ",
+                        selector.getOfferedDivergencesCount(), " divergences");
+            }
+            if (mergeNestedBlocks) {
+                NestedBlockMerger blockMerger = new NestedBlockMerger();
+                divergences = blockMerger.merge(divergences);
+                LOGGER.logInfo2(blockMerger.getMergedDivergencesCount(), " divergences with nested or adjacent code "
+                        + "elements merged (", blockMerger.getMergedCodeElementsCount(), " code elements merged into "
+                        + "the line ranges of others) - passing on ", divergences.size(), " divergences");
+            }
+            for (Divergence divergence : divergences) {
+                addResult(divergence);
+            }
+            LOGGER.logInfo2(detectedDivergencesCount, " divergences detected");
+            metrics.stop();
+            LOGGER.logInfo2(metrics);
+            if (writeMetrics) {
+                writeResultTable("PSS_Divergence_Metrics", DetectorMetrics.HEADER, metrics.getRows());
+            }
+            DirectoryDivergenceAggregator aggregator = directoryAggregator;
+            if (aggregator != null) {
+                LOGGER.logInfo2(aggregator.getDivergencesCount(), " divergences aggregated by directories with ",
+                        aggregator.getSegmentsCount(), " distinct path segments");
+                writeResultTable("PSS_Divergence_Directories", DirectoryDivergenceAggregator.HEADER,
+                        aggregator.getRows());
+            }
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            // Completes the header of the binary file and releases its handle, also if the detection failed
+            closeBinaryWriter();
+            closeCsvWriter();
+            // An incomplete shard must not be published, as the merge process cannot detect missing divergences
+            if (currentShardFile != null) {
+                closeShardWriter(currentShardFile, error == null);
+            }
+            // Releases the indexes and deletes the file of a spilling store, also if the detection failed
+            multiMappingDetector.close();
+            elementPool.clear();
+            // Subscribers must always be terminated, as they cannot distinguish a failed detection from a slow one
+            if (error != null) {
+                publisher.closeExceptionally(error);
+            } else {
+                publisher.close();
+            }
+            long publisherWaitMillis = TimeUnit.NANOSECONDS.toMillis(publisher.getSubmitWaitTime());
+            if (publisherWaitMillis > 0) {
+                LOGGER.logInfo2("Detection waited ", publisherWaitMillis, " ms for slow subscribers of the divergence "
+                        + "publisher");
+            }
+        }
+    }
+    
+    /**
+     * Receives all {@link MappingElement}s from the {@link #pssMapper} in the thread of this component. Depending on
+     * the {@link #detectionMode}, the single-mapping divergences of each element are detected immediately or after the
+     * entire mapping is received.
+     */
+    private void receiveMapping() {
+        // Avoid building the (expensive) string representation of each element, if it is not logged anyway
+        boolean logElements = LOGGER.getLevel().shouldLog(Level.DEBUG);
+        ProgressLogger progress = new ProgressLogger("mapping elements received", progressInterval);
+        ShardedDivergenceMerger merger = shardMerger;
+        MappingElement receivedMappingElement;
+        long waitStart = System.nanoTime();
+        while ((receivedMappingElement = pssMapper.getNextResult()) != null) {
+            metrics.addMapperWaitTime(System.nanoTime() - waitStart);
+            receivedMappingElementsCount++;
+            progress.increment();
+            // Irrelevant elements are released immediately without any further processing
+            if (mappingElementFilter.test(receivedMappingElement)) {
+                if (logElements) {
+                    LOGGER.logDebug2("Received mapping element: ", receivedMappingElement);
+                }
+                if (detectMultiMapping) {
+                    indexForDeadArtifactDetection(receivedMappingElement);
+                }
+                if (merger != null) {
+                    merger.index(receivedMappingElement);
+                    if (detectMultiMapping && isRelevantForMultiMappingDetection(receivedMappingElement)) {
+                        multiMappingDetector.add(receivedMappingElement);
+                    }
+                } else if (incrementalCacheFile != null) {
+                    // The incremental detection decides which elements to investigate after the mapping is received
+                    mappingElements.add(receivedMappingElement);
+                } else {
+                    if (detectMultiMapping && (detectionMode != DetectionMode.STREAMING
+                            || isRelevantForMultiMappingDetection(receivedMappingElement))) {
+                        multiMappingDetector.add(receivedMappingElement);
+                    }
+                    if (detectionMode == DetectionMode.PARALLEL) {
+                        mappingElements.add(receivedMappingElement);
+                    } else {
+                        // Detect single-mapping-divergences, e.g., unused of undefined variables, immediately
+                        detectSingleMappingDivergences(receivedMappingElement);
+                    }
+                }
+            }
+            waitStart = System.nanoTime();
+        }
+        metrics.addMapperWaitTime(System.nanoTime() - waitStart);
+        progress.finish();
+    }
+    
+    /**
+     * Receives all {@link MappingElement}s from the {@link #pssMapper} and detects their single-mapping divergences
+     * using a {@link PipelinedDivergenceDetector}.
+     */
+    private void receiveMappingPipelined() {
+        PipelinedDivergenceDetector pipelinedDetector = new PipelinedDivergenceDetector(singleMappingDetector, threads,
+                pipelineBatchSize, pipelineQueueCapacity, progressInterval);
+        pipelinedDetector.detect(pssMapper, mappingElementFilter,
+                element -> detectMultiMapping && isRelevantForMultiMappingDetection(element),
+                element -> {
+                    multiMappingDetector.add(element);
+                    indexForDeadArtifactDetection(element);
+                }, divergenceReporter);
+        receivedMappingElementsCount = pipelinedDetector.getReceivedElementsCount();
+        metrics.addMapperWaitTime(pipelinedDetector.getMapperWaitTime());
+        metrics.addSingleMappingTime(pipelinedDetector.getDetectionTime());
+    }
+    
+    /**
+     * Passes the given {@link MappingElement} to the {@link #deadArtifactDetector}, if dead and undead artifacts are
+     * detected.
+     * 
+     * @param mappingElement the {@link MappingElement} to index
+     */
+    private void indexForDeadArtifactDetection(@NonNull MappingElement mappingElement) {
+        DeadArtifactDivergenceDetector detector = deadArtifactDetector;
+        if (detector != null) {
+            detector.add(mappingElement);
+        }
+    }
+    
+    /**
+     * Checks whether the given {@link MappingElement} may contribute to a multi-mapping divergence. This is only the
+     * case, if the element maps its variable to at least one {@link net.ssehub.kernel_haven.code_model.SourceFile} or
+     * {@link net.ssehub.kernel_haven.code_model.CodeElement}, as elements without such artifacts cannot be related to
+     * other elements.
+     * 
+     * @param mappingElement the {@link MappingElement} to check
+     * @return <code>true</code>, if the given element must be kept for multi-mapping divergence detection;
+     *         <code>false</code> otherwise
+     */
+    static boolean isRelevantForMultiMappingDetection(@NonNull MappingElement mappingElement) {
+        return !mappingElement.getBuildMapping().isEmpty() || !mappingElement.getCodeMapping().isEmpty();
+    }
+    
+    /**
+     * Reports the given {@link Divergence} as detected. Depending on the {@link #detectionMode}, the divergence is
+     * either passed to the next analysis component immediately or buffered until all mapping elements are processed.
+     * If only the most severe divergences are passed on, the divergence is offered to the {@link #topKSelector}
+     * instead.
+     * 
+     * @param divergence the detected {@link Divergence}
+     */
+    private void reportDivergence(@NonNull Divergence divergence) {
+        detectedDivergencesCount++;
+        metrics.divergenceDetected(divergence);
+        BinaryDivergenceWriter writer = binaryWriter;
+        if (writer != null) {
+            try {
+                writer.write(divergence);
+            } catch (IOException e) {
+                LOGGER.logException("Cannot write divergence in binary format - binary output disabled", e);
+                binaryWriter = null;
+            }
+        }
+        DivergenceCsvWriter currentCsvWriter = csvWriter;
+        if (currentCsvWriter != null) {
+            try {
+                currentCsvWriter.write(divergence);
+            } catch (IOException e) {
+                LOGGER.logException("Cannot write divergence to CSV table - CSV output disabled", e);
+                csvWriter = null;
+            }
+        }
+        writer = shardWriter;
+        if (writer != null) {
+            try {
+                writer.write(divergence);
+            } catch (IOException e) {
+                LOGGER.logException("Cannot write divergence of shard - shard not published", e);
+                shardWriter = null;
+            }
+        }
+        DirectoryDivergenceAggregator aggregator = directoryAggregator;
+        if (aggregator != null) {
+            aggregator.add(divergence);
+        }
+        publisher.submit(divergence);
+        TopKDivergenceSelector selector = topKSelector;
+        if (selector != null) {
+            selector.offer(divergence);
+        } else if (detectionMode == DetectionMode.STREAMING) {
             addResult(divergence);
+        } else {
+            divergences.add(divergence);
         }
-        LOGGER.logInfo2(divergences.size() + " divergences detected");
     }
     
     /**
@@ -99,24 +1223,275 @@ public class ProblemSolutionSpaceDivergenceDetector extends AnalysisComponent<Di
      * @param mappingElement the {@link MappingElement} to be investigated for divergences
      */
     private void detectSingleMappingDivergences(@NonNull MappingElement mappingElement) {
-        switch(mappingElement.getVariableState()) {
-        case UNUSED:
-            divergences.add(new UnusedVariableDivergence(mappingElement));
-            break;
-        case UNDEFINED:
-            divergences.add(new UndefinedVariableDivergence(mappingElement));
-            break;
-        default:
-            // Do nothing
-            break;
-        }
+        long detectionStart = System.nanoTime();
+        singleMappingDetector.detect(mappingElement, divergenceReporter);
+        metrics.addSingleMappingTime(System.nanoTime() - detectionStart);
     }
     
     /**
      * Detects {@link Divergence}s based on multiple {@link MappingElement}s.
      */
     private void detectMultiMappingDivergences() {
-        // TODO implement multi-mapping divergence detection
+        long detectionStart = System.nanoTime();
+        multiMappingDetector.detect(divergenceReporter);
+        metrics.addMultiMappingTime(System.nanoTime() - detectionStart);
+    }
+    
+    /**
+     * Detects {@link net.ssehub.kernel_haven.pss_divergence_detector.divergences.DeadArtifactDivergence}s and
+     * {@link net.ssehub.kernel_haven.pss_divergence_detector.divergences.UndeadArtifactDivergence}s using the
+     * {@link #deadArtifactDetector}, if a {@link #vmComponent} is given. The detector is released afterwards. Failing
+     * to convert the {@link VariabilityModel} is logged; these divergences are then missing.
+     * 
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}s
+     */
+    private void detectDeadArtifactDivergences(@NonNull Consumer<Divergence> divergenceConsumer) {
+        DeadArtifactDivergenceDetector detector = deadArtifactDetector;
+        AnalysisComponent<VariabilityModel> currentVmComponent = vmComponent;
+        if (detector != null && currentVmComponent != null && detectMultiMapping) {
+            VariabilityModel variabilityModel = currentVmComponent.getNextResult();
+            AnalysisComponent<BuildModel> currentBmComponent = bmComponent;
+            BuildModel buildModel = currentBmComponent != null ? currentBmComponent.getNextResult() : null;
+            if (variabilityModel == null) {
+                LOGGER.logWarning2("No variability model available - dead and undead artifacts not detected");
+            } else {
+                long detectionStart = System.nanoTime();
+                try {
+                    detector.detect(variabilityModel, buildModel, divergenceConsumer);
+                    LOGGER.logInfo2("Presence conditions of artifacts in ", detector.size(), " files checked: ",
+                            detector.getQueriesCount(), " satisfiability queries, ", detector.getSolverCallsCount(),
+                            " solver calls (", TimeUnit.NANOSECONDS.toMillis(detector.getSolverTime()), " ms)");
+                } catch (FormatException e) {
+                    LOGGER.logException("Cannot convert variability model - dead and undead artifacts not detected",
+                            e);
+                }
+                metrics.addMultiMappingTime(System.nanoTime() - detectionStart);
+            }
+            detector.close();
+        }
+    }
+    
+    /**
+     * Detects single-mapping and multi-mapping {@link Divergence}s based on all received {@link MappingElement}s
+     * using a {@link ParallelDivergenceDetector}. The received elements are released afterwards.
+     */
+    private void detectDivergencesInParallel() {
+        LOGGER.logInfo2("Detecting divergences using ", threads, " threads");
+        List<Divergence> detectedDivergences = new ParallelDivergenceDetector(singleMappingDetector,
+                multiMappingDetector, threads, metrics).detect(mappingElements);
+        mappingElements.clear();
+        for (Divergence divergence : detectedDivergences) {
+            reportDivergence(divergence);
+        }
+    }
+
+    /**
+     * Detects single-mapping and multi-mapping {@link Divergence}s based on all received {@link MappingElement}s
+     * using an {@link IncrementalDivergenceDetector}. The differences to the divergences of the previous run are
+     * written as a separate table to the {@link #outputDir}. The received elements are released afterwards.
+     * 
+     * @param cacheFile the file caching the results of the previous run
+     */
+    private void detectDivergencesIncrementally(@NonNull File cacheFile) {
+        IncrementalDivergenceDetector incrementalDetector = new IncrementalDivergenceDetector(cacheFile,
+                configurationHash, singleMappingDetector, multiMappingDetector, metrics, elementPool);
+        List<Divergence> detectedDivergences = incrementalDetector.detect(mappingElements);
+        LOGGER.logInfo2(incrementalDetector.getReevaluatedElementsCount(), " of ", mappingElements.size(),
+                " mapping elements new or changed since previous run");
+        mappingElements.clear();
+        for (Divergence divergence : detectedDivergences) {
+            reportDivergence(divergence);
+        }
+        writeResultTable("PSS_Divergence_Deltas", IncrementalDivergenceDetector.DELTA_HEADER,
+                incrementalDetector.getDeltaRows());
+    }
+    
+    /**
+     * Detects the multi-mapping {@link Divergence}s based on the entire mapping, if enabled, and merges them with the
+     * divergences of all shards using the given {@link ShardedDivergenceMerger}. Each distinct divergence is reported
+     * exactly once.
+     * 
+     * @param merger the {@link ShardedDivergenceMerger}, which indexed all received {@link MappingElement}s
+     */
+    private void mergeShards(@NonNull ShardedDivergenceMerger merger) {
+        List<Divergence> crossShardDivergences = new ArrayList<>();
+        long detectionStart = System.nanoTime();
+        multiMappingDetector.detect(crossShardDivergences::add);
+        metrics.addMultiMappingTime(System.nanoTime() - detectionStart);
+        detectDeadArtifactDivergences(crossShardDivergences::add);
+        merger.merge(crossShardDivergences, divergenceReporter);
+        LOGGER.logInfo2("Divergences of ", merger.getMergedShardsCount(), " of ", shardCount, " shards merged (",
+                merger.getDuplicatesCount(), " duplicates removed)");
+        if (merger.getDroppedCodeElementsCount() > 0) {
+            LOGGER.logWarning2(merger.getDroppedCodeElementsCount(), " code elements of merged divergences are not "
+                    + "part of the mapping of the merge process and were omitted");
+        }
+    }
+    
+    /**
+     * Opens the {@link #shardWriter} for the temporary file of the shard of this process. A file published by a
+     * previous run is deleted first, such that the merge process does not read outdated divergences. Failing to open
+     * the file is logged; the merge process then misses the divergences of this shard.
+     * 
+     * @param shardFile the file, in which this process publishes the divergences of its shard
+     */
+    private void openShardWriter(@NonNull File shardFile) {
+        if (shardFile.isFile() && !shardFile.delete()) {
+            LOGGER.logWarning2("Cannot delete outdated shard file ", shardFile);
+        }
+        File partialFile = ShardedDivergenceMerger.getPartialShardFile(shardFile);
+        try {
+            shardWriter = new BinaryDivergenceWriter(partialFile, shardRunToken);
+        } catch (IOException e) {
+            LOGGER.logException("Cannot open " + partialFile + " - shard not published", e);
+        }
+    }
+    
+    /**
+     * Closes the {@link #shardWriter} and publishes the divergences of the shard of this process for the merge
+     * process. If the detection or writing the shard failed, the temporary file of the shard is deleted instead, such
+     * that no incomplete shard remains in the exchange directory.
+     * 
+     * @param shardFile the file, in which this process publishes the divergences of its shard
+     * @param complete <code>true</code>, if the detection of the divergences of the shard completed successfully;
+     *        <code>false</code> otherwise
+     */
+    private void closeShardWriter(@NonNull File shardFile, boolean complete) {
+        boolean published = false;
+        BinaryDivergenceWriter writer = shardWriter;
+        if (writer != null) {
+            shardWriter = null;
+            try {
+                writer.close();
+                if (complete) {
+                    ShardedDivergenceMerger.publish(shardFile);
+                    published = true;
+                    LOGGER.logInfo2(writer.getDivergenceCount(), " divergences of shard published in ", shardFile);
+                }
+            } catch (IOException e) {
+                LOGGER.logException("Cannot publish shard file " + shardFile, e);
+            }
+        }
+        File partialFile = ShardedDivergenceMerger.getPartialShardFile(shardFile);
+        if (!published && partialFile.isFile() && !partialFile.delete()) {
+            LOGGER.logWarning2("Cannot delete incomplete shard file ", partialFile);
+        }
+    }
+    
+    /**
+     * Opens the {@link #binaryWriter} for a new file in the {@link #outputDir}. The name of the file consists of the
+     * {@link #getResultName()} and the current time. Failing to open the file only disables the binary output.
+     */
+    private void openBinaryWriter() {
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
+        File binaryFile = new File(outputDir, getResultName() + "_" + timestamp + ".psd");
+        try {
+            binaryWriter = new BinaryDivergenceWriter(binaryFile);
+        } catch (IOException e) {
+            LOGGER.logException("Cannot open " + binaryFile + " - binary output disabled", e);
+        }
+    }
+    
+    /**
+     * Closes the {@link #binaryWriter}, if the binary output is enabled, which completes the binary file.
+     */
+    private void closeBinaryWriter() {
+        BinaryDivergenceWriter writer = binaryWriter;
+        if (writer != null) {
+            binaryWriter = null;
+            try {
+                writer.close();
+                LOGGER.logInfo2(writer.getDivergenceCount(), " divergences written in binary format");
+            } catch (IOException e) {
+                LOGGER.logException("Cannot complete binary divergence file", e);
+            }
+        }
+    }
+    
+    /**
+     * Opens the {@link #csvWriter} for a new file in the {@link #outputDir}. The name of the file consists of the
+     * {@link #getResultName()} and the current time. Failing to open the file only disables the CSV output.
+     */
+    private void openCsvWriter() {
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
+        File csvFile = new File(outputDir, getResultName() + "_Stream_" + timestamp + ".csv");
+        try {
+            csvWriter = new DivergenceCsvWriter(csvFile);
+        } catch (IOException e) {
+            LOGGER.logException("Cannot open " + csvFile + " - CSV output disabled", e);
+        }
+    }
+    
+    /**
+     * Closes the {@link #csvWriter}, if the CSV output is enabled, which flushes the remaining rows.
+     */
+    private void closeCsvWriter() {
+        DivergenceCsvWriter writer = csvWriter;
+        if (writer != null) {
+            csvWriter = null;
+            try {
+                writer.close();
+                LOGGER.logInfo2(writer.getDivergenceCount(), " divergences written to CSV table");
+            } catch (IOException e) {
+                LOGGER.logException("Cannot complete CSV divergence table", e);
+            }
+        }
+    }
+    
+    /**
+     * Writes the given rows as a separate CSV table to the {@link #outputDir}. The name of the written file consists
+     * of the given table name and the current time. Failing to write the table does not affect the results of this
+     * component and, hence, is only logged.
+     * 
+     * @param tableName the name of the table
+     * @param header the header of the table
+     * @param rows the rows of the table
+     */
+    private void writeResultTable(@NonNull String tableName, @Nullable Object @NonNull [] header,
+            @NonNull List<@Nullable Object @NonNull []> rows) {
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
+        File tableFile = new File(outputDir, tableName + "_" + timestamp + ".csv");
+        try (ITableWriter writer = new CsvWriter(new FileOutputStream(tableFile))) {
+            writer.writeHeader(header);
+            for (Object[] row : rows) {
+                writer.writeRow(row);
+            }
+            LOGGER.logInfo2("Table ", tableName, " written to ", tableFile);
+        } catch (IOException e) {
+            LOGGER.logException("Cannot write table " + tableName + " to " + tableFile, e);
+        }
+    }
+
+    /**
+     * Returns the {@link DetectorMetrics} of this detector. The metrics are complete after this component finished
+     * its execution.
+     * 
+     * @return the {@link DetectorMetrics} of this detector; never <code>null</code>
+     */
+    public @NonNull DetectorMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the {@link DirectoryDivergenceAggregator} of this detector. The aggregation is complete after this
+     * component finished its execution.
+     * 
+     * @return the {@link DirectoryDivergenceAggregator} of this detector or <code>null</code>, if the aggregation is
+     *         disabled (see {@link #DIRECTORY_DEPTH_SETTING})
+     */
+    public @Nullable DirectoryDivergenceAggregator getDirectoryAggregator() {
+        return directoryAggregator;
+    }
+
+    /**
+     * Returns the {@link DivergencePublisher} of this detector, which publishes all detected divergences to in-process
+     * {@link IDivergenceSubscriber}s as soon as they are detected. Subscribers should subscribe before this component
+     * starts its execution to receive all divergences; the publisher is closed after the detection is complete.
+     * 
+     * @return the {@link DivergencePublisher} of this detector; never <code>null</code>
+     */
+    public @NonNull DivergencePublisher getPublisher() {
+        return publisher;
     }
 
     @Override
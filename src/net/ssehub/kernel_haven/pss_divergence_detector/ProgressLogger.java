@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.concurrent.TimeUnit;
+
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class summarizes the progress of receiving or processing a stream of items, like {@link MappingElement}s, in a
+ * periodic log line instead of logging each item. Each line contains the number of items counted so far as well as the
+ * rate since the previous line and since the start.<br><br>
+ * 
+ * Counting an item via {@link #increment()} neither allocates objects nor calls the {@link Logger}; the current time
+ * is only requested for every {@link #CHECK_INTERVAL}-th item. Hence, this class can be used on the hot path of the
+ * detection. An instance of this class must only be used by a single thread.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class ProgressLogger {
+
+    private static final @NonNull Logger LOGGER = Logger.get();
+
+    /**
+     * The number of items counted between two checks of the current time. Must be a power of two.
+     */
+    static final int CHECK_INTERVAL = 1024;
+
+    /**
+     * The description of the counted items in the log lines, like <i>"mapping elements received"</i>.
+     */
+    private @NonNull String description;
+
+    /**
+     * The minimum time in nanoseconds between two log lines or <code>0</code>, if no progress is logged.
+     */
+    private long intervalNanos;
+
+    /**
+     * The number of items counted so far.
+     */
+    private long count;
+
+    /**
+     * The time in nanoseconds of the first call of {@link #increment()}.
+     */
+    private long startTime;
+
+    /**
+     * The time in nanoseconds of the last log line or the start.
+     */
+    private long lastLogTime;
+
+    /**
+     * The number of items counted at the time of the last log line.
+     */
+    private long lastLogCount;
+
+    /**
+     * Creates a {@link ProgressLogger} instance.
+     * 
+     * @param description the description of the counted items in the log lines, like <i>"mapping elements
+     *        received"</i>
+     * @param intervalSeconds the minimum time in seconds between two log lines; <code>0</code> or less disables the
+     *        log lines, while the items are still counted
+     */
+    public ProgressLogger(@NonNull String description, int intervalSeconds) {
+        this.description = description;
+        intervalNanos = Math.max(0, TimeUnit.SECONDS.toNanos(intervalSeconds));
+    }
+
+    /**
+     * Counts a single item and logs the progress, if the interval since the last log line has elapsed.
+     */
+    public void increment() {
+        if (count == 0) {
+            startTime = System.nanoTime();
+            lastLogTime = startTime;
+        }
+        count++;
+        if (intervalNanos > 0 && (count & (CHECK_INTERVAL - 1)) == 0) {
+            long now = System.nanoTime();
+            if (now - lastLogTime >= intervalNanos) {
+                LOGGER.logInfo2("Progress: ", count, " ", description, " (", perSecond(count - lastLogCount,
+                        now - lastLogTime), " per second, ", perSecond(count, now - startTime), " per second overall)");
+                lastLogTime = now;
+                lastLogCount = count;
+            }
+        }
+    }
+
+    /**
+     * Logs the final number of counted items and the overall rate, if at least one progress line was logged before.
+     * Shorter runs are already summarized by the other log lines of the detector.
+     */
+    public void finish() {
+        if (lastLogCount > 0) {
+            long elapsed = System.nanoTime() - startTime;
+            LOGGER.logInfo2("Progress: ", count, " ", description, " in ", TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    " ms (", perSecond(count, elapsed), " per second)");
+        }
+    }
+
+    /**
+     * Returns the number of items counted so far.
+     * 
+     * @return the number of counted items
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Calculates the rate of the given number of items in the given time.
+     * 
+     * @param items the number of items
+     * @param nanos the time in nanoseconds
+     * @return the number of items per second
+     */
+    private static long perSecond(long items, long nanos) {
+        return nanos > 0 ? items * TimeUnit.SECONDS.toNanos(1) / nanos : items;
+    }
+
+}
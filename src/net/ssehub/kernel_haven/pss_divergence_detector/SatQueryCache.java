@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.ssehub.kernel_haven.cnf.Cnf;
+import net.ssehub.kernel_haven.cnf.ConverterException;
+import net.ssehub.kernel_haven.cnf.FormulaToCnfConverterFactory;
+import net.ssehub.kernel_haven.cnf.IFormulaToCnfConverter;
+import net.ssehub.kernel_haven.cnf.ISatSolver;
+import net.ssehub.kernel_haven.cnf.SatSolverFactory;
+import net.ssehub.kernel_haven.cnf.SolverException;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Disjunction;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class answers satisfiability queries for {@link Formula}s under a fixed set of constraints, e.g., the
+ * constraints of the variability model. A single {@link ISatSolver} holding these constraints is created once and
+ * reused for all queries, such that the (typically large) constraints are neither converted nor loaded again for each
+ * query. Further, the result of each query is cached by the normalized form of its formula (see
+ * {@link #normalize(Formula)}). As many presence conditions are identical or differ only in the order of their
+ * operands, most queries are answered without calling the solver.<br><br>
+ * 
+ * This class is not thread-safe.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class SatQueryCache {
+
+    /**
+     * The normalized form of {@link True}.
+     */
+    private static final @NonNull String TRUE_KEY = "1";
+
+    /**
+     * The normalized form of {@link False}.
+     */
+    private static final @NonNull String FALSE_KEY = "0";
+
+    /**
+     * The prefix of the normalized form of each {@link Variable}, which is followed by the name of the variable.
+     */
+    private static final @NonNull String VARIABLE_KEY_PREFIX = "v:";
+
+    /**
+     * The {@link ISatSolver} holding the constraints, which is reused for all queries.
+     */
+    private @NonNull ISatSolver solver;
+
+    /**
+     * The converter creating the {@link Cnf} of each queried formula.
+     */
+    private @NonNull IFormulaToCnfConverter converter;
+
+    /**
+     * The results of all queries passed to the {@link #solver} by the normalized forms of their formulas.
+     */
+    private @NonNull Map<String, Boolean> results;
+
+    /**
+     * The number of queries answered by this instance.
+     */
+    private long queriesCount;
+
+    /**
+     * The number of queries passed to the {@link #solver}.
+     */
+    private long solverCallsCount;
+
+    /**
+     * The time spent in the {@link #solver} in nanoseconds.
+     */
+    private long solverTime;
+
+    /**
+     * Creates a {@link SatQueryCache} instance for the given constraints.
+     * 
+     * @param constraints the {@link Cnf} of the constraints, under which all queried formulas are checked
+     */
+    public SatQueryCache(@NonNull Cnf constraints) {
+        solver = SatSolverFactory.getDefaultSolver(constraints);
+        converter = FormulaToCnfConverterFactory.create();
+        results = new HashMap<>();
+    }
+
+    /**
+     * Checks whether the given {@link Formula} is satisfiable under the constraints of this instance. The solver is
+     * only called, if no formula with the same normalized form was queried before.
+     * 
+     * @param formula the {@link Formula} to check
+     * @return <code>true</code>, if the formula and the constraints are satisfiable together; <code>false</code>
+     *         otherwise
+     * @throws ConverterException if converting the formula into a {@link Cnf} fails
+     * @throws SolverException if the solver fails
+     */
+    public boolean isSatisfiable(@NonNull Formula formula) throws ConverterException, SolverException {
+        queriesCount++;
+        String key = normalize(formula);
+        Boolean satisfiable;
+        if (key.equals(FALSE_KEY)) {
+            satisfiable = false;
+        } else {
+            satisfiable = results.get(key);
+            if (satisfiable == null) {
+                long solverStart = System.nanoTime();
+                satisfiable = solver.isSatisfiable(converter.convert(formula));
+                solverTime += System.nanoTime() - solverStart;
+                solverCallsCount++;
+                results.put(key, satisfiable);
+            }
+        }
+        return satisfiable;
+    }
+
+    /**
+     * Checks whether the given {@link Formula} is satisfied by each assignment satisfying the constraints of this
+     * instance. This is the case, if the negation of the formula is not satisfiable.
+     * 
+     * @param formula the {@link Formula} to check
+     * @return <code>true</code>, if the constraints imply the formula; <code>false</code> otherwise
+     * @throws ConverterException if converting the formula into a {@link Cnf} fails
+     * @throws SolverException if the solver fails
+     */
+    public boolean isImplied(@NonNull Formula formula) throws ConverterException, SolverException {
+        return !isSatisfiable(new Negation(formula));
+    }
+
+    /**
+     * Returns the normalized form of the given {@link Formula}, which serves as the key of the cached query results.
+     * Equivalent formulas may have the same normalized form, as the normalization
+     * <ul>
+     * <li>removes double negations,</li>
+     * <li>flattens nested conjunctions and disjunctions into a single operation,</li>
+     * <li>sorts the operands of each operation and removes duplicate operands, and</li>
+     * <li>simplifies operations with constant operands.</li>
+     * </ul>
+     * Formulas with different normalized forms are never equal, but may still be equivalent. The names of variables
+     * are prefixed with {@link #VARIABLE_KEY_PREFIX}, such that they never collide with the keys of constants,
+     * negations, or operations, e.g., for variables named "1", "0", or "!A".
+     * 
+     * @param formula the {@link Formula} to normalize
+     * @return the normalized form of the formula
+     */
+    static @NonNull String normalize(@NonNull Formula formula) {
+        String key;
+        if (formula instanceof True) {
+            key = TRUE_KEY;
+        } else if (formula instanceof False) {
+            key = FALSE_KEY;
+        } else if (formula instanceof Variable) {
+            key = VARIABLE_KEY_PREFIX + ((Variable) formula).getName();
+        } else if (formula instanceof Negation) {
+            String operandKey = normalize(((Negation) formula).getFormula());
+            if (operandKey.equals(TRUE_KEY)) {
+                key = FALSE_KEY;
+            } else if (operandKey.equals(FALSE_KEY)) {
+                key = TRUE_KEY;
+            } else if (operandKey.startsWith("!")) {
+                // Only the normalized form of a negation starts with "!"
+                key = operandKey.substring(1);
+            } else {
+                key = "!" + operandKey;
+            }
+        } else if (formula instanceof Conjunction || formula instanceof Disjunction) {
+            boolean conjunction = formula instanceof Conjunction;
+            // The operand neutral to the operation is removed, while the other constant determines the result
+            String neutralKey = conjunction ? TRUE_KEY : FALSE_KEY;
+            String absorbingKey = conjunction ? FALSE_KEY : TRUE_KEY;
+            Set<String> operandKeys = new TreeSet<>();
+            addOperandKeys(formula, conjunction, operandKeys);
+            operandKeys.remove(neutralKey);
+            if (operandKeys.contains(absorbingKey)) {
+                key = absorbingKey;
+            } else if (operandKeys.isEmpty()) {
+                key = neutralKey;
+            } else if (operandKeys.size() == 1) {
+                key = operandKeys.iterator().next();
+            } else {
+                key = (conjunction ? "&(" : "|(") + String.join(",", operandKeys) + ")";
+            }
+        } else {
+            // Unknown formula types are only identified by their textual representation
+            key = formula.getClass().getName() + ":" + formula.toString();
+        }
+        return key;
+    }
+
+    /**
+     * Adds the normalized forms of the operands of the given (nested) conjunction or disjunction to the given set.
+     * Operands of the same operation are flattened, i.e., their operands are added instead.
+     * 
+     * @param formula the operation or one of its operands
+     * @param conjunction <code>true</code>, if the operation is a {@link Conjunction}; <code>false</code>, if it is a
+     *        {@link Disjunction}
+     * @param operandKeys the set to add the normalized forms to
+     */
+    private static void addOperandKeys(@NonNull Formula formula, boolean conjunction,
+            @NonNull Set<String> operandKeys) {
+        if (conjunction && formula instanceof Conjunction) {
+            addOperandKeys(((Conjunction) formula).getLeft(), conjunction, operandKeys);
+            addOperandKeys(((Conjunction) formula).getRight(), conjunction, operandKeys);
+        } else if (!conjunction && formula instanceof Disjunction) {
+            addOperandKeys(((Disjunction) formula).getLeft(), conjunction, operandKeys);
+            addOperandKeys(((Disjunction) formula).getRight(), conjunction, operandKeys);
+        } else {
+            operandKeys.add(normalize(formula));
+        }
+    }
+
+    /**
+     * Returns the number of queries answered by this instance.
+     * 
+     * @return the number of queries
+     */
+    public long getQueriesCount() {
+        return queriesCount;
+    }
+
+    /**
+     * Returns the number of queries passed to the solver. All other queries are answered from the cache.
+     * 
+     * @return the number of solver calls
+     */
+    public long getSolverCallsCount() {
+        return solverCallsCount;
+    }
+
+    /**
+     * Returns the time spent in the solver.
+     * 
+     * @return the solver time in nanoseconds
+     */
+    public long getSolverTime() {
+        return solverTime;
+    }
+
+}
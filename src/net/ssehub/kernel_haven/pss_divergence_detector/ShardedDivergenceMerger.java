@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.DivergenceFactory;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.FingerprintSet;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.InvolvedElementPool;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.StableHash;
+import net.ssehub.kernel_haven.pss_divergence_detector.io.BinaryDivergenceReader;
+import net.ssehub.kernel_haven.pss_divergence_detector.io.BinaryDivergenceRecord;
+import net.ssehub.kernel_haven.pss_divergence_detector.io.BinaryDivergenceWriter;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class merges the {@link Divergence}s detected by multiple shards of a sharded detection. In such a detection,
+ * the mapping is partitioned by the hashes of the variable names (see {@link #getShard(String, int)}) into a fixed
+ * number of shards, each investigated by a separate process (on the same or on different machines). Each shard
+ * publishes its divergences as a binary file (see {@link BinaryDivergenceWriter}) in a common exchange directory.
+ * The merge process waits for the files of all shards, reads them, and passes each divergence on exactly once.
+ * Divergences are identified by their fingerprint (see {@link Divergence#getFingerprint()}), such that duplicates
+ * across shards or with the divergences detected by the merge process itself are removed. Each shard file carries the
+ * run token of its run (see {@link #getRunToken(String)}); the merge process ignores files with a different token,
+ * like outdated files of a previous, aborted run, and waits for the file of the current run instead.<br><br>
+ * 
+ * As the shard files contain strings only, the merge process restores the involved elements of each divergence from
+ * the {@link MappingElement}s it receives itself (see {@link #index(MappingElement)}) and re-creates each divergence
+ * as an instance of its original class (see {@link DivergenceFactory}). Variables, which are not part of the received
+ * mapping, are replaced by placeholders, while such code elements are omitted and counted (see
+ * {@link #getDroppedCodeElementsCount()}).
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class ShardedDivergenceMerger {
+
+    private static final @NonNull Logger LOGGER = Logger.get();
+
+    /**
+     * The time in milliseconds between two checks for the file of a shard, which is not published yet.
+     */
+    private static final long POLL_INTERVAL_MILLIS = 500;
+
+    /**
+     * The directory, in which the shards publish their files.
+     */
+    private @NonNull File exchangeDir;
+
+    /**
+     * The number of shards to merge.
+     */
+    private int shardCount;
+
+    /**
+     * The maximum time in milliseconds to wait for all shard files.
+     */
+    private long timeoutMillis;
+
+    /**
+     * The token identifying the current run; only shard files with this token are merged.
+     */
+    private long runToken;
+
+    /**
+     * The variables of the received {@link MappingElement}s by their names.
+     */
+    private @NonNull Map<String, VariabilityVariable> variableIndex;
+
+    /**
+     * The {@link SourceFile}s of the received {@link MappingElement}s by their paths.
+     */
+    private @NonNull Map<String, SourceFile<?>> sourceFileIndex;
+
+    /**
+     * The {@link CodeElement}s of the received {@link MappingElement}s by their keys (see
+     * {@link #getCodeElementKey(String, int, int)}).
+     */
+    private @NonNull Map<String, CodeElement<?>> codeElementIndex;
+
+    /**
+     * The number of shards, whose files were merged.
+     */
+    private int mergedShardsCount;
+
+    /**
+     * The number of duplicate divergences removed during merging.
+     */
+    private int duplicatesCount;
+
+    /**
+     * The number of involved code elements omitted from restored divergences, as they are not part of the mapping
+     * received by the merge process.
+     */
+    private int droppedCodeElementsCount;
+
+    /**
+     * The {@link InvolvedElementPool} of the current detection run providing the shared elements of restored
+     * divergences, which are not part of the received {@link MappingElement}s.
+     */
+    private @NonNull InvolvedElementPool elementPool;
+
+    /**
+     * Creates a {@link ShardedDivergenceMerger} instance.
+     * 
+     * @param exchangeDir the directory, in which the shards publish their files
+     * @param shardCount the number of shards to merge
+     * @param timeoutSeconds the maximum time in seconds to wait for all shard files; <code>0</code> or less does not
+     *        wait at all
+     * @param runToken the token identifying the current run (see {@link #getRunToken(String)})
+     * @param elementPool the {@link InvolvedElementPool} of the current detection run
+     */
+    public ShardedDivergenceMerger(@NonNull File exchangeDir, int shardCount, int timeoutSeconds, long runToken,
+            @NonNull InvolvedElementPool elementPool) {
+        this.exchangeDir = exchangeDir;
+        this.runToken = runToken;
+        this.elementPool = elementPool;
+        this.shardCount = shardCount;
+        timeoutMillis = Math.max(0, TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        variableIndex = new HashMap<>();
+        sourceFileIndex = new HashMap<>();
+        codeElementIndex = new HashMap<>();
+    }
+
+    /**
+     * Returns the shard investigating the {@link MappingElement} of the variable with the given name. The shard is
+     * derived from {@link String#hashCode()}, which is specified independent of the JVM, such that all processes of a
+     * sharded detection agree on the partitioning.
+     * 
+     * @param variableName the name of the variable
+     * @param shardCount the number of shards
+     * @return the index of the shard (between <code>0</code> and <code>shardCount - 1</code>)
+     */
+    public static int getShard(@NonNull String variableName, int shardCount) {
+        return (int) Long.remainderUnsigned(StableHash.mix(variableName.hashCode()), shardCount);
+    }
+
+    /**
+     * Returns the token identifying the run with the given identifier. All processes of a sharded detection must use
+     * the same run identifier, which differs from the identifiers of previous runs; the shards write the resulting
+     * token into their files and the merge process only merges files with its own token.
+     * 
+     * @param runId the identifier of the run; may be <code>null</code> or <i>empty</i>
+     * @return the token of the run; <code>0</code>, if no run identifier is given
+     */
+    public static long getRunToken(@Nullable String runId) {
+        return runId != null && !runId.isEmpty() ? StableHash.hash(runId, 0) : 0;
+    }
+
+    /**
+     * Returns the file, in which the given shard publishes its divergences.
+     * 
+     * @param exchangeDir the directory, in which the shards publish their files
+     * @param shard the index of the shard
+     * @param shardCount the number of shards
+     * @return the file of the shard
+     */
+    public static @NonNull File getShardFile(@NonNull File exchangeDir, int shard, int shardCount) {
+        return new File(exchangeDir, "PSS_Divergences_shard_" + shard + "_of_" + shardCount + ".psd");
+    }
+
+    /**
+     * Returns the file, to which a shard writes its divergences before publishing them. As this file is only renamed to
+     * the given shard file after it is complete (see {@link #publish(File)}), the merge process never reads incomplete
+     * files.
+     * 
+     * @param shardFile the file returned by {@link #getShardFile(File, int, int)}
+     * @return the temporary file of the shard
+     */
+    public static @NonNull File getPartialShardFile(@NonNull File shardFile) {
+        return new File(shardFile.getPath() + ".part");
+    }
+
+    /**
+     * Publishes the complete temporary file of a shard (see {@link #getPartialShardFile(File)}) by renaming it to the
+     * given shard file.
+     * 
+     * @param shardFile the file returned by {@link #getShardFile(File, int, int)}
+     * @throws IOException if renaming the file fails
+     */
+    public static void publish(@NonNull File shardFile) throws IOException {
+        Files.move(getPartialShardFile(shardFile).toPath(), shardFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Indexes the variable, the {@link SourceFile}s, and the {@link CodeElement}s of the given {@link MappingElement}
+     * for restoring the involved elements of the merged divergences.
+     * 
+     * @param mappingElement the {@link MappingElement} received by the merge process
+     */
+    public void index(@NonNull MappingElement mappingElement) {
+        VariabilityVariable variable = mappingElement.getVariable();
+        if (variable != null) {
+            variableIndex.putIfAbsent(mappingElement.getVariableName(), variable);
+        }
+        for (SourceFile<?> sourceFile : mappingElement.getBuildMapping()) {
+            sourceFileIndex.putIfAbsent(sourceFile.getPath().getPath(), sourceFile);
+        }
+        for (CodeElement<?> codeElement : mappingElement.getCodeMapping()) {
+            codeElementIndex.putIfAbsent(getCodeElementKey(codeElement.getSourceFile().getPath(),
+                    codeElement.getLineStart(), codeElement.getLineEnd()), codeElement);
+        }
+    }
+
+    /**
+     * Merges the divergences of all shards and the given divergences detected by the merge process. Each distinct
+     * divergence is passed to the given consumer exactly once: first the divergences of the shards in the order of
+     * their indexes, then the given divergences. Each shard file is deleted after it is merged completely, such that
+     * the exchange directory can be reused for the next run.<br><br>
+     * 
+     * If the file of a shard is not published within the timeout or cannot be read, an error is logged and the
+     * remaining shards are merged nevertheless.
+     * 
+     * @param mergeDivergences the divergences detected by the merge process itself; may be <i>empty</i>
+     * @param divergenceConsumer the consumer of the merged divergences
+     */
+    public void merge(@NonNull List<Divergence> mergeDivergences, @NonNull Consumer<Divergence> divergenceConsumer) {
+        FingerprintSet mergeFingerprints = new FingerprintSet();
+        for (Divergence divergence : mergeDivergences) {
+            mergeFingerprints.add(divergence.getFingerprint());
+        }
+        FingerprintSet mergedFingerprints = new FingerprintSet();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (int shard = 0; shard < shardCount; shard++) {
+            File shardFile = awaitShardFile(shard, deadline);
+            if (shardFile != null) {
+                mergeShardFile(shardFile, mergeFingerprints, mergedFingerprints, divergenceConsumer);
+            } else {
+                LOGGER.logError2("Divergences of shard ", shard, " not available in ", exchangeDir,
+                        " - merged result incomplete");
+            }
+        }
+        for (Divergence divergence : mergeDivergences) {
+            if (mergedFingerprints.add(divergence.getFingerprint())) {
+                divergenceConsumer.accept(divergence);
+            } else {
+                duplicatesCount++;
+            }
+        }
+    }
+
+    /**
+     * Waits for the given shard to publish its file of the current run. A file with a different run token is ignored
+     * until the shard replaces it by the file of the current run.
+     * 
+     * @param shard the index of the shard
+     * @param deadline the time in milliseconds since the epoch, after which the file is not awaited anymore
+     * @return the published file or <code>null</code>, if the file was not published before the deadline
+     */
+    private @Nullable File awaitShardFile(int shard, long deadline) {
+        File shardFile = getShardFile(exchangeDir, shard, shardCount);
+        boolean logged = false;
+        boolean outdatedLogged = false;
+        boolean interrupted = false;
+        boolean published = isPublished(shardFile);
+        while (!published && !interrupted && System.currentTimeMillis() < deadline) {
+            if (!logged) {
+                LOGGER.logInfo2("Waiting for divergences of shard ", shard, " in ", shardFile);
+                logged = true;
+            }
+            if (!outdatedLogged && shardFile.isFile()) {
+                LOGGER.logWarning2("Ignoring shard file ", shardFile, " of another run - waiting for the current run");
+                outdatedLogged = true;
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupted = true;
+            }
+            published = isPublished(shardFile);
+        }
+        return published ? shardFile : null;
+    }
+
+    /**
+     * Checks whether the given shard file is published by the current run, i.e., whether it exists and carries the
+     * {@link #runToken}. A file, which cannot be read, is considered published; reading it again reports the failure.
+     * 
+     * @param shardFile the file of a shard
+     * @return <code>true</code>, if the file is published by the current run; <code>false</code> otherwise
+     */
+    private boolean isPublished(@NonNull File shardFile) {
+        boolean published = false;
+        if (shardFile.isFile()) {
+            try (BinaryDivergenceReader reader = new BinaryDivergenceReader(shardFile)) {
+                published = reader.getRunToken() == runToken;
+            } catch (IOException e) {
+                published = true;
+            }
+        }
+        return published;
+    }
+
+    /**
+     * Reads the given shard file and passes each divergence, which was neither merged before nor detected by the
+     * merge process, to the given consumer. The file is deleted afterwards.
+     * 
+     * @param shardFile the published file of a shard
+     * @param mergeFingerprints the fingerprints of the divergences detected by the merge process
+     * @param mergedFingerprints the fingerprints of the divergences merged so far; extended by this method
+     * @param divergenceConsumer the consumer of the merged divergences
+     */
+    private void mergeShardFile(@NonNull File shardFile, @NonNull FingerprintSet mergeFingerprints,
+            @NonNull FingerprintSet mergedFingerprints, @NonNull Consumer<Divergence> divergenceConsumer) {
+        int shardDivergencesCount = 0;
+        try (BinaryDivergenceReader reader = new BinaryDivergenceReader(shardFile)) {
+            for (BinaryDivergenceRecord record : reader) {
+                long fingerprint = record.getFingerprint();
+                // Divergences of the merge process are passed on at the end as they provide the original elements
+                if (!mergeFingerprints.contains(fingerprint) && mergedFingerprints.add(fingerprint)) {
+                    divergenceConsumer.accept(restore(record));
+                    shardDivergencesCount++;
+                } else {
+                    duplicatesCount++;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.logException("Cannot read divergences of shard file " + shardFile + " - merged result incomplete",
+                    e);
+            return;
+        }
+        mergedShardsCount++;
+        LOGGER.logInfo2(shardDivergencesCount, " divergences merged from ", shardFile);
+        if (!shardFile.delete()) {
+            LOGGER.logWarning2("Cannot delete merged shard file ", shardFile);
+        }
+    }
+
+    /**
+     * Restores a {@link Divergence} from the given record of a shard file. The involved elements are taken from the
+     * indexed {@link MappingElement}s, if available; code elements not available are omitted and counted in the
+     * {@link #droppedCodeElementsCount}. The divergence is re-created via the {@link DivergenceFactory}.
+     * 
+     * @param record the {@link BinaryDivergenceRecord} to restore
+     * @return the restored {@link Divergence}
+     */
+    private @NonNull Divergence restore(@NonNull BinaryDivergenceRecord record) {
+        List<VariabilityVariable> variables = new ArrayList<>(record.getVariablesCount());
+        for (int i = 0; i < record.getVariablesCount(); i++) {
+            String variableName = record.getVariableName(i);
+            VariabilityVariable variable = variableIndex.get(variableName);
+            if (variable == null) {
+                variable = elementPool.getPlaceholderVariable(variableName);
+            }
+            variables.add(variable);
+        }
+        List<SourceFile<?>> sourceFiles = new ArrayList<>(record.getSourceFilesCount());
+        for (int i = 0; i < record.getSourceFilesCount(); i++) {
+            String sourceFilePath = record.getSourceFilePath(i);
+            SourceFile<?> sourceFile = sourceFileIndex.get(sourceFilePath);
+            if (sourceFile == null) {
+                sourceFile = elementPool.getSourceFile(new File(sourceFilePath));
+            }
+            sourceFiles.add(sourceFile);
+        }
+        List<CodeElement<?>> codeElements = new ArrayList<>(record.getCodeElementsCount());
+        for (int i = 0; i < record.getCodeElementsCount(); i++) {
+            CodeElement<?> codeElement = codeElementIndex.get(getCodeElementKey(record.getCodeElementPath(i),
+                    record.getCodeElementLineStart(i), record.getCodeElementLineEnd(i)));
+            if (codeElement != null) {
+                codeElements.add(codeElement);
+            } else {
+                droppedCodeElementsCount++;
+            }
+        }
+        Divergence divergence = DivergenceFactory.create(record.getType(), record.getProblemSpaceSymptom(),
+                record.getSolutionSpaceSymptom(), variables, sourceFiles, codeElements, elementPool);
+        return divergence;
+    }
+
+    /**
+     * Returns the key identifying a code element in the {@link #codeElementIndex}, e.g., "path/to/file.c[10-20]".
+     * 
+     * @param path the path of the source file of the code element
+     * @param lineStart the first line of the code element
+     * @param lineEnd the last line of the code element
+     * @return the key of the code element
+     */
+    private static @NonNull String getCodeElementKey(@NonNull String path, int lineStart, int lineEnd) {
+        return path + "[" + lineStart + "-" + lineEnd + "]";
+    }
+
+    /**
+     * Returns the number of shards, whose files were merged completely.
+     * 
+     * @return the number of merged shards
+     */
+    public int getMergedShardsCount() {
+        return mergedShardsCount;
+    }
+
+    /**
+     * Returns the number of duplicate divergences removed during merging.
+     * 
+     * @return the number of removed duplicates
+     */
+    public int getDuplicatesCount() {
+        return duplicatesCount;
+    }
+
+    /**
+     * Returns the number of involved code elements omitted from the merged divergences, as they are not part of the
+     * mapping received by the merge process.
+     * 
+     * @return the number of omitted code elements
+     */
+    public int getDroppedCodeElementsCount() {
+        return droppedCodeElementsCount;
+    }
+
+}
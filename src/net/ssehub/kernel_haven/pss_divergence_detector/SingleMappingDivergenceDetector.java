@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.rules.UndefinedVariableRule;
+import net.ssehub.kernel_haven.pss_divergence_detector.rules.UnusedVariableRule;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class detects {@link Divergence}s, which result from the information of a single {@link MappingElement}, by
+ * applying a set of {@link IDivergenceRule}s. On creation, it builds a dispatch table, which maps each variable state
+ * and each combination of mapping parts to the rules applicable for such elements. Hence, each element only visits
+ * those rules, which can detect a divergence for it; elements without applicable rules do not cause any work beyond a
+ * single table lookup. As the dispatch table is not modified after creation and the detection does not depend on any
+ * other element, a single instance of this class can be used by multiple threads concurrently.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class SingleMappingDivergenceDetector {
+    
+    /**
+     * The number of possible combinations of mapping parts (see {@link IDivergenceRule#getRequiredMappingParts()}).
+     */
+    private static final int MAPPING_PART_COMBINATIONS = 8;
+    
+    /**
+     * The dispatch table. The key is the name of a variable state. The value is an array indexed by the mapping parts
+     * of an element, which contains the rules applicable for elements with that state and these parts.
+     */
+    private @NonNull Map<String, IDivergenceRule[][]> dispatchTable;
+    
+    /**
+     * Creates a {@link SingleMappingDivergenceDetector} instance applying the built-in rules
+     * (see {@link #getBuiltInRules()}).
+     */
+    public SingleMappingDivergenceDetector() {
+        this(getBuiltInRules());
+    }
+    
+    /**
+     * Creates a {@link SingleMappingDivergenceDetector} instance applying the given rules. For each element, the
+     * applicable rules are applied in the order of the given list.
+     * 
+     * @param rules the {@link IDivergenceRule}s to apply
+     */
+    public SingleMappingDivergenceDetector(@NonNull List<IDivergenceRule> rules) {
+        dispatchTable = new HashMap<>();
+        for (IDivergenceRule rule : rules) {
+            int requiredMappingParts = rule.getRequiredMappingParts();
+            for (String variableState : rule.getVariableStates()) {
+                IDivergenceRule[][] stateRules = dispatchTable.computeIfAbsent(variableState,
+                        state -> new IDivergenceRule[MAPPING_PART_COMBINATIONS][0]);
+                for (int mappingParts = 0; mappingParts < MAPPING_PART_COMBINATIONS; mappingParts++) {
+                    if ((mappingParts & requiredMappingParts) == requiredMappingParts) {
+                        IDivergenceRule[] partRules = Arrays.copyOf(stateRules[mappingParts],
+                                stateRules[mappingParts].length + 1);
+                        partRules[partRules.length - 1] = rule;
+                        stateRules[mappingParts] = partRules;
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns new instances of the built-in {@link IDivergenceRule}s, which detect unused and undefined variables.
+     * 
+     * @return the list of built-in {@link IDivergenceRule}s
+     */
+    public static @NonNull List<IDivergenceRule> getBuiltInRules() {
+        List<IDivergenceRule> builtInRules = new ArrayList<>();
+        builtInRules.add(new UnusedVariableRule());
+        builtInRules.add(new UndefinedVariableRule());
+        return builtInRules;
+    }
+    
+    /**
+     * Detects {@link Divergence}s based on the given {@link MappingElement} and passes each of them to the given
+     * consumer.
+     * 
+     * @param mappingElement the {@link MappingElement} to be investigated for divergences
+     * @param divergenceConsumer the consumer of the detected {@link Divergence}s
+     */
+    public void detect(@NonNull MappingElement mappingElement, @NonNull Consumer<Divergence> divergenceConsumer) {
+        IDivergenceRule[][] stateRules = dispatchTable.get(mappingElement.getVariableState().name());
+        if (stateRules != null) {
+            for (IDivergenceRule rule : stateRules[getMappingParts(mappingElement)]) {
+                rule.detect(mappingElement, divergenceConsumer);
+            }
+        }
+    }
+    
+    /**
+     * Checks whether any of the rules of this detector applies to the given {@link MappingElement}. If not,
+     * {@link #detect(MappingElement, Consumer)} will never detect a divergence for this element.
+     * 
+     * @param mappingElement the {@link MappingElement} to check
+     * @return <code>true</code>, if at least one rule applies to the given element; <code>false</code> otherwise
+     */
+    public boolean hasApplicableRules(@NonNull MappingElement mappingElement) {
+        IDivergenceRule[][] stateRules = dispatchTable.get(mappingElement.getVariableState().name());
+        return stateRules != null && stateRules[getMappingParts(mappingElement)].length > 0;
+    }
+    
+    /**
+     * Returns the mapping parts provided by the given {@link MappingElement}.
+     * 
+     * @param mappingElement the {@link MappingElement} to return the mapping parts for
+     * @return the combination of the {@link IDivergenceRule}<code>.MAPPING_PART_*</code> constants of the parts
+     *         provided by the given element
+     */
+    private static int getMappingParts(@NonNull MappingElement mappingElement) {
+        int mappingParts = 0;
+        if (mappingElement.getVariable() != null) {
+            mappingParts |= IDivergenceRule.MAPPING_PART_VARIABLE;
+        }
+        if (!mappingElement.getBuildMapping().isEmpty()) {
+            mappingParts |= IDivergenceRule.MAPPING_PART_BUILD;
+        }
+        if (!mappingElement.getCodeMapping().isEmpty()) {
+            mappingParts |= IDivergenceRule.MAPPING_PART_CODE;
+        }
+        return mappingParts;
+    }
+
+}
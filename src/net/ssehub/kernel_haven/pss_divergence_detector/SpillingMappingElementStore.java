@@ -0,0 +1,442 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This {@link IMappingElementStore} keeps only a compact summary of each added {@link MappingElement} on the heap:
+ * the variable name, the {@link VariabilityVariable}, and whether the element has artifacts. The build and code
+ * mappings are spilled to a file as keys of their artifacts: the identifier of the path of each {@link SourceFile} and
+ * the path identifier and line range of each {@link CodeElement}. Hence, the heap only holds each distinct path once,
+ * but neither the artifacts nor one list per element. Reading a mapping back maps the file into memory (once, after all
+ * elements are added) and resolves the keys of that single element via the {@link IArtifactResolver} of the
+ * {@link MultiMappingDivergenceDetector}, which retains the artifacts in its indexes anyway. Hence, this store reduces,
+ * but does not bound the heap usage of the multi-mapping detection.<br><br>
+ * 
+ * If writing the file fails, the failure is logged and the affected and all further elements are retained on the
+ * heap. If reading the file fails, the failure is logged and the mappings of the affected elements are <i>empty</i>,
+ * i.e., multi-mapping divergences involving these elements may be missing. The file is created in the given directory
+ * and deleted on {@link #close()}.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class SpillingMappingElementStore implements IMappingElementStore {
+
+    private static final @NonNull Logger LOGGER = Logger.get();
+
+    /**
+     * The number of bits of the size of a single memory-mapped segment of the file. As the file only contains integers
+     * and each segment size is a multiple of 4, no integer spans two segments.
+     */
+    private static final int SEGMENT_BITS = 30;
+
+    /**
+     * The size of a single memory-mapped segment of the file in bytes.
+     */
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+    /**
+     * The file containing the spilled mappings.
+     */
+    private @NonNull File file;
+
+    /**
+     * The stream writing the spilled mappings to the {@link #file}.
+     */
+    private @NonNull DataOutputStream out;
+
+    /**
+     * The number of bytes written to the {@link #out} stream.
+     */
+    private long writtenBytes;
+
+    /**
+     * The definition whether writing to the {@link #file} failed, such that further elements are retained in the
+     * {@link #heapElements}.
+     */
+    private boolean spillingFailed;
+
+    /**
+     * The definition whether reading from the {@link #file} failed for at least one element. Used for logging this
+     * failure only once.
+     */
+    private volatile boolean readingFailed;
+
+    /**
+     * The memory-mapped segments of the {@link #file}; <code>null</code>, if not mapped yet or if further elements were
+     * added since mapping.
+     */
+    private volatile @Nullable MappedByteBuffer @Nullable [] segments;
+
+    /**
+     * The offset of the record of each element in the {@link #file}; <code>-1</code> for elements in the
+     * {@link #heapElements}. The index is the identifier of the element.
+     */
+    private long @NonNull [] offsets;
+
+    /**
+     * The variable names of all elements. The index is the identifier of the element.
+     */
+    private @NonNull List<String> variableNames;
+
+    /**
+     * The {@link VariabilityVariable}s of all elements; contains <code>null</code> for undefined variables. The index
+     * is the identifier of the element.
+     */
+    private @NonNull List<VariabilityVariable> variables;
+
+    /**
+     * The identifiers of those elements, which map their variable to at least one artifact.
+     */
+    private @NonNull BitSet elementsWithArtifacts;
+
+    /**
+     * The distinct paths of the artifacts of all elements. The index is the identifier used in the {@link #file}.
+     */
+    private @NonNull List<File> paths;
+
+    /**
+     * The identifiers of the {@link #paths}.
+     */
+    private @NonNull Map<File, Integer> pathIds;
+
+    /**
+     * The elements, which could not be spilled to the {@link #file}, by their identifiers.
+     */
+    private @NonNull Map<Integer, MappingElement> heapElements;
+
+    /**
+     * The {@link IArtifactResolver} resolving the spilled artifact keys; <code>null</code>, if not set yet.
+     */
+    private @Nullable IArtifactResolver artifactResolver;
+
+    /**
+     * Creates an <i>empty</i> {@link SpillingMappingElementStore} instance.
+     * 
+     * @param directory the directory to create the file containing the spilled mappings in
+     * @throws IOException if creating the file fails
+     */
+    public SpillingMappingElementStore(@NonNull File directory) throws IOException {
+        file = File.createTempFile("pss_mapping_", ".store", directory);
+        file.deleteOnExit();
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        offsets = new long[1024];
+        variableNames = new ArrayList<>();
+        variables = new ArrayList<>();
+        elementsWithArtifacts = new BitSet();
+        paths = new ArrayList<>();
+        pathIds = new HashMap<>();
+        heapElements = new HashMap<>();
+    }
+
+    @Override
+    public void setArtifactResolver(@NonNull IArtifactResolver artifactResolver) {
+        this.artifactResolver = artifactResolver;
+    }
+
+    @Override
+    public int add(@NonNull MappingElement mappingElement) {
+        int elementId = variableNames.size();
+        variableNames.add(mappingElement.getVariableName());
+        variables.add(mappingElement.getVariable());
+        List<SourceFile<?>> buildMapping = mappingElement.getBuildMapping();
+        List<CodeElement<?>> codeMapping = mappingElement.getCodeMapping();
+        if (!buildMapping.isEmpty() || !codeMapping.isEmpty()) {
+            elementsWithArtifacts.set(elementId);
+        }
+        if (elementId == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[elementId] = -1;
+        if (!spillingFailed) {
+            segments = null;
+            try {
+                spill(buildMapping, codeMapping);
+                offsets[elementId] = writtenBytes;
+                writtenBytes += 4L * (2 + buildMapping.size() + 3 * codeMapping.size());
+            } catch (IOException e) {
+                LOGGER.logException("Cannot spill mapping elements to " + file + " - retaining further elements on "
+                        + "the heap", e);
+                spillingFailed = true;
+            }
+        }
+        if (offsets[elementId] < 0) {
+            heapElements.put(elementId, mappingElement);
+        }
+        return elementId;
+    }
+
+    /**
+     * Writes the record of a single element to the {@link #out} stream: the sizes of its build and code mapping
+     * followed by the path identifier of each {@link SourceFile} and the path identifier and line range of each
+     * {@link CodeElement}.
+     * 
+     * @param buildMapping the build mapping of the element
+     * @param codeMapping the code mapping of the element
+     * @throws IOException if writing fails
+     */
+    private void spill(@NonNull List<SourceFile<?>> buildMapping, @NonNull List<CodeElement<?>> codeMapping)
+            throws IOException {
+        out.writeInt(buildMapping.size());
+        out.writeInt(codeMapping.size());
+        for (SourceFile<?> sourceFile : buildMapping) {
+            out.writeInt(getPathId(sourceFile.getPath()));
+        }
+        for (CodeElement<?> codeElement : codeMapping) {
+            out.writeInt(getPathId(codeElement.getSourceFile()));
+            out.writeInt(codeElement.getLineStart());
+            out.writeInt(codeElement.getLineEnd());
+        }
+    }
+
+    /**
+     * Returns the identifier of the given path. If the path is spilled for the first time, the next free identifier is
+     * assigned to it.
+     * 
+     * @param path the path of an artifact
+     * @return the identifier of the path
+     */
+    private int getPathId(@NonNull File path) {
+        Integer pathId = pathIds.get(path);
+        if (pathId == null) {
+            pathId = paths.size();
+            paths.add(path);
+            pathIds.put(path, pathId);
+        }
+        return pathId;
+    }
+
+    @Override
+    public int size() {
+        return variableNames.size();
+    }
+
+    @Override
+    public @NonNull String getVariableName(int elementId) {
+        return variableNames.get(elementId);
+    }
+
+    @Override
+    public @Nullable VariabilityVariable getVariable(int elementId) {
+        return variables.get(elementId);
+    }
+
+    @Override
+    public boolean hasArtifacts(int elementId) {
+        return elementsWithArtifacts.get(elementId);
+    }
+
+    @Override
+    public @NonNull List<SourceFile<?>> getBuildMapping(int elementId) {
+        List<SourceFile<?>> buildMapping;
+        MappingElement heapElement = heapElements.get(elementId);
+        if (heapElement != null) {
+            buildMapping = heapElement.getBuildMapping();
+        } else {
+            MappedByteBuffer[] mappedSegments = getSegments();
+            long offset = offsets[elementId];
+            if (isReadable(mappedSegments, offset)) {
+                IArtifactResolver resolver = getArtifactResolver();
+                int buildMappingSize = readInt(mappedSegments, offset);
+                buildMapping = new ArrayList<>(buildMappingSize);
+                offset += 8;
+                for (int i = 0; i < buildMappingSize; i++) {
+                    buildMapping.add(resolver.getSourceFile(paths.get(readInt(mappedSegments, offset))));
+                    offset += 4;
+                }
+            } else {
+                buildMapping = new ArrayList<>();
+            }
+        }
+        return buildMapping;
+    }
+
+    @Override
+    public @NonNull List<CodeElement<?>> getCodeMapping(int elementId) {
+        List<CodeElement<?>> codeMapping;
+        MappingElement heapElement = heapElements.get(elementId);
+        if (heapElement != null) {
+            codeMapping = heapElement.getCodeMapping();
+        } else {
+            MappedByteBuffer[] mappedSegments = getSegments();
+            long offset = offsets[elementId];
+            if (isReadable(mappedSegments, offset)) {
+                IArtifactResolver resolver = getArtifactResolver();
+                int buildMappingSize = readInt(mappedSegments, offset);
+                int codeMappingSize = readInt(mappedSegments, offset + 4);
+                codeMapping = new ArrayList<>(codeMappingSize);
+                offset += 8 + 4L * buildMappingSize;
+                for (int i = 0; i < codeMappingSize; i++) {
+                    CodeElement<?> codeElement = resolver.getCodeElement(paths.get(readInt(mappedSegments, offset)),
+                            readInt(mappedSegments, offset + 4), readInt(mappedSegments, offset + 8));
+                    if (codeElement != null) {
+                        codeMapping.add(codeElement);
+                    }
+                    offset += 12;
+                }
+            } else {
+                codeMapping = new ArrayList<>();
+            }
+        }
+        return codeMapping;
+    }
+
+    /**
+     * Returns the {@link #artifactResolver}.
+     * 
+     * @return the {@link #artifactResolver}
+     * @throws IllegalStateException if no {@link IArtifactResolver} is set
+     */
+    private @NonNull IArtifactResolver getArtifactResolver() throws IllegalStateException {
+        IArtifactResolver resolver = artifactResolver;
+        if (resolver == null) {
+            throw new IllegalStateException("No artifact resolver set for reading spilled mapping elements");
+        }
+        return resolver;
+    }
+
+    /**
+     * Checks whether the entire record at the given offset is part of the given memory-mapped segments. If not,
+     * reading the record failed and this failure is logged, if it is the first one.
+     * 
+     * @param mappedSegments the memory-mapped segments of the {@link #file}
+     * @param offset the offset of the record in bytes
+     * @return <code>true</code>, if the record can be read; <code>false</code> otherwise
+     */
+    private boolean isReadable(@NonNull MappedByteBuffer @NonNull [] mappedSegments, long offset) {
+        long mappedBytes = 0;
+        if (mappedSegments.length > 0) {
+            mappedBytes = (mappedSegments.length - 1) * SEGMENT_SIZE
+                    + mappedSegments[mappedSegments.length - 1].capacity();
+        }
+        boolean readable = offset >= 0 && offset + 8 <= mappedBytes;
+        if (readable) {
+            int buildMappingSize = readInt(mappedSegments, offset);
+            int codeMappingSize = readInt(mappedSegments, offset + 4);
+            readable = offset + 4L * (2 + buildMappingSize + 3L * codeMappingSize) <= mappedBytes;
+        }
+        if (!readable && !readingFailed) {
+            readingFailed = true;
+            LOGGER.logWarning2("Cannot read spilled mapping elements from ", file, " - multi-mapping divergences "
+                    + "may be incomplete");
+        }
+        return readable;
+    }
+
+    /**
+     * Reads the integer at the given offset of the {@link #file}.
+     * 
+     * @param mappedSegments the memory-mapped segments of the {@link #file}
+     * @param offset the offset of the integer in bytes
+     * @return the integer at the given offset
+     */
+    private static int readInt(@NonNull MappedByteBuffer @NonNull [] mappedSegments, long offset) {
+        return mappedSegments[(int) (offset >>> SEGMENT_BITS)].getInt((int) (offset & (SEGMENT_SIZE - 1)));
+    }
+
+    /**
+     * Returns the memory-mapped segments of the {@link #file}. If the file is not mapped yet or if further elements
+     * were added since mapping, the written data is flushed and the file is mapped again.
+     * 
+     * @return the memory-mapped segments of the {@link #file}
+     */
+    private @NonNull MappedByteBuffer @NonNull [] getSegments() {
+        MappedByteBuffer[] mappedSegments = segments;
+        if (mappedSegments == null) {
+            synchronized (this) {
+                mappedSegments = segments;
+                if (mappedSegments == null) {
+                    mappedSegments = map();
+                    segments = mappedSegments;
+                }
+            }
+        }
+        return mappedSegments;
+    }
+
+    /**
+     * Flushes the written data and maps the entire {@link #file} into memory. If flushing fails, only the data
+     * already in the file is mapped; if mapping fails, no data is mapped. In both cases, the failure is logged.
+     * 
+     * @return the memory-mapped segments of the {@link #file}; <i>empty</i>, if mapping fails
+     */
+    private @NonNull MappedByteBuffer @NonNull [] map() {
+        if (!spillingFailed) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                LOGGER.logException("Cannot flush spilled mapping elements to " + file, e);
+                spillingFailed = true;
+            }
+        }
+        MappedByteBuffer[] mappedSegments;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+                FileChannel channel = randomAccessFile.getChannel()) {
+            long mappedBytes = Math.min(writtenBytes, channel.size());
+            int segmentCount = (int) ((mappedBytes + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+            mappedSegments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long segmentStart = i * SEGMENT_SIZE;
+                mappedSegments[i] = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart,
+                        Math.min(SEGMENT_SIZE, mappedBytes - segmentStart));
+            }
+            LOGGER.logDebug2("Mapped ", mappedBytes, " bytes of spilled mapping elements from ", file);
+        } catch (IOException e) {
+            LOGGER.logException("Cannot map spilled mapping elements from " + file, e);
+            mappedSegments = new MappedByteBuffer[0];
+        }
+        return mappedSegments;
+    }
+
+    @Override
+    public void close() {
+        segments = null;
+        try {
+            out.close();
+        } catch (IOException e) {
+            LOGGER.logException("Cannot close " + file, e);
+        }
+        if (!file.delete()) {
+            LOGGER.logWarning2("Cannot delete ", file, "; it will be deleted on exit");
+        }
+        variableNames.clear();
+        variables.clear();
+        paths.clear();
+        pathIds.clear();
+        heapElements.clear();
+    }
+
+}
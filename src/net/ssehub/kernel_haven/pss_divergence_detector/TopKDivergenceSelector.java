@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class selects the K most severe {@link Divergence}s of all offered divergences as rated by an
+ * {@link IDivergenceScore}. It keeps at most K divergences in a bounded min-heap: each offered divergence either
+ * replaces the divergence with the lowest score in the heap, if its score is higher, or is released immediately. Hence,
+ * the memory of this selector is constant, no matter how many divergences are offered. Of divergences with the same
+ * score, the divergence offered first is preferred. This selector is not thread-safe.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class TopKDivergenceSelector {
+    
+    /**
+     * The order of the {@link ScoredDivergence}s from the least to the most severe one. This is the order of the
+     * {@link #heap}, which has the least severe divergence at its head.
+     */
+    private static final @NonNull Comparator<ScoredDivergence> SEVERITY_ORDER = (first, second) -> {
+        int result = Long.compare(first.score, second.score);
+        if (result == 0) {
+            // Later divergences are less severe to prefer earlier ones
+            result = Long.compare(second.sequenceNumber, first.sequenceNumber);
+        }
+        return result;
+    };
+    
+    /**
+     * A {@link Divergence} with its score and the sequence number of its offer.
+     */
+    private static final class ScoredDivergence {
+        
+        /**
+         * The scored {@link Divergence}.
+         */
+        private final @NonNull Divergence divergence;
+        
+        /**
+         * The score of the {@link #divergence}.
+         */
+        private final long score;
+        
+        /**
+         * The number of divergences offered before the {@link #divergence}.
+         */
+        private final long sequenceNumber;
+        
+        /**
+         * Creates a {@link ScoredDivergence} instance.
+         * 
+         * @param divergence the scored {@link Divergence}
+         * @param score the score of the divergence
+         * @param sequenceNumber the number of divergences offered before the divergence
+         */
+        private ScoredDivergence(@NonNull Divergence divergence, long score, long sequenceNumber) {
+            this.divergence = divergence;
+            this.score = score;
+            this.sequenceNumber = sequenceNumber;
+        }
+        
+    }
+    
+    /**
+     * The maximum number of divergences to select.
+     */
+    private int k;
+    
+    /**
+     * The {@link IDivergenceScore} rating the severity of the offered divergences.
+     */
+    private @NonNull IDivergenceScore score;
+    
+    /**
+     * The selected divergences with the least severe one at the head.
+     */
+    private @NonNull PriorityQueue<ScoredDivergence> heap;
+    
+    /**
+     * The number of offered divergences.
+     */
+    private long offeredDivergencesCount;
+    
+    /**
+     * Creates a {@link TopKDivergenceSelector} instance.
+     * 
+     * @param k the maximum number of divergences to select; must be greater than <code>0</code>
+     * @param score the {@link IDivergenceScore} rating the severity of the offered divergences
+     * @throws IllegalArgumentException if K is less than <code>1</code>
+     */
+    public TopKDivergenceSelector(int k, @NonNull IDivergenceScore score) throws IllegalArgumentException {
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of divergences to select must be greater than 0, but is " + k);
+        }
+        this.k = k;
+        this.score = score;
+        heap = new PriorityQueue<>(Math.min(k, 1024) + 1, SEVERITY_ORDER);
+    }
+    
+    /**
+     * Offers the given {@link Divergence} for selection. The divergence is kept, if it is among the K most severe
+     * divergences offered so far.
+     * 
+     * @param divergence the {@link Divergence} to offer
+     * @return <code>true</code>, if the divergence is kept (for now); <code>false</code>, if it is released
+     */
+    public boolean offer(@NonNull Divergence divergence) {
+        ScoredDivergence scoredDivergence = new ScoredDivergence(divergence, score.score(divergence),
+                offeredDivergencesCount++);
+        boolean kept = true;
+        if (heap.size() < k) {
+            heap.add(scoredDivergence);
+        } else if (SEVERITY_ORDER.compare(scoredDivergence, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(scoredDivergence);
+        } else {
+            kept = false;
+        }
+        return kept;
+    }
+    
+    /**
+     * Returns the number of offered divergences.
+     * 
+     * @return the number of offered divergences
+     */
+    public long getOfferedDivergencesCount() {
+        return offeredDivergencesCount;
+    }
+    
+    /**
+     * Returns the selected divergences from the most to the least severe one and clears this selector.
+     * 
+     * @return the selected divergences; contains at most K divergences
+     */
+    public @NonNull List<Divergence> drain() {
+        List<ScoredDivergence> scoredDivergences = new ArrayList<>(heap);
+        heap.clear();
+        Collections.sort(scoredDivergences, Collections.reverseOrder(SEVERITY_ORDER));
+        List<Divergence> selectedDivergences = new ArrayList<>(scoredDivergences.size());
+        for (ScoredDivergence scoredDivergence : scoredDivergences) {
+            selectedDivergences.add(scoredDivergence.divergence);
+        }
+        return selectedDivergences;
+    }
+    
+}
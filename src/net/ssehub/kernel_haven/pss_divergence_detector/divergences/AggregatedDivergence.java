@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import net.ssehub.kernel_haven.util.io.ITableRow;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * This class represents a {@link Divergence} detected in one or more configurations, like different architectures or
+ * variants of the same software. It is written as a single row consisting of the type and the symptoms of the
+ * divergence as well as the names of all configurations, in which the divergence occurs.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class AggregatedDivergence implements ITableRow {
+
+    /**
+     * The headers for writing aggregated divergences as a KernelHaven result. This array is shared by all aggregated
+     * divergences and must not be modified.
+     */
+    private static final @Nullable Object @NonNull [] HEADER = {"Type", "Problem Space Symptom",
+        "Solution Space Symptom", "Configurations"};
+
+    /**
+     * The {@link Divergence} detected first, which represents all identical divergences of the other configurations.
+     */
+    private @NonNull Divergence divergence;
+
+    /**
+     * The names of all configurations. This list is shared by all aggregated divergences of the same run.
+     */
+    private @NonNull List<String> configurationNames;
+
+    /**
+     * The indexes of the {@link #configurationNames}, in which the {@link #divergence} occurs.
+     */
+    private @NonNull BitSet configurations;
+
+    /**
+     * Creates an {@link AggregatedDivergence} instance for the given {@link Divergence}, which does not occur in any
+     * configuration yet (see {@link #addConfiguration(int)}).
+     * 
+     * @param divergence the {@link Divergence} representing all identical divergences of the other configurations
+     * @param configurationNames the names of all configurations
+     */
+    public AggregatedDivergence(@NonNull Divergence divergence, @NonNull List<String> configurationNames) {
+        this.divergence = divergence;
+        this.configurationNames = configurationNames;
+        configurations = new BitSet(configurationNames.size());
+    }
+
+    /**
+     * Adds the configuration with the given index to the configurations, in which the {@link Divergence} occurs.
+     * 
+     * @param configurationIndex the index of the configuration in the list of configuration names
+     */
+    public void addConfiguration(int configurationIndex) {
+        configurations.set(configurationIndex);
+    }
+
+    /**
+     * Returns the {@link Divergence} representing all identical divergences of the other configurations.
+     * 
+     * @return the representing {@link Divergence}
+     */
+    public @NonNull Divergence getDivergence() {
+        return divergence;
+    }
+
+    /**
+     * Returns the names of the configurations, in which the {@link Divergence} occurs, in the order of all
+     * configurations.
+     * 
+     * @return the names of the configurations; never <i>empty</i>
+     */
+    public @NonNull List<String> getConfigurations() {
+        List<String> names = new ArrayList<>(configurations.cardinality());
+        for (int i = configurations.nextSetBit(0); i >= 0; i = configurations.nextSetBit(i + 1)) {
+            names.add(configurationNames.get(i));
+        }
+        return names;
+    }
+
+    /**
+     * Checks whether the {@link Divergence} occurs in all configurations.
+     * 
+     * @return <code>true</code>, if the divergence occurs in all configurations; <code>false</code> otherwise
+     */
+    public boolean isInAllConfigurations() {
+        return configurations.cardinality() == configurationNames.size();
+    }
+
+    @Override
+    public @Nullable Object @NonNull [] getHeader() {
+        return HEADER;
+    }
+
+    @Override
+    public @Nullable Object @NonNull [] getContent() {
+        Object[] divergenceContent = divergence.getContent();
+        return new Object[] {divergenceContent[0], divergenceContent[1], divergenceContent[2],
+            String.join(" ", getConfigurations())};
+    }
+
+    @Override
+    public @NonNull String toString() {
+        return divergence.toString() + "\tConfigurations = " + String.join(" ", getConfigurations());
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import java.io.IOException;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class defines a divergence restored from the cache of a previous analysis run. It provides the type and the
+ * symptoms of the original divergence as they were rendered in that run. The involved elements are added by the
+ * restoring detector (see the <code>addInvolved*</code> methods) to be available for subsequent analysis components.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class CachedDivergence extends Divergence {
+    
+    /**
+     * The type of the original divergence.
+     */
+    private @NonNull String type;
+    
+    /**
+     * The problem space symptom of the original divergence.
+     */
+    private @NonNull String problemSpaceSymptom;
+    
+    /**
+     * The solution space symptom of the original divergence.
+     */
+    private @NonNull String solutionSpaceSymptom;
+
+    /**
+     * Creates a {@link CachedDivergence} instance.
+     * 
+     * @param type the type of the original divergence (see {@link Divergence#getType()})
+     * @param problemSpaceSymptom the problem space symptom of the original divergence (see
+     *        {@link Divergence#getProblemSpaceSymptom()})
+     * @param solutionSpaceSymptom the solution space symptom of the original divergence (see
+     *        {@link Divergence#getSolutionSpaceSymptom()})
+     */
+    public CachedDivergence(@NonNull String type, @NonNull String problemSpaceSymptom,
+            @NonNull String solutionSpaceSymptom) {
+        this.type = type;
+        this.problemSpaceSymptom = problemSpaceSymptom;
+        this.solutionSpaceSymptom = solutionSpaceSymptom;
+    }
+
+    @Override
+    public @NonNull String getType() {
+        return type;
+    }
+
+    @Override
+    public @NonNull String getProblemSpaceSymptom() {
+        return problemSpaceSymptom;
+    }
+
+    @Override
+    public @NonNull String getSolutionSpaceSymptom() {
+        return solutionSpaceSymptom;
+    }
+
+    @Override
+    public void appendProblemSpaceSymptom(@NonNull Appendable out) throws IOException {
+        out.append(problemSpaceSymptom);
+    }
+
+    @Override
+    public void appendSolutionSpaceSymptom(@NonNull Appendable out) throws IOException {
+        out.append(solutionSpaceSymptom);
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * This class provides a memory-efficient {@link Set} for the small sets of elements involved in a {@link Divergence}.
+ * The elements are stored in an array, which grows only when needed. If the number of elements exceeds
+ * {@link #MAX_ARRAY_SIZE}, the elements are moved to a {@link HashSet} to keep lookups fast.
+ * 
+ * @param <E> the type of the elements in this set
+ * 
+ * @author Christian Kröher
+ *
+ */
+final class CompactSet<E> extends AbstractSet<E> {
+    
+    /**
+     * The maximum number of elements stored in the {@link #elements} array. Beyond this size, linear lookups become
+     * more expensive than the additional memory of a {@link HashSet}.
+     */
+    private static final int MAX_ARRAY_SIZE = 16;
+    
+    /**
+     * The array containing the elements of this set in insertion order; <code>null</code>, if the elements are stored
+     * in the {@link #hashSet}.
+     */
+    private @Nullable Object @Nullable [] elements;
+    
+    /**
+     * The number of elements in the {@link #elements} array.
+     */
+    private int size;
+    
+    /**
+     * The {@link HashSet} containing the elements of this set, if their number exceeds {@link #MAX_ARRAY_SIZE};
+     * <code>null</code> otherwise.
+     */
+    private @Nullable Set<E> hashSet;
+    
+    /**
+     * Creates a {@link CompactSet} instance containing the two given elements.
+     * 
+     * @param first the first element of this set
+     * @param second the second element of this set; must not be equal to the first element
+     */
+    CompactSet(E first, E second) {
+        elements = new Object[] {first, second};
+        size = 2;
+    }
+
+    @Override
+    public boolean add(E element) {
+        boolean added;
+        Set<E> currentHashSet = hashSet;
+        if (currentHashSet != null) {
+            added = currentHashSet.add(element);
+        } else if (contains(element)) {
+            added = false;
+        } else {
+            Object[] currentElements = notNull(elements);
+            if (size == currentElements.length) {
+                if (size >= MAX_ARRAY_SIZE) {
+                    currentHashSet = new HashSet<>(this);
+                    currentHashSet.add(element);
+                    hashSet = currentHashSet;
+                    elements = null;
+                    size = 0;
+                    return true;
+                }
+                currentElements = Arrays.copyOf(currentElements, Math.min(size * 2, MAX_ARRAY_SIZE));
+                elements = currentElements;
+            }
+            currentElements[size++] = element;
+            added = true;
+        }
+        return added;
+    }
+
+    @Override
+    public boolean contains(@Nullable Object element) {
+        boolean contains = false;
+        Set<E> currentHashSet = hashSet;
+        if (currentHashSet != null) {
+            contains = currentHashSet.contains(element);
+        } else {
+            Object[] currentElements = notNull(elements);
+            for (int i = 0; i < size && !contains; i++) {
+                contains = Objects.equals(currentElements[i], element);
+            }
+        }
+        return contains;
+    }
+
+    @Override
+    public @NonNull Iterator<E> iterator() {
+        Iterator<E> iterator;
+        Set<E> currentHashSet = hashSet;
+        if (currentHashSet != null) {
+            iterator = currentHashSet.iterator();
+        } else {
+            iterator = new ArrayIterator();
+        }
+        return iterator;
+    }
+
+    @Override
+    public int size() {
+        Set<E> currentHashSet = hashSet;
+        return currentHashSet != null ? currentHashSet.size() : size;
+    }
+    
+    /**
+     * Returns the given array, which is expected to be not <code>null</code> as long as no {@link #hashSet} exists.
+     * 
+     * @param array the array to return
+     * @return the given array
+     */
+    private static @Nullable Object @NonNull [] notNull(@Nullable Object @Nullable [] array) {
+        if (array == null) {
+            throw new IllegalStateException("Neither array nor hash set available");
+        }
+        return array;
+    }
+    
+    /**
+     * The {@link Iterator} over the {@link CompactSet#elements} array.
+     */
+    private class ArrayIterator implements Iterator<E> {
+        
+        /**
+         * The index of the next element to return.
+         */
+        private int nextIndex;
+        
+        /**
+         * The index of the element returned last; <code>-1</code>, if no element was returned or it was removed.
+         */
+        private int lastIndex = -1;
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (nextIndex >= size) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = nextIndex++;
+            return (E) notNull(elements)[lastIndex];
+        }
+        
+        @Override
+        public void remove() {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            Object[] currentElements = notNull(elements);
+            System.arraycopy(currentElements, lastIndex + 1, currentElements, lastIndex, size - lastIndex - 1);
+            currentElements[--size] = null;
+            nextIndex = lastIndex;
+            lastIndex = -1;
+        }
+        
+    }
+
+}
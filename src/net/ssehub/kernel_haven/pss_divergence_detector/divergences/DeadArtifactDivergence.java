@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class defines a divergence denoting a {@link SourceFile} or {@link CodeElement}s of a source file, which are
+ * controlled by variables, while their presence condition is not satisfiable under the constraints of the
+ * {@link VariabilityModel}. Hence, these artifacts are never present (dead) and their configuration has no effect.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class DeadArtifactDivergence extends Divergence {
+
+    /**
+     * Creates a {@link DeadArtifactDivergence} instance. If no code elements are given, the entire
+     * {@link SourceFile} is dead; otherwise only the given code elements of the (present) source file are dead.
+     * 
+     * @param variables the {@link VariabilityVariable}s controlling the presence of the dead artifacts; undefined
+     *        variables are represented by placeholders (see {@link InvolvedElementPool#getPlaceholderVariable(String)})
+     * @param sourceFile the {@link SourceFile}, which is dead itself or contains the dead code elements
+     * @param codeElements the dead {@link CodeElement}s of the given {@link SourceFile}; <i>empty</i>, if the source
+     *        file itself is dead
+     */
+    public DeadArtifactDivergence(@NonNull Collection<VariabilityVariable> variables,
+            @NonNull SourceFile<?> sourceFile, @NonNull Collection<CodeElement<?>> codeElements) {
+        addInvolvedVariables(variables);
+        addInvolvedSourceFile(sourceFile);
+        addInvolvedCodeElements(codeElements);
+    }
+
+    @Override
+    public @NonNull String getType() {
+        return this.getClass().getSimpleName();
+    }
+
+    @Override
+    public void appendProblemSpaceSymptom(@NonNull Appendable out) throws IOException {
+        out.append("Constraints of variability model on ");
+        appendInvolvedVariablesDescription(out);
+        out.append(" never satisfy presence condition of artifact(s)");
+    }
+
+    @Override
+    public void appendSolutionSpaceSymptom(@NonNull Appendable out) throws IOException {
+        if (getInvolvedCodeElements().isEmpty()) {
+            appendInvolvedVariablesDescription(out);
+            out.append(" used to constrain presence of file(s) ");
+            appendInvolvedSourceFilesDescription(out);
+            out.append(", which is never built");
+        } else {
+            appendInvolvedVariablesDescription(out);
+            out.append(" used to constrain presence of code element(s) ");
+            appendInvolvedCodeElementsDescription(out);
+            out.append(" in file(s) ");
+            appendInvolvedSourceFilesDescription(out);
+            out.append(", which is never present");
+        }
+    }
+
+}
@@ -12,9 +12,15 @@
  */
 package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 import net.ssehub.kernel_haven.code_model.CodeElement;
 import net.ssehub.kernel_haven.code_model.SourceFile;
@@ -26,13 +32,25 @@ import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
 /**
  * This class represents an abstract problem-solution-space divergence. It provides the common attributes and methods
  * for specific divergence types (subclasses) as well as the required methods for saving divergences as a KernelHaven
- * result.
+ * result.<br><br>
+ * 
+ * The involved elements of a divergence must only be added while creating it, i.e., before it is passed on, hashed, or
+ * compared. As {@link #equals(Object)} and {@link #hashCode()} depend on the involved elements, a divergence must not
+ * be changed via the <code>addInvolved*</code> methods once it is part of a hash-based collection or was passed to
+ * another component.
  * 
  * @author Christian Kröher
  *
  */
 public abstract class Divergence implements ITableRow {
     
+    /**
+     * The headers for writing divergences as a KernelHaven result into an Excel-sheet. This array is shared by all
+     * divergences and must not be modified.
+     */
+    public static final @Nullable Object @NonNull [] HEADER = {"Type", "Problem Space Symptom",
+        "Solution Space Symptom"};
+    
     /**
      * The set of {@link VariabilityVariable}s involved in this divergence. For example, this set may contain variables
      * defined in the variability model, but not used in build and code artifacts
@@ -63,16 +81,77 @@ public abstract class Divergence implements ITableRow {
      */
     protected @NonNull Set<CodeElement> involvedCodeElements;
     
+    /**
+     * The rendered content of this divergence as returned by {@link #getContent()}. This array is created lazily on the
+     * first call of {@link #getContent()} and reset to <code>null</code> by each of the <code>addInvolved*</code>
+     * methods.
+     */
+    private @Nullable Object @Nullable [] content;
+    
+    /**
+     * The cached return value of {@link #getInvolvedVariablesDescription()}; <code>null</code>, if not yet created or
+     * invalidated by adding further variables.
+     */
+    private @Nullable String involvedVariablesDescription;
+    
+    /**
+     * The cached return value of {@link #getInvolvedSourceFilesDescription()}; <code>null</code>, if not yet created
+     * or invalidated by adding further source files.
+     */
+    private @Nullable String involvedSourceFilesDescription;
+    
+    /**
+     * The cached return value of {@link #getInvolvedCodeElementsDescription()}; <code>null</code>, if not yet created
+     * or invalidated by adding further code elements.
+     */
+    private @Nullable String involvedCodeElementsDescription;
+    
+    /**
+     * The cached return value of {@link #getFingerprint()}; only valid, if {@link #fingerprintValid} is
+     * <code>true</code>.
+     */
+    private long fingerprint;
+    
+    /**
+     * The definition of whether the {@link #fingerprint} is calculated and not invalidated by adding further involved
+     * elements.
+     */
+    private boolean fingerprintValid;
+    
     /**
      * Create an {@link Divergence} instance and initializes the {@link #involvedVariables},
-     * {@link #involvedSourceFiles}, and {@link #involvedCodeElements} sets.
+     * {@link #involvedSourceFiles}, and {@link #involvedCodeElements} sets. Initially, these sets are the shared
+     * <i>empty</i> set. They are replaced by a singleton set for the first element and by a {@link CompactSet} for
+     * further elements, when adding elements via the <code>addInvolved*</code> methods. Hence, divergences only
+     * allocate memory for the elements actually involved in them.
      */
     public Divergence() {
-        involvedVariables = new HashSet<VariabilityVariable>();
-        involvedSourceFiles = new HashSet<SourceFile>();
-        involvedCodeElements = new HashSet<CodeElement>();
+        involvedVariables = Collections.emptySet();
+        involvedSourceFiles = Collections.emptySet();
+        involvedCodeElements = Collections.emptySet();
     } 
     
+    /**
+     * Adds the given element to the given set. If the given set is the shared <i>empty</i> set or a singleton set, a
+     * new set containing the previous and the given element is returned.
+     * 
+     * @param <E> the type of the elements in the set
+     * @param set the set to add the element to
+     * @param element the element to add
+     * @return the set containing the given element; may be the given or a new set
+     */
+    private static <E> @NonNull Set<E> add(@NonNull Set<E> set, E element) {
+        Set<E> resultSet = set;
+        if (set.isEmpty()) {
+            resultSet = Collections.singleton(element);
+        } else if (set instanceof CompactSet || set.size() > 1) {
+            set.add(element);
+        } else if (!set.contains(element)) {
+            resultSet = new CompactSet<>(set.iterator().next(), element);
+        }
+        return resultSet;
+    }
+    
     /**
      * Adds the given {@link VariabilityVariable} to this divergence as it is involved in it. For example, the given
      * variable is part of the symptom or the cause of this divergence.
@@ -80,7 +159,10 @@ public abstract class Divergence implements ITableRow {
      * @param variable the {@link VariabilityVariable} involved in this divergence
      */
     public void addInvolvedVariable(@NonNull VariabilityVariable variable) {
-        involvedVariables.add(variable);
+        involvedVariables = add(involvedVariables, variable);
+        involvedVariablesDescription = null;
+        content = null;
+        fingerprintValid = false;
     }
     
     /**
@@ -90,7 +172,12 @@ public abstract class Divergence implements ITableRow {
      * @param variables the collection of {@link VariabilityVariable}s involved in this divergence
      */
     public void addInvolvedVariables(@NonNull Collection<VariabilityVariable> variables) {
-        involvedVariables.addAll(variables);
+        for (VariabilityVariable variable : variables) {
+            involvedVariables = add(involvedVariables, variable);
+        }
+        involvedVariablesDescription = null;
+        content = null;
+        fingerprintValid = false;
     }
     
     /**
@@ -100,7 +187,10 @@ public abstract class Divergence implements ITableRow {
      * @param sourceFile the {@link SourceFile} involved in this divergence
      */
     public void addInvolvedSourceFile(@NonNull SourceFile<?> sourceFile) {
-        involvedSourceFiles.add(sourceFile);
+        involvedSourceFiles = add(involvedSourceFiles, sourceFile);
+        involvedSourceFilesDescription = null;
+        content = null;
+        fingerprintValid = false;
     }
     
     /**
@@ -110,7 +200,12 @@ public abstract class Divergence implements ITableRow {
      * @param sourceFiles the collection of {@link SourceFile}s involved in this divergence
      */
     public void addInvolvedSourceFiles(@NonNull Collection<SourceFile<?>> sourceFiles) {
-        involvedSourceFiles.addAll(sourceFiles);
+        for (SourceFile<?> sourceFile : sourceFiles) {
+            involvedSourceFiles = add(involvedSourceFiles, sourceFile);
+        }
+        involvedSourceFilesDescription = null;
+        content = null;
+        fingerprintValid = false;
     }
     
     /**
@@ -120,7 +215,10 @@ public abstract class Divergence implements ITableRow {
      * @param codeElement the {@link CodeElement} involved in this divergence
      */
     public void addInvolvedCodeElement(@NonNull CodeElement codeElement) {
-        involvedCodeElements.add(codeElement);
+        involvedCodeElements = add(involvedCodeElements, codeElement);
+        involvedCodeElementsDescription = null;
+        content = null;
+        fingerprintValid = false;
     }
     
     /**
@@ -130,14 +228,19 @@ public abstract class Divergence implements ITableRow {
      * @param codeElements the collection of {@link CodeElement}s involved in this divergence
      */
     public void addInvolvedCodeElements(@NonNull Collection<CodeElement<?>> codeElements) {
-        involvedCodeElements.addAll(codeElements);
+        for (CodeElement<?> codeElement : codeElements) {
+            involvedCodeElements = add(involvedCodeElements, codeElement);
+        }
+        involvedCodeElementsDescription = null;
+        content = null;
+        fingerprintValid = false;
     }
 
     /**
      * Returns the set of {@link VariabilityVariable}s involved in this divergence.
      * 
      * @return the set of involved {@link VariabilityVariable}s; can be <i>empty</i>, if no variable is involved in this
-     *         divergence
+     *         divergence; must not be modified (use {@link #addInvolvedVariable(VariabilityVariable)} instead)
      */
     public @NonNull Set<VariabilityVariable> getInvolvedVariables() {
         return involvedVariables;
@@ -163,11 +266,32 @@ public abstract class Divergence implements ITableRow {
         return involvedVariablesString;
     }
     
+    /**
+     * Returns the names of all {@link VariabilityVariable}s involved in this divergence formatted for a description
+     * (see {@link #toDescriptionString(List)}). The returned string is created once and cached until further
+     * variables are added.
+     * 
+     * @return the formatted names of all involved {@link VariabilityVariable}s or an <i>empty</i> string, if no
+     *         variable is involved in this divergence
+     */
+    protected @NonNull String getInvolvedVariablesDescription() {
+        String description = involvedVariablesDescription;
+        if (description == null) {
+            List<String> names = new ArrayList<>(involvedVariables.size());
+            for (VariabilityVariable variable : involvedVariables) {
+                names.add(variable.getName());
+            }
+            description = toDescriptionString(names);
+            involvedVariablesDescription = description;
+        }
+        return description;
+    }
+    
     /**
      * Returns the set of {@link SourceFile}s involved in this divergence.
      * 
      * @return the set of involved {@link SourceFile}s; can be <i>empty</i>, if no source file is involved in this
-     *         divergence
+     *         divergence; must not be modified (use {@link #addInvolvedSourceFile(SourceFile)} instead)
      */
     public @NonNull Set<SourceFile> getInvolvedSourceFiles() {
         return involvedSourceFiles;
@@ -193,11 +317,32 @@ public abstract class Divergence implements ITableRow {
         return involvedSourceFilesString;
     }
     
+    /**
+     * Returns the paths of all {@link SourceFile}s involved in this divergence formatted for a description (see
+     * {@link #toDescriptionString(List)}). The returned string is created once and cached until further source files
+     * are added.
+     * 
+     * @return the formatted paths of all involved {@link SourceFile}s or an <i>empty</i> string, if no source file is
+     *         involved in this divergence
+     */
+    protected @NonNull String getInvolvedSourceFilesDescription() {
+        String description = involvedSourceFilesDescription;
+        if (description == null) {
+            List<String> paths = new ArrayList<>(involvedSourceFiles.size());
+            for (SourceFile sourceFile : involvedSourceFiles) {
+                paths.add(sourceFile.getPath().getPath());
+            }
+            description = toDescriptionString(paths);
+            involvedSourceFilesDescription = description;
+        }
+        return description;
+    }
+    
     /**
      * Returns the set of {@link CodeElement}s involved in this divergence.
      * 
      * @return the set of involved {@link CodeElement}s; can be <i>empty</i>, if no code element is involved in this
-     *         divergence
+     *         divergence; must not be modified (use {@link #addInvolvedCodeElement(CodeElement)} instead)
      */
     public @NonNull Set<CodeElement> getInvolvedCodeElements() {
         return involvedCodeElements;
@@ -216,8 +361,7 @@ public abstract class Divergence implements ITableRow {
         if (!involvedCodeElements.isEmpty()) {
             StringBuilder stringBuilder = new StringBuilder();
             for (CodeElement codeElement : involvedCodeElements) {
-                stringBuilder.append(codeElement.getSourceFile().getPath() + "[" + codeElement.getLineStart() + "-" 
-                    + codeElement.getLineEnd() + "]");
+                appendCodeElement(stringBuilder, codeElement);
                 stringBuilder.append(' ');
             }
             involvedCodeElementsString = stringBuilder.toString().trim();
@@ -225,6 +369,137 @@ public abstract class Divergence implements ITableRow {
         return involvedCodeElementsString;
     }
     
+    /**
+     * Returns the start and end line numbers as well as the parent {@link SourceFile}'s paths of all
+     * {@link CodeElement}s involved in this divergence formatted for a description (see
+     * {@link #toDescriptionString(List)}). The returned string is created once and cached until further code elements
+     * are added.
+     * 
+     * @return the formatted information of all involved {@link CodeElement}s or an <i>empty</i> string, if no code
+     *         element is involved in this divergence
+     */
+    protected @NonNull String getInvolvedCodeElementsDescription() {
+        String description = involvedCodeElementsDescription;
+        if (description == null) {
+            List<String> codeElements = new ArrayList<>(involvedCodeElements.size());
+            StringBuilder stringBuilder = new StringBuilder();
+            for (CodeElement codeElement : involvedCodeElements) {
+                stringBuilder.setLength(0);
+                appendCodeElement(stringBuilder, codeElement);
+                codeElements.add(stringBuilder.toString());
+            }
+            description = toDescriptionString(codeElements);
+            involvedCodeElementsDescription = description;
+        }
+        return description;
+    }
+    
+    /**
+     * Appends the names of all {@link VariabilityVariable}s involved in this divergence formatted for a description to
+     * the given {@link Appendable}. The appended text equals {@link #getInvolvedVariablesDescription()}, but the names
+     * are appended one after another without joining them (or caching the result).
+     * 
+     * @param out the {@link Appendable} to append the description to
+     * @throws IOException if appending fails
+     */
+    protected void appendInvolvedVariablesDescription(@NonNull Appendable out) throws IOException {
+        int index = 0;
+        for (VariabilityVariable variable : involvedVariables) {
+            boolean quoted = appendDescriptionSeparator(out, index++, involvedVariables.size());
+            out.append(variable.getName());
+            if (quoted) {
+                out.append('"');
+            }
+        }
+    }
+    
+    /**
+     * Appends the paths of all {@link SourceFile}s involved in this divergence formatted for a description to the given
+     * {@link Appendable}. The appended text equals {@link #getInvolvedSourceFilesDescription()}, but the paths are
+     * appended one after another without joining them (or caching the result).
+     * 
+     * @param out the {@link Appendable} to append the description to
+     * @throws IOException if appending fails
+     */
+    protected void appendInvolvedSourceFilesDescription(@NonNull Appendable out) throws IOException {
+        int index = 0;
+        for (SourceFile sourceFile : involvedSourceFiles) {
+            boolean quoted = appendDescriptionSeparator(out, index++, involvedSourceFiles.size());
+            out.append(sourceFile.getPath().getPath());
+            if (quoted) {
+                out.append('"');
+            }
+        }
+    }
+    
+    /**
+     * Appends the information of all {@link CodeElement}s involved in this divergence formatted for a description to
+     * the given {@link Appendable}. The appended text equals {@link #getInvolvedCodeElementsDescription()}, but the
+     * information of each element is appended directly without creating intermediate strings.
+     * 
+     * @param out the {@link Appendable} to append the description to
+     * @throws IOException if appending fails
+     */
+    protected void appendInvolvedCodeElementsDescription(@NonNull Appendable out) throws IOException {
+        int index = 0;
+        for (CodeElement codeElement : involvedCodeElements) {
+            boolean quoted = appendDescriptionSeparator(out, index++, involvedCodeElements.size());
+            out.append(codeElement.getSourceFile().getPath()).append('[')
+                    .append(Integer.toString(codeElement.getLineStart())).append('-')
+                    .append(Integer.toString(codeElement.getLineEnd())).append(']');
+            if (quoted) {
+                out.append('"');
+            }
+        }
+    }
+    
+    /**
+     * Appends the separator preceding the element with the given index in a description as created by
+     * {@link #toDescriptionString(List)} to the given {@link Appendable}. This includes the opening quotation mark, if
+     * the element is quoted.
+     * 
+     * @param out the {@link Appendable} to append the separator to
+     * @param index the index of the next element
+     * @param count the number of elements in the description
+     * @return <code>true</code>, if the element is quoted and the caller has to append the closing quotation mark;
+     *         <code>false</code> otherwise
+     * @throws IOException if appending fails
+     */
+    private static boolean appendDescriptionSeparator(@NonNull Appendable out, int index, int count)
+            throws IOException {
+        // Only the first and the last element are quoted; see toDescriptionString(List)
+        boolean quoted = index == 0 || index == count - 1;
+        if (index > 0) {
+            if (count == 2) {
+                out.append(" and ");
+            } else if (quoted) {
+                out.append(", and ");
+            } else {
+                out.append(", ");
+            }
+        }
+        if (quoted) {
+            out.append('"');
+        }
+        return quoted;
+    }
+    
+    /**
+     * Appends the parent {@link SourceFile}'s path as well as the start and end line numbers of the given
+     * {@link CodeElement} to the given {@link StringBuilder}, e.g., "path/to/file.c[10-20]".
+     * 
+     * @param stringBuilder the {@link StringBuilder} to append the information to
+     * @param codeElement the {@link CodeElement} to append
+     */
+    private static void appendCodeElement(@NonNull StringBuilder stringBuilder, @NonNull CodeElement codeElement) {
+        stringBuilder.append(codeElement.getSourceFile().getPath());
+        stringBuilder.append('[');
+        stringBuilder.append(codeElement.getLineStart());
+        stringBuilder.append('-');
+        stringBuilder.append(codeElement.getLineEnd());
+        stringBuilder.append(']');
+    }
+    
     /**
      * Returns the name of the type of this divergence. The returned value will be used to write this divergence as a
      * result into an Excel-sheet.
@@ -236,48 +511,172 @@ public abstract class Divergence implements ITableRow {
     /**
      * Returns the problematic information in the problem space (artifacts), which causes this divergence in combination
      * with the solution space symptom. The returned value will be used to write this divergence as a result into an
-     * Excel-sheet.
+     * Excel-sheet. The symptom is rendered via {@link #appendProblemSpaceSymptom(Appendable)}.
      *  
      * @return the problematic information in the problem space causing this divergence
      * @see #getSolutionSpaceSymptom()
      */
-    public abstract @NonNull String getProblemSpaceSymptom();
+    public @NonNull String getProblemSpaceSymptom() {
+        StringBuilder symptomBuilder = new StringBuilder();
+        try {
+            appendProblemSpaceSymptom(symptomBuilder);
+        } catch (IOException e) {
+            // Cannot happen, as a StringBuilder never throws an IOException
+            throw new IllegalStateException(e);
+        }
+        return symptomBuilder.toString();
+    }
     
     /**
      * Returns the problematic information in the solution space (artifacts), which causes this divergence in
      * combination with the problem space symptom. The returned value will be used to write this divergence as a result
-     * into an Excel-sheet.
+     * into an Excel-sheet. The symptom is rendered via {@link #appendSolutionSpaceSymptom(Appendable)}.
      * 
      * @return the problematic information in the solution space causing this divergence
      * @see #getProblemSpaceSymptom()
      */
-    public abstract @NonNull String getSolutionSpaceSymptom();
+    public @NonNull String getSolutionSpaceSymptom() {
+        StringBuilder symptomBuilder = new StringBuilder();
+        try {
+            appendSolutionSpaceSymptom(symptomBuilder);
+        } catch (IOException e) {
+            // Cannot happen, as a StringBuilder never throws an IOException
+            throw new IllegalStateException(e);
+        }
+        return symptomBuilder.toString();
+    }
+    
+    /**
+     * Appends the problem space symptom of this divergence (see {@link #getProblemSpaceSymptom()}) to the given
+     * {@link Appendable}. Subclasses should append the symptom piece by piece (e.g., via the
+     * <code>appendInvolved*Description()</code> methods), such that writers streaming large numbers of divergences
+     * (like the {@link net.ssehub.kernel_haven.pss_divergence_detector.io.DivergenceCsvWriter}) never create the
+     * entire symptom string.
+     * 
+     * @param out the {@link Appendable} to append the symptom to
+     * @throws IOException if appending fails
+     */
+    public abstract void appendProblemSpaceSymptom(@NonNull Appendable out) throws IOException;
+    
+    /**
+     * Appends the solution space symptom of this divergence (see {@link #getSolutionSpaceSymptom()}) to the given
+     * {@link Appendable}. Subclasses should append the symptom as described for
+     * {@link #appendProblemSpaceSymptom(Appendable)}.
+     * 
+     * @param out the {@link Appendable} to append the symptom to
+     * @throws IOException if appending fails
+     */
+    public abstract void appendSolutionSpaceSymptom(@NonNull Appendable out) throws IOException;
     
     @Override
     public @Nullable Object @NonNull [] getHeader() {
         // For writing the Excel-sheet headers
-        String[] headers = {"Type", "Problem Space Symptom", "Solution Space Symptom"};
-        return headers;
+        return HEADER;
     }
 
     @Override
     public @Nullable Object @NonNull [] getContent() {
-        // For writing each divergence as a single row and in accordance to the headers defined above to the Excel-sheet
-        String[] content = {getType(), getProblemSpaceSymptom(), getSolutionSpaceSymptom()};
-        return content;
+        /*
+         * For writing each divergence as a single row and in accordance to the headers defined above to the
+         * Excel-sheet. The row is rendered only once as the output writer and the corrector request it multiple times.
+         */
+        Object[] renderedContent = content;
+        if (renderedContent == null) {
+            renderedContent = new String[] {getType(), getProblemSpaceSymptom(), getSolutionSpaceSymptom()};
+            content = renderedContent;
+        }
+        return renderedContent;
+    }
+    
+    /**
+     * Returns the structural fingerprint of this divergence. It is a 64-bit hash of the type of this divergence and
+     * the names of the involved {@link VariabilityVariable}s, the paths of the involved {@link SourceFile}s, and the
+     * paths and line ranges of the involved {@link CodeElement}s, independent of the order of these elements (see
+     * {@link DivergenceKey}). In contrast to the symptoms, it is calculated without rendering any strings. The
+     * fingerprint is calculated once and cached until further elements are added.
+     * 
+     * @return the fingerprint of this divergence
+     */
+    public long getFingerprint() {
+        if (!fingerprintValid) {
+            fingerprint = DivergenceKey.fingerprint(this);
+            fingerprintValid = true;
+        }
+        return fingerprint;
+    }
+    
+    /**
+     * Checks whether the given object is a divergence of the same type with the same involved elements. The
+     * {@link #getFingerprint()}s only serve as a fast path rejecting different divergences; divergences with the same
+     * fingerprint and type are compared by the names of their involved variables, the paths of their involved source
+     * files, and the paths and line ranges of their involved code elements. As adding involved elements changes the
+     * result of this method, divergences must not be changed once they are hashed or compared (see
+     * {@link Divergence}).
+     * 
+     * @param obj the object to compare with
+     * @return <code>true</code>, if the given object is an identical divergence; <code>false</code> otherwise
+     */
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        boolean equal = obj == this;
+        if (!equal && obj instanceof Divergence) {
+            Divergence other = (Divergence) obj;
+            equal = getFingerprint() == other.getFingerprint() && getType().equals(other.getType())
+                    && haveSameKeys(involvedVariables, other.involvedVariables, VariabilityVariable::getName)
+                    && haveSameKeys(involvedSourceFiles, other.involvedSourceFiles,
+                        sourceFile -> sourceFile.getPath().getPath())
+                    && haveSameKeys(involvedCodeElements, other.involvedCodeElements,
+                        codeElement -> codeElement.getSourceFile().getPath() + "[" + codeElement.getLineStart() + "-"
+                                + codeElement.getLineEnd() + "]");
+        }
+        return equal;
+    }
+    
+    /**
+     * Checks whether the given collections contain elements with the same keys, like the names of variables. This
+     * compares involved elements the same way as the {@link #getFingerprint()}, i.e., independent of their order and of
+     * the <code>equals()</code> implementations of their classes.
+     * 
+     * @param <T> the type of the elements
+     * @param elements the first collection of elements
+     * @param otherElements the second collection of elements
+     * @param keyFunction the function returning the key of an element
+     * @return <code>true</code>, if both collections contain elements with the same keys; <code>false</code> otherwise
+     */
+    private static <T> boolean haveSameKeys(@NonNull Collection<T> elements, @NonNull Collection<T> otherElements,
+            @NonNull Function<T, String> keyFunction) {
+        boolean same = elements.size() == otherElements.size();
+        if (same && !elements.isEmpty()) {
+            Set<String> keys = new HashSet<>();
+            for (T element : elements) {
+                keys.add(keyFunction.apply(element));
+            }
+            Iterator<T> otherElementsIterator = otherElements.iterator();
+            while (same && otherElementsIterator.hasNext()) {
+                same = keys.contains(keyFunction.apply(otherElementsIterator.next()));
+            }
+        }
+        return same;
+    }
+    
+    @Override
+    public int hashCode() {
+        long hash = getFingerprint();
+        return (int) (hash ^ (hash >>> 32));
     }
     
     @Override
     public @NonNull String toString() {
+        Object[] renderedContent = getContent();
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("Divergence Type = ");
-        stringBuilder.append(getType());
+        stringBuilder.append(renderedContent[0]);
         stringBuilder.append('\t');
         stringBuilder.append("Problem Space Symptom = ");
-        stringBuilder.append(getProblemSpaceSymptom());
+        stringBuilder.append(renderedContent[1]);
         stringBuilder.append('\t');
         stringBuilder.append("Solution Space Symptom = ");
-        stringBuilder.append(getSolutionSpaceSymptom());
+        stringBuilder.append(renderedContent[2]);
         return stringBuilder.toString();
     }
     
@@ -288,31 +687,62 @@ public abstract class Divergence implements ITableRow {
      * <ul>Input parameter value = "VariableA VariableB VariableC"</ul>
      * <ul>Return value = ""VariableA", "VariableB", and "VariableC""</ul>
      * <li>
+     * Subclasses should prefer {@link #toDescriptionString(List)} or the cached <code>getInvolved*Description()</code>
+     * methods, which avoid joining and splitting the involved elements.
      * 
      * @param involvedElements the string containing whitespace-separated elements involved in a {@link Divergence}
      * @return a string containing the involved elements properly formatted for a description; can be <i>empty</i> if
      *         the given string does not contain any characters
      */
     protected @NonNull String toDescriptionString(@NonNull String involvedElements) {
-        StringBuilder descriptionStringBuilder = new StringBuilder("");
-        if (!involvedElements.isEmpty()) {            
-            String[] splittedInvolvedElements = involvedElements.split("\\s+");
-            int involvedElementsNumber = splittedInvolvedElements.length;
-            if (involvedElementsNumber > 0) {
-                descriptionStringBuilder.append("\"" + splittedInvolvedElements[0] + "\"");
-                if (involvedElementsNumber == 2) {
-                    // Exactly 2 elements: return ""Elem1" and "Elem2""
-                    descriptionStringBuilder.append(" and ");
-                    descriptionStringBuilder.append("\"" + splittedInvolvedElements[1] + "\"");
-                } else if (involvedElementsNumber > 2) {
-                    // More than 2 elements: return ""Elem1, Elem2, [...], and "ElemX""
-                    for (int i = 1; i < involvedElementsNumber - 1; i++) {
-                        descriptionStringBuilder.append(", ");
-                        descriptionStringBuilder.append(splittedInvolvedElements[i]);
-                    }
-                    descriptionStringBuilder.append(", and ");
-                    descriptionStringBuilder.append("\"" + splittedInvolvedElements[involvedElementsNumber - 1] + "\"");
+        List<String> splittedInvolvedElements = new ArrayList<>();
+        int elementStart = -1;
+        for (int i = 0; i < involvedElements.length(); i++) {
+            if (Character.isWhitespace(involvedElements.charAt(i))) {
+                if (elementStart >= 0) {
+                    splittedInvolvedElements.add(involvedElements.substring(elementStart, i));
+                    elementStart = -1;
+                }
+            } else if (elementStart < 0) {
+                elementStart = i;
+            }
+        }
+        if (elementStart >= 0) {
+            splittedInvolvedElements.add(involvedElements.substring(elementStart));
+        }
+        return toDescriptionString(splittedInvolvedElements);
+    }
+    
+    /**
+     * Converts the given list of elements involved in a {@link Divergence} into a string appropriate for including it
+     * into a description. The result will be a formatted listing, e.g.:
+     * <li>
+     * <ul>Input parameter value = ["VariableA", "VariableB", "VariableC"]</ul>
+     * <ul>Return value = ""VariableA", "VariableB", and "VariableC""</ul>
+     * <li>
+     * 
+     * @param involvedElements the list of elements involved in a {@link Divergence}
+     * @return a string containing the involved elements properly formatted for a description; can be <i>empty</i> if
+     *         the given list is <i>empty</i>
+     */
+    protected static @NonNull String toDescriptionString(@NonNull List<String> involvedElements) {
+        StringBuilder descriptionStringBuilder = new StringBuilder();
+        int involvedElementsNumber = involvedElements.size();
+        if (involvedElementsNumber > 0) {
+            descriptionStringBuilder.append('"').append(involvedElements.get(0)).append('"');
+            if (involvedElementsNumber == 2) {
+                // Exactly 2 elements: return ""Elem1" and "Elem2""
+                descriptionStringBuilder.append(" and ");
+                descriptionStringBuilder.append('"').append(involvedElements.get(1)).append('"');
+            } else if (involvedElementsNumber > 2) {
+                // More than 2 elements: return ""Elem1, Elem2, [...], and "ElemX""
+                for (int i = 1; i < involvedElementsNumber - 1; i++) {
+                    descriptionStringBuilder.append(", ");
+                    descriptionStringBuilder.append(involvedElements.get(i));
                 }
+                descriptionStringBuilder.append(", and ");
+                descriptionStringBuilder.append('"').append(involvedElements.get(involvedElementsNumber - 1))
+                        .append('"');
             }
         }
         return descriptionStringBuilder.toString();
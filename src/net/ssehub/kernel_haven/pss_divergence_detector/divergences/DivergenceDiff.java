@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class compares the divergences of two runs, like the current and the previous release or the current run and
+ * a baseline, and reports the added and the resolved divergences. Divergences are identified by their fingerprint
+ * (see {@link Divergence#getFingerprint()}); neither symptoms nor other strings are rendered or compared.<br><br>
+ * 
+ * The comparison takes linear time in the number of divergences of both runs. Only the fingerprints are kept in
+ * memory (in {@link FingerprintSet}s of primitive <code>long</code>s), such that runs with millions of divergences
+ * require a few ten megabytes at most. For this purpose, the divergences of the previous run are iterated twice, but
+ * never collected. Hence, they can be read lazily, e.g., via the
+ * {@link net.ssehub.kernel_haven.pss_divergence_detector.io.BinaryDivergenceReader}, whose records provide the same
+ * fingerprints as the original divergences.<br><br>
+ * 
+ * The divergences of each run are treated as a set: multiple divergences with the same fingerprint in the same run
+ * are reported at most once.
+ * 
+ * @param <D> the type of the compared divergences, like {@link Divergence}
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class DivergenceDiff<D> {
+
+    /**
+     * The function calculating the fingerprint of each compared divergence.
+     */
+    private @NonNull ToLongFunction<D> fingerprintFunction;
+
+    /**
+     * The number of divergences of the current run not included in the previous run.
+     */
+    private int addedCount;
+
+    /**
+     * The number of divergences of the previous run not included in the current run.
+     */
+    private int resolvedCount;
+
+    /**
+     * The number of divergences included in both runs.
+     */
+    private int unchangedCount;
+
+    /**
+     * Creates a {@link DivergenceDiff} instance.
+     * 
+     * @param fingerprintFunction the function calculating the fingerprint of each compared divergence
+     */
+    public DivergenceDiff(@NonNull ToLongFunction<D> fingerprintFunction) {
+        this.fingerprintFunction = fingerprintFunction;
+    }
+
+    /**
+     * Creates a {@link DivergenceDiff} instance for comparing {@link Divergence} objects.
+     * 
+     * @return the new {@link DivergenceDiff}
+     */
+    public static @NonNull DivergenceDiff<Divergence> forDivergences() {
+        return new DivergenceDiff<>(Divergence::getFingerprint);
+    }
+
+    /**
+     * Compares the given divergences of the previous and the current run. Each divergence of the current run, which is
+     * not part of the previous run, is passed to the given consumer of added divergences (in the order of the current
+     * run). Afterwards, each divergence of the previous run, which is not part of the current run, is passed to the
+     * given consumer of resolved divergences (in the order of the previous run). The counts of this instance are
+     * reset before comparing.
+     * 
+     * @param previousDivergences the divergences of the previous run; iterated twice
+     * @param currentDivergences the divergences of the current run; iterated once
+     * @param addedConsumer the consumer of the added divergences
+     * @param resolvedConsumer the consumer of the resolved divergences
+     */
+    public void compare(@NonNull Iterable<? extends D> previousDivergences,
+            @NonNull Iterable<? extends D> currentDivergences, @NonNull Consumer<? super D> addedConsumer,
+            @NonNull Consumer<? super D> resolvedConsumer) {
+        addedCount = 0;
+        resolvedCount = 0;
+        unchangedCount = 0;
+        FingerprintSet previousFingerprints = new FingerprintSet();
+        for (D divergence : previousDivergences) {
+            previousFingerprints.add(fingerprintFunction.applyAsLong(divergence));
+        }
+        FingerprintSet currentFingerprints = new FingerprintSet();
+        for (D divergence : currentDivergences) {
+            long fingerprint = fingerprintFunction.applyAsLong(divergence);
+            if (currentFingerprints.add(fingerprint)) {
+                if (previousFingerprints.contains(fingerprint)) {
+                    unchangedCount++;
+                } else {
+                    addedCount++;
+                    addedConsumer.accept(divergence);
+                }
+            }
+        }
+        // Removing reported fingerprints ensures that duplicates in the previous run are reported only once
+        for (D divergence : previousDivergences) {
+            long fingerprint = fingerprintFunction.applyAsLong(divergence);
+            if (!currentFingerprints.contains(fingerprint) && previousFingerprints.remove(fingerprint)) {
+                resolvedCount++;
+                resolvedConsumer.accept(divergence);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of divergences of the current run, which are not part of the previous run, as found by the
+     * last comparison.
+     * 
+     * @return the number of added divergences
+     */
+    public int getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * Returns the number of divergences of the previous run, which are not part of the current run, as found by the
+     * last comparison.
+     * 
+     * @return the number of resolved divergences
+     */
+    public int getResolvedCount() {
+        return resolvedCount;
+    }
+
+    /**
+     * Returns the number of divergences, which are part of both runs, as found by the last comparison.
+     * 
+     * @return the number of unchanged divergences
+     */
+    public int getUnchangedCount() {
+        return unchangedCount;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class re-creates {@link Divergence}s from their type and their involved elements, e.g., when restoring the
+ * divergences of a previous run from the cache of the incremental detection or the divergences of a shard from its
+ * binary file. Divergences of the types provided by this plug-in are re-created as instances of their original class,
+ * such that subsequent analysis components distinguish them as usual, e.g., via <code>instanceof</code>. Divergences
+ * of other types, like those of custom rules, are restored as {@link CachedDivergence}s with their stored symptoms.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public final class DivergenceFactory {
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private DivergenceFactory() {
+    }
+
+    /**
+     * Re-creates the {@link Divergence} with the given type, symptoms, and involved elements. If the type is provided
+     * by this plug-in and the involved elements match the structure of this type (e.g., a single source file for
+     * {@link DeadArtifactDivergence}s), an instance of the original class is returned, whose symptoms are rendered from
+     * the given elements. Otherwise, a {@link CachedDivergence} with the given symptoms is returned.
+     * 
+     * @param type the type of the divergence (see {@link Divergence#getType()})
+     * @param problemSpaceSymptom the problem space symptom of the original divergence
+     * @param solutionSpaceSymptom the solution space symptom of the original divergence
+     * @param variables the involved variables in their original order; undefined variables must be the placeholders of
+     *        the given pool (see {@link InvolvedElementPool#getPlaceholderVariable(String)})
+     * @param sourceFiles the involved source files in their original order
+     * @param codeElements the involved code elements in their original order
+     * @param elementPool the {@link InvolvedElementPool} of the current detection run
+     * @return the re-created {@link Divergence}; never <code>null</code>
+     */
+    public static @NonNull Divergence create(@NonNull String type, @NonNull String problemSpaceSymptom,
+            @NonNull String solutionSpaceSymptom, @NonNull List<VariabilityVariable> variables,
+            @NonNull List<SourceFile<?>> sourceFiles, @NonNull List<CodeElement<?>> codeElements,
+            @NonNull InvolvedElementPool elementPool) {
+        Divergence divergence = null;
+        if (type.equals(UnusedVariableDivergence.class.getSimpleName())) {
+            if (variables.size() == 1 && sourceFiles.isEmpty() && codeElements.isEmpty()) {
+                divergence = new UnusedVariableDivergence(variables.get(0));
+            }
+        } else if (type.equals(UndefinedVariableDivergence.class.getSimpleName())) {
+            if (variables.size() == 1) {
+                divergence = new UndefinedVariableDivergence(variables.get(0).getName(), sourceFiles, codeElements);
+            }
+        } else if (type.equals(IdenticalMappingDivergence.class.getSimpleName())) {
+            divergence = new IdenticalMappingDivergence(variables, sourceFiles, codeElements);
+        } else if (type.equals(UnbuildableCodeDivergence.class.getSimpleName())) {
+            if (sourceFiles.size() == 1) {
+                // The undefined build variables are exactly the undefined ones, while the code variables are defined
+                List<VariabilityVariable> undefinedBuildVariables = new ArrayList<>();
+                List<VariabilityVariable> codeVariables = new ArrayList<>();
+                for (VariabilityVariable variable : variables) {
+                    if (elementPool.isPlaceholderVariable(variable)) {
+                        undefinedBuildVariables.add(variable);
+                    } else {
+                        codeVariables.add(variable);
+                    }
+                }
+                divergence = new UnbuildableCodeDivergence(undefinedBuildVariables, codeVariables, sourceFiles.get(0),
+                        codeElements);
+            }
+        } else if (type.equals(DeadArtifactDivergence.class.getSimpleName())) {
+            if (sourceFiles.size() == 1) {
+                divergence = new DeadArtifactDivergence(variables, sourceFiles.get(0), codeElements);
+            }
+        } else if (type.equals(UndeadArtifactDivergence.class.getSimpleName())) {
+            if (sourceFiles.size() == 1) {
+                divergence = new UndeadArtifactDivergence(variables, sourceFiles.get(0), codeElements);
+            }
+        }
+        if (divergence == null) {
+            divergence = new CachedDivergence(type, problemSpaceSymptom, solutionSpaceSymptom);
+            divergence.addInvolvedVariables(variables);
+            divergence.addInvolvedSourceFiles(sourceFiles);
+            divergence.addInvolvedCodeElements(codeElements);
+        }
+        return divergence;
+    }
+
+}
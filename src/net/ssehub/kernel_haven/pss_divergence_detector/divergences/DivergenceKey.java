@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class represents the canonical key of a {@link Divergence}, which identifies a divergence independent of the
+ * run (configuration) it was detected in. The key consists of the type of the divergence and the names of the involved
+ * {@link VariabilityVariable}s, the paths of the involved {@link SourceFile}s, and the paths and line ranges of the
+ * involved {@link CodeElement}s. These elements are treated as sets: each element is hashed separately and the hashes
+ * are summed up, which is equivalent to hashing the sorted elements, but does not require sorting.<br><br>
+ * 
+ * Two divergences with the same key are considered identical. Hence, comparing keys only compares two 64-bit hashes
+ * calculated with different seeds instead of comparing strings or sets of involved elements. A collision of both
+ * hashes for different divergences is practically impossible.<br><br>
+ * 
+ * The first hash is also the fingerprint of a divergence (see {@link Divergence#getFingerprint()}). The public
+ * <code>fingerprint*</code> methods calculate it from the plain names, paths, and line ranges, e.g., for divergences
+ * read from a file, such that the result equals the fingerprint of the original divergence.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public final class DivergenceKey {
+
+    /**
+     * The seed of the {@link #first} hash.
+     */
+    private static final long FIRST_SEED = 0x9e3779b97f4a7c15L;
+
+    /**
+     * The seed of the {@link #second} hash.
+     */
+    private static final long SECOND_SEED = 0xc2b2ae3d27d4eb4fL;
+
+    /**
+     * The first hash of the divergence.
+     */
+    private final long first;
+
+    /**
+     * The second hash of the divergence calculated with a different seed than the {@link #first} hash.
+     */
+    private final long second;
+
+    /**
+     * Creates a {@link DivergenceKey} instance.
+     * 
+     * @param first the first hash of the divergence
+     * @param second the second hash of the divergence
+     */
+    private DivergenceKey(long first, long second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * Creates the {@link DivergenceKey} of the given {@link Divergence}.
+     * 
+     * @param divergence the {@link Divergence} to create the key for
+     * @return the {@link DivergenceKey} of the given divergence
+     */
+    public static @NonNull DivergenceKey of(@NonNull Divergence divergence) {
+        return new DivergenceKey(divergence.getFingerprint(), hash(divergence, SECOND_SEED));
+    }
+
+    /**
+     * Calculates the fingerprint of the given {@link Divergence}. Callers should prefer the cached
+     * {@link Divergence#getFingerprint()}.
+     * 
+     * @param divergence the {@link Divergence} to calculate the fingerprint for
+     * @return the fingerprint of the given divergence
+     */
+    static long fingerprint(@NonNull Divergence divergence) {
+        return hash(divergence, FIRST_SEED);
+    }
+
+    /**
+     * Calculates the fingerprint of a single involved variable. The fingerprints of all involved variables must be
+     * summed up and passed to {@link #fingerprint(String, long, long, long)}.
+     * 
+     * @param variableName the name of the involved variable
+     * @return the fingerprint of the involved variable
+     */
+    public static long fingerprintVariable(@NonNull String variableName) {
+        return hashVariable(variableName, FIRST_SEED);
+    }
+
+    /**
+     * Calculates the fingerprint of a single involved source file. The fingerprints of all involved source files must
+     * be summed up and passed to {@link #fingerprint(String, long, long, long)}.
+     * 
+     * @param path the path of the involved source file
+     * @return the fingerprint of the involved source file
+     */
+    public static long fingerprintSourceFile(@NonNull String path) {
+        return hashSourceFile(path, FIRST_SEED);
+    }
+
+    /**
+     * Calculates the fingerprint of a single involved code element. The fingerprints of all involved code elements
+     * must be summed up and passed to {@link #fingerprint(String, long, long, long)}.
+     * 
+     * @param path the path of the source file of the involved code element
+     * @param lineStart the start line of the involved code element
+     * @param lineEnd the end line of the involved code element
+     * @return the fingerprint of the involved code element
+     */
+    public static long fingerprintCodeElement(@NonNull String path, int lineStart, int lineEnd) {
+        return hashCodeElement(path, lineStart, lineEnd, FIRST_SEED);
+    }
+
+    /**
+     * Calculates the fingerprint of a divergence from its type and the sums of the fingerprints of its involved
+     * elements.
+     * 
+     * @param type the type of the divergence (see {@link Divergence#getType()})
+     * @param variablesFingerprint the sum of the fingerprints of all involved variables (see
+     *        {@link #fingerprintVariable(String)})
+     * @param sourceFilesFingerprint the sum of the fingerprints of all involved source files (see
+     *        {@link #fingerprintSourceFile(String)})
+     * @param codeElementsFingerprint the sum of the fingerprints of all involved code elements (see
+     *        {@link #fingerprintCodeElement(String, int, int)})
+     * @return the fingerprint of the divergence
+     */
+    public static long fingerprint(@NonNull String type, long variablesFingerprint, long sourceFilesFingerprint,
+            long codeElementsFingerprint) {
+        return combine(type, variablesFingerprint, sourceFilesFingerprint, codeElementsFingerprint, FIRST_SEED);
+    }
+
+    /**
+     * Calculates the hash of the given {@link Divergence} with the given seed.
+     * 
+     * @param divergence the {@link Divergence} to hash
+     * @param seed the seed of the hash
+     * @return the hash of the given divergence
+     */
+    private static long hash(@NonNull Divergence divergence, long seed) {
+        long variablesHash = 0;
+        for (VariabilityVariable variable : divergence.getInvolvedVariables()) {
+            variablesHash += hashVariable(variable.getName(), seed);
+        }
+        long sourceFilesHash = 0;
+        for (SourceFile<?> sourceFile : divergence.getInvolvedSourceFiles()) {
+            sourceFilesHash += hashSourceFile(sourceFile.getPath().getPath(), seed);
+        }
+        long codeElementsHash = 0;
+        for (CodeElement<?> codeElement : divergence.getInvolvedCodeElements()) {
+            codeElementsHash += hashCodeElement(codeElement.getSourceFile().getPath(), codeElement.getLineStart(),
+                    codeElement.getLineEnd(), seed);
+        }
+        return combine(divergence.getType(), variablesHash, sourceFilesHash, codeElementsHash, seed);
+    }
+
+    /**
+     * Calculates the hash of an involved variable with the given seed.
+     * 
+     * @param variableName the name of the involved variable
+     * @param seed the seed of the hash
+     * @return the hash of the involved variable
+     */
+    private static long hashVariable(@NonNull String variableName, long seed) {
+        return StableHash.mix(StableHash.hash(variableName, seed));
+    }
+
+    /**
+     * Calculates the hash of an involved source file with the given seed.
+     * 
+     * @param path the path of the involved source file
+     * @param seed the seed of the hash
+     * @return the hash of the involved source file
+     */
+    private static long hashSourceFile(@NonNull String path, long seed) {
+        return StableHash.mix(StableHash.hash(path, seed));
+    }
+
+    /**
+     * Calculates the hash of an involved code element with the given seed.
+     * 
+     * @param path the path of the source file of the involved code element
+     * @param lineStart the start line of the involved code element
+     * @param lineEnd the end line of the involved code element
+     * @param seed the seed of the hash
+     * @return the hash of the involved code element
+     */
+    private static long hashCodeElement(@NonNull String path, int lineStart, int lineEnd, long seed) {
+        long hash = StableHash.hash(path, seed);
+        hash = StableHash.mix(hash ^ lineStart);
+        return StableHash.mix(hash ^ lineEnd);
+    }
+
+    /**
+     * Combines the given type and the summed up hashes of the involved elements to the hash of a divergence.
+     * 
+     * @param type the type of the divergence
+     * @param variablesHash the sum of the hashes of all involved variables
+     * @param sourceFilesHash the sum of the hashes of all involved source files
+     * @param codeElementsHash the sum of the hashes of all involved code elements
+     * @param seed the seed of the hash
+     * @return the hash of the divergence
+     */
+    private static long combine(@NonNull String type, long variablesHash, long sourceFilesHash,
+            long codeElementsHash, long seed) {
+        long hash = StableHash.hash(type, seed);
+        hash = StableHash.mix(hash ^ variablesHash);
+        hash = StableHash.mix(hash ^ sourceFilesHash);
+        return StableHash.mix(hash ^ codeElementsHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (first ^ (first >>> 32));
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        boolean equal = false;
+        if (obj instanceof DivergenceKey) {
+            DivergenceKey other = (DivergenceKey) obj;
+            equal = first == other.first && second == other.second;
+        }
+        return equal;
+    }
+
+    @Override
+    public @NonNull String toString() {
+        return String.format("%016x%016x", first, second);
+    }
+
+}
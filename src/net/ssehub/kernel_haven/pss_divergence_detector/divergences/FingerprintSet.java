@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class represents a set of divergence fingerprints (see {@link Divergence#getFingerprint()}) as primitive
+ * <code>long</code>s. It uses open addressing with linear probing. As fingerprints are already well-distributed
+ * hashes, they are used as indexes directly. The value <code>0</code> marks free slots and is tracked separately;
+ * removed fingerprints are replaced by {@link #REMOVED}, which is tracked separately as well.<br><br>
+ * 
+ * Compared to a set of boxed {@link Long}s, this set requires a fraction of the memory and no allocation per
+ * fingerprint. It is used by the {@link DivergenceDiff} and for removing duplicate divergences.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public final class FingerprintSet {
+
+    /**
+     * The marker of slots, whose fingerprint was removed.
+     */
+    private static final long REMOVED = Long.MIN_VALUE;
+
+    /**
+     * The slots of this set; <code>0</code> marks a free slot.
+     */
+    private long @NonNull [] slots;
+
+    /**
+     * The number of used (including removed) slots.
+     */
+    private int usedSlots;
+
+    /**
+     * The definition of whether this set contains the fingerprint <code>0</code>.
+     */
+    private boolean containsZero;
+
+    /**
+     * The definition of whether this set contains the fingerprint {@link #REMOVED}.
+     */
+    private boolean containsRemoved;
+
+    /**
+     * Creates an <i>empty</i> {@link FingerprintSet}.
+     */
+    public FingerprintSet() {
+        slots = new long[1024];
+    }
+
+    /**
+     * Adds the given fingerprint to this set.
+     * 
+     * @param fingerprint the fingerprint to add
+     * @return <code>true</code>, if the fingerprint was added; <code>false</code>, if it was already part of this
+     *         set
+     */
+    public boolean add(long fingerprint) {
+        boolean added;
+        if (fingerprint == 0) {
+            added = !containsZero;
+            containsZero = true;
+        } else if (fingerprint == REMOVED) {
+            added = !containsRemoved;
+            containsRemoved = true;
+        } else {
+            int slot = find(fingerprint);
+            added = slots[slot] == 0;
+            if (added) {
+                slots[slot] = fingerprint;
+                usedSlots++;
+                if (2 * usedSlots > slots.length) {
+                    grow();
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Checks whether this set contains the given fingerprint.
+     * 
+     * @param fingerprint the fingerprint to check
+     * @return <code>true</code>, if this set contains the given fingerprint; <code>false</code> otherwise
+     */
+    public boolean contains(long fingerprint) {
+        boolean contains;
+        if (fingerprint == 0) {
+            contains = containsZero;
+        } else if (fingerprint == REMOVED) {
+            contains = containsRemoved;
+        } else {
+            contains = slots[find(fingerprint)] != 0;
+        }
+        return contains;
+    }
+
+    /**
+     * Removes the given fingerprint from this set.
+     * 
+     * @param fingerprint the fingerprint to remove
+     * @return <code>true</code>, if the fingerprint was removed; <code>false</code>, if it was not part of this
+     *         set
+     */
+    public boolean remove(long fingerprint) {
+        boolean removed;
+        if (fingerprint == 0) {
+            removed = containsZero;
+            containsZero = false;
+        } else if (fingerprint == REMOVED) {
+            removed = containsRemoved;
+            containsRemoved = false;
+        } else {
+            int slot = find(fingerprint);
+            removed = slots[slot] != 0;
+            if (removed) {
+                // The slot remains used to keep the probing sequences of other fingerprints intact
+                slots[slot] = REMOVED;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the slot containing the given fingerprint or the free slot, at which it would be added.
+     * 
+     * @param fingerprint the fingerprint to find; must neither be <code>0</code> nor {@link #REMOVED}
+     * @return the index of the slot
+     */
+    private int find(long fingerprint) {
+        int mask = slots.length - 1;
+        int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        while (slots[slot] != 0 && slots[slot] != fingerprint) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the number of slots and re-adds all fingerprints, which were not removed.
+     */
+    private void grow() {
+        long[] oldSlots = slots;
+        slots = new long[2 * oldSlots.length];
+        usedSlots = 0;
+        for (long fingerprint : oldSlots) {
+            if (fingerprint != 0 && fingerprint != REMOVED) {
+                slots[find(fingerprint)] = fingerprint;
+                usedSlots++;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class defines a divergence denoting multiple variables to control the presence or absence of exactly the same
+ * {@link SourceFile}s and {@link CodeElement}s. Hence, these variables are distinct in the problem space, but
+ * indistinguishable in the solution space.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class IdenticalMappingDivergence extends Divergence {
+
+    /**
+     * Creates a {@link IdenticalMappingDivergence} instance.
+     * 
+     * @param variables the {@link VariabilityVariable}s, which are mapped to identical artifacts; for undefined
+     *        variables, a {@link VariabilityVariable} with the variable name and an <i>empty</i> type is expected
+     * @param sourceFiles the {@link SourceFile}s shared by all given variables
+     * @param codeElements the {@link CodeElement}s shared by all given variables
+     */
+    public IdenticalMappingDivergence(@NonNull Collection<VariabilityVariable> variables,
+            @NonNull Collection<SourceFile<?>> sourceFiles, @NonNull Collection<CodeElement<?>> codeElements) {
+        addInvolvedVariables(variables);
+        addInvolvedSourceFiles(sourceFiles);
+        addInvolvedCodeElements(codeElements);
+    }
+
+    @Override
+    public @NonNull String getType() {
+        return this.getClass().getSimpleName();
+    }
+    
+    @Override
+    public void appendProblemSpaceSymptom(@NonNull Appendable out) throws IOException {
+        appendInvolvedVariablesDescription(out);
+        out.append(" used as distinct variables");
+    }
+    
+    @Override
+    public void appendSolutionSpaceSymptom(@NonNull Appendable out) throws IOException {
+        appendInvolvedVariablesDescription(out);
+        out.append(" used to constrain presence of identical ");
+        if (!involvedSourceFiles.isEmpty()) {
+            out.append("file(s) ");
+            appendInvolvedSourceFilesDescription(out);
+        }
+        if (!involvedCodeElements.isEmpty()) {
+            if (!involvedSourceFiles.isEmpty()) {
+                out.append(" as well as ");
+            }
+            out.append("code element(s) ");
+            appendInvolvedCodeElementsDescription(out);
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class provides pools of shared elements, which may be involved in multiple {@link Divergence}s. Instead of
+ * creating a new object for each divergence, all divergences involving, e.g., the same undefined variable share a
+ * single placeholder {@link VariabilityVariable}. Each detection run owns its own pool, which is passed to all
+ * classes creating divergences in this run and released with the detector. Hence, pooled elements are never shared
+ * between runs and do not outlive the divergences of their run. The pools are thread-safe.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class InvolvedElementPool {
+    
+    /**
+     * The pool of placeholder {@link VariabilityVariable}s for undefined variables. The key is the variable name.
+     */
+    private @NonNull ConcurrentMap<String, VariabilityVariable> placeholderVariables;
+    
+    /**
+     * The pool of {@link SourceFile}s. The key is the path of the source file.
+     */
+    private @NonNull ConcurrentMap<File, SourceFile<?>> sourceFiles;
+    
+    /**
+     * Creates an <i>empty</i> {@link InvolvedElementPool} instance.
+     */
+    public InvolvedElementPool() {
+        placeholderVariables = new ConcurrentHashMap<>();
+        sourceFiles = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Returns the shared placeholder {@link VariabilityVariable} for the undefined variable with the given name. As
+     * an undefined variable is not part of the variability model, the placeholder only provides the name and an
+     * <i>empty</i> type.
+     * 
+     * @param variableName the name of the undefined variable
+     * @return the shared placeholder {@link VariabilityVariable}; never <code>null</code>
+     */
+    public @NonNull VariabilityVariable getPlaceholderVariable(@NonNull String variableName) {
+        return placeholderVariables.computeIfAbsent(variableName, name -> new VariabilityVariable(name, ""));
+    }
+    
+    /**
+     * Checks whether the given {@link VariabilityVariable} is the shared placeholder of an undefined variable (see
+     * {@link #getPlaceholderVariable(String)}).
+     * 
+     * @param variable the {@link VariabilityVariable} to check
+     * @return <code>true</code>, if the given variable is a placeholder of this pool; <code>false</code> otherwise
+     */
+    public boolean isPlaceholderVariable(@NonNull VariabilityVariable variable) {
+        return placeholderVariables.get(variable.getName()) == variable;
+    }
+    
+    /**
+     * Returns the shared {@link SourceFile} with the same path as the given {@link SourceFile}. If no such source file
+     * is pooled yet, the given one is added to the pool and returned.
+     * 
+     * @param sourceFile the {@link SourceFile} to intern
+     * @return the shared {@link SourceFile} with the path of the given one; never <code>null</code>
+     */
+    public @NonNull SourceFile<?> intern(@NonNull SourceFile<?> sourceFile) {
+        SourceFile<?> pooledSourceFile = sourceFiles.putIfAbsent(sourceFile.getPath(), sourceFile);
+        return pooledSourceFile != null ? pooledSourceFile : sourceFile;
+    }
+    
+    /**
+     * Returns the shared {@link SourceFile} with the given path. If no such source file is pooled yet, a new one is
+     * created, added to the pool, and returned.
+     * 
+     * @param path the path of the {@link SourceFile}
+     * @return the shared {@link SourceFile} with the given path; never <code>null</code>
+     */
+    public @NonNull SourceFile<?> getSourceFile(@NonNull File path) {
+        return sourceFiles.computeIfAbsent(path, key -> new SourceFile<>(key));
+    }
+    
+    /**
+     * Removes all elements from the pools. Divergences created before keep their elements, but later divergences
+     * no longer share them. The detector calls this method at the end of its execution.
+     */
+    public void clear() {
+        placeholderVariables.clear();
+        sourceFiles.clear();
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class defines a divergence combining one or more divergences of the same type and the same variable, whose
+ * involved {@link CodeElement}s are nested in each other or adjacent within the same source file. It has its own type
+ * (see {@link #getMergedType()} for the type of the combined divergences) and involves their variable as well as all of
+ * their source files and code elements. Its solution space symptom lists each cluster of nested or adjacent code
+ * elements as a single line range (e.g., "file.c[10-50]" for the blocks "file.c[10-50]", "file.c[20-30]", and
+ * "file.c[40-50]"). Hence, a cluster of related divergent blocks is reported once instead of once per block.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class MergedDivergence extends Divergence {
+
+    /**
+     * The type of the merged divergences.
+     */
+    private @NonNull String type;
+
+    /**
+     * The distinct problem space symptoms of the merged divergences in the order of these divergences.
+     */
+    private @NonNull List<String> problemSpaceSymptoms;
+
+    /**
+     * The merged divergences.
+     */
+    private @NonNull List<Divergence> mergedDivergences;
+
+    /**
+     * The line ranges of the clusters of nested or adjacent involved code elements formatted for a description.
+     */
+    private @NonNull String codeElementRangesDescription;
+
+    /**
+     * The number of line ranges of the clusters of nested or adjacent involved code elements.
+     */
+    private int codeElementRangesCount;
+
+    /**
+     * Creates a {@link MergedDivergence} instance.
+     * 
+     * @param mergedDivergences the divergences to merge; must not be <i>empty</i> and all divergences must have the
+     *        same type and involve the same variable; a single divergence merges its own nested or adjacent code
+     *        elements
+     */
+    public MergedDivergence(@NonNull List<Divergence> mergedDivergences) {
+        this.mergedDivergences = Collections.unmodifiableList(new ArrayList<>(mergedDivergences));
+        type = mergedDivergences.get(0).getType();
+        // All merged divergences involve the same variable
+        addInvolvedVariables(mergedDivergences.get(0).getInvolvedVariables());
+        Set<String> distinctSymptoms = new LinkedHashSet<>();
+        for (Divergence divergence : mergedDivergences) {
+            distinctSymptoms.add(divergence.getProblemSpaceSymptom());
+            for (SourceFile<?> sourceFile : divergence.getInvolvedSourceFiles()) {
+                addInvolvedSourceFile(sourceFile);
+            }
+            for (CodeElement<?> codeElement : divergence.getInvolvedCodeElements()) {
+                addInvolvedCodeElement(codeElement);
+            }
+        }
+        problemSpaceSymptoms = new ArrayList<>(distinctSymptoms);
+        List<String> codeElementRanges = getCodeElementRanges();
+        codeElementRangesCount = codeElementRanges.size();
+        codeElementRangesDescription = toDescriptionString(codeElementRanges);
+    }
+
+    /**
+     * Returns the line ranges of the clusters of nested or adjacent involved code elements, e.g., "file.c[10-50]".
+     * The ranges are grouped by the source files in the order of their first involved code element and sorted by
+     * their start line within each file. Code elements without a valid line range (negative or reversed line numbers)
+     * are never merged.
+     * 
+     * @return the line ranges of the involved code elements
+     */
+    private @NonNull List<String> getCodeElementRanges() {
+        Map<String, List<CodeElement>> codeElementsByPath = new LinkedHashMap<>();
+        for (CodeElement codeElement : involvedCodeElements) {
+            codeElementsByPath.computeIfAbsent(codeElement.getSourceFile().getPath(), path -> new ArrayList<>())
+                    .add(codeElement);
+        }
+        List<String> ranges = new ArrayList<>();
+        for (Map.Entry<String, List<CodeElement>> entry : codeElementsByPath.entrySet()) {
+            List<CodeElement> codeElements = entry.getValue();
+            codeElements.sort(Comparator.comparingInt(CodeElement::getLineStart));
+            int rangeStart = -1;
+            int rangeEnd = -1;
+            for (CodeElement codeElement : codeElements) {
+                int lineStart = codeElement.getLineStart();
+                int lineEnd = codeElement.getLineEnd();
+                if (lineStart < 0 || lineStart > lineEnd) {
+                    ranges.add(entry.getKey() + "[" + lineStart + "-" + lineEnd + "]");
+                } else if (rangeStart >= 0 && lineStart <= rangeEnd + 1) {
+                    // Nested or adjacent to the current range
+                    rangeEnd = Math.max(rangeEnd, lineEnd);
+                } else {
+                    if (rangeStart >= 0) {
+                        ranges.add(entry.getKey() + "[" + rangeStart + "-" + rangeEnd + "]");
+                    }
+                    rangeStart = lineStart;
+                    rangeEnd = lineEnd;
+                }
+            }
+            if (rangeStart >= 0) {
+                ranges.add(entry.getKey() + "[" + rangeStart + "-" + rangeEnd + "]");
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Returns the divergences combined by this divergence.
+     * 
+     * @return the merged divergences in the order of their detection
+     */
+    public @NonNull List<Divergence> getMergedDivergences() {
+        return mergedDivergences;
+    }
+
+    /**
+     * Returns the type of the divergences combined by this divergence.
+     * 
+     * @return the type of the merged divergences (see {@link Divergence#getType()})
+     */
+    public @NonNull String getMergedType() {
+        return type;
+    }
+
+    /**
+     * Returns the number of involved code elements, which are merged into the line range of another code element,
+     * as they are nested in or adjacent to it.
+     * 
+     * @return the number of merged code elements; <code>0</code>, if no code elements are nested or adjacent
+     */
+    public int getMergedCodeElementsCount() {
+        return involvedCodeElements.size() - codeElementRangesCount;
+    }
+
+    @Override
+    public @NonNull String getType() {
+        return this.getClass().getSimpleName();
+    }
+
+    @Override
+    public void appendProblemSpaceSymptom(@NonNull Appendable out) throws IOException {
+        for (int i = 0; i < problemSpaceSymptoms.size(); i++) {
+            if (i > 0) {
+                out.append("; ");
+            }
+            out.append(problemSpaceSymptoms.get(i));
+        }
+    }
+
+    @Override
+    public void appendSolutionSpaceSymptom(@NonNull Appendable out) throws IOException {
+        appendInvolvedVariablesDescription(out);
+        out.append(" used to constrain presence of nested or adjacent code element(s) ");
+        out.append(codeElementRangesDescription);
+        if (!involvedSourceFiles.isEmpty()) {
+            out.append(" as well as file(s) ");
+            appendInvolvedSourceFilesDescription(out);
+        }
+    }
+
+}
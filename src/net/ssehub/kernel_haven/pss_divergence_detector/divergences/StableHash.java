@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class provides the hash functions shared by all classes, whose hashes must be equal across processes, like
+ * persisted fingerprints or the partitioning of a sharded detection. All functions only depend on their arguments and
+ * are specified independent of the JVM; hence, different processes and runs calculate identical hashes.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public final class StableHash {
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private StableHash() {
+    }
+
+    /**
+     * Spreads the bits of the given hash (finalization step of MurmurHash3). Each input bit affects each output bit
+     * with a probability of about 50 %. Hence, spread hashes are suitable for partitioning by their remainder as well
+     * as for combining multiple hashes by addition or exclusive or, e.g., to an order-independent signature of a set.
+     * 
+     * @param hash the hash to spread, like a {@link String#hashCode()} or the combination of other hashes
+     * @return the spread hash
+     */
+    public static long mix(long hash) {
+        long mixed = hash;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xff51afd7ed558ccdL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xc4ceb9fe1a85ec53L;
+        mixed ^= mixed >>> 33;
+        return mixed;
+    }
+
+    /**
+     * Calculates the 64-bit FNV-1a hash of the given string with the given seed. In contrast to
+     * {@link String#hashCode()}, this hash has 64 bits and different seeds yield independent hashes of the same string.
+     * 
+     * @param string the string to hash
+     * @param seed the seed of the hash
+     * @return the hash of the given string
+     */
+    public static long hash(@NonNull String string, long seed) {
+        long hash = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < string.length(); i++) {
+            hash ^= string.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+}
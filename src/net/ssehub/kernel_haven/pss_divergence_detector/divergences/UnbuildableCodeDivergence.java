@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class defines a divergence denoting {@link CodeElement}s to be controlled by variables defined in the
+ * {@link VariabilityModel}, while their {@link SourceFile} is only built, if a variable is selected, which is not
+ * defined in the {@link VariabilityModel}. Hence, the configuration of these code elements has no effect as their
+ * source file is never selected.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class UnbuildableCodeDivergence extends Divergence {
+    
+    /**
+     * The names of the undefined variables controlling the presence of the {@link SourceFile} formatted for a
+     * description.
+     */
+    private @NonNull String undefinedBuildVariablesDescription;
+    
+    /**
+     * The names of the defined variables controlling the presence of the {@link CodeElement}s formatted for a
+     * description.
+     */
+    private @NonNull String codeVariablesDescription;
+
+    /**
+     * Creates a {@link UnbuildableCodeDivergence} instance.
+     * 
+     * @param undefinedBuildVariables the (placeholder) {@link VariabilityVariable}s of the undefined variables
+     *        controlling the presence of the given {@link SourceFile}
+     * @param codeVariables the defined {@link VariabilityVariable}s controlling the presence of the given
+     *        {@link CodeElement}s
+     * @param sourceFile the {@link SourceFile}, which is never selected
+     * @param codeElements the {@link CodeElement}s of the given {@link SourceFile}, which are controlled by the given
+     *        code variables
+     */
+    public UnbuildableCodeDivergence(@NonNull Collection<VariabilityVariable> undefinedBuildVariables,
+            @NonNull Collection<VariabilityVariable> codeVariables, @NonNull SourceFile<?> sourceFile,
+            @NonNull Collection<CodeElement<?>> codeElements) {
+        // See UndefinedVariableDivergence: undefined variables are passed as such with their name only
+        List<String> undefinedBuildVariableNames = new ArrayList<>(undefinedBuildVariables.size());
+        for (VariabilityVariable undefinedBuildVariable : undefinedBuildVariables) {
+            undefinedBuildVariableNames.add(undefinedBuildVariable.getName());
+        }
+        undefinedBuildVariablesDescription = toDescriptionString(undefinedBuildVariableNames);
+        addInvolvedVariables(undefinedBuildVariables);
+        List<String> codeVariableNames = new ArrayList<>(codeVariables.size());
+        for (VariabilityVariable codeVariable : codeVariables) {
+            codeVariableNames.add(codeVariable.getName());
+        }
+        codeVariablesDescription = toDescriptionString(codeVariableNames);
+        addInvolvedVariables(codeVariables);
+        addInvolvedSourceFile(sourceFile);
+        addInvolvedCodeElements(codeElements);
+    }
+
+    @Override
+    public @NonNull String getType() {
+        return this.getClass().getSimpleName();
+    }
+    
+    @Override
+    public void appendProblemSpaceSymptom(@NonNull Appendable out) throws IOException {
+        out.append(codeVariablesDescription).append(" defined in variability model, but ")
+                .append(undefinedBuildVariablesDescription).append(" not defined in variability model");
+    }
+    
+    @Override
+    public void appendSolutionSpaceSymptom(@NonNull Appendable out) throws IOException {
+        out.append(codeVariablesDescription).append(" used to constrain presence of code element(s) ");
+        appendInvolvedCodeElementsDescription(out);
+        out.append(" in file(s) ");
+        appendInvolvedSourceFilesDescription(out);
+        out.append(", which is only built if ").append(undefinedBuildVariablesDescription).append(" is selected");
+    }
+
+}
@@ -12,6 +12,10 @@
  */
 package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
 import net.ssehub.kernel_haven.code_model.CodeElement;
 import net.ssehub.kernel_haven.code_model.SourceFile;
 import net.ssehub.kernel_haven.pss_mapper.MappingElement;
@@ -34,6 +38,11 @@ public class UndefinedVariableDivergence extends Divergence {
      * except for the name used in the source files or code elements.
      */
     private @NonNull String undefinedVariableName;
+    
+    /**
+     * The {@link #undefinedVariableName} formatted for a description.
+     */
+    private @NonNull String undefinedVariableDescription;
 
     /**
      * Creates a {@link UndefinedVariableDivergence} instance.
@@ -41,43 +50,55 @@ public class UndefinedVariableDivergence extends Divergence {
      * @param mappingElement the {@link MappingElement} containing the undefined variable
      */
     public UndefinedVariableDivergence(@NonNull MappingElement mappingElement) {
+        this(mappingElement.getVariableName(), mappingElement.getBuildMapping(), mappingElement.getCodeMapping());
+    }
+
+    /**
+     * Creates a {@link UndefinedVariableDivergence} instance for the given variable and artifacts, e.g., when
+     * restoring a divergence of a previous run (see {@link DivergenceFactory}).
+     * 
+     * @param undefinedVariableName the name of the undefined variable
+     * @param sourceFiles the {@link SourceFile}s controlled by the undefined variable
+     * @param codeElements the {@link CodeElement}s controlled by the undefined variable
+     */
+    public UndefinedVariableDivergence(@NonNull String undefinedVariableName,
+            @NonNull Collection<SourceFile<?>> sourceFiles, @NonNull Collection<CodeElement<?>> codeElements) {
         // There cannot be a VariabilityVariable if it is an undefined variable
-        undefinedVariableName = mappingElement.getVariableName();
+        this.undefinedVariableName = undefinedVariableName;
+        undefinedVariableDescription = toDescriptionString(Collections.singletonList(undefinedVariableName));
         /*
          * TODO although being not defined, we pass the variable as such to the corrector in this way. However, we only
          * know the name.
          */
         addInvolvedVariable(new VariabilityVariable(undefinedVariableName, ""));
-        addInvolvedSourceFiles(mappingElement.getBuildMapping());
-        addInvolvedCodeElements(mappingElement.getCodeMapping());
+        addInvolvedSourceFiles(sourceFiles);
+        addInvolvedCodeElements(codeElements);
     }
 
     @Override
     public @NonNull String getType() {
         return this.getClass().getSimpleName();
     }
-
+    
     @Override
-    public @NonNull String getProblemSpaceSymptom() {
-        return toDescriptionString(undefinedVariableName) + " not defined in variability model";
+    public void appendProblemSpaceSymptom(@NonNull Appendable out) throws IOException {
+        out.append(undefinedVariableDescription).append(" not defined in variability model");
     }
-
+    
     @Override
-    public @NonNull String getSolutionSpaceSymptom() {
-        StringBuilder symptomBuilder = new StringBuilder();
-        String involvedSourceFilesString = toDescriptionString(getInvolvedSourceFilesString());
-        String involvedCodeElementsString = toDescriptionString(getInvolvedCodeElementsString());
-        symptomBuilder.append(toDescriptionString(undefinedVariableName) + " used to constrain presence of ");
-        if (!involvedSourceFilesString.isEmpty()) {
-            symptomBuilder.append("file(s) " + involvedSourceFilesString);
+    public void appendSolutionSpaceSymptom(@NonNull Appendable out) throws IOException {
+        out.append(undefinedVariableDescription).append(" used to constrain presence of ");
+        if (!involvedSourceFiles.isEmpty()) {
+            out.append("file(s) ");
+            appendInvolvedSourceFilesDescription(out);
         }
-        if (!involvedCodeElementsString.isEmpty()) {
-            if (!involvedSourceFilesString.isEmpty()) {
-                symptomBuilder.append(" as well as ");
+        if (!involvedCodeElements.isEmpty()) {
+            if (!involvedSourceFiles.isEmpty()) {
+                out.append(" as well as ");
             }
-            symptomBuilder.append("code element(s) " + involvedCodeElementsString);
+            out.append("code element(s) ");
+            appendInvolvedCodeElementsDescription(out);
         }
-        return symptomBuilder.toString();
     }
 
 }
@@ -12,6 +12,8 @@
  */
 package net.ssehub.kernel_haven.pss_divergence_detector.divergences;
 
+import java.io.IOException;
+
 import net.ssehub.kernel_haven.code_model.CodeElement;
 import net.ssehub.kernel_haven.code_model.SourceFile;
 import net.ssehub.kernel_haven.pss_mapper.MappingElement;
@@ -38,20 +40,32 @@ public class UnusedVariableDivergence extends Divergence {
         // There cannot be any SourceFiles or CodeElements if it is an unused variable
         addInvolvedVariable(mappingElement.getVariable());
     }
+
+    /**
+     * Creates a {@link UnusedVariableDivergence} instance for the given variable, e.g., when restoring a divergence
+     * of a previous run (see {@link DivergenceFactory}).
+     * 
+     * @param variable the unused variable
+     */
+    public UnusedVariableDivergence(@NonNull VariabilityVariable variable) {
+        addInvolvedVariable(variable);
+    }
     
     @Override
     public @NonNull String getType() {
         return this.getClass().getSimpleName();
     }
-
+    
     @Override
-    public @NonNull String getProblemSpaceSymptom() {
-        return toDescriptionString(getInvolvedVariablesString()) + " defined in variability model";
+    public void appendProblemSpaceSymptom(@NonNull Appendable out) throws IOException {
+        appendInvolvedVariablesDescription(out);
+        out.append(" defined in variability model");
     }
-
+    
     @Override
-    public @NonNull String getSolutionSpaceSymptom() {
-        return toDescriptionString(getInvolvedVariablesString()) + " not referenced by any build or code artifact";
+    public void appendSolutionSpaceSymptom(@NonNull Appendable out) throws IOException {
+        appendInvolvedVariablesDescription(out);
+        out.append(" not referenced by any build or code artifact");
     }
     
 }
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * This class reads {@link Divergence}s from a file written by the {@link BinaryDivergenceWriter}. The file is mapped
+ * into memory and the divergences are accessed via {@link BinaryDivergenceRecord}s, which decode the requested
+ * information directly from the mapped file. Hence, no {@link Divergence} objects are created and only those strings
+ * are decoded, which are actually requested. Strings of the string table are decoded once and cached afterwards, while
+ * the symptoms are decoded on each request.<br><br>
+ * 
+ * Iterating this reader returns the same {@link BinaryDivergenceRecord} instance moved to the next divergence in each
+ * step. Use {@link #get(int)} to retain a record for a specific divergence.<br><br>
+ * 
+ * As the file is mapped as a single buffer, its size is limited to 2 GB. This reader is not thread-safe.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class BinaryDivergenceReader implements Closeable, Iterable<BinaryDivergenceRecord> {
+
+    /**
+     * The memory-mapped file; <code>null</code> after {@link #close()}.
+     */
+    private @Nullable ByteBuffer buffer;
+
+    /**
+     * The number of divergences in the file.
+     */
+    private int divergenceCount;
+
+    /**
+     * The token identifying the run, which wrote the file.
+     */
+    private long runToken;
+
+    /**
+     * The offset of the first record in the file.
+     */
+    private int recordsOffset;
+
+    /**
+     * The offset of the string offsets in the file.
+     */
+    private int stringOffsetsOffset;
+
+    /**
+     * The offset of the first string in the file.
+     */
+    private int stringsOffset;
+
+    /**
+     * The strings decoded so far; contains <code>null</code> for strings not decoded yet. The index is the identifier
+     * of the string.
+     */
+    private @Nullable String @NonNull [] strings;
+
+    /**
+     * Creates a {@link BinaryDivergenceReader} instance for the given file.
+     * 
+     * @param file the file written by the {@link BinaryDivergenceWriter}
+     * @throws IOException if reading the file fails or if the file is not a (supported) binary divergence file
+     */
+    public BinaryDivergenceReader(@NonNull File file) throws IOException {
+        MappedByteBuffer mappedBuffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+                FileChannel channel = randomAccessFile.getChannel()) {
+            if (channel.size() < BinaryDivergenceWriter.HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Unsupported size of binary divergence file " + file + ": " + channel.size());
+            }
+            mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (mappedBuffer.getInt(0) != BinaryDivergenceWriter.MAGIC) {
+            throw new IOException(file + " is not a binary divergence file");
+        }
+        if (mappedBuffer.getInt(4) != BinaryDivergenceWriter.VERSION) {
+            throw new IOException("Unsupported version of binary divergence file " + file + ": "
+                    + mappedBuffer.getInt(4));
+        }
+        divergenceCount = mappedBuffer.getInt(8);
+        strings = new String[mappedBuffer.getInt(12)];
+        recordsOffset = (int) mappedBuffer.getLong(16);
+        stringOffsetsOffset = (int) mappedBuffer.getLong(24);
+        stringsOffset = stringOffsetsOffset + 4 * strings.length;
+        runToken = mappedBuffer.getLong(32);
+        buffer = mappedBuffer;
+    }
+
+    /**
+     * Returns the memory-mapped file.
+     * 
+     * @return the memory-mapped file
+     * @throws IllegalStateException if this reader is already closed
+     */
+    @NonNull ByteBuffer getBuffer() throws IllegalStateException {
+        ByteBuffer mappedBuffer = buffer;
+        if (mappedBuffer == null) {
+            throw new IllegalStateException("Binary divergence reader is closed");
+        }
+        return mappedBuffer;
+    }
+
+    /**
+     * Returns the offset of the record of the divergence with the given index in the file.
+     * 
+     * @param index the index of the divergence
+     * @return the offset of the record
+     */
+    int getRecordOffset(int index) {
+        return recordsOffset + index * BinaryDivergenceWriter.RECORD_SIZE;
+    }
+
+    /**
+     * Returns the string with the given identifier. The string is decoded on the first request and cached afterwards.
+     * 
+     * @param stringId the identifier of the string
+     * @return the string with the given identifier
+     */
+    @NonNull String getString(int stringId) {
+        String string = strings[stringId];
+        if (string == null) {
+            ByteBuffer mappedBuffer = getBuffer();
+            int[] position = {stringsOffset + mappedBuffer.getInt(stringOffsetsOffset + 4 * stringId)};
+            string = readString(mappedBuffer, position);
+            strings[stringId] = string;
+        }
+        return string;
+    }
+
+    /**
+     * Reads the string at the given position of the given buffer, which is encoded as its UTF-8 byte length
+     * (variable-length integer) and bytes. The position is advanced to the first byte after the string.
+     * 
+     * @param buffer the buffer to read from
+     * @param position the single-element array containing the position to read at
+     * @return the read string
+     */
+    static @NonNull String readString(@NonNull ByteBuffer buffer, int @NonNull [] position) {
+        int length = readVarInt(buffer, position);
+        byte[] bytes = new byte[length];
+        ByteBuffer stringBuffer = buffer.duplicate();
+        stringBuffer.position(position[0]);
+        stringBuffer.get(bytes);
+        position[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the variable-length integer at the given position of the given buffer. The position is advanced to the
+     * first byte after the integer.
+     * 
+     * @param buffer the buffer to read from
+     * @param position the single-element array containing the position to read at
+     * @return the read (unsigned) integer
+     */
+    static int readVarInt(@NonNull ByteBuffer buffer, int @NonNull [] position) {
+        int value = 0;
+        int shift = 0;
+        byte currentByte;
+        do {
+            currentByte = buffer.get(position[0]++);
+            value |= (currentByte & 0x7F) << shift;
+            shift += 7;
+        } while (currentByte < 0);
+        return value;
+    }
+
+    /**
+     * Returns the token identifying the run, which wrote the file (see
+     * {@link BinaryDivergenceWriter#BinaryDivergenceWriter(File, long)}).
+     * 
+     * @return the run token of the file; <code>0</code>, if the writer did not define a run token
+     */
+    public long getRunToken() {
+        return runToken;
+    }
+
+    /**
+     * Returns the number of divergences in the file.
+     * 
+     * @return the number of divergences
+     */
+    public int size() {
+        return divergenceCount;
+    }
+
+    /**
+     * Returns a new {@link BinaryDivergenceRecord} for the divergence with the given index.
+     * 
+     * @param index the index of the divergence in the file
+     * @return the {@link BinaryDivergenceRecord} of the divergence with the given index
+     * @throws IndexOutOfBoundsException if the index is not between <code>0</code> and {@link #size()}
+     */
+    public @NonNull BinaryDivergenceRecord get(int index) throws IndexOutOfBoundsException {
+        BinaryDivergenceRecord record = new BinaryDivergenceRecord(this);
+        record.moveTo(index);
+        return record;
+    }
+
+    @Override
+    public @NonNull Iterator<BinaryDivergenceRecord> iterator() {
+        BinaryDivergenceRecord record = new BinaryDivergenceRecord(this);
+        return new Iterator<BinaryDivergenceRecord>() {
+
+            /**
+             * The index of the divergence returned by the next call of {@link #next()}.
+             */
+            private int nextIndex;
+
+            @Override
+            public boolean hasNext() {
+                return nextIndex < divergenceCount;
+            }
+
+            @Override
+            public @NonNull BinaryDivergenceRecord next() {
+                if (nextIndex >= divergenceCount) {
+                    throw new NoSuchElementException();
+                }
+                record.moveTo(nextIndex++);
+                return record;
+            }
+
+        };
+    }
+
+    /**
+     * Releases the memory-mapped file. Afterwards, neither this reader nor its {@link BinaryDivergenceRecord}s can be
+     * used anymore.
+     */
+    @Override
+    public void close() {
+        buffer = null;
+        strings = new String[0];
+    }
+
+}
@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.io;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.DivergenceKey;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This class provides access to a single divergence in a file read by a {@link BinaryDivergenceReader}. It mirrors
+ * the information of a {@link Divergence} without creating one: the type, the symptoms, and the involved variables,
+ * source files, and code elements. The involved elements are decoded on the first request for the current divergence
+ * into arrays, which are reused for further divergences.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class BinaryDivergenceRecord {
+
+    /**
+     * The {@link BinaryDivergenceReader} providing the file.
+     */
+    private @NonNull BinaryDivergenceReader reader;
+
+    /**
+     * The index of the current divergence in the file.
+     */
+    private int index;
+
+    /**
+     * The offset of the record of the current divergence in the file.
+     */
+    private int recordOffset;
+
+    /**
+     * The definition of whether the involved elements of the current divergence are already decoded.
+     */
+    private boolean decoded;
+
+    /**
+     * The string identifiers of the names of the involved variables.
+     */
+    private int @NonNull [] variableIds;
+
+    /**
+     * The string identifiers of the paths of the involved source files.
+     */
+    private int @NonNull [] sourceFileIds;
+
+    /**
+     * The string identifier of the source file path, the start line, and the end line of each involved code element.
+     */
+    private int @NonNull [] codeElementData;
+
+    /**
+     * Creates a {@link BinaryDivergenceRecord} instance, which is not moved to a divergence yet.
+     * 
+     * @param reader the {@link BinaryDivergenceReader} providing the file
+     */
+    BinaryDivergenceRecord(@NonNull BinaryDivergenceReader reader) {
+        this.reader = reader;
+        variableIds = new int[8];
+        sourceFileIds = new int[8];
+        codeElementData = new int[24];
+    }
+
+    /**
+     * Moves this record to the divergence with the given index.
+     * 
+     * @param index the index of the divergence in the file
+     * @throws IndexOutOfBoundsException if the index is not between <code>0</code> and
+     *         {@link BinaryDivergenceReader#size()}
+     */
+    void moveTo(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= reader.size()) {
+            throw new IndexOutOfBoundsException("Divergence " + index + " of " + reader.size());
+        }
+        this.index = index;
+        recordOffset = reader.getRecordOffset(index);
+        decoded = false;
+    }
+
+    /**
+     * Returns the index of the current divergence in the file.
+     * 
+     * @return the index of the current divergence
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the type of the current divergence (see {@link Divergence#getType()}).
+     * 
+     * @return the type of the current divergence
+     */
+    public @NonNull String getType() {
+        return reader.getString(reader.getBuffer().getInt(recordOffset));
+    }
+
+    /**
+     * Returns the problem space symptom of the current divergence (see {@link Divergence#getProblemSpaceSymptom()}).
+     * The symptom is decoded from the file on each call.
+     * 
+     * @return the problem space symptom of the current divergence
+     */
+    public @NonNull String getProblemSpaceSymptom() {
+        int[] position = {(int) reader.getBuffer().getLong(recordOffset + 16)};
+        return BinaryDivergenceReader.readString(reader.getBuffer(), position);
+    }
+
+    /**
+     * Returns the solution space symptom of the current divergence (see {@link Divergence#getSolutionSpaceSymptom()}).
+     * The symptom is decoded from the file on each call.
+     * 
+     * @return the solution space symptom of the current divergence
+     */
+    public @NonNull String getSolutionSpaceSymptom() {
+        ByteBuffer buffer = reader.getBuffer();
+        int[] position = {(int) buffer.getLong(recordOffset + 16)};
+        // Skips the problem space symptom preceding the solution space symptom
+        int problemSpaceSymptomLength = BinaryDivergenceReader.readVarInt(buffer, position);
+        position[0] += problemSpaceSymptomLength;
+        return BinaryDivergenceReader.readString(buffer, position);
+    }
+
+    /**
+     * Returns the number of variables involved in the current divergence.
+     * 
+     * @return the number of involved variables
+     */
+    public int getVariablesCount() {
+        return reader.getBuffer().getInt(recordOffset + 4);
+    }
+
+    /**
+     * Returns the number of source files involved in the current divergence.
+     * 
+     * @return the number of involved source files
+     */
+    public int getSourceFilesCount() {
+        return reader.getBuffer().getInt(recordOffset + 8);
+    }
+
+    /**
+     * Returns the number of code elements involved in the current divergence.
+     * 
+     * @return the number of involved code elements
+     */
+    public int getCodeElementsCount() {
+        return reader.getBuffer().getInt(recordOffset + 12);
+    }
+
+    /**
+     * Returns the name of the involved variable with the given index.
+     * 
+     * @param variableIndex the index of the involved variable; must be less than {@link #getVariablesCount()}
+     * @return the name of the involved variable
+     */
+    public @NonNull String getVariableName(int variableIndex) {
+        decode();
+        return reader.getString(variableIds[variableIndex]);
+    }
+
+    /**
+     * Returns the path of the involved source file with the given index.
+     * 
+     * @param sourceFileIndex the index of the involved source file; must be less than {@link #getSourceFilesCount()}
+     * @return the path of the involved source file
+     */
+    public @NonNull String getSourceFilePath(int sourceFileIndex) {
+        decode();
+        return reader.getString(sourceFileIds[sourceFileIndex]);
+    }
+
+    /**
+     * Returns the path of the source file of the involved code element with the given index.
+     * 
+     * @param codeElementIndex the index of the involved code element; must be less than
+     *        {@link #getCodeElementsCount()}
+     * @return the path of the source file of the involved code element
+     */
+    public @NonNull String getCodeElementPath(int codeElementIndex) {
+        decode();
+        return reader.getString(codeElementData[3 * codeElementIndex]);
+    }
+
+    /**
+     * Returns the start line of the involved code element with the given index.
+     * 
+     * @param codeElementIndex the index of the involved code element; must be less than
+     *        {@link #getCodeElementsCount()}
+     * @return the start line of the involved code element
+     */
+    public int getCodeElementLineStart(int codeElementIndex) {
+        decode();
+        return codeElementData[3 * codeElementIndex + 1];
+    }
+
+    /**
+     * Returns the end line of the involved code element with the given index.
+     * 
+     * @param codeElementIndex the index of the involved code element; must be less than
+     *        {@link #getCodeElementsCount()}
+     * @return the end line of the involved code element
+     */
+    public int getCodeElementLineEnd(int codeElementIndex) {
+        decode();
+        return codeElementData[3 * codeElementIndex + 2];
+    }
+
+    /**
+     * Calculates the fingerprint of the current divergence, which equals the fingerprint of the original divergence
+     * (see {@link Divergence#getFingerprint()}). Hence, divergences read from a file can be compared with detected
+     * divergences or with divergences read from another file without creating {@link Divergence} objects.
+     * 
+     * @return the fingerprint of the current divergence
+     */
+    public long getFingerprint() {
+        long variablesFingerprint = 0;
+        for (int i = 0; i < getVariablesCount(); i++) {
+            variablesFingerprint += DivergenceKey.fingerprintVariable(getVariableName(i));
+        }
+        long sourceFilesFingerprint = 0;
+        for (int i = 0; i < getSourceFilesCount(); i++) {
+            sourceFilesFingerprint += DivergenceKey.fingerprintSourceFile(getSourceFilePath(i));
+        }
+        long codeElementsFingerprint = 0;
+        for (int i = 0; i < getCodeElementsCount(); i++) {
+            codeElementsFingerprint += DivergenceKey.fingerprintCodeElement(getCodeElementPath(i),
+                    getCodeElementLineStart(i), getCodeElementLineEnd(i));
+        }
+        return DivergenceKey.fingerprint(getType(), variablesFingerprint, sourceFilesFingerprint,
+                codeElementsFingerprint);
+    }
+
+    /**
+     * Decodes the involved elements of the current divergence, if not decoded yet.
+     */
+    private void decode() {
+        if (!decoded) {
+            ByteBuffer buffer = reader.getBuffer();
+            int variablesCount = getVariablesCount();
+            int sourceFilesCount = getSourceFilesCount();
+            int codeElementsCount = getCodeElementsCount();
+            int[] position = {(int) buffer.getLong(recordOffset + 24)};
+            variableIds = ensureCapacity(variableIds, variablesCount);
+            for (int i = 0; i < variablesCount; i++) {
+                variableIds[i] = BinaryDivergenceReader.readVarInt(buffer, position);
+            }
+            sourceFileIds = ensureCapacity(sourceFileIds, sourceFilesCount);
+            for (int i = 0; i < sourceFilesCount; i++) {
+                sourceFileIds[i] = BinaryDivergenceReader.readVarInt(buffer, position);
+            }
+            codeElementData = ensureCapacity(codeElementData, 3 * codeElementsCount);
+            for (int i = 0; i < 3 * codeElementsCount; i += 3) {
+                codeElementData[i] = BinaryDivergenceReader.readVarInt(buffer, position);
+                codeElementData[i + 1] = unZigZag(BinaryDivergenceReader.readVarInt(buffer, position));
+                codeElementData[i + 2] = codeElementData[i + 1]
+                        + unZigZag(BinaryDivergenceReader.readVarInt(buffer, position));
+            }
+            decoded = true;
+        }
+    }
+
+    /**
+     * Returns the given array, if it has at least the given length, or a larger copy of it.
+     * 
+     * @param array the array to check
+     * @param length the required length
+     * @return an array with at least the given length
+     */
+    private static int @NonNull [] ensureCapacity(int @NonNull [] array, int length) {
+        int[] result = array;
+        if (array.length < length) {
+            result = Arrays.copyOf(array, Math.max(length, 2 * array.length));
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the given zig-zag encoded integer.
+     * 
+     * @param value the zig-zag encoded integer
+     * @return the decoded integer
+     */
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    public @NonNull String toString() {
+        return getType() + ": " + getProblemSpaceSymptom() + " - " + getSolutionSpaceSymptom();
+    }
+
+}
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class writes {@link Divergence}s to a file in a compact binary format, which the
+ * {@link BinaryDivergenceReader} reads without creating {@link Divergence} objects. The file consists of the following
+ * regions:
+ * <ol>
+ * <li>The header of {@link #HEADER_SIZE} bytes: the {@link #MAGIC} number, the {@link #VERSION}, the number of
+ *     divergences, the number of strings, the offset of the records, the offset of the string table, and the run
+ *     token identifying the run, which wrote the file</li>
+ * <li>The symptoms and involved elements of all divergences: the problem and solution space symptoms as their UTF-8
+ *     byte length and bytes, followed by the string identifiers of the variable names and source file paths as well
+ *     as the string identifier of the source file path, the start line, and the number of further lines of each code
+ *     element; all lengths and values are encoded as (zig-zag) variable-length integers</li>
+ * <li>One record of {@link #RECORD_SIZE} bytes per divergence: the string identifier of the type, the numbers of
+ *     involved variables, source files, and code elements, the offset of the symptoms, and the offset of the involved
+ *     elements</li>
+ * <li>The string table: the offset of each string relative to the first string followed by all distinct strings as
+ *     their UTF-8 byte length (variable-length integer) and bytes</li>
+ * </ol>
+ * Each distinct type, variable name, and file path is written only once to the string table. The symptoms are
+ * (almost) unique per divergence; hence, they are written directly with the involved elements instead of retaining
+ * them in the string table. The records and the string table are buffered in memory and written on
+ * {@link #close()}; the symptoms and the involved elements are written immediately.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class BinaryDivergenceWriter implements Closeable {
+
+    /**
+     * The magic number at the start of each file written by this class ("PSDV").
+     */
+    static final int MAGIC = 0x50534456;
+
+    /**
+     * The version of the binary format written by this class.
+     */
+    static final int VERSION = 3;
+
+    /**
+     * The size of the header at the start of each file in bytes.
+     */
+    static final int HEADER_SIZE = 40;
+
+    /**
+     * The size of a single record describing a divergence in bytes.
+     */
+    static final int RECORD_SIZE = 32;
+
+    /**
+     * The file to write the divergences to.
+     */
+    private @NonNull File file;
+
+    /**
+     * The stream writing the involved elements of the divergences to the {@link #file}.
+     */
+    private @NonNull DataOutputStream out;
+
+    /**
+     * The number of bytes written to the {@link #out} stream, including the (placeholder) header.
+     */
+    private long writtenBytes;
+
+    /**
+     * The records of all written divergences.
+     */
+    private @NonNull DataOutputStream records;
+
+    /**
+     * The buffer of the {@link #records} stream.
+     */
+    private @NonNull ByteArrayOutputStream recordsBuffer;
+
+    /**
+     * The token identifying the run, which writes the {@link #file}.
+     */
+    private long runToken;
+
+    /**
+     * The number of written divergences.
+     */
+    private int divergenceCount;
+
+    /**
+     * The identifiers of the distinct {@link #strings}.
+     */
+    private @NonNull Map<String, Integer> stringIds;
+
+    /**
+     * The distinct types, variable names, and file paths of all written divergences. The index is the identifier of
+     * the string.
+     */
+    private @NonNull List<String> strings;
+
+    /**
+     * Creates a {@link BinaryDivergenceWriter} instance writing to the given file with the run token <code>0</code>.
+     * An existing file is overwritten.
+     * 
+     * @param file the file to write the divergences to
+     * @throws IOException if opening the file fails
+     */
+    public BinaryDivergenceWriter(@NonNull File file) throws IOException {
+        this(file, 0);
+    }
+
+    /**
+     * Creates a {@link BinaryDivergenceWriter} instance writing to the given file. An existing file is overwritten.
+     * 
+     * @param file the file to write the divergences to
+     * @param runToken the token identifying the run, which writes the file, e.g., to distinguish the file from files
+     *        of previous runs (see {@link BinaryDivergenceReader#getRunToken()})
+     * @throws IOException if opening the file fails
+     */
+    public BinaryDivergenceWriter(@NonNull File file, long runToken) throws IOException {
+        this.file = file;
+        this.runToken = runToken;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        out.write(new byte[HEADER_SIZE]);
+        writtenBytes = HEADER_SIZE;
+        recordsBuffer = new ByteArrayOutputStream();
+        records = new DataOutputStream(recordsBuffer);
+        stringIds = new HashMap<>();
+        strings = new ArrayList<>();
+    }
+
+    /**
+     * Writes the given {@link Divergence}.
+     * 
+     * @param divergence the {@link Divergence} to write
+     * @throws IOException if writing the symptoms or the involved elements of the divergence fails
+     */
+    public void write(@NonNull Divergence divergence) throws IOException {
+        records.writeInt(getStringId(divergence.getType()));
+        records.writeInt(divergence.getInvolvedVariables().size());
+        records.writeInt(divergence.getInvolvedSourceFiles().size());
+        records.writeInt(divergence.getInvolvedCodeElements().size());
+        records.writeLong(writtenBytes);
+        writeInlineString(divergence.getProblemSpaceSymptom());
+        writeInlineString(divergence.getSolutionSpaceSymptom());
+        records.writeLong(writtenBytes);
+        for (VariabilityVariable variable : divergence.getInvolvedVariables()) {
+            writeVarInt(getStringId(variable.getName()));
+        }
+        for (SourceFile<?> sourceFile : divergence.getInvolvedSourceFiles()) {
+            writeVarInt(getStringId(sourceFile.getPath().getPath()));
+        }
+        for (CodeElement<?> codeElement : divergence.getInvolvedCodeElements()) {
+            writeVarInt(getStringId(codeElement.getSourceFile().getPath()));
+            writeVarInt(zigZag(codeElement.getLineStart()));
+            writeVarInt(zigZag(codeElement.getLineEnd() - codeElement.getLineStart()));
+        }
+        divergenceCount++;
+    }
+
+    /**
+     * Returns the identifier of the given string. If the string was not written before, it is added to the string
+     * table.
+     * 
+     * @param string the string to get the identifier for
+     * @return the identifier of the given string
+     */
+    private int getStringId(@NonNull String string) {
+        Integer stringId = stringIds.get(string);
+        if (stringId == null) {
+            stringId = strings.size();
+            strings.add(string);
+            stringIds.put(string, stringId);
+        }
+        return stringId;
+    }
+
+    /**
+     * Writes the given string as its UTF-8 byte length (variable-length integer) and bytes to the {@link #out} stream
+     * without adding it to the string table.
+     * 
+     * @param string the string to write
+     * @throws IOException if writing fails
+     */
+    private void writeInlineString(@NonNull String string) throws IOException {
+        byte[] encodedString = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(encodedString.length);
+        out.write(encodedString);
+        writtenBytes += encodedString.length;
+    }
+
+    /**
+     * Encodes the given (possibly negative) integer such that small absolute values result in small unsigned values.
+     * 
+     * @param value the integer to encode
+     * @return the zig-zag encoded integer
+     */
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Writes the given (unsigned) integer as a variable-length integer of 7 bits per byte to the {@link #out} stream.
+     * 
+     * @param value the integer to write
+     * @throws IOException if writing fails
+     */
+    private void writeVarInt(int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+            writtenBytes++;
+        }
+        out.writeByte(remaining);
+        writtenBytes++;
+    }
+
+    /**
+     * Returns the number of written divergences.
+     * 
+     * @return the number of written divergences
+     */
+    public int getDivergenceCount() {
+        return divergenceCount;
+    }
+
+    /**
+     * Writes the records and the string table and completes the header of the file.
+     * 
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        long recordsOffset = writtenBytes;
+        long stringsOffset = recordsOffset + recordsBuffer.size();
+        try {
+            recordsBuffer.writeTo(out);
+            byte[][] encodedStrings = new byte[strings.size()][];
+            int stringOffset = 0;
+            for (int i = 0; i < encodedStrings.length; i++) {
+                encodedStrings[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(stringOffset);
+                stringOffset += getVarIntSize(encodedStrings[i].length) + encodedStrings[i].length;
+            }
+            for (byte[] encodedString : encodedStrings) {
+                writeVarInt(encodedString.length);
+                out.write(encodedString);
+            }
+        } finally {
+            out.close();
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.writeInt(MAGIC);
+            randomAccessFile.writeInt(VERSION);
+            randomAccessFile.writeInt(divergenceCount);
+            randomAccessFile.writeInt(strings.size());
+            randomAccessFile.writeLong(recordsOffset);
+            randomAccessFile.writeLong(stringsOffset);
+            randomAccessFile.writeLong(runToken);
+        }
+        recordsBuffer.reset();
+        strings.clear();
+        stringIds.clear();
+    }
+
+    /**
+     * Returns the number of bytes of the given (unsigned) integer encoded as a variable-length integer.
+     * 
+     * @param value the integer to encode
+     * @return the number of bytes of the encoded integer
+     */
+    private static int getVarIntSize(int value) {
+        int size = 1;
+        int remaining = value >>> 7;
+        while (remaining != 0) {
+            size++;
+            remaining >>>= 7;
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * This class writes {@link Divergence}s as rows of a CSV table, which has the same columns as the KernelHaven result
+ * table of the divergences (see {@link Divergence#HEADER}). In contrast to the generic table writers of KernelHaven,
+ * this writer neither requests the rendered content of the divergences ({@link Divergence#getContent()}) nor keeps
+ * any rows in memory. Instead, the symptoms are appended piece by piece (see
+ * {@link Divergence#appendProblemSpaceSymptom(Appendable)}) to a fixed-size buffer, which is written to the file
+ * whenever it is full. Hence, the memory required for writing is constant independent of the number of divergences
+ * and the length of their symptoms.<br><br>
+ * 
+ * Cells are separated by {@link #SEPARATOR}. As symptoms typically contain quotation marks, they are always enclosed
+ * in quotation marks, while quotation marks within them are doubled. Other cells are only enclosed, if necessary.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class DivergenceCsvWriter implements Closeable {
+
+    /**
+     * The character separating the cells of a row.
+     */
+    public static final char SEPARATOR = ';';
+
+    /**
+     * The size of the buffer in characters, which is written to the file whenever it is full.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The writer writing to the file.
+     */
+    private @NonNull Writer out;
+
+    /**
+     * The buffer of characters not yet passed to the {@link #out} writer.
+     */
+    private char @NonNull [] buffer;
+
+    /**
+     * The number of characters in the {@link #buffer}.
+     */
+    private int bufferedCount;
+
+    /**
+     * The {@link Appendable} appending to the {@link #buffer} and doubling each quotation mark of a quoted cell.
+     */
+    private @NonNull Appendable quotedCell;
+
+    /**
+     * The number of written divergences.
+     */
+    private int divergenceCount;
+
+    /**
+     * Creates a {@link DivergenceCsvWriter} instance writing to the given file and writes the header of the table. An
+     * existing file is overwritten.
+     * 
+     * @param file the file to write the divergences to
+     * @throws IOException if opening the file or writing the header fails
+     */
+    public DivergenceCsvWriter(@NonNull File file) throws IOException {
+        this(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a {@link DivergenceCsvWriter} instance writing to the given {@link Writer} and writes the header of the
+     * table. The characters are buffered by this instance; hence, the given writer does not need to be buffered.
+     * 
+     * @param out the {@link Writer} to write the divergences to; closed by {@link #close()}
+     * @throws IOException if writing the header fails
+     */
+    public DivergenceCsvWriter(@NonNull Writer out) throws IOException {
+        this.out = out;
+        buffer = new char[BUFFER_SIZE];
+        quotedCell = new QuotedCellAppendable();
+        for (int i = 0; i < Divergence.HEADER.length; i++) {
+            if (i > 0) {
+                write(SEPARATOR);
+            }
+            writeCell(String.valueOf(Divergence.HEADER[i]));
+        }
+        write('\n');
+    }
+
+    /**
+     * Writes the given {@link Divergence} as a single row.
+     * 
+     * @param divergence the {@link Divergence} to write
+     * @throws IOException if writing fails
+     */
+    public void write(@NonNull Divergence divergence) throws IOException {
+        writeCell(divergence.getType());
+        write(SEPARATOR);
+        write('"');
+        divergence.appendProblemSpaceSymptom(quotedCell);
+        write('"');
+        write(SEPARATOR);
+        write('"');
+        divergence.appendSolutionSpaceSymptom(quotedCell);
+        write('"');
+        write('\n');
+        divergenceCount++;
+    }
+
+    /**
+     * Writes the given value as a single cell. The value is enclosed in quotation marks, if it contains the
+     * {@link #SEPARATOR}, a quotation mark, or a line break.
+     * 
+     * @param value the value of the cell
+     * @throws IOException if writing fails
+     */
+    private void writeCell(@NonNull String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; !quoted && i < value.length(); i++) {
+            char character = value.charAt(i);
+            quoted = character == SEPARATOR || character == '"' || character == '\n' || character == '\r';
+        }
+        if (quoted) {
+            write('"');
+            quotedCell.append(value);
+            write('"');
+        } else {
+            write(value, 0, value.length());
+        }
+    }
+
+    /**
+     * Appends the given character to the {@link #buffer}.
+     * 
+     * @param character the character to write
+     * @throws IOException if passing the full buffer to the {@link #out} writer fails
+     */
+    private void write(char character) throws IOException {
+        if (bufferedCount == buffer.length) {
+            flushBuffer();
+        }
+        buffer[bufferedCount++] = character;
+    }
+
+    /**
+     * Appends the characters of the given string between the given indexes to the {@link #buffer}. Long strings are
+     * copied in chunks of at most the size of the buffer.
+     * 
+     * @param string the string to write a part of
+     * @param start the index of the first character to write
+     * @param end the index after the last character to write
+     * @throws IOException if passing the full buffer to the {@link #out} writer fails
+     */
+    private void write(@NonNull String string, int start, int end) throws IOException {
+        int position = start;
+        while (position < end) {
+            if (bufferedCount == buffer.length) {
+                flushBuffer();
+            }
+            int chunkEnd = Math.min(end, position + buffer.length - bufferedCount);
+            string.getChars(position, chunkEnd, buffer, bufferedCount);
+            bufferedCount += chunkEnd - position;
+            position = chunkEnd;
+        }
+    }
+
+    /**
+     * Passes all characters of the {@link #buffer} to the {@link #out} writer.
+     * 
+     * @throws IOException if writing fails
+     */
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, bufferedCount);
+        bufferedCount = 0;
+    }
+
+    /**
+     * Returns the number of divergences written so far.
+     * 
+     * @return the number of written divergences
+     */
+    public int getDivergenceCount() {
+        return divergenceCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * An {@link Appendable} appending the characters to the {@link DivergenceCsvWriter#buffer} and doubling each
+     * quotation mark. Appended strings are copied in runs between quotation marks without creating substrings; other
+     * character sequences, like {@link StringBuilder}s, are copied character by character without converting them
+     * into strings.
+     */
+    private final class QuotedCellAppendable implements Appendable {
+
+        @Override
+        public @NonNull Appendable append(@Nullable CharSequence csq) throws IOException {
+            CharSequence sequence = csq != null ? csq : "null";
+            return append(sequence, 0, sequence.length());
+        }
+
+        @Override
+        public @NonNull Appendable append(@Nullable CharSequence csq, int start, int end) throws IOException {
+            CharSequence sequence = csq != null ? csq : "null";
+            if (sequence instanceof String) {
+                appendString((String) sequence, start, end);
+            } else {
+                for (int i = start; i < end; i++) {
+                    append(sequence.charAt(i));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Appends the characters of the given string between the given indexes in runs between quotation marks.
+         * 
+         * @param string the string to append a part of
+         * @param start the index of the first character to append
+         * @param end the index after the last character to append
+         * @throws IOException if passing the full buffer to the {@link DivergenceCsvWriter#out} writer fails
+         */
+        private void appendString(@NonNull String string, int start, int end) throws IOException {
+            int runStart = start;
+            int quote = string.indexOf('"', start);
+            while (quote >= 0 && quote < end) {
+                // Write the run including the quotation mark and start the next run with the same mark
+                write(string, runStart, quote + 1);
+                runStart = quote;
+                quote = string.indexOf('"', quote + 1);
+            }
+            write(string, runStart, end);
+        }
+
+        @Override
+        public @NonNull Appendable append(char character) throws IOException {
+            if (character == '"') {
+                write('"');
+            }
+            write(character);
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,430 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ssehub.kernel_haven.code_model.CodeBlock;
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Disjunction;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class replays the {@link MappingElement}s of a snapshot written by the {@link MappingSnapshotWriter} in the
+ * order of their recording. The snapshot is memory-mapped in windows of {@link #WINDOW_SIZE} bytes, which are read
+ * sequentially; hence, snapshots of any size are replayed without reading them into the heap first.<br><br>
+ * 
+ * Each distinct string, formula, {@link SourceFile}, and {@link CodeElement} of the snapshot is created only once and
+ * shared by all replayed elements referring to it, like in the original mapping. Code elements are replayed as
+ * {@link CodeBlock}s with their original source file, line range, condition, and presence condition, which are all
+ * properties the divergence detection relies on; nested elements of syntax trees are not part of a snapshot.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class MappingSnapshotReader implements Closeable {
+
+    /**
+     * The maximum number of bytes of the snapshot mapped into memory at once (unless a single string is larger).
+     */
+    private static final int WINDOW_SIZE = 1 << 26;
+
+    /**
+     * The file containing the snapshot.
+     */
+    private @NonNull File file;
+
+    /**
+     * The channel for mapping the windows of the {@link #file}.
+     */
+    private @NonNull FileChannel channel;
+
+    /**
+     * The size of the {@link #file} in bytes.
+     */
+    private long fileSize;
+
+    /**
+     * The currently mapped window of the {@link #file}.
+     */
+    private @NonNull MappedByteBuffer window;
+
+    /**
+     * The offset of the current {@link #window} in the {@link #file}.
+     */
+    private long windowOffset;
+
+    /**
+     * The strings of the snapshot read so far. The index is the identifier of the string.
+     */
+    private @NonNull List<String> strings;
+
+    /**
+     * The {@link SourceFile}s of the paths read so far. The index is the identifier of the path string; contains
+     * <code>null</code> for strings not used as paths of source files yet.
+     */
+    private @NonNull List<SourceFile<?>> sourceFiles;
+
+    /**
+     * The {@link Formula}s of the snapshot read so far. The index is the identifier of the formula.
+     */
+    private @NonNull List<Formula> formulas;
+
+    /**
+     * The {@link CodeElement}s of the snapshot read so far. The index is the identifier of the code element.
+     */
+    private @NonNull List<CodeElement<?>> codeElements;
+
+    /**
+     * The number of mapping elements replayed so far.
+     */
+    private int elementCount;
+
+    /**
+     * Whether the end of the snapshot is reached.
+     */
+    private boolean complete;
+
+    /**
+     * Creates a {@link MappingSnapshotReader} instance for the given snapshot.
+     * 
+     * @param file the file containing the snapshot
+     * @throws IOException if opening or mapping the file fails or if it is not a snapshot of the supported version
+     */
+    public MappingSnapshotReader(@NonNull File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath());
+        fileSize = channel.size();
+        window = map(0, WINDOW_SIZE);
+        strings = new ArrayList<>();
+        sourceFiles = new ArrayList<>();
+        formulas = new ArrayList<>();
+        codeElements = new ArrayList<>();
+        if (fileSize < 8 || window.getInt() != MappingSnapshotWriter.MAGIC
+                || window.getInt() != MappingSnapshotWriter.VERSION) {
+            channel.close();
+            throw new IOException(file + " is not a mapping snapshot of version " + MappingSnapshotWriter.VERSION);
+        }
+    }
+
+    /**
+     * Reads the next {@link MappingElement} of the snapshot.
+     * 
+     * @return the next {@link MappingElement} or <code>null</code>, if all elements are replayed
+     * @throws IOException if reading fails or if the snapshot is corrupt or incomplete
+     */
+    public @Nullable MappingElement read() throws IOException {
+        MappingElement mappingElement = null;
+        while (mappingElement == null && !complete) {
+            int tag = readByte();
+            switch (tag) {
+            case MappingSnapshotWriter.TAG_STRING:
+                strings.add(readString());
+                sourceFiles.add(null);
+                break;
+            case MappingSnapshotWriter.TAG_FORMULA:
+                formulas.add(readFormula());
+                break;
+            case MappingSnapshotWriter.TAG_CODE_ELEMENT:
+                codeElements.add(readCodeElement());
+                break;
+            case MappingSnapshotWriter.TAG_ELEMENT:
+                mappingElement = readElement();
+                elementCount++;
+                break;
+            case MappingSnapshotWriter.TAG_END:
+                int recordedCount = readVarInt();
+                if (recordedCount != elementCount) {
+                    throw new IOException(file + " contains " + elementCount + " instead of " + recordedCount
+                            + " mapping elements");
+                }
+                complete = true;
+                break;
+            default:
+                throw new IOException(file + " contains unknown record " + tag + " at offset "
+                        + (windowOffset + window.position() - 1));
+            }
+        }
+        return mappingElement;
+    }
+
+    /**
+     * Reads a record describing a {@link MappingElement} (without its tag).
+     * 
+     * @return the read {@link MappingElement}
+     * @throws IOException if reading fails or if the record refers to unknown identifiers
+     */
+    private @NonNull MappingElement readElement() throws IOException {
+        String variableName = getString(readVarInt());
+        int variableTypeId = readVarInt();
+        VariabilityVariable variable = null;
+        if (variableTypeId > 0) {
+            variable = new VariabilityVariable(variableName, getString(variableTypeId - 1));
+        }
+        int buildMappingSize = readVarInt();
+        List<SourceFile<?>> buildMapping = new ArrayList<>(buildMappingSize);
+        for (int i = 0; i < buildMappingSize; i++) {
+            buildMapping.add(getSourceFile(readVarInt()));
+        }
+        int codeMappingSize = readVarInt();
+        List<CodeElement<?>> codeMapping = new ArrayList<>(codeMappingSize);
+        for (int i = 0; i < codeMappingSize; i++) {
+            codeMapping.add(get(codeElements, readVarInt(), "code element"));
+        }
+        return new MappingElement(variableName, variable, buildMapping, codeMapping);
+    }
+
+    /**
+     * Reads a record describing a {@link CodeElement} (without its tag).
+     * 
+     * @return the read {@link CodeElement}
+     * @throws IOException if reading fails or if the record refers to unknown identifiers
+     */
+    private @NonNull CodeElement<?> readCodeElement() throws IOException {
+        File path = getSourceFile(readVarInt()).getPath();
+        int lineStart = unZigZag(readVarInt());
+        int lineEnd = lineStart + unZigZag(readVarInt());
+        Formula condition = getFormula(readVarInt());
+        Formula presenceCondition = getFormula(readVarInt());
+        return new CodeBlock(lineStart, lineEnd, path, condition, presenceCondition);
+    }
+
+    /**
+     * Reads a record describing a {@link Formula} (without its tag).
+     * 
+     * @return the read {@link Formula}
+     * @throws IOException if reading fails, if the kind of the formula is unknown, or if the record refers to unknown
+     *         identifiers
+     */
+    private @NonNull Formula readFormula() throws IOException {
+        Formula formula;
+        int kind = readVarInt();
+        switch (kind) {
+        case MappingSnapshotWriter.FORMULA_FALSE:
+            formula = False.INSTANCE;
+            break;
+        case MappingSnapshotWriter.FORMULA_TRUE:
+            formula = True.INSTANCE;
+            break;
+        case MappingSnapshotWriter.FORMULA_VARIABLE:
+            formula = new Variable(getString(readVarInt()));
+            break;
+        case MappingSnapshotWriter.FORMULA_NEGATION:
+            formula = new Negation(getOperand(readVarInt()));
+            break;
+        case MappingSnapshotWriter.FORMULA_CONJUNCTION:
+            formula = new Conjunction(getOperand(readVarInt()), getOperand(readVarInt()));
+            break;
+        case MappingSnapshotWriter.FORMULA_DISJUNCTION:
+            formula = new Disjunction(getOperand(readVarInt()), getOperand(readVarInt()));
+            break;
+        default:
+            throw new IOException(file + " contains formula of unknown kind " + kind);
+        }
+        return formula;
+    }
+
+    /**
+     * Returns the {@link Formula} with the given identifier incremented by one.
+     * 
+     * @param formulaId the identifier of the formula incremented by one or <code>0</code> for <code>null</code>
+     * @return the {@link Formula} with the given identifier or <code>null</code>
+     * @throws IOException if the identifier is unknown
+     */
+    private @Nullable Formula getFormula(int formulaId) throws IOException {
+        return formulaId > 0 ? get(formulas, formulaId - 1, "formula") : null;
+    }
+
+    /**
+     * Returns the {@link Formula} with the given identifier incremented by one as operand of another formula.
+     * 
+     * @param formulaId the identifier of the formula incremented by one
+     * @return the {@link Formula} with the given identifier
+     * @throws IOException if the identifier is unknown or <code>0</code>
+     */
+    private @NonNull Formula getOperand(int formulaId) throws IOException {
+        Formula operand = getFormula(formulaId);
+        if (operand == null) {
+            throw new IOException(file + " contains formula without operand");
+        }
+        return operand;
+    }
+
+    /**
+     * Returns the string with the given identifier.
+     * 
+     * @param stringId the identifier of the string
+     * @return the string with the given identifier
+     * @throws IOException if the identifier is unknown
+     */
+    private @NonNull String getString(int stringId) throws IOException {
+        return get(strings, stringId, "string");
+    }
+
+    /**
+     * Returns the {@link SourceFile} with the path given by the string identifier. The source file is created on the
+     * first request and shared afterwards, also by the {@link CodeElement}s in that file.
+     * 
+     * @param pathId the identifier of the path string
+     * @return the {@link SourceFile} with the given path
+     * @throws IOException if the identifier is unknown
+     */
+    private @NonNull SourceFile<?> getSourceFile(int pathId) throws IOException {
+        String path = getString(pathId);
+        SourceFile<?> sourceFile = sourceFiles.get(pathId);
+        if (sourceFile == null) {
+            sourceFile = new SourceFile<>(new File(path));
+            sourceFiles.set(pathId, sourceFile);
+        }
+        return sourceFile;
+    }
+
+    /**
+     * Returns the element of the given list with the given identifier.
+     * 
+     * @param <T> the type of the elements
+     * @param elements the elements read so far
+     * @param id the identifier of the element
+     * @param description the description of the element for the exception message
+     * @return the element with the given identifier
+     * @throws IOException if the identifier is unknown
+     */
+    private <T> @NonNull T get(@NonNull List<T> elements, int id, @NonNull String description) throws IOException {
+        if (id < 0 || id >= elements.size()) {
+            throw new IOException(file + " refers to unknown " + description + " " + id);
+        }
+        return elements.get(id);
+    }
+
+    /**
+     * Decodes a zig-zag encoded integer.
+     * 
+     * @param value the zig-zag encoded integer
+     * @return the decoded integer
+     */
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a string as its UTF-8 byte length (variable-length integer) and bytes.
+     * 
+     * @return the read string
+     * @throws IOException if reading fails
+     */
+    private @NonNull String readString() throws IOException {
+        int length = readVarInt();
+        if (window.remaining() < length) {
+            remap(length);
+        }
+        byte[] bytes = new byte[length];
+        window.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a variable-length integer of 7 bits per byte.
+     * 
+     * @return the read integer
+     * @throws IOException if reading fails
+     */
+    private int readVarInt() throws IOException {
+        int value = 0;
+        int shift = 0;
+        int currentByte;
+        do {
+            currentByte = readByte();
+            value |= (currentByte & 0x7F) << shift;
+            shift += 7;
+        } while ((currentByte & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Reads a single unsigned byte.
+     * 
+     * @return the read byte
+     * @throws IOException if reading fails
+     */
+    private int readByte() throws IOException {
+        if (!window.hasRemaining()) {
+            remap(1);
+        }
+        return window.get() & 0xFF;
+    }
+
+    /**
+     * Maps the next window of the {@link #file} starting at the current position, which contains at least the given
+     * number of bytes.
+     * 
+     * @param requiredBytes the number of bytes the new window must contain at least
+     * @throws IOException if mapping fails or if the file ends before the required bytes
+     */
+    private void remap(int requiredBytes) throws IOException {
+        long position = windowOffset + window.position();
+        if (fileSize - position < requiredBytes) {
+            throw new EOFException(file + " ends unexpectedly; the snapshot is incomplete");
+        }
+        window = map(position, Math.max(WINDOW_SIZE, requiredBytes));
+    }
+
+    /**
+     * Maps the window of the {@link #file} starting at the given offset.
+     * 
+     * @param offset the offset of the window in the file
+     * @param size the maximum size of the window; limited by the end of the file
+     * @return the mapped window
+     * @throws IOException if mapping fails
+     */
+    private @NonNull MappedByteBuffer map(long offset, int size) throws IOException {
+        windowOffset = offset;
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size, fileSize - offset));
+    }
+
+    /**
+     * Returns the number of mapping elements replayed so far.
+     * 
+     * @return the number of replayed mapping elements
+     */
+    public int getElementCount() {
+        return elementCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        strings.clear();
+        sourceFiles.clear();
+        formulas.clear();
+        codeElements.clear();
+    }
+
+}
@@ -0,0 +1,476 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Disjunction;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * This class records a stream of {@link MappingElement}s as a compact binary snapshot, which the
+ * {@link MappingSnapshotReader} replays without the (expensive) extraction of the code, build, and variability models.
+ * The snapshot starts with the {@link #MAGIC} number and the {@link #VERSION}, followed by a sequence of records. Each
+ * record starts with a tag byte:
+ * <ul>
+ * <li>{@link #TAG_STRING}: a new string (like a variable name or a file path) as its UTF-8 byte length and bytes</li>
+ * <li>{@link #TAG_FORMULA}: a new node of a condition, i.e., the kind of the node followed by the string identifier of
+ *     a variable or the formula identifiers of its operands</li>
+ * <li>{@link #TAG_CODE_ELEMENT}: a new code element as the string identifier of its source file path, its start line,
+ *     the number of further lines, and the formula identifiers of its condition and presence condition</li>
+ * <li>{@link #TAG_ELEMENT}: a mapping element as the string identifiers of its variable name and type, the string
+ *     identifiers of the paths of its build mapping, and the identifiers of the code elements of its code mapping</li>
+ * <li>{@link #TAG_END}: the end of the snapshot followed by the number of mapping elements</li>
+ * </ul>
+ * The identifiers are the indexes of the strings, formulas, and code elements in the order of their records. Each
+ * distinct string, formula, and code element is written only once, just before the first element referring to it.
+ * Hence, the snapshot is written in a single pass and its size is roughly proportional to the number of distinct
+ * artifacts. All integers except for the header are (zig-zag) variable-length integers. Formulas are identified by
+ * their kind and the identifiers of their operands or variable name, code elements by the identifier of their path
+ * and their line range. Hence, the writer only retains these keys, but neither the formulas nor the code elements of
+ * the written mapping elements.<br><br>
+ * 
+ * The snapshot is written to a unique temporary file first, which replaces the given file on {@link #close()}.
+ * Hence, neither an interrupted recording nor multiple processes recording the same file concurrently corrupt the
+ * snapshot.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class MappingSnapshotWriter implements Closeable {
+
+    /**
+     * The magic number at the start of each snapshot ("PSSM").
+     */
+    static final int MAGIC = 0x5053534D;
+
+    /**
+     * The version of the snapshot format written by this class.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The tag of the record completing the snapshot.
+     */
+    static final int TAG_END = 0;
+
+    /**
+     * The tag of a record defining a new string.
+     */
+    static final int TAG_STRING = 1;
+
+    /**
+     * The tag of a record defining a new formula.
+     */
+    static final int TAG_FORMULA = 2;
+
+    /**
+     * The tag of a record defining a new code element.
+     */
+    static final int TAG_CODE_ELEMENT = 3;
+
+    /**
+     * The tag of a record describing a mapping element.
+     */
+    static final int TAG_ELEMENT = 4;
+
+    /**
+     * The kind of a formula, which is {@link False}.
+     */
+    static final int FORMULA_FALSE = 0;
+
+    /**
+     * The kind of a formula, which is {@link True}.
+     */
+    static final int FORMULA_TRUE = 1;
+
+    /**
+     * The kind of a formula, which is a {@link Variable}.
+     */
+    static final int FORMULA_VARIABLE = 2;
+
+    /**
+     * The kind of a formula, which is a {@link Negation}.
+     */
+    static final int FORMULA_NEGATION = 3;
+
+    /**
+     * The kind of a formula, which is a {@link Conjunction}.
+     */
+    static final int FORMULA_CONJUNCTION = 4;
+
+    /**
+     * The kind of a formula, which is a {@link Disjunction}.
+     */
+    static final int FORMULA_DISJUNCTION = 5;
+
+    /**
+     * The file to replace by the snapshot on {@link #close()}.
+     */
+    private @NonNull File file;
+
+    /**
+     * The temporary file the snapshot is written to.
+     */
+    private @NonNull File temporaryFile;
+
+    /**
+     * The stream writing the snapshot to the {@link #temporaryFile}.
+     */
+    private @NonNull DataOutputStream out;
+
+    /**
+     * The identifiers of the written strings.
+     */
+    private @NonNull Map<String, Integer> stringIds;
+
+    /**
+     * The identifiers of the written formulas by their keys (see {@link #getFormulaKey(int, int, int)}). Equal
+     * formulas share the same identifier.
+     */
+    private @NonNull Map<Long, Integer> formulaIds;
+
+    /**
+     * The identifiers of the written {@link CodeElement}s by their keys. Code elements with the same path and line
+     * range share the same identifier.
+     */
+    private @NonNull Map<CodeElementKey, Integer> codeElementIds;
+
+    /**
+     * This class represents the key of a written {@link CodeElement}: the identifier of its path and its line range.
+     */
+    private static final class CodeElementKey {
+
+        /**
+         * The string identifier of the path of the code element.
+         */
+        private int pathId;
+
+        /**
+         * The start line of the code element.
+         */
+        private int lineStart;
+
+        /**
+         * The end line of the code element.
+         */
+        private int lineEnd;
+
+        /**
+         * Creates a {@link CodeElementKey} instance.
+         * 
+         * @param pathId the string identifier of the path of the code element
+         * @param lineStart the start line of the code element
+         * @param lineEnd the end line of the code element
+         */
+        private CodeElementKey(int pathId, int lineStart, int lineEnd) {
+            this.pathId = pathId;
+            this.lineStart = lineStart;
+            this.lineEnd = lineEnd;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * pathId + lineStart) * 31 + lineEnd;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            boolean equal = false;
+            if (obj instanceof CodeElementKey) {
+                CodeElementKey other = (CodeElementKey) obj;
+                equal = pathId == other.pathId && lineStart == other.lineStart && lineEnd == other.lineEnd;
+            }
+            return equal;
+        }
+
+    }
+
+    /**
+     * The number of written mapping elements.
+     */
+    private int elementCount;
+
+    /**
+     * Creates a {@link MappingSnapshotWriter} instance recording a snapshot, which replaces the given file on
+     * {@link #close()}.
+     * 
+     * @param file the file to write the snapshot to; an existing file is replaced only after the snapshot is complete
+     * @throws IOException if creating the temporary file fails
+     */
+    public MappingSnapshotWriter(@NonNull File file) throws IOException {
+        this.file = file;
+        temporaryFile = File.createTempFile(file.getName() + "_", ".tmp", file.getAbsoluteFile().getParentFile());
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        stringIds = new HashMap<>();
+        formulaIds = new HashMap<>();
+        codeElementIds = new HashMap<>();
+    }
+
+    /**
+     * Writes the given {@link MappingElement} including all strings, formulas, and code elements not written before.
+     * 
+     * @param mappingElement the {@link MappingElement} to write
+     * @throws IOException if writing fails or if a condition contains an unsupported type of {@link Formula}
+     */
+    public void write(@NonNull MappingElement mappingElement) throws IOException {
+        int variableNameId = getStringId(mappingElement.getVariableName());
+        VariabilityVariable variable = mappingElement.getVariable();
+        int variableTypeId = variable != null ? getStringId(variable.getType()) + 1 : 0;
+        List<SourceFile<?>> buildMapping = mappingElement.getBuildMapping();
+        int[] sourceFileIds = new int[buildMapping.size()];
+        for (int i = 0; i < sourceFileIds.length; i++) {
+            sourceFileIds[i] = getStringId(buildMapping.get(i).getPath().getPath());
+        }
+        List<CodeElement<?>> codeMapping = mappingElement.getCodeMapping();
+        int[] codeMappingIds = new int[codeMapping.size()];
+        for (int i = 0; i < codeMappingIds.length; i++) {
+            codeMappingIds[i] = getCodeElementId(codeMapping.get(i));
+        }
+        out.writeByte(TAG_ELEMENT);
+        writeVarInt(variableNameId);
+        writeVarInt(variableTypeId);
+        writeVarInts(sourceFileIds);
+        writeVarInts(codeMappingIds);
+        elementCount++;
+    }
+
+    /**
+     * Returns the identifier of the given string. If the string was not written before, its record is written first.
+     * 
+     * @param string the string to get the identifier for
+     * @return the identifier of the given string
+     * @throws IOException if writing the record fails
+     */
+    private int getStringId(@NonNull String string) throws IOException {
+        Integer stringId = stringIds.get(string);
+        if (stringId == null) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(TAG_STRING);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+            stringId = stringIds.size();
+            stringIds.put(string, stringId);
+        }
+        return stringId;
+    }
+
+    /**
+     * Returns the identifier of the given {@link CodeElement}. If no code element with the same path and line range
+     * was written before, its record (and the records of its path and conditions) are written first.
+     * 
+     * @param codeElement the {@link CodeElement} to get the identifier for
+     * @return the identifier of the given {@link CodeElement}
+     * @throws IOException if writing the records fails or if a condition contains an unsupported type of
+     *         {@link Formula}
+     */
+    private int getCodeElementId(@NonNull CodeElement<?> codeElement) throws IOException {
+        int pathId = getStringId(codeElement.getSourceFile().getPath());
+        CodeElementKey key = new CodeElementKey(pathId, codeElement.getLineStart(), codeElement.getLineEnd());
+        Integer codeElementId = codeElementIds.get(key);
+        if (codeElementId == null) {
+            int conditionId = getFormulaId(codeElement.getCondition());
+            int presenceConditionId = getFormulaId(codeElement.getPresenceCondition());
+            out.writeByte(TAG_CODE_ELEMENT);
+            writeVarInt(pathId);
+            writeVarInt(zigZag(codeElement.getLineStart()));
+            writeVarInt(zigZag(codeElement.getLineEnd() - codeElement.getLineStart()));
+            writeVarInt(conditionId);
+            writeVarInt(presenceConditionId);
+            codeElementId = codeElementIds.size();
+            codeElementIds.put(key, codeElementId);
+        }
+        return codeElementId;
+    }
+
+    /**
+     * Returns the identifier of the given {@link Formula} incremented by one or <code>0</code> for <code>null</code>.
+     * If no equal formula was written before, its record (and the records of its operands) are written first.
+     * 
+     * @param formula the {@link Formula} to get the identifier for; may be <code>null</code>
+     * @return the identifier of the given {@link Formula} incremented by one or <code>0</code>
+     * @throws IOException if writing the records fails or if the formula contains an unsupported type of
+     *         {@link Formula}
+     */
+    private int getFormulaId(@Nullable Formula formula) throws IOException {
+        int formulaId = 0;
+        if (formula instanceof False) {
+            formulaId = getFormulaId(FORMULA_FALSE, 0, 0);
+        } else if (formula instanceof True) {
+            formulaId = getFormulaId(FORMULA_TRUE, 0, 0);
+        } else if (formula instanceof Variable) {
+            formulaId = getFormulaId(FORMULA_VARIABLE, getStringId(((Variable) formula).getName()), 0);
+        } else if (formula instanceof Negation) {
+            formulaId = getFormulaId(FORMULA_NEGATION, getFormulaId(((Negation) formula).getFormula()), 0);
+        } else if (formula instanceof Conjunction) {
+            Conjunction conjunction = (Conjunction) formula;
+            int leftId = getFormulaId(conjunction.getLeft());
+            formulaId = getFormulaId(FORMULA_CONJUNCTION, leftId, getFormulaId(conjunction.getRight()));
+        } else if (formula instanceof Disjunction) {
+            Disjunction disjunction = (Disjunction) formula;
+            int leftId = getFormulaId(disjunction.getLeft());
+            formulaId = getFormulaId(FORMULA_DISJUNCTION, leftId, getFormulaId(disjunction.getRight()));
+        } else if (formula != null) {
+            throw new IOException("Cannot record formula of unsupported type " + formula.getClass().getName());
+        }
+        return formulaId;
+    }
+
+    /**
+     * Returns the identifier incremented by one of the formula of the given kind with the given operands. If no such
+     * formula was written before, its record is written first. The operands must be written before.
+     * 
+     * @param kind the kind of the formula, like {@link #FORMULA_CONJUNCTION}
+     * @param firstOperand the string identifier of the variable name of a variable, the formula identifier
+     *        (incremented by one) of the first operand of other formulas, or <code>0</code> for constants
+     * @param secondOperand the formula identifier (incremented by one) of the second operand of binary formulas or
+     *        <code>0</code>
+     * @return the identifier of the formula incremented by one
+     * @throws IOException if writing the record fails
+     */
+    private int getFormulaId(int kind, int firstOperand, int secondOperand) throws IOException {
+        long key = getFormulaKey(kind, firstOperand, secondOperand);
+        Integer formulaId = formulaIds.get(key);
+        if (formulaId == null) {
+            out.writeByte(TAG_FORMULA);
+            writeVarInt(kind);
+            if (kind == FORMULA_VARIABLE || kind == FORMULA_NEGATION) {
+                writeVarInt(firstOperand);
+            } else if (kind == FORMULA_CONJUNCTION || kind == FORMULA_DISJUNCTION) {
+                writeVarInt(firstOperand);
+                writeVarInt(secondOperand);
+            }
+            formulaId = formulaIds.size();
+            formulaIds.put(key, formulaId);
+        }
+        return formulaId + 1;
+    }
+
+    /**
+     * Returns the key identifying the formula of the given kind with the given operands in the {@link #formulaIds}.
+     * The key packs the kind into the upper 4 bits and each operand into 30 bits; hence, a snapshot supports up to
+     * 2<sup>30</sup> distinct strings and formulas.
+     * 
+     * @param kind the kind of the formula
+     * @param firstOperand the first operand of the formula (see {@link #getFormulaId(int, int, int)})
+     * @param secondOperand the second operand of the formula (see {@link #getFormulaId(int, int, int)})
+     * @return the key of the formula
+     */
+    private static long getFormulaKey(int kind, int firstOperand, int secondOperand) {
+        return ((long) kind << 60) | ((long) firstOperand << 30) | secondOperand;
+    }
+
+    /**
+     * Encodes the given (possibly negative) integer such that small absolute values result in small unsigned values.
+     * 
+     * @param value the integer to encode
+     * @return the zig-zag encoded integer
+     */
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Writes the given (unsigned) integers preceded by their number as variable-length integers.
+     * 
+     * @param values the integers to write
+     * @throws IOException if writing fails
+     */
+    private void writeVarInts(int @NonNull [] values) throws IOException {
+        writeVarInt(values.length);
+        for (int value : values) {
+            writeVarInt(value);
+        }
+    }
+
+    /**
+     * Writes the given (unsigned) integer as a variable-length integer of 7 bits per byte to the {@link #out} stream.
+     * 
+     * @param value the integer to write
+     * @throws IOException if writing fails
+     */
+    private void writeVarInt(int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    /**
+     * Returns the number of written mapping elements.
+     * 
+     * @return the number of written mapping elements
+     */
+    public int getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * Completes the snapshot and replaces the file given to the constructor by it.
+     * 
+     * @throws IOException if writing or replacing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.writeByte(TAG_END);
+            writeVarInt(elementCount);
+        } finally {
+            out.close();
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        stringIds.clear();
+        formulaIds.clear();
+        codeElementIds.clear();
+    }
+
+    /**
+     * Closes the snapshot without completing it and deletes the temporary file. The file given to the constructor
+     * remains unchanged.
+     */
+    public void discard() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            // The temporary file is deleted anyway
+        }
+        temporaryFile.delete();
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector.rules;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import net.ssehub.kernel_haven.pss_divergence_detector.IDivergenceRule;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.UnusedVariableDivergence;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * This {@link IDivergenceRule} detects {@link UnusedVariableDivergence}s for all {@link MappingElement}s with the
+ * variable state "UNUSED".
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class UnusedVariableRule implements IDivergenceRule {
+
+    @Override
+    public @NonNull Collection<String> getVariableStates() {
+        return Collections.singleton("UNUSED");
+    }
+
+    @Override
+    public int getRequiredMappingParts() {
+        return MAPPING_PART_VARIABLE;
+    }
+
+    @Override
+    public void detect(@NonNull MappingElement mappingElement, @NonNull Consumer<Divergence> divergenceConsumer) {
+        divergenceConsumer.accept(new UnusedVariableDivergence(mappingElement));
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.ssehub.kernel_haven.pss_divergence_detector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.code_model.CodeBlock;
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.Divergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.MergedDivergence;
+import net.ssehub.kernel_haven.pss_divergence_detector.divergences.UndefinedVariableDivergence;
+import net.ssehub.kernel_haven.pss_mapper.MappingElement;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Variable;
+
+/**
+ * Tests the {@link NestedBlockMerger}.
+ * 
+ * @author Christian Kröher
+ *
+ */
+public class NestedBlockMergerTest {
+
+    /**
+     * The source file containing the code blocks of the tests.
+     */
+    private static final File SOURCE_FILE = new File("drivers/a.c");
+
+    /**
+     * Creates the {@link UndefinedVariableDivergence} of the undefined variable <code>CONFIG_A</code>, which is used in
+     * the following <code>#ifdef</code> layout of {@link #SOURCE_FILE}:
+     * <pre>
+     *  1 #ifdef CONFIG_A
+     *  5   #ifdef CONFIG_B
+     * 10   #endif
+     * 20 #endif
+     * 21 #ifdef CONFIG_A
+     * 30 #endif
+     * 50 #ifdef CONFIG_A
+     * 60 #endif
+     * </pre>
+     * The blocks [5-10] (nested in [1-20]) and [21-30] (adjacent to [1-20]) only extend the first line range, while
+     * the block [50-60] is separate.
+     * 
+     * @return the divergence involving all four code blocks
+     */
+    private static Divergence createNestedIfdefDivergence() {
+        Variable varA = new Variable("CONFIG_A");
+        Variable varB = new Variable("CONFIG_B");
+        CodeBlock outerBlock = new CodeBlock(1, 20, SOURCE_FILE, varA, varA);
+        CodeBlock nestedBlock = new CodeBlock(5, 10, SOURCE_FILE, varB, new Conjunction(varA, varB));
+        outerBlock.addNestedElement(nestedBlock);
+        CodeBlock adjacentBlock = new CodeBlock(21, 30, SOURCE_FILE, varA, varA);
+        CodeBlock separateBlock = new CodeBlock(50, 60, SOURCE_FILE, varA, varA);
+        List<CodeElement<?>> codeMapping = new ArrayList<>(
+                Arrays.asList(outerBlock, nestedBlock, adjacentBlock, separateBlock));
+        return new UndefinedVariableDivergence(new MappingElement("CONFIG_A", null, new ArrayList<SourceFile<?>>(),
+                codeMapping));
+    }
+
+    /**
+     * Tests that the nested and adjacent code blocks of a single divergence are merged into a single line range, which
+     * shrinks the reported symptom.
+     */
+    @Test
+    public void testNestedAndAdjacentBlocksOfSingleDivergenceMerged() {
+        Divergence divergence = createNestedIfdefDivergence();
+        NestedBlockMerger merger = new NestedBlockMerger();
+        List<Divergence> result = merger.merge(Arrays.asList(divergence));
+
+        assertEquals(1, result.size());
+        assertTrue(result.get(0) instanceof MergedDivergence);
+        MergedDivergence merged = (MergedDivergence) result.get(0);
+        assertEquals(divergence.getType(), merged.getMergedType());
+        assertEquals(4, merged.getInvolvedCodeElements().size());
+        assertEquals(2, merged.getMergedCodeElementsCount());
+        assertEquals(1, merger.getMergedDivergencesCount());
+        assertEquals(2, merger.getMergedCodeElementsCount());
+
+        String symptom = merged.getSolutionSpaceSymptom();
+        assertTrue(symptom, symptom.contains(SOURCE_FILE.getPath() + "[1-30]"));
+        assertTrue(symptom, symptom.contains(SOURCE_FILE.getPath() + "[50-60]"));
+        assertFalse(symptom, symptom.contains("[5-10]"));
+        assertFalse(symptom, symptom.contains("[21-30]"));
+        assertTrue(symptom, symptom.length() < divergence.getSolutionSpaceSymptom().length());
+    }
+
+    /**
+     * Tests that the divergences of the same variable with adjacent code blocks are merged into a single divergence
+     * with a single line range.
+     */
+    @Test
+    public void testAdjacentBlocksOfMultipleDivergencesMerged() {
+        Variable varA = new Variable("CONFIG_A");
+        List<CodeElement<?>> firstMapping = new ArrayList<>();
+        firstMapping.add(new CodeBlock(1, 20, SOURCE_FILE, varA, varA));
+        List<CodeElement<?>> secondMapping = new ArrayList<>();
+        secondMapping.add(new CodeBlock(21, 30, SOURCE_FILE, varA, varA));
+        Divergence first = new UndefinedVariableDivergence(new MappingElement("CONFIG_A", null,
+                new ArrayList<SourceFile<?>>(), firstMapping));
+        Divergence second = new UndefinedVariableDivergence(new MappingElement("CONFIG_A", null,
+                new ArrayList<SourceFile<?>>(), secondMapping));
+        NestedBlockMerger merger = new NestedBlockMerger();
+        List<Divergence> result = merger.merge(Arrays.asList(first, second));
+
+        assertEquals(1, result.size());
+        MergedDivergence merged = (MergedDivergence) result.get(0);
+        assertEquals(2, merged.getMergedDivergences().size());
+        assertEquals(1, merged.getMergedCodeElementsCount());
+        assertTrue(merged.getSolutionSpaceSymptom().contains(SOURCE_FILE.getPath() + "[1-30]"));
+    }
+
+    /**
+     * Tests that a divergence without nested or adjacent code blocks is passed on unchanged.
+     */
+    @Test
+    public void testSeparateBlocksNotMerged() {
+        Variable varA = new Variable("CONFIG_A");
+        List<CodeElement<?>> codeMapping = new ArrayList<>();
+        codeMapping.add(new CodeBlock(1, 20, SOURCE_FILE, varA, varA));
+        codeMapping.add(new CodeBlock(50, 60, SOURCE_FILE, varA, varA));
+        Divergence divergence = new UndefinedVariableDivergence(new MappingElement("CONFIG_A", null,
+                new ArrayList<SourceFile<?>>(), codeMapping));
+        NestedBlockMerger merger = new NestedBlockMerger();
+        List<Divergence> result = merger.merge(Arrays.asList(divergence));
+
+        assertEquals(1, result.size());
+        assertTrue(result.get(0) == divergence);
+        assertEquals(0, merger.getMergedDivergencesCount());
+    }
+
+}